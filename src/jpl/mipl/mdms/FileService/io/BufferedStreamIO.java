@@ -8,10 +8,19 @@ import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.io.SyncFailedException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.DigestInputStream;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
 import jpl.mipl.mdms.FileService.util.FileUtil;
 import jpl.mipl.mdms.utils.logging.Logger;
 
@@ -41,6 +50,15 @@ import jpl.mipl.mdms.utils.logging.Logger;
  * 07/15/2005        Nick             Set raf.setLength() to occur after file 
  *                                    fully transfers to truncate, not before.
  * 06/01/2008        Nick             CRC placed in a read loop. 
+ * 10/18/2026        MDMS             NIO receive path: socket channel 
+ *                                    transfer for plain connections, 
+ *                                    pooled direct buffers otherwise.
+ * 10/18/2026        MDMS             Zero-copy send path with checksum 
+ *                                    computed over a mapped file region.
+ * 10/18/2026        MDMS             Per-instance digest with selectable
+ *                                    algorithm replaces shared static one.
+ * 10/18/2026        MDMS             In-memory transfers to and from 
+ *                                    direct byte buffers.
  * ============================================================================
  * </PRE>
  * 
@@ -56,11 +74,9 @@ public class BufferedStreamIO
 
    private static final int DEFOUTBUFSIZE = 512;
 
-   private static final String _LOCK = "";
-
    private static final String RAF_WRITE_MODE = "rw"; // "rwd";
 
-   private static MessageDigest _digest = null;
+   private MessageDigest _digest = null; // Prototype, cloned per transfer
 
    private BufferedInputStream _bis;
 
@@ -74,6 +90,16 @@ public class BufferedStreamIO
 
    private int _outBufSize;
 
+   private final boolean _nioEnabled; // Receive files using NIO channels
+
+   private ReadableByteChannel _inChannel; // Channel view of _bis
+
+   private WritableByteChannel _outChannel; // Channel view of _bos
+
+   private Selector _selector; // Waits on socket channel reads
+
+   private static final long MAP_REGION_SIZE = 64L * 1024 * 1024;
+
    private Logger _logger = Logger.getLogger(BufferedStreamIO.class.getName());
 
    // ----------------------------------------------------------------------
@@ -125,21 +151,13 @@ public class BufferedStreamIO
       this._inBufSize = inBufSize;
       this._bos = bos;
       this._outBufSize = outBufSize;
+      this._nioEnabled = !"false".equalsIgnoreCase(System.getProperty(
+                                      Constants.PROPERTY_IO_NIO_ENABLE));
 
       try {
-         // If this is the first instance, create the message digest
-         // for cloning.
-         synchronized (BufferedStreamIO._LOCK) 
-         {
-            if (BufferedStreamIO._digest == null)
-               BufferedStreamIO._digest = MessageDigest.getInstance("SHA");
-         }
-         this._digestis = new DigestInputStream(this._bis,
-                                                BufferedStreamIO._digest);
-         this._digestos = new DigestOutputStream(this._bos,
-                                                 BufferedStreamIO._digest);
+         this.setDigestAlgorithm(DigestFactory.getDefaultAlgorithm());
       } catch (java.security.NoSuchAlgorithmException nsa) {
-         // SHA not implemented. Any checksum access attempt will fail.
+         // Algorithm not implemented. Any checksum access attempt will fail.
          // This is not likely to happen anywhere.
          nsa.printStackTrace();
       }
@@ -147,6 +165,40 @@ public class BufferedStreamIO
 
    // ----------------------------------------------------------------------
 
+   /**
+    * Selects the message digest algorithm used to checksum transfers on
+    * this stream.  Each stream owns its digest, and every transfer works
+    * on its own copy, so concurrent streams never share digest state.
+    * 
+    * @param algorithm algorithm name, see <code>DigestFactory</code>
+    * @throws java.security.NoSuchAlgorithmException if algorithm is not
+    *         supported
+    */
+
+   public void setDigestAlgorithm(String algorithm)
+                           throws java.security.NoSuchAlgorithmException
+   {
+      MessageDigest digest = DigestFactory.getInstance(algorithm);
+      this._digest = digest;
+      this._digestis = new DigestInputStream(this._bis, digest);
+      this._digestos = new DigestOutputStream(this._bos, digest);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the message digest algorithm used to checksum transfers.
+    * 
+    * @return algorithm name, null if none could be created
+    */
+
+   public String getDigestAlgorithm()
+   {
+      return (this._digest == null) ? null : this._digest.getAlgorithm();
+   }
+
+   // ----------------------------------------------------------------------
+
    /**
     * Reads from the (buffered) input stream and writes it to file
     * 
@@ -198,6 +250,12 @@ public class BufferedStreamIO
                        "either non-exist file or invalid offset value.");
       }
 
+      if (this._nioEnabled)
+      {
+         this._readFileFromChannel(file, offset, length);
+         return;
+      }
+
       try {
          this._logger.debug("StreamIO - Reading file, size "
                             + (bytesToRead + offset));
@@ -416,6 +474,459 @@ public class BufferedStreamIO
 
    // ----------------------------------------------------------------------
 
+   /**
+    * NIO implementation of <code>readFileFromStream(String,long,long)
+    * </code>.  Reads <code>length</code> bytes from the peer into the file
+    * starting at <code>offset</code>, then truncates the file to
+    * <code>length</code>.
+    * 
+    * @param file the output file
+    * @param offset the offset byte
+    * @param length the lenght of byte stream
+    * @throws IOException when network/file IO failure
+    */
+
+   private void _readFileFromChannel(File file, long offset, long length)
+                                                          throws IOException
+   {
+      RandomAccessFile outFile = null;
+      long clock = 0;
+
+      this._logger.debug("StreamIO - Reading file via channel, size "
+                         + (length + offset));
+
+      try {
+         outFile = new RandomAccessFile(file, RAF_WRITE_MODE);
+      } catch (IOException e) {
+         this._logger.debug("Flush remaining data from peer");
+         this._skipBytes(length);
+         throw e;
+      }
+
+      try {
+         if (this._logger.isBenchEnabled()) 
+         {
+            clock = System.currentTimeMillis();
+            this._logger.bench("Begin receiving and writting file '" + file
+                  + "' size=" + length + " byte(s)");
+         }
+
+         this._receiveToChannel(outFile.getChannel(), offset, length, null);
+         outFile.setLength(length);
+         file.setLastModified(System.currentTimeMillis());
+
+      } catch (SocketTimeoutException stoEx) {
+         this._logger.error("Received timeout error. Aborting read.");
+         throw stoEx; // rethrow the exception.
+      } finally {
+         // Sync the file so dirty buffers reach the physical medium.
+         try {
+            _logger.debug("Attempting to sync file");
+            outFile.getFD().sync();
+         } catch (SyncFailedException sfEx) {
+            _logger.error("Error occurred while attempting to sync " + file);
+            _logger.debug(null, sfEx);
+         }
+         try {
+            _logger.debug("Attempting to close file.");
+            outFile.close();
+         } catch (IOException ioEx) {
+            _logger.error("Error occurred while attempting to close " + file);
+            _logger.debug(null, ioEx);
+         }
+         this._logger.bench("Time spent receiving and writting file '"
+               + file + "' size=" + length + " byte(s): "
+               + (System.currentTimeMillis() - clock) + "ms");
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * NIO implementation of <code>readAndVerifyFileFromStream(String,long,
+    * long)</code>.  Reads <code>length - offset</code> bytes from the peer
+    * into the file starting at <code>offset</code>, followed by the
+    * peer-calculated checksum, and verifies it.
+    * 
+    * @param fileName the name of the file
+    * @param offset the offset value to begin the transfer
+    * @param length the number of bytes to be transfered
+    * @return the checksum byte array
+    * @throws IOException when network/file IO failure
+    * @throws VerifyException when checksum failed to verify.
+    */
+
+   private byte[] _readAndVerifyFileFromChannel(String fileName, long offset,
+                          long length) throws IOException, VerifyException
+   {
+      long bytesToRead = length - offset;
+      File file = new File(fileName);
+      RandomAccessFile outFile = null;
+      MessageDigest calculatedDigest;
+      byte[] receivedChecksum;
+      byte[] calculatedChecksum = null;
+      long clock = 0;
+
+      this._logger.debug("StreamIO - Reading file via channel, size "
+                         + length);
+
+      try {
+         // Create a new message digest for this file, made available to the
+         // caller via reference.
+         calculatedDigest = (MessageDigest) this._digest.clone();
+         if (offset > 0)
+            FileUtil.updateChecksum(fileName, calculatedDigest, 0, offset);
+         outFile = new RandomAccessFile(file, RAF_WRITE_MODE);
+      } catch (CloneNotSupportedException cnse) {
+         this._logger.debug("Flush remaining data from peer");
+         this._skipBytes(bytesToRead);
+         readChecksum();
+         throw new IOException(cnse.getMessage());
+      } catch (IOException e) {
+         this._logger.debug("Flush remaining data from peer");
+         this._skipBytes(bytesToRead);
+         readChecksum();
+         throw e;
+      }
+
+      try {
+         if (this._logger.isBenchEnabled()) {
+            clock = System.currentTimeMillis();
+            this._logger.bench("Begin receiving and writting file '" + fileName
+                  + "' size=" + length + " byte(s)");
+         }
+
+         try {
+            this._receiveToChannel(outFile.getChannel(), offset, bytesToRead,
+                                   calculatedDigest);
+         } catch (SocketTimeoutException stoEx) {
+            // Dont treat this the same as general IOEx, as we cannot
+            //read anymore
+            this._logger.error("Received socket timeout error.  Aborting read.");
+            throw stoEx;
+         } catch (IOException e) {
+            // File data has been flushed, need to flush checksum too.
+            readChecksum();
+            throw e;
+         }
+
+         // setting the length truncates any data that existed after length
+         outFile.setLength(length);
+         file.setLastModified(System.currentTimeMillis());
+
+         // The file has now been transfered. Now read the client-calculated
+         // checksum, and call verify.
+         receivedChecksum = readChecksum();
+
+         // Call to digest() method resets digest.
+         calculatedChecksum = calculatedDigest.digest();
+
+         if (MessageDigest.isEqual(receivedChecksum, calculatedChecksum) == false)
+            throw new VerifyException("Message digest comparison failed.");
+
+         // checksum does not verify that data does not exist on the local
+         // file beyond where we write, so check case that local file is longer
+         // than server file, checksums would not match in the case
+         if (outFile.getFilePointer() < outFile.length())
+            throw new VerifyException("Local file is larger than " +
+                                      "server file.");
+      } finally {
+         // Sync the file so dirty buffers reach the physical medium.
+         outFile.getFD().sync();
+         outFile.close();
+         this._logger.bench("Time spent receiving and writing file '"
+               + fileName + "' size=" + length + " byte(s): "
+               + (System.currentTimeMillis() - clock) + "ms");
+      }
+      return calculatedChecksum;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Receives <code>count</code> bytes from the peer and writes them to
+    * <code>out</code> starting at <code>position</code>, updating
+    * <code>digest</code> if not null.  Bytes already buffered by the input
+    * stream are written first.  For plain socket connections the rest is
+    * read from the socket channel, using <code>FileChannel.transferFrom
+    * </code> when no digest is needed.  Otherwise it is read through 
+    * pooled direct buffers.  On return the channel position is the end 
+    * of the written data.  If writing fails, the remaining file data is 
+    * flushed from the peer before the exception is rethrown.
+    * 
+    * @param out the destination file channel
+    * @param position file position of first byte
+    * @param count number of bytes to receive
+    * @param digest message digest to update, or null
+    * @throws IOException when network/file IO failure
+    */
+
+   private void _receiveToChannel(FileChannel out, long position, long count,
+                                  MessageDigest digest) throws IOException
+   {
+      ByteBufferPool pool = ByteBufferPool.getDefault();
+      ByteBuffer buffer = pool.acquire();
+      long unread = count;
+
+      try {
+         SocketChannel socket = null;
+         if (this._bis instanceof ChannelBufferedInputStream)
+         {
+            ChannelBufferedInputStream cbis = 
+                                   (ChannelBufferedInputStream) this._bis;
+            socket = cbis.getChannel();
+
+            // bytes already read into the stream buffer come first
+            while (unread > 0 && cbis.getBufferedCount() > 0)
+            {
+               buffer.clear();
+               buffer.limit((int) Math.min(buffer.capacity(), unread));
+               unread -= cbis.readBuffered(buffer);
+               buffer.flip();
+               position = this._writeBuffer(out, buffer, position, digest);
+            }
+         }
+
+         if (socket != null && unread > 0)
+         {
+            // socket channel reads ignore SO_TIMEOUT, so wait on a
+            // selector instead
+            int timeout = socket.socket().getSoTimeout();
+            Selector selector = this._beginSelect(socket);
+            try {
+               while (unread > 0)
+               {
+                  long n = 0;
+                  if (digest == null)
+                  {
+                     n = out.transferFrom(socket, position, unread);
+                     position += n;
+                     unread -= n;
+                  }
+                  else
+                  {
+                     // fill buffer with whatever is available to keep
+                     // file writes large
+                     buffer.clear();
+                     buffer.limit((int) Math.min(buffer.capacity(), unread));
+                     while (buffer.hasRemaining() && 
+                            (n = socket.read(buffer)) > 0);
+                     if (n < 0)
+                        throw new IOException("Unexpected EOF from network peer.");
+                     n = buffer.position();
+                     unread -= n;
+                     buffer.flip();
+                     position = this._writeBuffer(out, buffer, position, 
+                                                  digest);
+                  }
+
+                  if (n > 0 || !this._awaitReadable(selector, timeout))
+                     continue;
+
+                  // transferFrom cannot report end of stream, so nothing
+                  // transferred from a readable channel is taken as such
+                  if (digest == null)
+                  {
+                     n = out.transferFrom(socket, position, unread);
+                     if (n == 0)
+                        throw new IOException("Unexpected EOF from network peer.");
+                     position += n;
+                     unread -= n;
+                  }
+               }
+            } finally {
+               this._endSelect(socket);
+            }
+         }
+         else if (unread > 0)
+         {
+            if (this._inChannel == null)
+               this._inChannel = Channels.newChannel(this._bis);
+
+            while (unread > 0)
+            {
+               buffer.clear();
+               buffer.limit((int) Math.min(buffer.capacity(), unread));
+               while (buffer.hasRemaining())
+               {
+                  if (this._inChannel.read(buffer) < 0)
+                     throw new IOException("Unexpected EOF from network peer.");
+               }
+               unread -= buffer.limit();
+               buffer.flip();
+               position = this._writeBuffer(out, buffer, position, digest);
+            }
+         }
+
+         out.position(position);
+
+      } catch (SocketTimeoutException stoEx) {
+         throw stoEx;
+      } catch (IOException ioEx) {
+         this._logger.debug("Flush remaining data from peer");
+         this._skipBytes(unread);
+         throw ioEx;
+      } finally {
+         pool.release(buffer);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Writes the remaining content of <code>buffer</code> to
+    * <code>out</code> at <code>position</code>, updating 
+    * <code>digest</code> if not null.
+    * 
+    * @param out the destination file channel
+    * @param buffer flipped buffer of data to be written
+    * @param position file position of first byte
+    * @param digest message digest to update, or null
+    * @return file position following the written data
+    * @throws IOException when file IO failure
+    */
+
+   private long _writeBuffer(FileChannel out, ByteBuffer buffer, 
+                             long position, MessageDigest digest)
+                             throws IOException
+   {
+      if (digest != null)
+      {
+         buffer.mark();
+         digest.update(buffer);
+         buffer.reset();
+      }
+
+      // trying to detect write failure such as insufficant disk space, etc.
+      try {
+         while (buffer.hasRemaining())
+            position += out.write(buffer, position);
+      } catch (IOException e) {
+         this._logger.debug("File write failed.");
+         throw e;
+      }
+      return position;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Switches the socket channel to non-blocking mode and registers it
+    * for reads with the selector of this object, which is opened on first
+    * use and kept for later transfers.
+    * 
+    * @param socket the socket channel of the input stream
+    * @return selector with the socket channel registered for reads
+    * @throws IOException when network IO failure
+    */
+
+   private Selector _beginSelect(SocketChannel socket) throws IOException
+   {
+      if (this._selector == null)
+         this._selector = Selector.open();
+      socket.configureBlocking(false);
+      socket.register(this._selector, SelectionKey.OP_READ);
+      return this._selector;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Deregisters the socket channel from the selector and restores
+    * blocking mode, which the input and output streams require.
+    * 
+    * @param socket the socket channel of the input stream
+    * @throws IOException when network IO failure
+    */
+
+   private void _endSelect(SocketChannel socket) throws IOException
+   {
+      SelectionKey key = socket.keyFor(this._selector);
+      if (key != null)
+      {
+         key.cancel();
+         // completes the deregistration
+         this._selector.selectNow();
+      }
+      socket.configureBlocking(true);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Releases the selector used for socket channel reads.  The input and
+    * output streams are left open.
+    */
+
+   public void dispose()
+   {
+      if (this._selector == null)
+         return;
+      try {
+         this._selector.close();
+      } catch (IOException ioEx) {
+         this._logger.trace(null, ioEx);
+      }
+      this._selector = null;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Waits until the selector's channel is readable.
+    * 
+    * @param selector selector with the socket channel registered for reads
+    * @param timeout timeout in milliseconds, 0 for none
+    * @return true if channel is readable, false if woken up early
+    * @throws SocketTimeoutException if timeout elapses
+    * @throws IOException when network IO failure
+    */
+
+   private boolean _awaitReadable(Selector selector, int timeout)
+                                                       throws IOException
+   {
+      int ready = selector.select(timeout);
+      selector.selectedKeys().clear();
+      if (ready == 0 && timeout > 0)
+         throw new SocketTimeoutException("Read timed out");
+      return ready > 0;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Discards up to <code>count</code> bytes from the input stream,
+    * stopping early if the peer closes the connection.
+    * 
+    * @param count number of bytes to discard
+    */
+
+   private void _skipBytes(long count)
+   {
+      byte[] junk = new byte[this._inBufSize];
+      int retVal;
+
+      try {
+         while (count > 0)
+         {
+            if (this._inBufSize < count)
+               retVal = this._bis.read(junk, 0, this._inBufSize);
+            else
+               retVal = this._bis.read(junk, 0, (int) count);
+
+            // If the connection was lost, then we need to stop pulling.
+            if (retVal < 1)
+               break;
+            count -= retVal;
+         }
+      } catch (IOException ioEx) {
+         this._logger.debug("Flush interrupted: " + ioEx.getMessage());
+      }
+      _logger.debug("Done flushing");
+   }
+
+   // ----------------------------------------------------------------------
+
    /**
     * Reads from the (buffered) input stream and writes it to the specified byte
     * buffer. The method limits the input file size to be less than or equal to
@@ -490,7 +1001,7 @@ public class BufferedStreamIO
    
    protected byte[] readChecksum() throws IOException
    {
-       int bytesToRead = BufferedStreamIO._digest.getDigestLength();       
+       int bytesToRead = this._digest.getDigestLength();       
        byte[] data = new byte[bytesToRead];
        byte[] crc  = new byte[bytesToRead];
        int bytesRead = 0;
@@ -537,7 +1048,7 @@ public class BufferedStreamIO
 
       // May need to flush a checksum too.
       if (doChecksum)
-         bytesToRead += BufferedStreamIO._digest.getDigestLength();
+         bytesToRead += this._digest.getDigestLength();
       while (bytesToRead > 0) 
       {
          if (this._inBufSize < bytesToRead)
@@ -614,13 +1125,16 @@ public class BufferedStreamIO
                   + "non-existing file or invalid offset value.");
       }
 
+      if (this._nioEnabled)
+         return this._readAndVerifyFileFromChannel(fileName, offset, length);
+
       try {
          this._logger.debug("StreamIO - Reading file, size "
                + (bytesToRead + offset));
          this._logger.debug("StreamIO - Input buffer " + this._inBufSize);
          // Create a new message digest for this file, made available to the
          // caller via reference.
-         calculatedDigest = (MessageDigest) BufferedStreamIO._digest.clone();
+         calculatedDigest = (MessageDigest) this._digest.clone();
          if (offset > 0)
             FileUtil.updateChecksum(fileName, calculatedDigest, 0, offset);
          
@@ -778,7 +1292,7 @@ public class BufferedStreamIO
          
          // Create a new message digest for this file, made available to the
          // caller via reference.
-         calculatedDigest = (MessageDigest) BufferedStreamIO._digest.clone();
+         calculatedDigest = (MessageDigest) this._digest.clone();
          receivedChecksum = new byte[calculatedDigest.getDigestLength()];
          this._digestis.setMessageDigest(calculatedDigest);
          
@@ -830,18 +1344,176 @@ public class BufferedStreamIO
    // ----------------------------------------------------------------------
 
    /**
-    * Reads a file and writes it to the (buffered) output stream.
+    * Reads <code>fileSize</code> bytes from the (buffered) input stream
+    * into <code>buffer</code>, starting at its position.  Direct buffers
+    * are filled from the socket channel without an intermediate copy to
+    * the heap when the connection allows it.  On return the position of
+    * the buffer follows the data read.
     * 
-    * @param fileName absolute path of file to be read
+    * @param buffer buffer with at least fileSize bytes remaining
     * @param fileSize file size in unit of bytes
-    * @throws IOException when network/file I/O error occurs
+    * @param flushChecksum Flag indicating if checksum needs to be flushed
+    * @throws IOException when network I/O error occurs
     */
 
-   public void writeFileToStream(String fileName, long fileSize)
-                                              throws IOException 
+   public void readBufferFromStream(ByteBuffer buffer, long fileSize,
+                                    boolean flushChecksum) throws IOException
    {
-      this.writeFileToStream(fileName, 0, fileSize);
-   }
+      this._logger.debug("StreamIO - Reading file to buffer, size " + 
+                         fileSize);
+
+      if (buffer.remaining() < fileSize)
+         throw new IOException(
+               "Insufficient buffer size for the incoming file size.");
+
+      this._receiveToBuffer(buffer, (int) fileSize);
+
+      //eat the checksum, we don't use it
+      if (flushChecksum)
+         readChecksum();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Reads <code>fileSize</code> bytes from the (buffered) input stream
+    * into <code>buffer</code>, starting at its position, followed by the
+    * checksum of the peer, and verifies it against the checksum of the
+    * data read.  On return the position of the buffer follows the data 
+    * read.
+    * 
+    * @param buffer buffer with at least fileSize bytes remaining
+    * @param fileSize file size
+    * @return the received, verified checksum
+    * @throws IOException when file I/O fail
+    * @throws VerifyException when comparisons file fail
+    * @see java.security.MessageDigest
+    */
+
+   public byte[] readAndVerifyBufferFromStream(ByteBuffer buffer, 
+                                               long fileSize)
+                                         throws IOException, VerifyException
+   {
+      if (buffer.remaining() < fileSize)
+         throw new IOException("Insufficient buffer size for the incoming file size.");
+
+      MessageDigest calculatedDigest;
+      try {
+         calculatedDigest = (MessageDigest) this._digest.clone();
+      } catch (CloneNotSupportedException cnse) {
+         this._skipBytes(fileSize + this._digest.getDigestLength());
+         throw new IOException(cnse.getMessage());
+      }
+
+      int start = buffer.position();
+      try {
+         this._receiveToBuffer(buffer, (int) fileSize);
+      } catch (SocketTimeoutException stoEx) {
+         this._logger.error("Received timeout error.  Aborting read.");
+         throw stoEx;
+      }
+
+      ByteBuffer data = buffer.duplicate();
+      data.position(start);
+      data.limit(buffer.position());
+      calculatedDigest.update(data);
+
+      this._logger.debug("Now receiving checksum.");
+      byte[] receivedChecksum = readChecksum();
+      byte[] calculatedChecksum = calculatedDigest.digest();
+      if (MessageDigest.isEqual(receivedChecksum, calculatedChecksum) == false)
+         throw new VerifyException("Message digest comparison failed.");
+      return calculatedChecksum;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Receives <code>count</code> bytes from the peer into 
+    * <code>dst</code>.  Bytes already buffered by the input stream are
+    * taken first, then the socket channel is read directly if there is 
+    * one, otherwise a channel view of the input stream.
+    * 
+    * @param dst destination buffer
+    * @param count number of bytes to receive
+    * @throws IOException when network IO failure
+    */
+
+   private void _receiveToBuffer(ByteBuffer dst, int count)
+                                                    throws IOException
+   {
+      int limit = dst.limit();
+      dst.limit(dst.position() + count);
+
+      try {
+         SocketChannel socket = null;
+         if (this._bis instanceof ChannelBufferedInputStream)
+         {
+            ChannelBufferedInputStream cbis = 
+                                   (ChannelBufferedInputStream) this._bis;
+            socket = cbis.getChannel();
+
+            // bytes already read into the stream buffer come first
+            while (dst.hasRemaining() && cbis.getBufferedCount() > 0)
+               cbis.readBuffered(dst);
+         }
+
+         if (socket != null && dst.hasRemaining())
+         {
+            // socket channel reads ignore SO_TIMEOUT, so wait on a
+            // selector instead
+            int timeout = socket.socket().getSoTimeout();
+            Selector selector = this._beginSelect(socket);
+            try {
+               while (dst.hasRemaining())
+               {
+                  int n = socket.read(dst);
+                  if (n < 0)
+                     throw new IOException("Unexpected EOF from network peer.");
+                  if (n == 0)
+                     this._awaitReadable(selector, timeout);
+               }
+            } finally {
+               this._endSelect(socket);
+            }
+         }
+         else if (dst.hasRemaining())
+         {
+            if (this._inChannel == null)
+               this._inChannel = Channels.newChannel(this._bis);
+
+            while (dst.hasRemaining())
+            {
+               if (this._inChannel.read(dst) < 0)
+                  throw new IOException("Unexpected EOF from network peer.");
+            }
+         }
+      } catch (SocketTimeoutException stoEx) {
+         throw stoEx;
+      } catch (IOException ioEx) {
+         this._logger.debug("Flush remaining data from peer");
+         this._skipBytes(dst.remaining());
+         throw ioEx;
+      } finally {
+         dst.limit(limit);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Reads a file and writes it to the (buffered) output stream.
+    * 
+    * @param fileName absolute path of file to be read
+    * @param fileSize file size in unit of bytes
+    * @throws IOException when network/file I/O error occurs
+    */
+
+   public void writeFileToStream(String fileName, long fileSize)
+                                              throws IOException 
+   {
+      this.writeFileToStream(fileName, 0, fileSize);
+   }
 
    // ----------------------------------------------------------------------
 
@@ -921,7 +1593,7 @@ public class BufferedStreamIO
       byte[] checksum;
       try {
          // Create a new message digest for this buffer.
-         calculatedDigest = (MessageDigest) BufferedStreamIO._digest.clone();
+         calculatedDigest = (MessageDigest) this._digest.clone();
          checksum = calculatedDigest.digest(buffer);
       } catch (CloneNotSupportedException cnse) {
          throw new IOException(cnse.getMessage());
@@ -1103,7 +1775,7 @@ public class BufferedStreamIO
             // Create a new message digest for this file, made available to
             // the
             // caller via reference.
-            calculatedDigest = (MessageDigest) BufferedStreamIO._digest.clone();
+            calculatedDigest = (MessageDigest) this._digest.clone();
             if (offset > 0)
                FileUtil.updateChecksum(fileName, calculatedDigest, 0, offset);
             this._digestos.setMessageDigest(calculatedDigest);
@@ -1145,6 +1817,186 @@ public class BufferedStreamIO
 
    // ----------------------------------------------------------------------
 
+   /**
+    * Sends the specified byte range of the input file using NIO channels.
+    * For plain socket connections the data is transfered with
+    * <code>FileChannel.transferTo</code>, avoiding copies through the
+    * heap.  Other connections are written through pooled direct buffers.
+    * Reverts to <code>writeFileToStream()</code> if NIO is disabled.
+    * 
+    * @param fileName the file name
+    * @param offset the offset to begin the transfer
+    * @param length number of bytes to be transfered
+    * @throws IOException when network/file IO failure
+    */
+
+   public void transferFileToStream(String fileName, long offset, long length)
+                                                          throws IOException
+   {
+      if (!this._nioEnabled)
+      {
+         this.writeFileToStream(fileName, offset, length);
+         return;
+      }
+
+      this._logger.debug("StreamIO - Transferring file ");
+      RandomAccessFile inFile = null;
+      long clock = 0;
+
+      try {
+         if (this._logger.isBenchEnabled()) 
+         {
+            clock = System.currentTimeMillis();
+            this._logger.bench("Begin transferring file '" + fileName
+                  + "' size=" + length + " byte(s)");
+         }
+
+         inFile = new RandomAccessFile(fileName, "r");
+         this._sendFromChannel(inFile.getChannel(), offset, length);
+      } finally {
+         if (inFile != null) 
+         {
+            inFile.close();
+            this._logger.bench("Time spent transferring file '"
+                  + fileName + "' size=" + length + " byte(s): "
+                  + (System.currentTimeMillis() - clock) + "ms");
+         }
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Sends the specified byte range of the input file using NIO channels,
+    * followed by the checksum of the file up to the end of the range.
+    * The checksum is computed by a separate thread over a memory mapped
+    * view of the file while the data is being sent, so hashing does not
+    * hold up the transfer.  Reverts to <code>writeAndVerifyFileToStream()
+    * </code> if NIO is disabled.
+    * 
+    * @param fileName the file name
+    * @param offset the offset to begin the transfer
+    * @param length number of bytes to be transfered
+    * @return the checksum byte array
+    * @throws IOException when network/file IO failure
+    */
+
+   public byte[] transferAndVerifyFileToStream(String fileName, long offset,
+                                               long length) throws IOException
+   {
+      if (!this._nioEnabled)
+         return this.writeAndVerifyFileToStream(fileName, offset, length);
+
+      this._logger.debug("StreamIO - Transferring file ");
+      RandomAccessFile inFile = null;
+      MappedDigest mappedDigest = null;
+      byte[] calculatedChecksum = null;
+      long clock = 0;
+
+      try {
+         if (this._logger.isBenchEnabled()) 
+         {
+            clock = System.currentTimeMillis();
+            this._logger.bench("Begin transferring file '" + fileName
+                  + "' size=" + length + " byte(s)");
+         }
+
+         inFile = new RandomAccessFile(fileName, "r");
+
+         try {
+            mappedDigest = new MappedDigest(inFile.getChannel(), 
+                       (MessageDigest) this._digest.clone(),
+                       offset + length);
+         } catch (CloneNotSupportedException cnse) {
+            throw new IOException(cnse.getMessage());
+         }
+         mappedDigest.start();
+
+         this._sendFromChannel(inFile.getChannel(), offset, length);
+
+         // Ship the checksum once hashing catches up.
+         calculatedChecksum = mappedDigest.getChecksum();
+         this._bos.write(calculatedChecksum, 0, calculatedChecksum.length);
+         this._bos.flush();
+      } finally {
+         if (mappedDigest != null)
+            mappedDigest.cancel();
+         if (inFile != null) 
+         {
+            inFile.close();
+            this._logger.bench("Time spent transferring file '"
+                  + fileName + "' size=" + length + " byte(s): "
+                  + (System.currentTimeMillis() - clock) + "ms");
+         }
+      }
+      return calculatedChecksum;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Sends <code>count</code> bytes of <code>in</code> starting at 
+    * <code>position</code> to the peer.  Any buffered output is flushed
+    * first.
+    * 
+    * @param in the source file channel
+    * @param position file position of first byte
+    * @param count number of bytes to send
+    * @throws IOException when network/file IO failure
+    */
+
+   private void _sendFromChannel(FileChannel in, long position, long count)
+                                                          throws IOException
+   {
+      this._bos.flush();
+
+      SocketChannel socket = null;
+      if (this._bis instanceof ChannelBufferedInputStream)
+         socket = ((ChannelBufferedInputStream) this._bis).getChannel();
+
+      if (socket != null && socket.isBlocking())
+      {
+         while (count > 0)
+         {
+            long n = in.transferTo(position, count, socket);
+            if (n == 0 && position >= in.size())
+               throw new IOException("Unexpected EOF while reading file.");
+            position += n;
+            count -= n;
+         }
+         return;
+      }
+
+      if (this._outChannel == null)
+         this._outChannel = Channels.newChannel(this._bos);
+
+      ByteBufferPool pool = ByteBufferPool.getDefault();
+      ByteBuffer buffer = pool.acquire();
+      try {
+         while (count > 0)
+         {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), count));
+            while (buffer.hasRemaining())
+            {
+               int n = in.read(buffer, position + buffer.position());
+               if (n < 0)
+                  throw new IOException("Unexpected EOF while reading file.");
+            }
+            buffer.flip();
+            while (buffer.hasRemaining())
+               this._outChannel.write(buffer);
+            position += buffer.limit();
+            count -= buffer.limit();
+         }
+         this._bos.flush();
+      } finally {
+         pool.release(buffer);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
    /**
     * Writes a file from memory to to the (buffered) output stream A message
     * digest will be cloned and the reference <code>calculatedChecksum</code>
@@ -1168,7 +2020,7 @@ public class BufferedStreamIO
       try {
          // Create a new message digest for this file, made available to the
          // caller via reference.
-         calculatedDigest = (MessageDigest) BufferedStreamIO._digest.clone();
+         calculatedDigest = (MessageDigest) this._digest.clone();
          this._digestos.setMessageDigest(calculatedDigest);
          // Digest for this file transfer.
       } catch (CloneNotSupportedException cnse) {
@@ -1187,6 +2039,112 @@ public class BufferedStreamIO
 
    // ----------------------------------------------------------------------
 
+   /**
+    * Writes the <code>fileSize</code> bytes of <code>buffer</code> 
+    * following its position to the peer.  Direct buffers are written to 
+    * the socket channel without an intermediate copy to the heap when the
+    * connection allows it.  On return the position of the buffer follows
+    * the data written.
+    * 
+    * @param buffer buffer with at least fileSize bytes remaining
+    * @param fileSize file size in unit of bytes.
+    * @throws IOException when general I/O failure
+    */
+
+   public void writeFileToStream(ByteBuffer buffer, long fileSize)
+                                            throws IOException 
+   {
+      this._logger.debug("StreamIO - Writing file from buffer");
+
+      if (buffer.remaining() < fileSize)
+         throw new IOException("Buffer holds less than the file size.");
+      this._sendBuffer(buffer, (int) fileSize);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Writes the <code>fileSize</code> bytes of <code>buffer</code> 
+    * following its position to the peer, followed by their checksum.  On
+    * return the position of the buffer follows the data written.
+    * 
+    * @param buffer buffer with at least fileSize bytes remaining
+    * @param fileSize file size in bytes
+    * @return calculatedChecksum message digest byte array.
+    * @throws IOException when network/file I/O failures
+    * @see java.security.MessageDigest
+    */
+
+   public byte[] writeAndVerifyBufferToStream(ByteBuffer buffer, 
+                                              long fileSize)
+                                                         throws IOException 
+   {
+      this._logger.debug("StreamIO - Writing file from buffer");
+
+      if (buffer.remaining() < fileSize)
+         throw new IOException("Buffer holds less than the file size.");
+
+      MessageDigest calculatedDigest;
+      try {
+         calculatedDigest = (MessageDigest) this._digest.clone();
+      } catch (CloneNotSupportedException cnse) {
+         throw new IOException(cnse.getMessage());
+      }
+
+      ByteBuffer data = buffer.duplicate();
+      data.limit(data.position() + (int) fileSize);
+      calculatedDigest.update(data);
+
+      this._sendBuffer(buffer, (int) fileSize);
+
+      byte[] calculatedChecksum = calculatedDigest.digest();
+      this._bos.write(calculatedChecksum, 0, 
+                      calculatedDigest.getDigestLength());
+      this._bos.flush();
+      return calculatedChecksum;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Sends <code>count</code> bytes of <code>src</code> to the peer.  Any
+    * buffered output is flushed first.
+    * 
+    * @param src the source buffer
+    * @param count number of bytes to send
+    * @throws IOException when network IO failure
+    */
+
+   private void _sendBuffer(ByteBuffer src, int count) throws IOException
+   {
+      this._bos.flush();
+
+      int limit = src.limit();
+      src.limit(src.position() + count);
+      try {
+         SocketChannel socket = null;
+         if (this._bis instanceof ChannelBufferedInputStream)
+            socket = ((ChannelBufferedInputStream) this._bis).getChannel();
+
+         if (socket != null && socket.isBlocking())
+         {
+            while (src.hasRemaining())
+               socket.write(src);
+            return;
+         }
+
+         if (this._outChannel == null)
+            this._outChannel = Channels.newChannel(this._bos);
+         while (src.hasRemaining())
+            this._outChannel.write(src);
+         this._bos.flush();
+      } finally {
+         src.limit(limit);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
    /**
     * Construct a message from a reply packet. See <code>writeMessage()</code>
     * for reply packed format.
@@ -1305,4 +2263,81 @@ public class BufferedStreamIO
    }
    
    // ----------------------------------------------------------------------
+
+   // ======================================================================
+
+   /**
+    * Computes the message digest of the first <code>length</code> bytes
+    * of a file channel on its own thread, mapping the file one region at
+    * a time.
+    */
+
+   private static class MappedDigest extends Thread
+   {
+      private final FileChannel _channel;
+      private final MessageDigest _digest;
+      private final long _length;
+      private volatile boolean _canceled = false;
+      private byte[] _checksum = null;
+      private IOException _error = null;
+
+      MappedDigest(FileChannel channel, MessageDigest digest, long length)
+      {
+         super("BufferedStreamIO_Digest");
+         setDaemon(true);
+         this._channel = channel;
+         this._digest = digest;
+         this._length = length;
+      }
+
+      public void run()
+      {
+         try {
+            long position = 0;
+            while (position < this._length && !this._canceled)
+            {
+               long size = Math.min(MAP_REGION_SIZE, this._length - position);
+               this._digest.update(this._channel.map(
+                          FileChannel.MapMode.READ_ONLY, position, size));
+               position += size;
+            }
+            if (!this._canceled)
+               this._checksum = this._digest.digest();
+         } catch (IOException ioEx) {
+            this._error = ioEx;
+         }
+      }
+
+      /**
+       * Waits for the digest to complete.
+       * 
+       * @return the checksum byte array
+       * @throws IOException if the file could not be read
+       */
+
+      byte[] getChecksum() throws IOException
+      {
+         try {
+            join();
+         } catch (InterruptedException iEx) {
+            throw new IOException("Interrupted while computing checksum.");
+         }
+         if (this._error != null)
+            throw this._error;
+         if (this._checksum == null)
+            throw new IOException("Checksum computation canceled.");
+         return this._checksum;
+      }
+
+      /**
+       * Stops the digest at the next region boundary.
+       */
+
+      void cancel()
+      {
+         this._canceled = true;
+      }
+   }
+
+   // ----------------------------------------------------------------------
 }
\ No newline at end of file
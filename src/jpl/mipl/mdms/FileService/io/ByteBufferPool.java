@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.io;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+
+/**
+ * <b>Purpose:</b> Pool of equally sized direct byte buffers shared by
+ * NIO file transfers.  Direct buffers are expensive to allocate and are
+ * only reclaimed by the garbage collector, so buffers are returned to the
+ * pool after each transfer rather than allocated per call.
+ */
+
+public class ByteBufferPool
+{
+   public static final int DEFAULT_BUFFER_SIZE = 262144;
+
+   private static final int DEFAULT_MAX_POOLED = 16;
+
+   private static ByteBufferPool _default = null;
+
+   private final int _bufferSize;
+
+   private final int _maxPooled;
+
+   private final LinkedList _free = new LinkedList();
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.
+    *
+    * @param bufferSize capacity in bytes of each buffer
+    * @param maxPooled maximum number of idle buffers retained
+    */
+
+   public ByteBufferPool(int bufferSize, int maxPooled)
+   {
+      if (bufferSize < 1 || maxPooled < 0)
+         throw new IllegalArgumentException("Invalid buffer pool size");
+      this._bufferSize = bufferSize;
+      this._maxPooled = maxPooled;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the shared pool, with buffer size taken from property
+    * <code>Constants.PROPERTY_IO_NIO_BUFFER_SIZE</code> on first use.
+    *
+    * @return shared buffer pool
+    */
+
+   public static synchronized ByteBufferPool getDefault()
+   {
+      if (_default == null)
+      {
+         int bufferSize = DEFAULT_BUFFER_SIZE;
+         String value = System.getProperty(
+                                   Constants.PROPERTY_IO_NIO_BUFFER_SIZE);
+         if (value != null)
+         {
+            try {
+               int size = Integer.parseInt(value.trim());
+               if (size > 0)
+                  bufferSize = size;
+            } catch (NumberFormatException nfEx) {   }
+         }
+         _default = new ByteBufferPool(bufferSize, DEFAULT_MAX_POOLED);
+      }
+      return _default;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns a cleared buffer, allocating a new one if none is idle.
+    *
+    * @return direct byte buffer of capacity <code>getBufferSize()</code>
+    */
+
+   public ByteBuffer acquire()
+   {
+      synchronized (this._free)
+      {
+         if (!this._free.isEmpty())
+            return (ByteBuffer) this._free.removeFirst();
+      }
+      return ByteBuffer.allocateDirect(this._bufferSize);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns a buffer to the pool.  Buffers not obtained from this pool
+    * are ignored.
+    *
+    * @param buffer buffer previously returned by <code>acquire()</code>
+    */
+
+   public void release(ByteBuffer buffer)
+   {
+      if (buffer == null || !buffer.isDirect() ||
+          buffer.capacity() != this._bufferSize)
+         return;
+
+      buffer.clear();
+      synchronized (this._free)
+      {
+         if (this._free.size() < this._maxPooled)
+            this._free.addLast(buffer);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the capacity of buffers handed out by this pool.
+    *
+    * @return buffer size in bytes
+    */
+
+   public int getBufferSize()
+   {
+      return this._bufferSize;
+   }
+
+   // ----------------------------------------------------------------------
+}
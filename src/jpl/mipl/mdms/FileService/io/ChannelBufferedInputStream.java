@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <b>Purpose:</b> Buffered input stream over a socket that also exposes
+ * the underlying socket channel.  Bulk transfers may then read directly
+ * from the channel once bytes already held in this stream's buffer have
+ * been drained.
+ */
+
+public class ChannelBufferedInputStream extends BufferedInputStream
+{
+   private final SocketChannel _channel;
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.
+    *
+    * @param channel the socket channel that <code>in</code> reads from
+    * @param in the socket input stream
+    * @param size buffer size in bytes
+    */
+
+   public ChannelBufferedInputStream(SocketChannel channel, InputStream in,
+                                     int size)
+   {
+      super(in, size);
+      this._channel = channel;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the socket channel underlying this stream.
+    *
+    * @return socket channel
+    */
+
+   public SocketChannel getChannel()
+   {
+      return this._channel;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns number of bytes held in this stream's buffer, which can be
+    * read without touching the socket.
+    *
+    * @return buffered byte count
+    */
+
+   public synchronized int getBufferedCount()
+   {
+      return (this.buf == null) ? 0 : this.count - this.pos;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Transfers bytes held in this stream's buffer into <code>dst</code>,
+    * up to its remaining capacity.  Never reads from the socket.
+    *
+    * @param dst destination buffer
+    * @return number of bytes transferred
+    * @throws IOException if stream has been closed
+    */
+
+   public synchronized int readBuffered(ByteBuffer dst) throws IOException
+   {
+      if (this.buf == null)
+         throw new IOException("Stream closed");
+
+      int n = Math.min(this.count - this.pos, dst.remaining());
+      if (n > 0)
+      {
+         dst.put(this.buf, this.pos, n);
+         this.pos += n;
+      }
+      return n;
+   }
+
+   // ----------------------------------------------------------------------
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.io;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+
+/**
+ * <b>Purpose:</b> Creates the message digests used to checksum file
+ * transfers, for any algorithm known to the installed security providers.
+ * The transfer protocol does not negotiate the algorithm and FEI servers
+ * checksum with SHA, so other algorithms are only usable between streams
+ * configured alike, and server connections refuse them at login.
+ */
+
+public class DigestFactory
+{
+   /** SHA-1, the default and the algorithm expected by FEI servers */
+   public static final String SHA = "SHA";
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the default algorithm, taken from property
+    * <code>Constants.PROPERTY_IO_DIGEST_ALGORITHM</code>.
+    *
+    * @return algorithm name
+    */
+
+   public static String getDefaultAlgorithm()
+   {
+      String algorithm = System.getProperty(
+                               Constants.PROPERTY_IO_DIGEST_ALGORITHM);
+      if (algorithm == null || algorithm.trim().length() == 0)
+         return SHA;
+      return algorithm.trim();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns a new message digest for the named algorithm.
+    *
+    * @param algorithm algorithm name
+    * @return new message digest instance
+    * @throws NoSuchAlgorithmException if algorithm is not supported
+    */
+
+   public static MessageDigest getInstance(String algorithm)
+                                        throws NoSuchAlgorithmException
+   {
+      return MessageDigest.getInstance(algorithm);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns true if the named algorithm is the one FEI servers use,
+    * SHA-1 under any of its standard names.
+    *
+    * @param algorithm algorithm name
+    * @return true for SHA, SHA1 and SHA-1
+    */
+
+   public static boolean isServerAlgorithm(String algorithm)
+   {
+      return SHA.equalsIgnoreCase(algorithm) ||
+             "SHA1".equalsIgnoreCase(algorithm) ||
+             "SHA-1".equalsIgnoreCase(algorithm);
+   }
+
+   // ----------------------------------------------------------------------
+
+}
@@ -0,0 +1,356 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+
+/**
+ * <b>Purpose:</b> Allocator of off-heap buffers holding whole files for
+ * in-memory transfers.  Buffers are direct buffers whose capacity is the
+ * file size rounded up to a power of two, and are kept for reuse once
+ * released, up to a total pool size.  Files at or above the map threshold
+ * are instead backed by a memory-mapped temporary file, which is deleted
+ * as soon as it is mapped, so that large files are paged by the operating
+ * system rather than held in memory.
+ * <BR>
+ * Buffers must be released explicitly once their content is no longer
+ * needed, and not used after that.  Buffers hold at most
+ * Integer.MAX_VALUE bytes.
+ */
+
+public class DirectBufferAllocator
+{
+   public static final long DEFAULT_POOL_SIZE = 64L * 1024 * 1024;
+
+   public static final long DEFAULT_MAP_THRESHOLD = 64L * 1024 * 1024;
+
+   private static final int MIN_CLASS_SHIFT = 12;
+
+   private static DirectBufferAllocator _default = null;
+
+   private final long _poolSize;
+
+   private final long _mapThreshold;
+
+   private final File _tempDir;
+
+   // idle buffers, by log2 of capacity
+   private final LinkedList[] _free = new LinkedList[31];
+
+   private long _pooledBytes = 0;
+
+   // pool class buffers handed out, lists of Issued by identity hash
+   // code, weakly referenced so that buffers never released are collected
+   private final HashMap _issued = new HashMap();
+
+   private final ReferenceQueue _collected = new ReferenceQueue();
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.
+    *
+    * @param poolSize maximum number of bytes of idle buffers retained
+    * @param mapThreshold size at or above which buffers are mapped from
+    *        a temporary file, negative for never
+    * @param tempDir directory of temporary files, null for the default
+    */
+
+   public DirectBufferAllocator(long poolSize, long mapThreshold,
+                                File tempDir)
+   {
+      this._poolSize = Math.max(0, poolSize);
+      this._mapThreshold = mapThreshold;
+      this._tempDir = tempDir;
+      for (int i = 0; i < this._free.length; ++i)
+         this._free[i] = new LinkedList();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the shared allocator, with pool size and map threshold taken
+    * from properties <code>Constants.PROPERTY_IO_MEMORY_POOL_SIZE</code>
+    * and <code>Constants.PROPERTY_IO_MEMORY_MAP_THRESHOLD</code> on first
+    * use.
+    *
+    * @return shared allocator
+    */
+
+   public static synchronized DirectBufferAllocator getDefault()
+   {
+      if (_default == null)
+         _default = new DirectBufferAllocator(
+                     _getLong(Constants.PROPERTY_IO_MEMORY_POOL_SIZE,
+                              DEFAULT_POOL_SIZE),
+                     _getLong(Constants.PROPERTY_IO_MEMORY_MAP_THRESHOLD,
+                              DEFAULT_MAP_THRESHOLD), null);
+      return _default;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns a buffer for <code>size</code> bytes, with position zero and
+    * limit <code>size</code>.
+    *
+    * @param size number of bytes to be held
+    * @return direct or mapped byte buffer
+    * @throws IOException if size exceeds Integer.MAX_VALUE or a
+    *         temporary file cannot be mapped
+    */
+
+   public ByteBuffer allocate(long size) throws IOException
+   {
+      if (size < 0 || size > Integer.MAX_VALUE)
+         throw new IOException("Cannot buffer " + size + " bytes in memory.");
+
+      if (this._mapThreshold >= 0 && size >= this._mapThreshold)
+         return this._map(size);
+
+      ByteBuffer buffer = null;
+      int shift = _classOf(size);
+      if (shift < this._free.length &&
+          (this._mapThreshold < 0 || (1L << shift) < this._mapThreshold))
+      {
+         synchronized (this._free)
+         {
+            if (!this._free[shift].isEmpty())
+            {
+               buffer = (ByteBuffer) this._free[shift].removeFirst();
+               this._pooledBytes -= buffer.capacity();
+            }
+         }
+         if (buffer == null)
+            buffer = ByteBuffer.allocateDirect(1 << shift);
+         synchronized (this._free)
+         {
+            this._track(buffer);
+         }
+      }
+      else
+      {
+         // would round up to a mapped size, allocate exactly instead
+         buffer = ByteBuffer.allocateDirect((int) size);
+      }
+
+      buffer.clear();
+      buffer.limit((int) size);
+      return buffer;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns a buffer to the allocator.  Pooled buffers are kept for
+    * reuse while the pool has room.  Mapped buffers are dropped, and their
+    * mapping is removed by the garbage collector.  Buffers not obtained
+    * from <code>allocate()</code>, or already released, are ignored.
+    *
+    * @param buffer buffer previously returned by <code>allocate()</code>
+    */
+
+   public void release(ByteBuffer buffer)
+   {
+      if (buffer == null || !buffer.isDirect())
+         return;
+
+      synchronized (this._free)
+      {
+         // also ignores buffers already released
+         if (!this._untrack(buffer))
+            return;
+
+         int capacity = buffer.capacity();
+         if (this._pooledBytes + capacity > this._poolSize)
+            return;
+         buffer.clear();
+         this._free[_classOf(capacity)].addLast(buffer);
+         this._pooledBytes += capacity;
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the number of bytes of idle buffers held by the pool.
+    *
+    * @return pooled bytes
+    */
+
+   public long getPooledBytes()
+   {
+      synchronized (this._free)
+      {
+         return this._pooledBytes;
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the size at or above which buffers are mapped.
+    *
+    * @return map threshold in bytes, negative if buffers are never mapped
+    */
+
+   public long getMapThreshold()
+   {
+      return this._mapThreshold;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Maps a new temporary file of <code>size</code> bytes, deleting the
+    * file once mapped.
+    */
+
+   private ByteBuffer _map(long size) throws IOException
+   {
+      File file = File.createTempFile("fei", ".mem", this._tempDir);
+      RandomAccessFile raf = null;
+      try {
+         raf = new RandomAccessFile(file, "rw");
+         raf.setLength(size);
+         return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                                     size);
+      } finally {
+         if (raf != null)
+            raf.close();
+         if (!file.delete())
+            file.deleteOnExit();
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Records a pool class buffer handed out by allocate().  Caller holds
+    * the lock on _free.
+    */
+
+   private void _track(ByteBuffer buffer)
+   {
+      this._expunge();
+      Integer key = Integer.valueOf(System.identityHashCode(buffer));
+      LinkedList issued = (LinkedList) this._issued.get(key);
+      if (issued == null)
+      {
+         issued = new LinkedList();
+         this._issued.put(key, issued);
+      }
+      issued.add(new Issued(buffer, key, this._collected));
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Forgets a buffer handed out by allocate().  Caller holds the lock on
+    * _free.
+    *
+    * @return true if the buffer was handed out and not yet released
+    */
+
+   private boolean _untrack(ByteBuffer buffer)
+   {
+      this._expunge();
+      Integer key = Integer.valueOf(System.identityHashCode(buffer));
+      LinkedList issued = (LinkedList) this._issued.get(key);
+      if (issued == null)
+         return false;
+
+      boolean found = false;
+      for (Iterator it = issued.iterator(); it.hasNext() && !found; )
+      {
+         if (((Issued) it.next()).get() == buffer)
+         {
+            it.remove();
+            found = true;
+         }
+      }
+      if (issued.isEmpty())
+         this._issued.remove(key);
+      return found;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Drops the records of buffers collected without being released.
+    * Caller holds the lock on _free.
+    */
+
+   private void _expunge()
+   {
+      Issued collected;
+      while ((collected = (Issued) this._collected.poll()) != null)
+      {
+         LinkedList issued = (LinkedList) this._issued.get(collected.key);
+         if (issued != null && issued.remove(collected) &&
+             issued.isEmpty())
+            this._issued.remove(collected.key);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns log2 of the smallest pooled capacity holding size bytes.
+    */
+
+   private static int _classOf(long size)
+   {
+      int shift = MIN_CLASS_SHIFT;
+      while ((1L << shift) < size)
+         ++shift;
+      return shift;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Weak reference to a buffer handed out, with its key in _issued.
+    */
+
+   private static class Issued extends WeakReference
+   {
+      final Integer key;
+
+      Issued(ByteBuffer buffer, Integer key, ReferenceQueue queue)
+      {
+         super(buffer, queue);
+         this.key = key;
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   private static long _getLong(String property, long defaultValue)
+   {
+      String value = System.getProperty(property);
+      if (value != null)
+      {
+         try {
+            return Long.parseLong(value.trim());
+         } catch (NumberFormatException nfEx) {   }
+      }
+      return defaultValue;
+   }
+
+   // ----------------------------------------------------------------------
+}
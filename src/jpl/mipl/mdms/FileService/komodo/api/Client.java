@@ -10,6 +10,7 @@ import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.ParseException;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -187,6 +188,17 @@ public class Client {
            this._session.setReplicationRoot(rootPath);
    }
 
+   /**
+    * Method to set the number of connections used per server.  Multi-file
+    * gets are striped across the connections.
+    * 
+    * @param size the connection pool size, must be at least 1
+    */
+   public void setConnectionPoolSize(int size) throws SessionException {
+       if (this._session != null)
+           this._session.setConnectionPoolSize(size);
+   }
+
    /**
     * Method to enable/disable verbose to output file metadata.
     * 
@@ -432,17 +444,10 @@ public class Client {
     * @throws SessionException when show operation fails or filetype is null
     */
    public Vector showResults(String regex) throws SessionException {
-      if (this._ft == null) {
-         throw new SessionException("File Type not selected.",
-               Constants.INVALID_TYPE);
-      }
-      this._ft.show(regex);
+      ResultStream stream = this.showStream(regex);
       Vector v = new Vector();
-      while (getTransactionCount() > 0) {
-         Result r = getResult();
-         if (r == null) {
-            continue;
-         }
+      while (stream.hasNext()) {
+         Result r = stream.next();
          // Get the return code for each operation
          if (r.getErrno() == Constants.OK) {
             // Check to see if a name exists
@@ -454,6 +459,83 @@ public class Client {
       return v;
    }
 
+   /**
+    * Method to query the komodo server for a list of files on the specified
+    * file name filtering regular expression, returning the results as a
+    * stream.  Results are read from the server as the stream is consumed,
+    * so that listings of any size are held in bounded memory.  The stream
+    * ends with the transaction; callers that stop early must close it.
+    * 
+    * @param regex the file filter regular expression
+    * @return the result stream
+    * @throws SessionException when operation failed.
+    */
+   public ResultStream showStream(String regex) throws SessionException {
+      if (this._ft == null) {
+         throw new SessionException("File Type not selected.",
+               Constants.INVALID_TYPE);
+      }
+      return this._ft.showStream(regex);
+   }
+
+   /**
+    * Method to query the komodo server for a list of files on the specified
+    * file name filtering regular expression added before a date, returning
+    * the results as a stream.
+    * 
+    * @param before the before date
+    * @param regex the file filter regular expression
+    * @return the result stream
+    * @throws SessionException when operation fails.
+    */
+   public ResultStream showBeforeStream(Date before, String regex)
+         throws SessionException {
+      if (this._ft == null) {
+         throw new SessionException("File Type not selected.",
+               Constants.INVALID_TYPE);
+      }
+      return this._ft.showBetweenStream(this._epoch(), before, regex);
+   }
+
+   /**
+    * Method to query the komodo server for a list of files on the specified
+    * file name filtering regular expression added after a date, returning
+    * the results as a stream.
+    * 
+    * @param after the after date
+    * @param regex the file filter regular expression
+    * @return the result stream
+    * @throws SessionException when operation fails.
+    */
+   public ResultStream showAfterStream(Date after, String regex)
+         throws SessionException {
+      if (this._ft == null) {
+         throw new SessionException("File Type not selected.",
+               Constants.INVALID_TYPE);
+      }
+      return this._ft.showAfterStream(after, regex);
+   }
+
+   /**
+    * Method to query the komodo server for a list of files on the specified
+    * file name filtering regular expression added between two dates,
+    * returning the results as a stream.
+    * 
+    * @param begin the begin date
+    * @param end the end date
+    * @param regex the file filter regular expression
+    * @return the result stream
+    * @throws SessionException when operation fails.
+    */
+   public ResultStream showBetweenStream(Date begin, Date end, String regex)
+         throws SessionException {
+      if (this._ft == null) {
+         throw new SessionException("File Type not selected.",
+               Constants.INVALID_TYPE);
+      }
+      return this._ft.showBetweenStream(begin, end, regex);
+   }
+
    /**
     * Method to query the komodo server for a list of files added before a date.
     * 
@@ -479,15 +561,22 @@ public class Client {
          throw new SessionException("File Type not selected.",
                Constants.INVALID_TYPE);
       }
-      Date epoch = null;
-      // Get Unix Epoch time to use in datetime based queries
+      return this._ft.showBetween(this._epoch(), before, regex);
+   }
+
+   /**
+    * Get Unix Epoch time to use in datetime based queries
+    * 
+    * @return the epoch date
+    * @throws SessionException when date cannot be created
+    */
+   private Date _epoch() throws SessionException {
       try {
-         epoch = DateTimeUtil.getCCSDSADate("1970-01-01T00:00:00");
+         return DateTimeUtil.getCCSDSADate("1970-01-01T00:00:00");
       } catch (ParseException pe) {
          throw new SessionException("Error getting UNIX Epoch date",
                Constants.EXCEPTION);
       }
-      return this._ft.showBetween(epoch, before, regex);
    }
 
    /**
@@ -1238,6 +1327,37 @@ public class Client {
       return this._session.result(timeDelay);
    }
 
+   /**
+    * Move all available result objects, up to a maximum, to a collection.
+    * Waits for the first result if none is available and there are
+    * outstanding transactions.
+    * 
+    * @param results the collection to which results are added
+    * @param max maximum number of results to move, or 0 for no limit
+    * @return the number of results added to the collection
+    * @throws SessionException when operation fails
+    */
+   public int drainResults(Collection results, int max) 
+                                              throws SessionException {
+      return this._session.drainResults(results, max);
+   }
+
+   /**
+    * Move all available result objects, up to a maximum, to a collection.
+    * Waits up to the time delay for the first result if none is available
+    * and there are outstanding transactions.
+    * 
+    * @param results the collection to which results are added
+    * @param max maximum number of results to move, or 0 for no limit
+    * @param timeDelay the number of milliseconds to wait for a result
+    * @return the number of results added to the collection
+    * @throws SessionException when operation fails
+    */
+   public int drainResults(Collection results, int max, int timeDelay)
+                                              throws SessionException {
+      return this._session.drainResults(results, max, timeDelay);
+   }
+
    /**
     * Method to retrieved queued results
     * 
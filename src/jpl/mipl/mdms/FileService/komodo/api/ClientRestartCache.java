@@ -5,17 +5,21 @@ import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.Properties;
+import java.util.Vector;
 
 import jpl.mipl.mdms.FileService.util.DateTimeUtil;
 import jpl.mipl.mdms.utils.logging.Logger;
@@ -50,6 +54,11 @@ import jpl.mipl.mdms.utils.logging.Logger;
  *                                    the backup is checked.
  * 06/25/2008        Nick             Added persisted location to accommodate
  *                                    replication
+ * 10/18/2026        MDMS             Commits append to a journal, with the
+ *                                    XML file rewritten only on compaction.
+ * 10/18/2026        MDMS             Commits may be batched by file count
+ *                                    or interval, flushed by a background
+ *                                    committer thread.
  * ============================================================================
  * </PRE>
  *
@@ -90,6 +99,10 @@ public class ClientRestartCache {
    
    //the local CCSDS time of the last query time
    private String _lastQueryTime = null;
+
+   //the last query time in milliseconds, Long.MIN_VALUE while it is
+   //unknown or only the default set by the constructor
+   private long _lastQueryMillis = Long.MIN_VALUE;
    
    //the query expression queried.
    private String _lastQueryExpression = null;  
@@ -103,6 +116,33 @@ public class ClientRestartCache {
    private static final String LOCATION_KEY = "location";
 
    private boolean _backupCommits = true;
+
+   // journal records not yet committed, and count of those committed
+   // since the XML file was last written
+   private final Vector _journalPending = new Vector();
+   private int _journalCommits = 0;
+   private boolean _compactPending = false;
+
+   private static final String JOURNAL_EXTENSION = ".journal";
+   private static final int JOURNAL_MAX_COMMITS = 1000;
+
+   private static final String REC_PUT       = "P";
+   private static final String REC_REMOVE    = "R";
+   private static final String REC_TIME      = "T";
+   private static final String REC_QUERY     = "Q";
+   private static final String REC_COMMIT    = "C";
+
+   // durability policy: commits are written once this many files are 
+   // committed, or this many milliseconds after the first uncommitted one.
+   // A batch of 0 or less sets no count limit.
+   private int _commitBatch = getIntProperty(
+                         Constants.PROPERTY_RESTART_COMMIT_BATCH, 0);
+   private long _commitInterval = getIntProperty(
+                         Constants.PROPERTY_RESTART_COMMIT_INTERVAL, 0);
+   private volatile int _uncommitted = 0;
+   private volatile long _commitDue = Long.MAX_VALUE;
+
+   private static Committer _committer = null;
    
    private Logger _logger = Logger.getLogger(
                                    ClientRestartCache.class.getName());
@@ -194,6 +234,12 @@ public class ClientRestartCache {
       {
           crc.setOutputDir(outputDir);
           crc.setCacheFilename(cacheFilename);
+          
+          //apply commits journaled since the XML file was written, and
+          //rewrite it if it could not be used
+          crc._replayJournal();
+          if (corruptCacheFlag)
+              crc._compactPending = true;
           return crc;
       }
 
@@ -373,6 +419,15 @@ public class ClientRestartCache {
            }
        }
        
+       //--------------------------
+       //setters invoked by the decoder are not changes to be journaled
+       
+       if (crc != null)
+       {
+           crc._journalPending.clear();
+           crc._compactPending = false;
+       }
+       
        //--------------------------
        //check for error, write log message if flag set.
        
@@ -629,6 +684,7 @@ public class ClientRestartCache {
       if (location != null)
           vt.put(ClientRestartCache.LOCATION_KEY, location);
       this._filesToPersist.put(filename, vt);
+      this._journalPut(filename, vt);
    }
    
    //---------------------------------------------------------------------
@@ -674,6 +730,7 @@ public class ClientRestartCache {
       if (location != null)
           vt.put(ClientRestartCache.LOCATION_KEY, location);
       this._filesToPersist.put(filename, vt);
+      this._journalPut(filename, vt);
    }
    
    //---------------------------------------------------------------------
@@ -686,7 +743,8 @@ public class ClientRestartCache {
    
    public void removePersist(String filename) 
    {
-      this._filesToPersist.remove(filename);
+      if (this._filesToPersist.remove(filename) != null)
+          this._journal(new String[] {REC_REMOVE, filename});
    }
 
    //---------------------------------------------------------------------
@@ -893,6 +951,7 @@ public class ClientRestartCache {
        }
        
       this._command = command;
+      this._compactPending = true;
    }
 
    //---------------------------------------------------------------------
@@ -917,6 +976,7 @@ public class ClientRestartCache {
    public void setServerGroup(String servergroup) 
    {
       this._servergroup = servergroup;
+      this._compactPending = true;
    }
 
    //---------------------------------------------------------------------
@@ -941,6 +1001,7 @@ public class ClientRestartCache {
    public void setFileType(String filetype) 
    {
       this._filetype = filetype;
+      this._compactPending = true;
    }
 
    //---------------------------------------------------------------------
@@ -965,6 +1026,7 @@ public class ClientRestartCache {
    public void setSubType(String subtype) 
    {
       this._subtype = subtype;
+      this._compactPending = true;
    }
 
    //---------------------------------------------------------------------
@@ -990,6 +1052,7 @@ public class ClientRestartCache {
    public void setFilesToResume(Hashtable filesToResume) 
    {
       this._filesToPersist = filesToResume;
+      this._compactPending = true;
    }
 
    //---------------------------------------------------------------------
@@ -1007,33 +1070,64 @@ public class ClientRestartCache {
    //---------------------------------------------------------------------
    
    /**
-    * Method to set the last query time in UTC long integer  
+    * Method to set the last query time in UTC long integer.  The time 
+    * only moves forward: a time earlier than the current one is ignored, 
+    * so that files delivered out of order, such as by striped gets, 
+    * cannot move it back.
     * @param utc the UTC long integer
     */
    
-   public void setLastQueryTime(long utc) 
+   public synchronized void setLastQueryTime(long utc) 
    {
+      if (utc <= this._lastQueryMillis)
+         return;
+      this._lastQueryMillis = utc;
       this._lastQueryTime = DateTimeUtil.getDateCCSDSAWithTimeZoneString(new Date(utc));
+      this._journal(new String[] {REC_TIME, this._lastQueryTime});
    }
 
    //---------------------------------------------------------------------
    
    /**
-    * Method to set the last query time in CCSDS-formated time
+    * Method to set the last query time in CCSDS-formated time.  As with
+    * <code>setLastQueryTime(long)</code>, the time only moves forward.
     * @param ccsds the CCSDS formated time
     */
    
-   public void setLastQueryTime(String ccsds) 
+   public synchronized void setLastQueryTime(String ccsds) 
    {
        String temp;
+       long millis;
        try {
            temp = DateTimeUtil.completeTimeStringWithWithRFC822TimeZone(ccsds, true, true);
+           millis = DateTimeUtil.getCCSDSAWithLocalTimeZoneDate(temp).getTime();
        } catch (Exception ex) {
            temp = null;
+           millis = Long.MIN_VALUE;
        }
        
-       if (temp != null)
+       if (temp != null && millis > this._lastQueryMillis)
+       {
+           this._lastQueryMillis = millis;
            this._lastQueryTime = temp; 
+           this._journal(new String[] {REC_TIME, this._lastQueryTime});
+       }
+   }
+
+   //---------------------------------------------------------------------
+   
+   /**
+    * Method to set the last query time in UTC long integer, whether or 
+    * not it is earlier than the current one.  Used when the user names 
+    * the time a query starts from.
+    * @param utc the UTC long integer
+    */
+   
+   public synchronized void resetLastQueryTime(long utc) 
+   {
+      this._lastQueryMillis = utc;
+      this._lastQueryTime = DateTimeUtil.getDateCCSDSAWithTimeZoneString(new Date(utc));
+      this._journal(new String[] {REC_TIME, this._lastQueryTime});
    }
 
    //---------------------------------------------------------------------
@@ -1058,6 +1152,7 @@ public class ClientRestartCache {
    public void setLastQueryExpression(String lastQueryExpression) 
    {
       this._lastQueryExpression = lastQueryExpression;
+      this._journal(new String[] {REC_QUERY, lastQueryExpression});
    }
 
    //---------------------------------------------------------------------
@@ -1087,11 +1182,117 @@ public class ClientRestartCache {
    //---------------------------------------------------------------------
    
    /**
-    * Method to persist this cache JavaBean in XML format.
+    * Method to persist changes to this cache.  Changes since the last 
+    * commit are appended to a journal file alongside the XML file.  The
+    * whole JavaBean is written in XML format, and the journal truncated,
+    * when there is no XML file yet, when the journal has grown long, or
+    * when a change cannot be journaled.  Journaling can be disabled with
+    * property <code>Constants.PROPERTY_RESTART_JOURNAL</code>.
     * @throws SessionException
     */
    
    public void commit() throws SessionException 
+   {
+       synchronized(this)
+       {
+           if ((this._commitBatch <= 1 && this._commitInterval <= 0) ||
+               !new File(this._cacheFilename).isFile())
+           {
+               this._commitNow();
+               return;
+           }
+           
+           //batched: leave it to the committer thread
+           if (this._journalPending.isEmpty() && !this._compactPending)
+               return;
+           if (++this._uncommitted >= this._commitBatch &&
+               this._commitBatch > 0)
+               this._commitDue = 0;
+           else if (this._uncommitted == 1 && this._commitInterval > 0)
+               this._commitDue = System.currentTimeMillis() + 
+                                 this._commitInterval;
+       }
+       getCommitter().schedule(this);
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Writes any commits deferred by the durability policy.
+    * @throws SessionException
+    */
+   
+   public void flush() throws SessionException 
+   {
+       synchronized(this)
+       {
+           if (this._uncommitted > 0)
+               this._commitNow();
+       }
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Sets the durability policy of this cache.  Commits are written once
+    * <code>files</code> commits are outstanding, or <code>interval</code>
+    * milliseconds after the first outstanding commit, whichever happens
+    * first.  Setting <code>files</code> to 0 or less sets no limit on the 
+    * number of outstanding commits, so that only the interval applies.  
+    * Setting <code>files</code> to 1 or less and <code>interval</code> to 
+    * 0 or less writes every commit immediately.
+    * Defaults are taken from properties 
+    * <code>Constants.PROPERTY_RESTART_COMMIT_BATCH</code> and
+    * <code>Constants.PROPERTY_RESTART_COMMIT_INTERVAL</code>.  If the 
+    * client fails, files received since the last write may be received 
+    * again.
+    * @param files Maximum number of outstanding commits, 0 for no limit
+    * @param interval Maximum milliseconds a commit is outstanding
+    * @throws SessionException if outstanding commits cannot be written
+    */
+   
+   public void setCommitPolicy(int files, long interval) 
+                                             throws SessionException 
+   {
+       synchronized(this)
+       {
+           this.flush();
+           this._commitBatch = files;
+           this._commitInterval = interval;
+       }
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Writes the cache, journaling changes unless the XML file has to be
+    * rewritten.
+    * @throws SessionException
+    */
+   
+   private void _commitNow() throws SessionException 
+   {
+       boolean compact = this._compactPending || 
+                   this._journalCommits >= JOURNAL_MAX_COMMITS ||
+                   !new File(this._cacheFilename).isFile() ||
+                   "false".equalsIgnoreCase(System.getProperty(
+                                    Constants.PROPERTY_RESTART_JOURNAL));
+           
+       if (compact)
+           this.commitSnapshot();
+       else
+           this.commitJournal();
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Method to persist this cache JavaBean in XML format, and discard
+    * the journal.
+    * @throws SessionException
+    */
+   
+   protected void commitSnapshot() throws SessionException 
    {
        FileOutputStream fos = null;
        XMLEncoder encoder = null;
@@ -1107,6 +1308,7 @@ public class ClientRestartCache {
            //--------------------------
        
            File file = new File(this._cacheFilename);
+           this._journalPending.clear();
            
            try {
                fos = new FileOutputStream(file);              
@@ -1124,11 +1326,273 @@ public class ClientRestartCache {
                if (fos != null)
                    try { fos.getFD().sync(); } catch (IOException ioEx) {}               
            }
+           
+           //--------------------------
+           
+           //journal is now reflected in the XML file.  Replaying it again
+           //would be harmless, so losing this delete to a crash is too.
+           File journal = new File(this._cacheFilename + JOURNAL_EXTENSION);
+           if (journal.exists() && !journal.delete())
+               this._logger.warn("Could not delete restart journal " +
+                                 journal.getAbsolutePath());
+           this._journalCommits = 0;
+           this._compactPending = false;
+           this._uncommitted = 0;
+           this._commitDue = Long.MAX_VALUE;
        }
     }
 
    //---------------------------------------------------------------------
    
+   /**
+    * Appends changes since the last commit to the journal file, followed
+    * by a commit marker.  Records following the last marker are ignored
+    * on restore, so a partially written commit is discarded.
+    * @throws SessionException
+    */
+   
+   protected void commitJournal() throws SessionException 
+   {
+       synchronized(this)
+       {
+           this._uncommitted = 0;
+           this._commitDue = Long.MAX_VALUE;
+           if (this._journalPending.isEmpty())
+               return;
+           
+           StringBuffer buf = new StringBuffer();
+           synchronized(this._journalPending)
+           {
+               for (int i = 0; i < this._journalPending.size(); ++i)
+                   buf.append(this._journalPending.get(i)).append('\n');
+               this._journalPending.clear();
+           }
+           buf.append(REC_COMMIT).append('\n');
+           
+           File journal = new File(this._cacheFilename + JOURNAL_EXTENSION);
+           FileOutputStream fos = null;
+           try {
+               fos = new FileOutputStream(journal, true);
+               fos.write(buf.toString().getBytes("UTF-8"));
+               fos.getFD().sync();
+           } catch (IOException ioEx) {
+               //state of journal is unknown, rewrite everything next time
+               this._compactPending = true;
+               throw new SessionException(
+                       "IOException while writing to restart journal.  " +
+                       "Error: " + ioEx.getMessage(), 
+                       Constants.RESTARTFILEERR);
+           } finally {
+               if (fos != null)
+                   try { fos.close(); } catch (IOException ioEx) {}
+           }
+           ++this._journalCommits;
+       }
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Queues a journal record for the next commit.
+    * @param fields Record type followed by its fields, null for none
+    */
+   
+   private void _journal(String[] fields)
+   {
+       StringBuffer buf = new StringBuffer();
+       for (int i = 0; i < fields.length; ++i)
+       {
+           if (i > 0)
+               buf.append('\t');
+           if (fields[i] == null)
+               buf.append('\\').append('0');
+           else
+               _escape(fields[i], buf);
+       }
+       this._journalPending.add(buf.toString());
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Queues a journal record for an added persist entry.
+    * @param filename the file name
+    * @param vt persist entry table
+    */
+   
+   private void _journalPut(String filename, Hashtable vt)
+   {
+       this._journal(new String[] {REC_PUT, filename,
+                        String.valueOf(vt.get(ClientRestartCache.SIZE_KEY)),
+                        (String) vt.get(ClientRestartCache.TIME_KEY),
+                        (String) vt.get(ClientRestartCache.VFT_KEY),
+                        (String) vt.get(ClientRestartCache.LOCATION_KEY)});
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Applies committed journal records to this cache.  If the journal
+    * ends with an incomplete or unreadable commit, the cache is flagged
+    * to be rewritten in full on next commit.
+    */
+   
+   private void _replayJournal()
+   {
+       File journal = new File(this._cacheFilename + JOURNAL_EXTENSION);
+       if (!journal.isFile())
+           return;
+       
+       Vector group = new Vector();
+       BufferedReader reader = null;
+       try {
+           reader = new BufferedReader(new InputStreamReader(
+                              new FileInputStream(journal), "UTF-8"));
+           String line;
+           while ((line = reader.readLine()) != null)
+           {
+               if (line.equals(REC_COMMIT))
+               {
+                   for (int i = 0; i < group.size(); ++i)
+                       this._apply((String[]) group.get(i));
+                   group.clear();
+                   ++this._journalCommits;
+               }
+               else
+               {
+                   group.add(_unescape(line));
+               }
+           }
+       } catch (Exception ex) {
+           this._logger.warn("Error occurred while reading restart journal '" 
+                             + journal.getAbsolutePath() + "': " + 
+                             ex.getMessage());
+           this._compactPending = true;
+       } finally {
+           if (reader != null)
+               try { reader.close(); } catch (IOException ioEx) {}
+       }
+       
+       if (!group.isEmpty())
+       {
+           this._logger.warn("Ignoring incomplete commit at end of " +
+                             "restart journal '" + journal.getAbsolutePath() 
+                             + "'.");
+           this._compactPending = true;
+       }
+       this._journalPending.clear();
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Applies a single journal record to this cache.
+    * @param fields Record type followed by its fields
+    */
+   
+   private void _apply(String[] fields)
+   {
+       String type = fields[0];
+       if (type.equals(REC_PUT) && fields.length == 6)
+       {
+           Hashtable vt = new Hashtable();
+           vt.put(ClientRestartCache.SIZE_KEY, new Long(fields[2]));
+           if (fields[3] != null)
+               vt.put(ClientRestartCache.TIME_KEY, fields[3]);
+           if (fields[4] != null)
+               vt.put(ClientRestartCache.VFT_KEY, fields[4]);
+           if (fields[5] != null)
+               vt.put(ClientRestartCache.LOCATION_KEY, fields[5]);
+           this._filesToPersist.put(fields[1], vt);
+       }
+       else if (type.equals(REC_REMOVE) && fields.length == 2)
+           this._filesToPersist.remove(fields[1]);
+       else if (type.equals(REC_TIME) && fields.length == 2)
+       {
+           this._lastQueryTime = fields[1];
+           try {
+               this._lastQueryMillis = DateTimeUtil.
+                       getCCSDSAWithLocalTimeZoneDate(fields[1]).getTime();
+           } catch (Exception ex) {
+               this._lastQueryMillis = Long.MIN_VALUE;
+           }
+       }
+       else if (type.equals(REC_QUERY) && fields.length == 2)
+           this._lastQueryExpression = fields[1];
+       else
+           throw new IllegalArgumentException("Invalid journal record: " +
+                                              type);
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Appends value to buffer, escaping backslash, tab and line breaks.
+    * @param value Value to be escaped
+    * @param buf Buffer to append to
+    */
+   
+   private static void _escape(String value, StringBuffer buf)
+   {
+       for (int i = 0; i < value.length(); ++i)
+       {
+           char c = value.charAt(i);
+           switch (c)
+           {
+               case '\\': buf.append("\\\\"); break;
+               case '\t': buf.append("\\t"); break;
+               case '\n': buf.append("\\n"); break;
+               case '\r': buf.append("\\r"); break;
+               default:   buf.append(c);
+           }
+       }
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Splits a journal line into its unescaped fields.
+    * @param line Journal line
+    * @return Array of fields, null entries for null values
+    */
+   
+   private static String[] _unescape(String line)
+   {
+       String[] fields = line.split("\t", -1);
+       for (int f = 0; f < fields.length; ++f)
+       {
+           String field = fields[f];
+           if (field.equals("\\0"))
+           {
+               fields[f] = null;
+               continue;
+           }
+           if (field.indexOf('\\') == -1)
+               continue;
+           
+           StringBuffer buf = new StringBuffer();
+           for (int i = 0; i < field.length(); ++i)
+           {
+               char c = field.charAt(i);
+               if (c == '\\' && i + 1 < field.length())
+               {
+                   c = field.charAt(++i);
+                   if (c == 't')
+                       c = '\t';
+                   else if (c == 'n')
+                       c = '\n';
+                   else if (c == 'r')
+                       c = '\r';
+               }
+               buf.append(c);
+           }
+           fields[f] = buf.toString();
+       }
+       return fields;
+   }
+
+   //---------------------------------------------------------------------
+   
    /**
     * Copies existing restart file to a backup version in the name of
     * fault tolerance.  When cache is restored from file, it will first
@@ -1231,5 +1695,159 @@ public class ClientRestartCache {
        dstChannel.close();
    }
    
+   //---------------------------------------------------------------------
+   /**
+    * Returns the value of an integer system property.
+    * @param name Property name
+    * @param defaultValue Value if property is unset or invalid
+    * @return property value
+    */
+   
+   static int getIntProperty(String name, int defaultValue)
+   {
+       String value = System.getProperty(name);
+       if (value == null)
+           return defaultValue;
+       try {
+           return Integer.parseInt(value.trim());
+       } catch (NumberFormatException nfEx) {
+           return defaultValue;
+       }
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Returns the committer thread shared by all caches, starting it on
+    * first use.
+    * @return committer
+    */
+   
+   static Committer getCommitter()
+   {
+       synchronized(_syncLock)
+       {
+           if (_committer == null)
+           {
+               _committer = new Committer();
+               _committer.start();
+           }
+           return _committer;
+       }
+   }
+   
+   //=====================================================================
+   
+   /**
+    * Background thread that writes batched commits once due.  Pending
+    * commits are also written when the JVM shuts down.
+    */
+   
+   static class Committer extends Thread
+   {
+       private final Vector _scheduled = new Vector();
+       
+       //-----------------------------------------------------------------
+       
+       Committer()
+       {
+           super("ClientRestartCache_Committer");
+           this.setDaemon(true);
+           Runtime.getRuntime().addShutdownHook(new Thread() {
+               public void run() {
+                   flushAll();
+               }
+           });
+       }
+       
+       //-----------------------------------------------------------------
+       
+       /**
+        * Schedules a cache whose commits are outstanding.
+        * @param crc Cache to be written when due
+        */
+       
+       void schedule(ClientRestartCache crc)
+       {
+           synchronized(this._scheduled)
+           {
+               if (!this._scheduled.contains(crc))
+                   this._scheduled.add(crc);
+               this._scheduled.notify();
+           }
+       }
+       
+       //-----------------------------------------------------------------
+       
+       public void run()
+       {
+           Vector due = new Vector();
+           while (true)
+           {
+               synchronized(this._scheduled)
+               {
+                   long now = System.currentTimeMillis();
+                   long next = Long.MAX_VALUE;
+                   Iterator it = this._scheduled.iterator();
+                   while (it.hasNext())
+                   {
+                       ClientRestartCache crc = (ClientRestartCache) it.next();
+                       long commitDue = crc._commitDue;
+                       if (commitDue <= now)
+                       {
+                           due.add(crc);
+                           it.remove();
+                       }
+                       else if (crc._uncommitted == 0)
+                           it.remove(); //written by its own thread
+                       else
+                           next = Math.min(next, commitDue);
+                   }
+                   
+                   if (due.isEmpty())
+                   {
+                       try {
+                           this._scheduled.wait((next == Long.MAX_VALUE) ? 
+                                                0 : next - now);
+                       } catch (InterruptedException iEx) {
+                           return;
+                       }
+                       continue;
+                   }
+               }
+               
+               for (int i = 0; i < due.size(); ++i)
+                   _flush((ClientRestartCache) due.get(i));
+               due.clear();
+           }
+       }
+       
+       //-----------------------------------------------------------------
+       
+       /**
+        * Writes all scheduled caches.
+        */
+       
+       void flushAll()
+       {
+           Object[] caches = this._scheduled.toArray();
+           for (int i = 0; i < caches.length; ++i)
+               _flush((ClientRestartCache) caches[i]);
+       }
+       
+       //-----------------------------------------------------------------
+       
+       private void _flush(ClientRestartCache crc)
+       {
+           try {
+               crc.flush();
+           } catch (SessionException sesEx) {
+               crc._logger.error("Unable to persist session restart info " +
+                                 "to " + crc.getCacheFilename() + ": " + 
+                                 sesEx.getMessage());
+           }
+       }
+   }
+   
    //---------------------------------------------------------------------
 }
\ No newline at end of file
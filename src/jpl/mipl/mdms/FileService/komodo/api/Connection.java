@@ -5,6 +5,8 @@
 package jpl.mipl.mdms.FileService.komodo.api;
 
 import jpl.mipl.mdms.FileService.io.BufferedStreamIO;
+import jpl.mipl.mdms.FileService.io.ChannelBufferedInputStream;
+import jpl.mipl.mdms.FileService.net.SSLEngineChannel;
 import jpl.mipl.mdms.FileService.net.SecureSocketsUtil;
 import jpl.mipl.mdms.utils.logging.Logger;
 
@@ -13,8 +15,13 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
 
 /**
  * Make connection to serverHost and serverPort specified
@@ -36,6 +43,9 @@ class Connection implements Runnable {
    private int _securityType = Constants.SSL;
    private SSLSocket _sslClient;
    private Socket _client;
+   private boolean _multiplexable = false;
+   private SocketChannel _channel;
+   private ByteChannel _byteChannel;
 
 
    
@@ -43,6 +53,7 @@ class Connection implements Runnable {
    private BufferedOutputStream _bos;
    private BufferedInputStream _bis;
    private BufferedStreamIO _io;
+   private volatile long _lastActivity = System.currentTimeMillis();
 
    private final Logger _logger = Logger.getLogger(Connection.class.getName());
 
@@ -90,12 +101,38 @@ class Connection implements Runnable {
    Connection(String serverHost, int serverPort, int securityType,
               int startPort, int endPort, int timeout) throws IOException, 
                                                           SecurityException {
+       this(serverHost, serverPort, securityType, 
+            startPort, endPort, timeout, false);
+   }
+
+   /**
+    * Constructor <br>
+    * Make a connection to a server, identified by serverHost and serverPort.
+    * 
+    * @param serverHost the server serverHost name
+    * @param serverPort the server serverPort number
+    * @param securityType the security type, usually Session.SSL.
+    * @param startPort client side return port range, low end
+    * @param endPort client side return port range, high end
+    * @param timeout Timeout, in milliseconds, that socket will wait while
+    *        reading.  If timeout elapses, then a <code> 
+    *        java.net.SocketTimeoutException</code> will be raised.
+    * @param multiplexable if true, connect through a socket channel that
+    *        can later be registered with a selector.  SSL connections
+    *        then use an SSL engine rather than an SSL socket.
+    * @throws IOException when network I/O failure
+    * @throws SecurityException when security check failed
+    */
+   Connection(String serverHost, int serverPort, int securityType,
+              int startPort, int endPort, int timeout, 
+              boolean multiplexable) throws IOException, SecurityException {
        this._serverHost = serverHost;
        this._serverPort = serverPort;
        this._securityType = securityType;
        this._startPort = startPort;
        this._endPort = endPort;
        this._timeout = timeout;
+       this._multiplexable = multiplexable;
        this._logger.trace("Now, make the connection.");
        this._makeConnection();
    }
@@ -128,6 +165,10 @@ class Connection implements Runnable {
     * @throws IOException when network I/O failure
     */
    public void close() throws IOException {
+      if (this._io != null)
+         this._io.dispose();
+      if (this._byteChannel != null)
+         this._byteChannel.close();
       if (this._sslClient != null)
          this._sslClient.close();
       if (this._client != null)
@@ -144,6 +185,11 @@ class Connection implements Runnable {
       try {
          switch (this._securityType) {
          case Constants.SSL:
+            if (this._multiplexable) {
+               this._logger.trace("SSL engine");
+               this._openSecureChannel();
+               break;
+            }
             this._logger.trace("SSL");
             this._logger.trace("Now getting the connection.");
             if (this._startPort != 0) {
@@ -202,8 +248,7 @@ class Connection implements Runnable {
             if (this._startPort != 0) {
                for (int currPort = _startPort; currPort <= _endPort; currPort++) {
                   try {
-                     client = new Socket(this._serverHost, this._serverPort,
-                                         (InetAddress) null, currPort);
+                     client = this._openPlainSocket(currPort);
                      client.setSoTimeout(this._timeout);
                      break; // If connection works, break out.
                   } catch (SocketException se) {
@@ -212,7 +257,8 @@ class Connection implements Runnable {
                       * it contains 125, then continue. That meant that the
                       * address was already in use.
                       */
-                     if (se.getMessage().indexOf("125") > -1)
+                     if (se.getMessage().indexOf("125") > -1 ||
+                         se.getMessage().indexOf("Address already in use") > -1)
                         continue;
                      else
                         throw new IOException(se.getMessage());
@@ -224,16 +270,24 @@ class Connection implements Runnable {
                if (client == null)
                   throw new IOException("Ran out of client-side tcp ports");
             } else {
-               client = new Socket(this._serverHost, this._serverPort);
+               client = this._openPlainSocket(0);
                client.setSoTimeout(this._timeout);
             }
+            this._client = client;
             /*
-             * Bind this SSL socket into a Bufferered input and output streams.
+             * Bind this socket into a Bufferered input and output streams.
+             * Channel sockets expose their channel for bulk transfers.
              */
             this._bos = new BufferedOutputStream(client.getOutputStream(),
                                                  this._bufferSize);
-            this._bis = new BufferedInputStream(client.getInputStream(),
+            if (client.getChannel() != null) {
+               this._channel = client.getChannel();
+               this._bis = new ChannelBufferedInputStream(this._channel,
+                                                client.getInputStream(),
                                                 this._bufferSize);
+            } else
+               this._bis = new BufferedInputStream(client.getInputStream(),
+                                                   this._bufferSize);
             break;
          default:
             throw new SecurityException("Unknown Security type.");
@@ -247,6 +301,8 @@ class Connection implements Runnable {
          this._logger.trace("Connection.makeConnection (IOException)", io);
          if (this._client != null)
             this._client.close();
+         if (this._channel != null)
+            this._channel.close();
          throw io;
       } catch (SecurityException se) {
          this._logger.trace("Connection.makeConnection (SecurityException)",
@@ -257,6 +313,89 @@ class Connection implements Runnable {
       }
    }
 
+   /**
+    * Opens a plain socket to the server.  Unless disabled by property
+    * <code>Constants.PROPERTY_IO_NIO_ENABLE</code>, the socket is created 
+    * from a socket channel so that file data can be received through it.
+    * 
+    * @param localPort client side port, 0 for any
+    * @return connected socket
+    * @throws IOException when network I/O failure
+    */
+   private Socket _openPlainSocket(int localPort) throws IOException {
+      if ("false".equalsIgnoreCase(System.getProperty(
+                                     Constants.PROPERTY_IO_NIO_ENABLE))) {
+         if (localPort == 0)
+            return new Socket(this._serverHost, this._serverPort);
+         return new Socket(this._serverHost, this._serverPort,
+                           (InetAddress) null, localPort);
+      }
+
+      return this._openChannel(localPort).socket();
+   }
+
+   /**
+    * Opens a socket channel to the server.
+    * 
+    * @param localPort client side port, 0 for any
+    * @return connected socket channel, in blocking mode
+    * @throws IOException when network I/O failure
+    */
+   private SocketChannel _openChannel(int localPort) throws IOException {
+      SocketChannel channel = SocketChannel.open();
+      try {
+         if (localPort != 0)
+            channel.socket().bind(new InetSocketAddress(localPort));
+         channel.connect(new InetSocketAddress(this._serverHost, 
+                                               this._serverPort));
+      } catch (IOException io) {
+         channel.close();
+         throw io;
+      }
+      return channel;
+   }
+
+   /**
+    * Opens a socket channel to the server and performs the SSL handshake
+    * with an SSL engine.  Buffered streams are bound to the engine
+    * channel.
+    * 
+    * @throws IOException when network I/O failure
+    */
+   private void _openSecureChannel() throws IOException {
+      SocketChannel channel = null;
+      if (this._startPort != 0) {
+         for (int currPort = this._startPort; currPort <= this._endPort; currPort++) {
+            try {
+               channel = this._openChannel(currPort);
+               break; // If connection works, break out.
+            } catch (SocketException se) {
+               if (se.getMessage().indexOf("Address already in use") > -1)
+                  continue;
+               else
+                  throw new IOException(se.getMessage());
+            }
+         }
+         if (channel == null)
+            throw new IOException("Ran out of client-side tcp ports");
+      } else {
+         channel = this._openChannel(0);
+      }
+      this._channel = channel;
+
+      SSLEngineChannel sslChannel = new SSLEngineChannel(channel,
+                              Connection._SECURESOCKETUTIL.getSecureClientEngine(
+                                         this._serverHost, this._serverPort));
+      sslChannel.handshake();
+      this._byteChannel = sslChannel;
+      this._logger.trace("Now got the connection.");
+
+      this._bos = new BufferedOutputStream(Channels.newOutputStream(sslChannel),
+                                           this._bufferSize);
+      this._bis = new BufferedInputStream(Channels.newInputStream(sslChannel),
+                                          this._bufferSize);
+   }
+
    /**
     * Method to return the internal I/O handle.
     * 
@@ -265,4 +404,69 @@ class Connection implements Runnable {
    public BufferedStreamIO getIO() {
       return this._io;
    }
+
+   /**
+    * Records that the connection has just been used to exchange messages
+    * with the server.
+    */
+   public void setActive() {
+      this._lastActivity = System.currentTimeMillis();
+   }
+
+   /**
+    * Returns the time the connection was last used, as recorded by
+    * <code>setActive()</code>.
+    * 
+    * @return time of last use, in milliseconds since the epoch
+    */
+   public long getLastActivity() {
+      return this._lastActivity;
+   }
+
+   /**
+    * Returns the socket channel of this connection, which can be 
+    * registered with a selector once it is no longer used through 
+    * <code>getIO()</code>.
+    * 
+    * @return socket channel, or null if connection is not channel based
+    */
+   public SocketChannel getChannel() {
+      return this._channel;
+   }
+
+   /**
+    * Returns the channel through which protocol bytes are exchanged once
+    * the socket channel is in non-blocking mode.  For SSL connections,
+    * this is an <code>SSLEngineChannel</code>.
+    * 
+    * @return byte channel, or null if connection is not channel based
+    */
+   public ByteChannel getByteChannel() {
+      if (this._byteChannel == null)
+         return this._channel;
+      return this._byteChannel;
+   }
+
+   /**
+    * Transfers bytes already read from the network into the stream buffer,
+    * up to the remaining capacity of <code>dst</code>.  Never blocks.  Used
+    * when switching from stream I/O to channel I/O.
+    * 
+    * @param dst destination buffer
+    * @return number of bytes transferred
+    * @throws IOException when stream has been closed
+    */
+   public int drainBuffered(ByteBuffer dst) throws IOException {
+      if (this._bis instanceof ChannelBufferedInputStream)
+         return ((ChannelBufferedInputStream) this._bis).readBuffered(dst);
+
+      // channel streams of engine connections report only buffered bytes
+      int n = Math.min(this._bis.available(), dst.remaining());
+      if (n > 0) {
+         byte[] buffer = new byte[n];
+         n = this._bis.read(buffer, 0, n);
+         dst.put(buffer, 0, n);
+      }
+      return n;
+   }
 }
\ No newline at end of file
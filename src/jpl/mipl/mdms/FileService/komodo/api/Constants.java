@@ -551,6 +551,9 @@ public interface Constants extends jpl.mipl.mdms.utils.Constants
    public static final int RESULTCAPACITY = 128;
    public static final int RESULTCAPINCR = 64;
 
+   /* Results buffered by a listing result stream */
+   public static final int RESULTSTREAMCAPACITY = 1024;
+
    //---------------------------------------------------------------------
 
    /* Results timeout range (in milliseconds) */
@@ -785,6 +788,14 @@ public interface Constants extends jpl.mipl.mdms.utils.Constants
    public static final String NOTIFYEXTENSION = ".notify";
    public static final String PLUGINSDIR = "plugins";
    public static final String BACKUPEXTENSION = "~";
+   public static final String DOMAINCACHEDIR = "domaincache";
+
+   /* Milliseconds dynamic group file types are reused from the domain cache */
+   public static final long DOMAINCACHETTL = 900000L;
+
+   /* Dynamic group file type queries (in milliseconds) */
+   public static final int DOMAINQUERYTIMEOUT = 15000;    //15 seconds
+   public static final long DOMAINQUERYRETRY  = 60000L;   //1 minute
 
    //---------------------------------------------------------------------
 
@@ -829,6 +840,88 @@ public interface Constants extends jpl.mipl.mdms.utils.Constants
 
    public static final String PROPERTY_FILEHANDLING_ENABLE = "komodo.filehandling.enable";
 
+   /**
+    * boolean property, that when set to true, allows the client to issue
+    * the get command for the next file of a multi-file get as soon as it
+    * has sent its final response for the current file, rather than waiting
+    * for the server's 'done' reply.
+    */
+   public static final String PROPERTY_GET_PIPELINE        = "komodo.client.get.pipeline";
+
+   /**
+    * int property, specifies the initial number of connections a client
+    * may open to a single server.  Multi-file gets are striped across the
+    * connections.  Default is 1, a single connection.
+    */
+   public static final String PROPERTY_CONNECTION_POOL_SIZE = "komodo.client.connection.pool";
+
+   /**
+    * boolean property, that when set to false, disables the per-directory
+    * cache of local file checksums used when diffing files against the 
+    * server.  Only the caches of get output directories are written to
+    * disk.  Default is true.
+    */
+   public static final String PROPERTY_CHECKSUM_CACHE      = "komodo.client.checksum.cache";
+
+   /**
+    * boolean property, that when set to false, disables journaling of
+    * restart cache commits so that every commit rewrites the XML restart
+    * file, as clients prior to the journal expect.  Default is true.
+    */
+   public static final String PROPERTY_RESTART_JOURNAL     = "komodo.client.restart.journal";
+
+   /**
+    * int property, specifies the number of restart cache commits that may
+    * be outstanding before they are written.  Default is 0, no count 
+    * limit: every commit is written unless 
+    * <code>PROPERTY_RESTART_COMMIT_INTERVAL</code> is set, in which case
+    * commits are written by interval only.
+    */
+   public static final String PROPERTY_RESTART_COMMIT_BATCH    = "komodo.client.restart.commit.batch";
+
+   /**
+    * int property, specifies the number of milliseconds a restart cache
+    * commit may be outstanding before it is written.  Default is 0, no
+    * time limit.
+    */
+   public static final String PROPERTY_RESTART_COMMIT_INTERVAL = "komodo.client.restart.commit.interval";
+
+   /**
+    * boolean property, enables multiplexing of push subscriptions on
+    * shared reactor threads.  Default is false, each subscription is read
+    * by its proxy service thread.  When true, the proxy connection is
+    * handed to a reactor thread and the service thread stops for the
+    * life of the subscription.
+    */
+   public static final String PROPERTY_SUBSCRIPTION_REACTOR    = "komodo.client.subscription.reactor";
+
+   /**
+    * int property, specifies the number of reactor threads shared by
+    * push subscriptions.  Default is 2.
+    */
+   public static final String PROPERTY_SUBSCRIPTION_REACTOR_THREADS = "komodo.client.subscription.reactor.threads";
+
+   /**
+    * boolean property, that when set to false, disables the local cache
+    * of parsed domain files and of file types queried for dynamic groups,
+    * so that every session parses the domain file.  Default is true.
+    */
+   public static final String PROPERTY_DOMAIN_CACHE        = "komodo.client.domain.cache";
+
+   /**
+    * long property, specifies the number of milliseconds that file types
+    * queried for a dynamic group are reused from the domain cache before
+    * the group's servers are queried again.  Default is 900000.
+    */
+   public static final String PROPERTY_DOMAIN_CACHE_TTL    = "komodo.client.domain.cache.ttl";
+
+   /**
+    * int property, specifies the number of milliseconds to wait for the
+    * servers of dynamic groups to return their file types.  Servers that
+    * have not replied by then are skipped for a minute.  Default is 15000.
+    */
+   public static final String PROPERTY_DOMAIN_QUERY_TIMEOUT = "komodo.client.domain.query.timeout";
+
 
    /** Number of seconds to use for the reconnect throttle window */
    public static final String PROPERTY_THROTTLE_WINDOW     = "komodo.throttle.window";
@@ -854,6 +947,50 @@ public interface Constants extends jpl.mipl.mdms.utils.Constants
     */
    public static final String PROPERTY_IO_BOUNDEDREADER_UNBOUNDED   = "komodo.io.boundedreader.unbounded";
 
+   /**
+    * boolean property, that when set to false, disables the NIO channel
+    * and pooled buffer path used to receive files, reverting to stream 
+    * copies.  Default is true.
+    */
+   public static final String PROPERTY_IO_NIO_ENABLE      = "komodo.io.nio.enable";
+
+   /**
+    * int property, specifies the size in bytes of the pooled direct
+    * buffers used by NIO file transfers.  Default is 262144.
+    */
+   public static final String PROPERTY_IO_NIO_BUFFER_SIZE = "komodo.io.nio.buffersize";
+
+   /**
+    * long property, specifies the file size in bytes at or above which
+    * added and replaced files are sent using zero-copy channel transfers.
+    * A negative value disables zero-copy sends.  Default is 1048576.
+    */
+   public static final String PROPERTY_IO_NIO_SEND_THRESHOLD = "komodo.io.nio.sendthreshold";
+
+   /**
+    * String property, specifies the message digest algorithm used to
+    * checksum file transfers, e.g. SHA or MD5.  Both ends of a connection
+    * must agree, and FEI servers checksum with SHA only, so server
+    * connections are refused at login for any other algorithm.  Default
+    * is SHA.
+    */
+   public static final String PROPERTY_IO_DIGEST_ALGORITHM = "komodo.io.digest.algorithm";
+
+   /**
+    * long property, specifies the maximum number of bytes of idle direct
+    * buffers retained for reuse by in-memory file transfers.  Default is
+    * 67108864.
+    */
+   public static final String PROPERTY_IO_MEMORY_POOL_SIZE = "komodo.io.memory.poolsize";
+
+   /**
+    * long property, specifies the file size in bytes at or above which
+    * in-memory file transfers are backed by a memory-mapped temporary
+    * file rather than a direct buffer.  A negative value disables mapped
+    * buffers.  Default is 67108864.
+    */
+   public static final String PROPERTY_IO_MEMORY_MAP_THRESHOLD = "komodo.io.memory.mapthreshold";
+
 
 
    /*  AA service OP codes */
@@ -0,0 +1,652 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import jpl.mipl.mdms.FileService.komodo.util.UrlInputStreamLoader;
+import jpl.mipl.mdms.utils.logging.Logger;
+
+/**
+ * <b>Purpose:</b>
+ * Local cache of parsed domain files, so that short-lived clients do not
+ * parse the domain file, and query the servers of dynamic groups, on
+ * every session.
+ * <BR>
+ * A domain is stored as a compact binary snapshot of its groups, servers
+ * and file types, along with a validator for each URL read while loading
+ * it: modification time and length for files, ETag or Last-Modified for
+ * HTTP.  The snapshot is used only while every validator still matches;
+ * domains read from other sources are not cached.  File types queried
+ * for a dynamic group are stored separately and reused until the time to
+ * live has elapsed.
+ * <BR>
+ * Entries are written to a temporary file and renamed, so concurrent
+ * clients see either the old or the new entry.  Cache errors are logged
+ * and the domain is loaded as if no cache was present.
+ */
+
+public class DomainCache
+{
+    private static final int MAGIC = 0x46454944;  //FEID
+    private static final int VERSION = 1;
+
+    private static final String DOMAIN_EXTENSION = ".domain";
+    private static final String TYPES_EXTENSION = ".types";
+
+    private static DomainCache __default = null;
+    private static boolean __defaultChecked = false;
+
+    private final File _dir;
+    private final long _ttl;
+
+    private int _hits = 0;
+    private int _misses = 0;
+
+    private Logger _logger = Logger.getLogger(DomainCache.class.getName());
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param dir Directory holding the cache entries
+     * @param ttl Milliseconds dynamic group file types are reused
+     */
+
+    public DomainCache(File dir, long ttl)
+    {
+        this._dir = dir;
+        this._ttl = ttl;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the cache in the domain cache directory of the restart
+     * directory, or null if disabled by the property
+     * <code>Constants.PROPERTY_DOMAIN_CACHE</code> or the directory cannot
+     * be created.
+     * @return Default cache, possibly null
+     */
+
+    public static synchronized DomainCache getDefault()
+    {
+        if (__defaultChecked)
+            return __default;
+        __defaultChecked = true;
+
+        if ("false".equalsIgnoreCase(System.getProperty(
+                                     Constants.PROPERTY_DOMAIN_CACHE)))
+            return null;
+
+        String registry = System.getProperty(Constants.PROPERTY_RESTART_DIR);
+        if (registry == null)
+            registry = System.getProperty("user.home");
+        File dir = new File(registry + File.separator + Constants.RESTARTDIR
+                            + File.separator + Constants.DOMAINCACHEDIR);
+        if (!dir.isDirectory() && !dir.mkdirs())
+            return null;
+
+        long ttl = Constants.DOMAINCACHETTL;
+        String ttlStr = System.getProperty(Constants.PROPERTY_DOMAIN_CACHE_TTL);
+        if (ttlStr != null)
+        {
+            try {
+                ttl = Long.parseLong(ttlStr);
+            } catch (NumberFormatException nfEx) {
+            }
+        }
+
+        __default = new DomainCache(dir, ttl);
+        return __default;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the domain at the URL, restored from the cache if none of
+     * the URLs it was loaded from have changed, otherwise parsed and
+     * stored in the cache.
+     * @param url Location of domain file
+     * @return Domain instance
+     * @throws SessionException if the domain cannot be loaded
+     */
+
+    public SaxDomain getDomain(URL url) throws SessionException
+    {
+        File entry = _entryFile(url.toString(), DOMAIN_EXTENSION);
+
+        Hashtable hash = null;
+        if (entry.isFile())
+        {
+            try {
+                hash = _readDomain(entry);
+            } catch (IOException ioEx) {
+                _logger.debug("Unable to read domain cache entry " + entry +
+                              ": " + ioEx.getMessage());
+            }
+        }
+
+        if (hash != null)
+        {
+            _count(true);
+            _logger.trace("Domain " + url + " restored from cache");
+            return new SaxDomain(url, hash);
+        }
+
+        _count(false);
+        String validator = _getValidator(url.toString());
+        SaxDomain domain = new SaxDomain(url);
+        if (validator != null)
+        {
+            try {
+                _writeDomain(entry, domain, validator);
+            } catch (IOException ioEx) {
+                _logger.debug("Unable to write domain cache entry " + entry +
+                              ": " + ioEx.getMessage());
+                entry.delete();
+            }
+        }
+        return domain;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the file types last queried for a dynamic group, or null if
+     * none were stored or they are older than the time to live.
+     * @param domainUri Location of the domain file
+     * @param groupName Server group name
+     * @return List of file type names, or null
+     */
+
+    public List<String> getGroupTypes(String domainUri, String groupName)
+    {
+        File entry = _entryFile(domainUri + "#" + groupName.toLowerCase(),
+                                TYPES_EXTENSION);
+        if (!entry.isFile())
+            return null;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(
+                                     new FileInputStream(entry)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return null;
+            long age = System.currentTimeMillis() - in.readLong();
+            if (age < 0 || age >= this._ttl)
+                return null;
+
+            int count = in.readInt();
+            List<String> types = new Vector<String>(count);
+            for (int i = 0; i < count; ++i)
+                types.add(in.readUTF());
+            return types;
+        } catch (IOException ioEx) {
+            _logger.debug("Unable to read domain cache entry " + entry +
+                          ": " + ioEx.getMessage());
+            return null;
+        } finally {
+            _close(in);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Stores the file types queried for a dynamic group.
+     * @param domainUri Location of the domain file
+     * @param groupName Server group name
+     * @param types List of file type names
+     */
+
+    public void putGroupTypes(String domainUri, String groupName,
+                              List<String> types)
+    {
+        if (this._ttl <= 0)
+            return;
+
+        File entry = _entryFile(domainUri + "#" + groupName.toLowerCase(),
+                                TYPES_EXTENSION);
+        File tmp = new File(entry.getPath() + ".tmp" + _uniqueSuffix());
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                                       new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(types.size());
+            for (String type : types)
+                out.writeUTF(type);
+            out.close();
+            out = null;
+            _rename(tmp, entry);
+        } catch (IOException ioEx) {
+            _logger.debug("Unable to write domain cache entry " + entry +
+                          ": " + ioEx.getMessage());
+        } finally {
+            _close(out);
+            tmp.delete();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Removes all entries from the cache.
+     */
+
+    public void clear()
+    {
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+        {
+            String name = files[i].getName();
+            if (name.endsWith(DOMAIN_EXTENSION) ||
+                name.endsWith(TYPES_EXTENSION))
+                files[i].delete();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized int getHitCount()
+    {
+        return this._hits;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized int getMissCount()
+    {
+        return this._misses;
+    }
+
+    //---------------------------------------------------------------------
+
+    protected synchronized void _count(boolean hit)
+    {
+        if (hit)
+            ++this._hits;
+        else
+            ++this._misses;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Reads a domain entry, returning null if any of its sources changed.
+     */
+
+    protected Hashtable _readDomain(File entry) throws IOException
+    {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(
+                                     new FileInputStream(entry)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return null;
+
+            //validate sources before reading the rest
+            int sourceCount = in.readInt();
+            for (int i = 0; i < sourceCount; ++i)
+            {
+                String source = in.readUTF();
+                String validator = in.readUTF();
+                if (!validator.equals(_getValidator(source)))
+                {
+                    _logger.trace("Domain source " + source + " changed");
+                    return null;
+                }
+            }
+
+            Hashtable hash = new Hashtable();
+            hash.put(SaxDomain.URI_KEY, in.readUTF());
+            String defGroup = _readString(in);
+            if (defGroup != null)
+                hash.put(SaxDomain.DEFGRP_KEY, defGroup);
+            hash.put(SaxDomain.DYNAMIC_LOOKUP_ALL_KEY,
+                     Boolean.valueOf(in.readBoolean()));
+
+            Hashtable groups = new Hashtable();
+            int count = in.readInt();
+            for (int i = 0; i < count; ++i)
+                groups.put(in.readUTF(), in.readUTF());
+            hash.put(SaxDomain.GROUPS_KEY, groups);
+
+            Hashtable dynamic = new Hashtable();
+            count = in.readInt();
+            for (int i = 0; i < count; ++i)
+                dynamic.put(in.readUTF(), Boolean.valueOf(in.readBoolean()));
+            hash.put(SaxDomain.DYNAMIC_LOOKUP_KEY, dynamic);
+
+            //server infos are shared between the servers and types tables
+            ServerInfo[] infos = new ServerInfo[in.readInt()];
+            for (int i = 0; i < infos.length; ++i)
+            {
+                ServerInfo info = new ServerInfo(in.readUTF(), _readString(in),
+                                                 in.readInt(), _readString(in));
+                info.setGroupName(_readString(in));
+                info.setAuth(_readString(in));
+                info.setCommunication(_readString(in));
+                info.setPriority(in.readInt());
+                infos[i] = info;
+            }
+
+            Hashtable servers = new Hashtable();
+            count = in.readInt();
+            for (int i = 0; i < count; ++i)
+                servers.put(in.readUTF(), infos[in.readInt()]);
+            hash.put(SaxDomain.SERVERS_KEY, servers);
+
+            Hashtable types = new Hashtable();
+            count = in.readInt();
+            for (int i = 0; i < count; ++i)
+            {
+                String key = in.readUTF();
+                FileTypeInfo ftInfo = new FileTypeInfo(_readString(in),
+                                                       in.readUTF());
+                int serverCount = in.readInt();
+                for (int j = 0; j < serverCount; ++j)
+                    ftInfo.setServerInfo(in.readUTF(), infos[in.readInt()]);
+                types.put(key, ftInfo);
+            }
+            hash.put(SaxDomain.TYPES_KEY, types);
+
+            return hash;
+        } finally {
+            _close(in);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Writes a domain entry, unless any of its sources cannot be
+     * validated.
+     */
+
+    protected void _writeDomain(File entry, SaxDomain domain,
+                                String validator) throws IOException
+    {
+        List sources = domain.getSources();
+        String[] validators = new String[sources.size()];
+        validators[0] = validator;
+        for (int i = 1; i < validators.length; ++i)
+        {
+            validators[i] = _getValidator((String) sources.get(i));
+            if (validators[i] == null)
+                return;
+        }
+
+        Hashtable hash = domain.getHashtable();
+        Hashtable servers = (Hashtable) hash.get(SaxDomain.SERVERS_KEY);
+        Hashtable types = (Hashtable) hash.get(SaxDomain.TYPES_KEY);
+
+        //index each server info once, preserving shared references
+        Map<ServerInfo, Integer> index =
+                               new IdentityHashMap<ServerInfo, Integer>();
+        Vector infos = new Vector();
+        for (Enumeration e = servers.elements(); e.hasMoreElements(); )
+            _index((ServerInfo) e.nextElement(), index, infos);
+        for (Enumeration e = types.elements(); e.hasMoreElements(); )
+        {
+            FileTypeInfo ftInfo = (FileTypeInfo) e.nextElement();
+            List names = ftInfo.getServers();
+            for (int i = 0; i < names.size(); ++i)
+                _index(ftInfo.getServerInfo((String) names.get(i)),
+                       index, infos);
+        }
+
+        File tmp = new File(entry.getPath() + ".tmp" + _uniqueSuffix());
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(
+                                       new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(sources.size());
+            for (int i = 0; i < validators.length; ++i)
+            {
+                out.writeUTF((String) sources.get(i));
+                out.writeUTF(validators[i]);
+            }
+
+            out.writeUTF(hash.get(SaxDomain.URI_KEY).toString());
+            _writeString(out, (String) hash.get(SaxDomain.DEFGRP_KEY));
+            out.writeBoolean(((Boolean) hash.get(
+                            SaxDomain.DYNAMIC_LOOKUP_ALL_KEY)).booleanValue());
+
+            Hashtable groups = (Hashtable) hash.get(SaxDomain.GROUPS_KEY);
+            out.writeInt(groups.size());
+            for (Enumeration e = groups.keys(); e.hasMoreElements(); )
+            {
+                Object group = e.nextElement();
+                out.writeUTF(group.toString());
+                out.writeUTF(groups.get(group).toString());
+            }
+
+            Hashtable dynamic = (Hashtable) hash.get(
+                                            SaxDomain.DYNAMIC_LOOKUP_KEY);
+            out.writeInt(dynamic.size());
+            for (Enumeration e = dynamic.keys(); e.hasMoreElements(); )
+            {
+                Object group = e.nextElement();
+                out.writeUTF(group.toString());
+                out.writeBoolean(((Boolean) dynamic.get(group)).booleanValue());
+            }
+
+            out.writeInt(infos.size());
+            for (int i = 0; i < infos.size(); ++i)
+            {
+                ServerInfo info = (ServerInfo) infos.get(i);
+                out.writeUTF(info.getName());
+                _writeString(out, info.getHostName());
+                out.writeInt(info.getPort());
+                _writeString(out, info.getSecurityInfo());
+                _writeString(out, info.getGroupName());
+                _writeString(out, info.getAuth());
+                _writeString(out, info.getCommunication());
+                out.writeInt(info.getPriority());
+            }
+
+            out.writeInt(servers.size());
+            for (Enumeration e = servers.keys(); e.hasMoreElements(); )
+            {
+                Object key = e.nextElement();
+                out.writeUTF(key.toString());
+                out.writeInt(index.get(servers.get(key)).intValue());
+            }
+
+            out.writeInt(types.size());
+            for (Enumeration e = types.keys(); e.hasMoreElements(); )
+            {
+                Object key = e.nextElement();
+                FileTypeInfo ftInfo = (FileTypeInfo) types.get(key);
+                out.writeUTF(key.toString());
+                _writeString(out, ftInfo.getGroup());
+                out.writeUTF(ftInfo.getName());
+                List names = ftInfo.getServers();
+                out.writeInt(names.size());
+                for (int i = 0; i < names.size(); ++i)
+                {
+                    String name = (String) names.get(i);
+                    out.writeUTF(name);
+                    out.writeInt(index.get(ftInfo.getServerInfo(name)).intValue());
+                }
+            }
+
+            out.close();
+            out = null;
+            _rename(tmp, entry);
+        } finally {
+            _close(out);
+            tmp.delete();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private void _index(ServerInfo info, Map<ServerInfo, Integer> index,
+                        Vector infos)
+    {
+        if (!index.containsKey(info))
+        {
+            index.put(info, Integer.valueOf(infos.size()));
+            infos.add(info);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns a string that changes when the content at the URL changes,
+     * or null if the URL cannot be validated.
+     */
+
+    protected String _getValidator(String source)
+    {
+        try {
+            URL url = new URL(source);
+            String protocol = url.getProtocol();
+
+            if ("file".equalsIgnoreCase(protocol))
+            {
+                File file;
+                try {
+                    file = new File(url.toURI());
+                } catch (Exception ex) {
+                    file = new File(url.getPath());
+                }
+                if (!file.isFile())
+                    return null;
+                return "file:" + file.lastModified() + ":" + file.length();
+            }
+
+            if ("http".equalsIgnoreCase(protocol) ||
+                "https".equalsIgnoreCase(protocol))
+            {
+                UrlInputStreamLoader loader = new UrlInputStreamLoader();
+                URLConnection conn = url.openConnection();
+                HttpURLConnection http = (HttpURLConnection) conn;
+                http.setRequestMethod("HEAD");
+                http.setConnectTimeout(loader.getConnectionTimeout());
+                http.setReadTimeout(loader.getReadTimeout());
+                try {
+                    if (http.getResponseCode() != HttpURLConnection.HTTP_OK)
+                        return null;
+                    String etag = http.getHeaderField("ETag");
+                    if (etag != null)
+                        return "etag:" + etag;
+                    long modified = http.getLastModified();
+                    if (modified > 0)
+                        return "modified:" + modified;
+                } finally {
+                    http.disconnect();
+                }
+            }
+        } catch (IOException ioEx) {
+            _logger.trace("Unable to validate domain source " + source +
+                          ": " + ioEx.getMessage());
+        }
+        return null;
+    }
+
+    //---------------------------------------------------------------------
+
+    protected File _entryFile(String key, String extension)
+    {
+        StringBuffer name = new StringBuffer();
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(
+                                                  key.getBytes("UTF-8"));
+            for (int i = 0; i < digest.length; ++i)
+            {
+                int b = digest[i] & 0xff;
+                if (b < 16)
+                    name.append('0');
+                name.append(Integer.toHexString(b));
+            }
+        } catch (NoSuchAlgorithmException nsaEx) {
+            name.append(Integer.toHexString(key.hashCode()));
+        } catch (IOException ioEx) {
+            name.append(Integer.toHexString(key.hashCode()));
+        }
+        return new File(this._dir, name.append(extension).toString());
+    }
+
+    //---------------------------------------------------------------------
+
+    private String _uniqueSuffix()
+    {
+        return Long.toHexString(Thread.currentThread().getId()) +
+               Long.toHexString(System.nanoTime());
+    }
+
+    //---------------------------------------------------------------------
+
+    private void _rename(File tmp, File entry) throws IOException
+    {
+        if (!tmp.renameTo(entry))
+        {
+            entry.delete();
+            if (!tmp.renameTo(entry))
+                throw new IOException("Unable to rename " + tmp);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private static String _readString(DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _writeString(DataOutputStream out, String s)
+                                                         throws IOException
+    {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _close(java.io.Closeable c)
+    {
+        if (c != null)
+        {
+            try {
+                c.close();
+            } catch (IOException ioEx) {
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------
+}
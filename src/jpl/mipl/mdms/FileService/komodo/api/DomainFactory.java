@@ -22,7 +22,8 @@ public class DomainFactory implements DomainFactoryIF {
     
     /**
      * Returns a Domain object to parse and validate the FEI Domain
-     * information.
+     * information.  Unless disabled, the parsed domain is restored from
+     * and stored in the local domain cache.
      * 
      * @param url location of Domain information
      * @return Domain implementation object
@@ -30,12 +31,15 @@ public class DomainFactory implements DomainFactoryIF {
      */
     public Domain getDomain(URL url) throws SessionException {
         
-        Domain domain = new SaxDomain(url);
+        DomainCache cache = DomainCache.getDefault();
+        Domain domain = (cache == null) ? new SaxDomain(url) :
+                                          cache.getDomain(url);
 
         //if domain contains dynamic group, return appropriate wrapper
         if (containsDynamicGroup(domain))
         {
-            domain = new DynamicDomainWrapper(domain);
+            domain = new DynamicDomainWrapper(domain, null, cache,
+                                              url.toString());
         }
         
         return domain;
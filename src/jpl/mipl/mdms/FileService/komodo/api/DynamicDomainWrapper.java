@@ -10,6 +10,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import jpl.mipl.mdms.utils.logging.Logger;
 
@@ -41,6 +50,38 @@ public class DynamicDomainWrapper extends BaseDomainWrapper
     /** Map from full filetype name to FileTypeInfo instance */
     protected Map<String, FileTypeInfo> managedTypes;
     
+    /** Local cache of dynamic group filetypes (can be null) */
+    protected DomainCache domainCache;
+    
+    /** Key of the domain in the cache */
+    protected String domainKey;
+    
+    /** Maximum number of filetype queries running at once */
+    protected static final int QUERY_THREADS_MAX = 16;
+    
+    /** Runs filetype queries, shared by all instances */
+    protected static final ThreadPoolExecutor queryExecutor = 
+                    new ThreadPoolExecutor(QUERY_THREADS_MAX, 
+                                           QUERY_THREADS_MAX, 
+                                           60, TimeUnit.SECONDS,
+                                           new LinkedBlockingQueue<Runnable>(),
+                                           new ThreadFactory() {
+        private int _count = 0;
+        public synchronized Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "FileTypeQuery_Thread_" + _count++);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    static {
+        queryExecutor.allowCoreThreadTimeOut(true);
+    }
+    
+    /** Map from host:port of servers that did not reply to expiry time */
+    protected static final Map<String, Long> unreachableServers = 
+                                             new Hashtable<String, Long>();
+    
     //---------------------------------------------------------------------
     
     
@@ -66,9 +107,29 @@ public class DynamicDomainWrapper extends BaseDomainWrapper
     
     public DynamicDomainWrapper(Domain domain, Session session)
                                         throws SessionException
+    {
+        this(domain, session, null, null);
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Constructor
+     * @param domain Underlying Domain instance
+     * @param session Session instance (can be null)
+     * @param domainCache Cache of group filetypes (can be null)
+     * @param domainKey Key of the domain in the cache, typically its URL
+     * @throws SessionException is session error occurs
+     */
+    
+    public DynamicDomainWrapper(Domain domain, Session session,
+                                DomainCache domainCache, String domainKey)
+                                        throws SessionException
     {
         super(domain);
-        this.session = session;     
+        this.session     = session;     
+        this.domainCache = domainKey == null ? null : domainCache;
+        this.domainKey   = domainKey;
         
         init();
     }
@@ -84,6 +145,18 @@ public class DynamicDomainWrapper extends BaseDomainWrapper
         //create new client for client-server queries
         this.typeQueryClient = new FileTypeQueryClient();
         
+        //cancelling a query cannot interrupt a blocked socket read, so
+        //bound reads to keep hung servers from holding query threads
+        int readTimeout = getQueryTimeout();
+        int clientTimeout = this.typeQueryClient.getTimeout();
+        if (readTimeout == Constants.TIMEOUT_NONE || 
+            (clientTimeout != Constants.TIMEOUT_NONE && 
+             clientTimeout < readTimeout))
+            readTimeout = clientTimeout;
+        if (readTimeout == Constants.TIMEOUT_NONE)
+            readTimeout = Constants.TIMEOUT_DEFAULT;
+        this.typeQueryClient.setTimeout(readTimeout);
+        
         //init data structures
         this.initializedGroupSet = new HashSet();        
         this.managedTypes        = new Hashtable();
@@ -334,13 +407,13 @@ public class DynamicDomainWrapper extends BaseDomainWrapper
             
             if (initializeAllGroups)
             {
-                List groups = domain.getGroupNames();
-                Iterator it = groups.iterator();
+                List<String> groups = new ArrayList<String>();
+                Iterator it = domain.getGroupNames().iterator();
                 while (it.hasNext())
-                {
-                    String curGroup = it.next().toString();
-                    ensureGroupInitialized(curGroup);
-                }
+                    groups.add(it.next().toString());
+                
+                //query servers of all groups at once
+                fullyInitializeGroups(groups);
             }
             
         } //end_if_no_group
@@ -628,76 +701,282 @@ public class DynamicDomainWrapper extends BaseDomainWrapper
     //---------------------------------------------------------------------
     
     /**
-     * Will iterate over the servers associated with group until a
-     * successful query is goes through and returns with 
-     * a list of filetype names.  
+     * Queries the servers associated with group for its filetypes.
+     * Filetypes recently retrieved by any client are taken from the
+     * domain cache instead.
+     * @return True if group was initialized, false otherwise
+     * @throws SessionException if none of the group servers could be
+     *         reached
      */
     
     protected boolean fullyInitializeGroup(String groupName) throws SessionException
     {
-        boolean success = false;
-        List serverNames = domain.getServerNames(groupName);
+        List<String> groupNames = new ArrayList<String>(1);
+        groupNames.add(groupName);
         
-        //for preserving the IOERROR for SesEx's
-        int ioErrorCount = 0;
+        fullyInitializeGroups(groupNames);
+        
+        return isGroupInitialized(groupName);
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Queries the servers of all uninitialized groups in the list in
+     * parallel.  Filetypes of the first server of a group to reply are
+     * added, along with those of any other server of the group that has
+     * replied by then.  Waiting ends once every group is initialized, or
+     * once the query timeout elapses, in which case servers that did not
+     * reply are skipped by subsequent queries for a short period.
+     * @param groupNames List of server group names
+     * @throws SessionException if none of the servers of a group could
+     *         be reached
+     */
+    
+    protected void fullyInitializeGroups(List<String> groupNames)
+                                                throws SessionException
+    {
+        List<GroupQuery> groupQueries = new ArrayList<GroupQuery>();
+        List<ServerQuery> serverQueries = new ArrayList<ServerQuery>();
+        CompletionService<ServerQuery> completion =
+                   new ExecutorCompletionService<ServerQuery>(queryExecutor);
         
-        for (int i = 0; !success && i < serverNames.size(); ++i)
+        for (String groupName : groupNames)
         {
-            String serverName = (String) serverNames.get(i);
-            ServerInfo serverInfo = domain.getServerInfo(groupName, serverName);
+            if (isGroupInitialized(groupName) || initializeFromCache(groupName))
+                continue;
             
-            if (serverInfo != null)
+            GroupQuery groupQuery = new GroupQuery(groupName);
+            groupQueries.add(groupQuery);
+            
+            List serverNames = domain.getServerNames(groupName);
+            for (int i = 0; i < serverNames.size(); ++i)
+            {
+                String serverName = (String) serverNames.get(i);
+                ServerInfo serverInfo = domain.getServerInfo(groupName, serverName);
+                if (serverInfo == null)
+                    continue;
+                
+                ++groupQuery.serverCount;
+                if (isServerUnreachable(serverInfo))
+                {
+                    _logger.debug("Skipping server "+serverName+" ("+groupName+
+                                  ") which recently did not reply to query");
+                    ++groupQuery.ioErrorCount;
+                    continue;
+                }
+                
+                ServerQuery serverQuery = new ServerQuery(groupQuery, 
+                                                  serverName, serverInfo);
+                serverQuery.future = completion.submit(serverQuery);
+                serverQueries.add(serverQuery);
+            }
+        }
+        
+        //---------------------
+        
+        int timeout = getQueryTimeout();
+        long deadline = System.currentTimeMillis() + timeout;
+        int outstanding = serverQueries.size();
+        boolean expired = false;
+        
+        try {
+            while (outstanding > 0 && !expired && !allSucceeded(groupQueries))
             {
-                List types = null;
+                Future<ServerQuery> future;
+                if (timeout == Constants.TIMEOUT_NONE)
+                {
+                    future = completion.take();
+                }
+                else
+                {
+                    long remaining = deadline - System.currentTimeMillis();
+                    future = remaining > 0 ? completion.poll(remaining, 
+                                             TimeUnit.MILLISECONDS) : null;
+                }
                 
+                if (future == null)
+                {
+                    expired = true;
+                    continue;
+                }
+                
+                --outstanding;
                 try {
-                    
-                    types = this.typeQueryClient.getFileTypes(serverInfo);
-                    
-                } catch (SessionException sesEx) {
-                    
-                    if (sesEx.getErrno() == Constants.IO_ERROR)
-                        ioErrorCount++;
-                    
-                    String target = serverName + " (" + groupName + ") ";
-                    final String errMsg = "Received error while attempting " +
-                    		              "to get filetype info from " +
-                    		              target+":  " + sesEx.getMessage(); 
-                    _logger.debug(errMsg);                    
+                    mergeServerQuery(future.get());
+                } catch (ExecutionException exEx) {
+                    //queries catch their own errors
+                    _logger.trace(exEx.getMessage(), exEx);
                 }
-
-                if (types != null && !types.isEmpty())
-                {                   
-                    Iterator it = types.iterator();                    
-                    while (it.hasNext())
-                    {
-                        String curType = (String) it.next();
-                        addType(groupName, curType);
-                    }
-                    success = true;
-                }                
             }
-        } 
+        } catch (InterruptedException iEx) {
+            Thread.currentThread().interrupt();
+        }
+        
+        //---------------------
         
-        if (success)
+        for (ServerQuery serverQuery : serverQueries)
         {
-            this.initializedGroupSet.add(groupName.toLowerCase());
+            if (serverQuery.future.isDone())
+                continue;
+            
+            serverQuery.future.cancel(true);
+            if (expired)
+            {
+                _logger.debug("Server "+serverQuery.serverName+" ("+
+                              serverQuery.group.groupName+") did not reply "+
+                              "to filetype query within "+timeout+" ms");
+                setServerUnreachable(serverQuery.serverInfo);
+                ++serverQuery.group.ioErrorCount;
+            }
         }
-        else if (ioErrorCount > 0)
+        
+        for (GroupQuery groupQuery : groupQueries)
         {
-            if (ioErrorCount  == serverNames.size())
+            if (groupQuery.success)
             {
+                if (this.domainCache != null)
+                    this.domainCache.putGroupTypes(this.domainKey,
+                                    groupQuery.groupName, groupQuery.types);
+            }
+            else if (groupQuery.ioErrorCount > 0 && 
+                     groupQuery.ioErrorCount == groupQuery.serverCount)
+            {
+                String groupName = groupQuery.groupName;
                 this._logger.debug("Attempts to contact all servers for group '"+
                                    groupName+"' failed with IO error, suggesting " +
                                    "potential network issue.");
                 
                 throw new SessionException("Could not reach any of the "+
-                          ioErrorCount+" server(s) for group '"+groupName+"'.", 
-                          Constants.CONN_FAILED);
+                          groupQuery.ioErrorCount+" server(s) for group '"+
+                          groupName+"'.", Constants.CONN_FAILED);
             }
         }
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Adds the filetypes of the group from the domain cache, if present.
+     * @return True if group was initialized, false otherwise
+     */
+    
+    protected boolean initializeFromCache(String groupName)
+    {
+        if (this.domainCache == null)
+            return false;
         
-        return success;
+        List<String> types = this.domainCache.getGroupTypes(
+                                      this.domainKey, groupName);
+        if (types == null || types.isEmpty())
+            return false;
+        
+        for (String curType : types)
+            addType(groupName, curType);
+        this.initializedGroupSet.add(groupName.toLowerCase());
+        return true;
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Adds the filetypes returned by a server query to its group.
+     */
+    
+    protected void mergeServerQuery(ServerQuery serverQuery)
+    {
+        GroupQuery groupQuery = serverQuery.group;
+        String groupName = groupQuery.groupName;
+        
+        if (serverQuery.error != null)
+        {
+            if (serverQuery.error.getErrno() == Constants.IO_ERROR)
+                groupQuery.ioErrorCount++;
+            
+            String target = serverQuery.serverName + " (" + groupName + ") ";
+            final String errMsg = "Received error while attempting " +
+                                  "to get filetype info from " +
+                                  target+":  " + serverQuery.error.getMessage(); 
+            _logger.debug(errMsg);
+        }
+        else if (serverQuery.types != null && !serverQuery.types.isEmpty())
+        {
+            for (String curType : serverQuery.types)
+            {
+                addType(groupName, curType);
+                if (!groupQuery.types.contains(curType))
+                    groupQuery.types.add(curType);
+            }
+            groupQuery.success = true;
+            this.initializedGroupSet.add(groupName.toLowerCase());
+        }
+    }
+    
+    //---------------------------------------------------------------------
+    
+    protected boolean allSucceeded(List<GroupQuery> groupQueries)
+    {
+        for (GroupQuery groupQuery : groupQueries)
+            if (!groupQuery.success)
+                return false;
+        return true;
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Returns the time to wait for servers to reply to a filetype query,
+     * from the property <code>Constants.PROPERTY_DOMAIN_QUERY_TIMEOUT
+     * </code>.
+     * @return Timeout in milliseconds, TIMEOUT_NONE to wait indefinitely
+     */
+    
+    protected int getQueryTimeout()
+    {
+        int timeout = Constants.DOMAINQUERYTIMEOUT;
+        String timeoutStr = System.getProperty(
+                                Constants.PROPERTY_DOMAIN_QUERY_TIMEOUT);
+        if (timeoutStr != null)
+        {
+            try {
+                timeout = Integer.parseInt(timeoutStr);
+            } catch (NumberFormatException nfEx) {
+            }
+        }
+        return timeout < 0 ? Constants.TIMEOUT_NONE : timeout;
+    }
+    
+    //---------------------------------------------------------------------
+    
+    protected static boolean isServerUnreachable(ServerInfo serverInfo)
+    {
+        String key = serverKey(serverInfo);
+        synchronized (unreachableServers)
+        {
+            Long expiry = unreachableServers.get(key);
+            if (expiry == null)
+                return false;
+            if (expiry.longValue() > System.currentTimeMillis())
+                return true;
+            unreachableServers.remove(key);
+            return false;
+        }
+    }
+    
+    //---------------------------------------------------------------------
+    
+    protected static void setServerUnreachable(ServerInfo serverInfo)
+    {
+        unreachableServers.put(serverKey(serverInfo), Long.valueOf(
+                   System.currentTimeMillis() + Constants.DOMAINQUERYRETRY));
+    }
+    
+    //---------------------------------------------------------------------
+    
+    protected static String serverKey(ServerInfo serverInfo)
+    {
+        return String.valueOf(serverInfo.getHostName()).toLowerCase() + 
+               ":" + serverInfo.getPort();
     }
     
     //---------------------------------------------------------------------
@@ -744,4 +1023,61 @@ public class DynamicDomainWrapper extends BaseDomainWrapper
     }
        
     //---------------------------------------------------------------------
+    
+    /**
+     * Servers of a group being queried, and the filetypes they returned.
+     * Only accessed by the querying thread.
+     */
+    
+    protected static class GroupQuery
+    {
+        final String groupName;
+        final List<String> types = new ArrayList<String>();
+        int serverCount  = 0;
+        int ioErrorCount = 0;
+        boolean success  = false;
+        
+        GroupQuery(String groupName)
+        {
+            this.groupName = groupName;
+        }
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Filetype query of a single server, run on the query executor.
+     */
+    
+    protected class ServerQuery implements Callable<ServerQuery>
+    {
+        final GroupQuery group;
+        final String serverName;
+        final ServerInfo serverInfo;
+        Future<ServerQuery> future;
+        List<String> types;
+        SessionException error;
+        
+        ServerQuery(GroupQuery group, String serverName, ServerInfo serverInfo)
+        {
+            this.group      = group;
+            this.serverName = serverName;
+            this.serverInfo = serverInfo;
+        }
+        
+        public ServerQuery call()
+        {
+            try {
+                this.types = typeQueryClient.getFileTypes(this.serverInfo);
+            } catch (SessionException sesEx) {
+                this.error = sesEx;
+            } catch (RuntimeException rtEx) {
+                this.error = new SessionException(String.valueOf(
+                                  rtEx.getMessage()), Constants.EXCEPTION);
+            }
+            return this;
+        }
+    }
+    
+    //---------------------------------------------------------------------
 }
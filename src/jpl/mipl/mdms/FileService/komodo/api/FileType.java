@@ -6,6 +6,7 @@
 package jpl.mipl.mdms.FileService.komodo.api;
 
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.Vector;
 
@@ -380,6 +381,30 @@ public class FileType implements Closable
       return (this._proxy.put(cmd));
    }
 
+   /**
+    * Method to add in-memory file from a byte buffer, such as one returned
+    * by a direct memory get.  The file is the content between the position
+    * and the limit of the buffer, which must not be modified until the 
+    * result of the transaction is received.
+    * 
+    * @param fileName a file name
+    * @param buffer in-memory file contents
+    * @param comment a comment to associated with each file, or null
+    * @return the transaction id for tracking this command.
+    * @throws SessionException when session
+    *            failure
+    */
+   public int add(String fileName, ByteBuffer buffer, String comment)
+                                                       throws SessionException 
+   {
+
+      String[] fileNames = new String[1];
+      fileNames[0] = fileName;
+      Request cmd = new Request(this._serverGroup, this._fileType,
+            Constants.ADDFILE, fileNames, buffer, comment);
+      return (this._proxy.put(cmd));
+   }
+
    /**
     * Replace with regular expression
     * 
@@ -467,6 +492,29 @@ public class FileType implements Closable
       return (this._proxy.put(cmd));
    }
 
+   /**
+    * Method to replace in-memory file from a byte buffer.  The file is the
+    * content between the position and the limit of the buffer, which must
+    * not be modified until the result of the transaction is received.
+    * 
+    * @param fileName a file name
+    * @param buffer in-memory file contents
+    * @param comment a comment to associated with each file, or null
+    * @return the transaction id for tracking this command.
+    * @throws SessionException when session
+    *            failure
+    */
+   public int replace(String fileName, ByteBuffer buffer, String comment)
+                                                       throws SessionException 
+   {
+
+      String[] fileNames = new String[1];
+      fileNames[0] = fileName;
+      Request cmd = new Request(this._serverGroup, this._fileType,
+            Constants.REPLACEFILE, fileNames, buffer, comment);
+      return (this._proxy.put(cmd));
+   }
+
    /**
     * Method to delete a file
     * 
@@ -567,6 +615,39 @@ public class FileType implements Closable
       return (this._proxy.put(cmd));
    }
 
+   /**
+    * Method to stream files according to regular expression.  Results
+    * are delivered to the returned stream as they are read from the
+    * server, rather than to the session result queue, and the server is
+    * read no faster than the stream is consumed.
+    * 
+    * @param regexp a regular expression
+    * @return the stream of results, ending with the transaction
+    * @throws SessionException when session
+    *            failure
+    */
+   public ResultStream showStream(String regexp) throws SessionException 
+   {
+      Request cmd = new Request(this._serverGroup, this._fileType,
+            this._session.getDir(), Constants.SHOWFILES, regexp);
+      return this._stream(cmd);
+   }
+
+   /**
+    * Queues a request whose results are delivered to a new stream.
+    * 
+    * @param cmd the request
+    * @return the result stream
+    */
+   private ResultStream _stream(Request cmd)
+   {
+      ResultStream stream = new ResultStream(this._session, 
+                                        Constants.RESULTSTREAMCAPACITY);
+      cmd.setResultStream(stream);
+      this._proxy.put(cmd);
+      return stream;
+   }
+
    /**
     * Method to show given files in the server
     * 
@@ -620,7 +701,38 @@ public class FileType implements Closable
     */
    public int showAfter(Date datetime, String regexp) throws SessionException 
    {
+      return (this._proxy.put(this._showAfterRequest(datetime, regexp)));
+   }
 
+   /**
+    * Method to stream files of this file type after a given date
+    * 
+    * @param datetime the date cutoff for file show
+    * @param regexp the file name regular expression
+    * @return the stream of results, ending with the transaction
+    * @throws SessionException when session
+    *            failure
+    */
+   public ResultStream showAfterStream(Date datetime, String regexp) 
+                                             throws SessionException 
+   {
+      return this._stream(this._showAfterRequest(datetime, regexp));
+   }
+
+   /**
+    * Creates the show request for files after a given date, persisting
+    * the date to the restart cache if the restart option is set.
+    * 
+    * @param datetime the date cutoff for file show, null to resume from
+    *        the restart cache
+    * @param regexp the file name regular expression
+    * @return the request
+    * @throws SessionException when session
+    *            failure
+    */
+   private Request _showAfterRequest(Date datetime, String regexp)
+                                             throws SessionException 
+   {
       Date[] d = new Date[1];
       ClientRestartCache restartCache = null;
 
@@ -637,7 +749,7 @@ public class FileType implements Closable
                           Constants.AUTOSHOWFILES, regexp, 
                           this._session.getRegistry(), 
                           this._session.getDir());
-            restartCache.setLastQueryTime(datetime.getTime());
+            restartCache.resetLastQueryTime(datetime.getTime());
             restartCache.commit();
          }
       } else {
@@ -686,7 +798,7 @@ public class FileType implements Closable
                                 this._session.getDir(), Constants.SHOWFILES,
                                 Constants.FILESSINCE, regexp, d);
       cmd.setClientRestartCache(restartCache);
-      return (this._proxy.put(cmd));
+      return cmd;
    }
 
    
@@ -861,17 +973,40 @@ public class FileType implements Closable
    public int showBetween(Date begDate, Date endDate, String regexp)
                                              throws SessionException
    {
+      return (this._proxy.put(this._showBetweenRequest(begDate, endDate, 
+                                                       regexp)));
+   }
 
+   /**
+    * Method to stream files of this file type between two dates
+    * 
+    * @param begDate the beginning Date
+    * @param endDate the last Date
+    * @param regexp the file name regular expression
+    * @return the stream of results, ending with the transaction
+    * @throws SessionException when session
+    *            failure
+    */
+   public ResultStream showBetweenStream(Date begDate, Date endDate, 
+                                         String regexp)
+                                             throws SessionException
+   {
+      return this._stream(this._showBetweenRequest(begDate, endDate, regexp));
+   }
+
+   private Request _showBetweenRequest(Date begDate, Date endDate, 
+                                       String regexp)
+                                             throws SessionException
+   {
       if (begDate.after(endDate))
          throw new SessionException("Begin date is after end date",
                Constants.DATE_RANGE);
       Date[] d = new Date[2];
       d[0] = begDate;
       d[1] = endDate;
-      Request cmd = new Request(this._serverGroup, this._fileType,
+      return new Request(this._serverGroup, this._fileType,
             this._session.getDir(), Constants.SHOWFILES,
             Constants.FILESBETWEEN, regexp, d);
-      return (this._proxy.put(cmd));
    }
 
    /**
@@ -1077,7 +1212,7 @@ public class FileType implements Closable
                   this._serverGroup, this._fileType, null, 
                         Constants.AUTOGETFILES, regexp, this._session
                         .getRegistry(), this._session.getDir());
-            restartCache.setLastQueryTime(datetime.getTime());
+            restartCache.resetLastQueryTime(datetime.getTime());
             restartCache.commit();
          }
       } else {
@@ -1309,6 +1444,46 @@ public class FileType implements Closable
       return (this._proxy.put(cmd));
    }
 
+   /**
+    * Method to get files according to a regular expression into pooled
+    * off-heap buffers.  Each file is returned by 
+    * <code>Result.getByteBuffer()</code>, and its buffer must be handed 
+    * back with <code>Result.releaseByteBuffer()</code> once consumed.
+    * 
+    * @param regexp a regular expression
+    * @return the transaction id for tracking this command.
+    * @throws SessionException when session
+    *            failure
+    */
+   public int memGetDirect(String regexp) throws SessionException 
+   {
+      Request cmd = new Request(this._serverGroup, this._fileType,
+            this._session.getDir(), Constants.GETFILES, regexp);
+      cmd.setInMem(true);
+      cmd.setDirectBuffer(true);
+      return (this._proxy.put(cmd));
+   }
+
+   /**
+    * Method to get files into pooled off-heap buffers.  Each file is 
+    * returned by <code>Result.getByteBuffer()</code>, and its buffer must
+    * be handed back with <code>Result.releaseByteBuffer()</code> once 
+    * consumed.
+    * 
+    * @param fileNames - an array of file names
+    * @return the transaction id for tracking this command.
+    * @throws SessionException when session
+    *            failure
+    */
+   public int memGetDirect(String[] fileNames) throws SessionException 
+   {
+      Request cmd = new Request(this._serverGroup, this._fileType,
+            this._session.getDir(), Constants.GETFILES, fileNames);
+      cmd.setInMem(true);
+      cmd.setDirectBuffer(true);
+      return (this._proxy.put(cmd));
+   }
+
    /**
     * Method to get files of this file type since a given date
     * 
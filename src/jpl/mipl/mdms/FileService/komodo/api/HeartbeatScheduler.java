@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.api;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import jpl.mipl.mdms.utils.logging.Logger;
+
+/**
+ * <b>Purpose:</b> Single thread dispatching the heartbeats of all server
+ * proxies of the JVM.  Each registered target is checked once its
+ * heartbeat interval may have elapsed, and tells the scheduler when to
+ * check it next, so that a target only sends a heartbeat after being
+ * idle for the whole interval.
+ */
+
+class HeartbeatScheduler
+{
+   private static final String THREAD_NAME = "Heartbeat_Thread";
+
+   private static HeartbeatScheduler _instance = null;
+
+   private final ScheduledThreadPoolExecutor _executor;
+
+   private final Logger _logger = Logger.getLogger(
+                                       HeartbeatScheduler.class.getName());
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Connection kept alive by heartbeats.
+    */
+   interface Target
+   {
+      /**
+       * Sends a heartbeat if the target has been idle for the interval.
+       *
+       * @param interval heartbeat interval in milliseconds
+       * @return milliseconds until the target is to be checked again, or
+       *         a negative value to stop checking it
+       */
+      long beat(long interval);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.  The scheduler thread is a daemon.
+    */
+   HeartbeatScheduler()
+   {
+      this._executor = new ScheduledThreadPoolExecutor(1,
+                                                       new ThreadFactory() {
+         public Thread newThread(Runnable r)
+         {
+            Thread thread = new Thread(r, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+      this._executor.setRemoveOnCancelPolicy(true);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the shared instance, creating it on first call.
+    *
+    * @return shared heartbeat scheduler
+    */
+   static synchronized HeartbeatScheduler getInstance()
+   {
+      if (_instance == null)
+         _instance = new HeartbeatScheduler();
+      return _instance;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Registers a target, first checked one interval from now.
+    *
+    * @param target the target to be kept alive
+    * @param interval heartbeat interval in milliseconds
+    * @return registration, cancelled when the target goes away
+    */
+   Registration schedule(Target target, long interval)
+   {
+      Registration registration = new Registration(target, interval);
+      registration.schedule(interval);
+      return registration;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Registration of a target, rescheduling itself after every check.
+    */
+   class Registration implements Runnable
+   {
+      private final Target _target;
+      private final long _interval;
+      private boolean _cancelled = false;
+      private ScheduledFuture _future = null;
+
+      Registration(Target target, long interval)
+      {
+         this._target = target;
+         this._interval = Math.max(1, interval);
+      }
+
+      public void run()
+      {
+         synchronized (this)
+         {
+            if (this._cancelled)
+               return;
+         }
+
+         long delay = this._interval;
+         try {
+            delay = this._target.beat(this._interval);
+         } catch (RuntimeException rtEx) {
+            HeartbeatScheduler.this._logger.trace(
+                                   "Heartbeat of " + this._target, rtEx);
+         }
+         if (delay >= 0)
+            this.schedule(Math.max(1, delay));
+      }
+
+      synchronized void schedule(long delay)
+      {
+         if (!this._cancelled)
+            this._future = HeartbeatScheduler.this._executor.schedule(
+                                        this, delay, TimeUnit.MILLISECONDS);
+      }
+
+      /**
+       * Stops checking the target.
+       */
+      synchronized void cancel()
+      {
+         this._cancelled = true;
+         if (this._future != null)
+            this._future.cancel(false);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+}
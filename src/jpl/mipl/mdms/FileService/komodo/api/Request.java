@@ -9,6 +9,7 @@ import jpl.mipl.mdms.FileService.komodo.api.ClientRestartCache;
 import jpl.mipl.mdms.FileService.util.DateTimeUtil;
 
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Date;
 
 /**
@@ -36,8 +37,10 @@ class Request {
    //private RestartInfo _restartInfo = null;
    // If we must persist last file info.
    private ClientRestartCache _restartCache = null;
+   private ResultStream _resultStream = null;
    private byte[] _fileBuffer;
    private long _fileBufferLength;
+   private ByteBuffer _byteBuffer;
    private String _linkdir;
    private String _vft;
    private OutputStream _out;
@@ -46,6 +49,7 @@ class Request {
    private int _transactionId = -1;
    private int _options;
    private boolean _inMem = false;
+   private boolean _directBuffer = false;
 
    // = USER request constructors
 
@@ -261,6 +265,30 @@ class Request {
       this._modifier = Constants.MEMTRANSFER;
    }
 
+   /**
+    * Constructor for in-memory add/replace requests from a byte buffer.
+    * The file is the content between the position and the limit of the
+    * buffer.
+    * 
+    * @param serverGroup the server group name
+    * @param fileType the file's type
+    * @param command the command's string
+    * @param fileNames the file names for Komodo registration
+    * @param byteBuffer in-memory file contents.
+    * @param comment an optional comment to associate with a file set
+    */
+   Request(String serverGroup, String fileType, String command,
+         String[] fileNames, ByteBuffer byteBuffer, String comment) {
+      this._serverGroup = serverGroup;
+      this._fileType = fileType;
+      this._command = command;
+      this._fileNames = fileNames;
+      this._byteBuffer = byteBuffer;
+      this._fileBufferLength = byteBuffer.remaining();
+      this._comment = comment;
+      this._modifier = Constants.MEMTRANSFER;
+   }
+
    /**
     * Constructor for file type requests with no arguments. Command modifer can
     * be set.
@@ -363,6 +391,30 @@ class Request {
       return this._inMem;
    }
 
+   /**
+    * Method to set the direct buffer flag of an in-memory get request,
+    * receiving files into pooled off-heap buffers rather than byte arrays.
+    * 
+    * @param value the flag value
+    * @return the old direct buffer flag value
+    */
+   boolean setDirectBuffer(boolean value) {
+
+      boolean oldValue = this._directBuffer;
+      this._directBuffer = value;
+      return oldValue;
+   }
+
+   /**
+    * Accessor method to get direct buffer flag.
+    * 
+    * @return the current direct buffer flag value
+    */
+   final boolean getDirectBuffer() {
+
+      return this._directBuffer;
+   }
+
    /**
     * Accessor method to get command
     * 
@@ -485,6 +537,16 @@ class Request {
       return this._fileBufferLength;
    }
 
+   /**
+    * Method to get the byte buffer of an in-memory add/replace request.
+    * 
+    * @return byte buffer containing file, or null.
+    */
+   final ByteBuffer getByteBuffer() {
+
+      return this._byteBuffer;
+   }
+
    /**
     * Method to get array of file names command is operating on
     * 
@@ -505,6 +567,26 @@ class Request {
       this._transactionId = transactionId;
    }
 
+   /**
+    * Method to deliver results of this request to a stream rather than
+    * the session result queue.
+    * 
+    * @param stream the result stream
+    */
+   final void setResultStream(ResultStream stream) {
+      this._resultStream = stream;
+   }
+
+   /**
+    * Method to get the stream to which results of this request are
+    * delivered.
+    * 
+    * @return the result stream, null if results go to the session queue
+    */
+   final ResultStream getResultStream() {
+      return this._resultStream;
+   }
+
    final void setClientRestartCache(ClientRestartCache restartCache) {
       this._restartCache = restartCache;
    }
@@ -4,9 +4,11 @@
  ******************************************************************************/
 package jpl.mipl.mdms.FileService.komodo.api;
 
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.Date;
 
+import jpl.mipl.mdms.FileService.io.DirectBufferAllocator;
 import jpl.mipl.mdms.FileService.util.DateTimeUtil;
 import jpl.mipl.mdms.FileService.util.FileUtil;
 
@@ -33,11 +35,13 @@ public class Result {
    private String _qaRelease;
    private byte[] _checksum;
    private byte[] _fileBuffer;
+   private ByteBuffer _byteBuffer;
    private String _note;
    private String _message;
    private String _comment;
    private String _archiveNote;
    private ClientRestartCache _restartCache = null;
+   private StripeProgress _stripeProgress = null;
    //private RestartInfo _restartInfo;
 
    private String _fileType;
@@ -77,6 +81,15 @@ public class Result {
       this(null, name, size, null);
    }
 
+   /**
+    * Returns the request that produced this result.
+    * 
+    * @return the request, null if not set
+    */
+   final Request getRequest() {
+      return this._request;
+   }
+
    /**
     * Constructor
     * 
@@ -275,6 +288,25 @@ public class Result {
       this._restartCache = restartCache;
    }
 
+   /**
+    * Method to return the restart cache committed by this result
+    *
+    * @return the client restart cache, null if not set
+    */
+   public final ClientRestartCache getClientRestartCache() {
+      return this._restartCache;
+   }
+
+   /**
+    * Method to set the progress of the striped get this result belongs
+    * to, which limits the time committed by <code>commit()</code>.
+    *
+    * @param stripeProgress the stripe progress, null if not striped
+    */
+   void setStripeProgress(StripeProgress stripeProgress) {
+      this._stripeProgress = stripeProgress;
+   }
+
    /**
     * Method to return message with time stamp
     * 
@@ -652,7 +684,7 @@ public class Result {
     * @return the file buffer size, or zero if there is no in-memory file.
     */
    public long getFileBufferSize() {
-      if (this._fileBuffer == null)
+      if (this._fileBuffer == null && this._byteBuffer == null)
          return 0;
       else
          return this._size;
@@ -676,6 +708,36 @@ public class Result {
       this._fileBuffer = fileBuffer;
    }
 
+   /**
+    * Method to get the off-heap file buffer of a direct in-memory get.  The
+    * file is the content between the position and the limit of the buffer,
+    * which remains valid until <code>releaseByteBuffer()</code> is called.
+    * 
+    * @return a byte buffer, the contents of a file, or null.
+    */
+   public final ByteBuffer getByteBuffer() {
+      return this._byteBuffer;
+   }
+
+   /**
+    * Method to set the off-heap file buffer
+    * 
+    * @param byteBuffer the buffer containing file.
+    */
+   public final void setByteBuffer(ByteBuffer byteBuffer) {
+      this._byteBuffer = byteBuffer;
+   }
+
+   /**
+    * Method to return the off-heap file buffer to the buffer pool once the
+    * file has been consumed.  The buffer must not be used afterwards.
+    */
+   public final void releaseByteBuffer() {
+      ByteBuffer buffer = this._byteBuffer;
+      this._byteBuffer = null;
+      DirectBufferAllocator.getDefault().release(buffer);
+   }
+
    /**
     * Method to set file size
     * 
@@ -940,6 +1002,16 @@ public class Result {
                 }
             }
 
+            //a striped get commits no further than all stripes reached
+            if (fileTime != null && this._stripeProgress != null)
+            {
+                long safeTime = this._stripeProgress.getSafeTime();
+                if (safeTime == StripeProgress.NONE)
+                    fileTime = null;
+                else if (safeTime < fileTime.getTime())
+                    fileTime = new Date(safeTime);
+            }
+
             //if fileTime exists and is greater than cache time, update
             if (fileTime != null &&
                      (cacheTime == null || cacheTime.before(fileTime)))
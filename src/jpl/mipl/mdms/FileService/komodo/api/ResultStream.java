@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.api;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <b>Purpose:</b>
+ * Iterator over the results of a single listing request, delivered as
+ * the server proxy reads them.  Results bypass the session result queue
+ * and are held in a bounded buffer; once the buffer is full, the proxy
+ * stops reading from the server until the caller catches up, so memory
+ * use does not depend on the size of the listing.
+ * <BR>
+ * Iteration ends after the end-of-transaction result, at which point
+ * the session transaction count has been decremented.  Results not
+ * intended for the user are consumed but not returned.  A caller that
+ * abandons a stream before the end must call <code>close()</code> so
+ * that the proxy is not left blocked.
+ */
+
+public class ResultStream implements Iterator<Result>
+{
+    /** Interval at which a blocked proxy checks for close, in ms */
+    private static final long CLOSE_CHECK_INTERVAL = 500;
+
+    private final Session _session;
+    private final BlockingQueue<Result> _queue;
+    private volatile boolean _closed = false;
+    private boolean _ended = false;
+    private Result _next = null;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param session Session whose transaction count is decremented at
+     *        the end of the stream
+     * @param capacity Maximum number of results buffered
+     */
+
+    ResultStream(Session session, int capacity)
+    {
+        this._session = session;
+        this._queue   = new ArrayBlockingQueue<Result>(Math.max(1, capacity));
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Called by the server proxy to deliver a result, blocking while the
+     * buffer is full.  Results delivered after the stream is closed are
+     * discarded.
+     * @param result Result to deliver
+     */
+
+    void post(Result result)
+    {
+        boolean interrupted = false;
+        boolean queued = false;
+
+        while (!queued && !this._closed)
+        {
+            try {
+                queued = this._queue.offer(result, CLOSE_CHECK_INTERVAL,
+                                           TimeUnit.MILLISECONDS);
+            } catch (InterruptedException iEx) {
+                interrupted = true;
+            }
+        }
+
+        if (!queued && result.isEoT())
+            this._session.endStreamedTransaction();
+        else if (this._closed)
+            _discard();
+
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns true if another result is available, waiting for the server
+     * proxy to deliver one if necessary.  Returns false once the end of
+     * the transaction was reached, the stream was closed, or the calling
+     * thread was interrupted.
+     * @return True if next() will return a result
+     */
+
+    public boolean hasNext()
+    {
+        while (this._next == null && !this._ended && !this._closed)
+        {
+            Result result;
+            try {
+                result = this._queue.take();
+            } catch (InterruptedException iEx) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            if (result.isEoT())
+            {
+                this._ended = true;
+                this._session.endStreamedTransaction();
+            }
+            if (!result.isDoNotShowUser())
+                this._next = result;
+        }
+        return this._next != null;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the next result, which may carry an error number.
+     * @return Next result
+     * @throws NoSuchElementException if no result remains
+     */
+
+    public Result next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Result result = this._next;
+        this._next = null;
+        return result;
+    }
+
+    //---------------------------------------------------------------------
+
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns true if the end of the transaction was reached.
+     * @return True if the stream has ended
+     */
+
+    public boolean isEnded()
+    {
+        return this._ended;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Abandons the stream.  Buffered and subsequent results are
+     * discarded, and the server proxy completes the listing without
+     * waiting on the caller.
+     */
+
+    public void close()
+    {
+        this._closed = true;
+        this._next = null;
+        _discard();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Removes buffered results, ending the transaction if the last one
+     * was among them.
+     */
+
+    private void _discard()
+    {
+        Result result;
+        while ((result = this._queue.poll()) != null)
+        {
+            if (result.isEoT())
+                this._session.endStreamedTransaction();
+        }
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -87,6 +87,11 @@ public class SaxDomain extends Domain {
      */
     protected URL _url;
 
+    /**
+     * URLs read while loading, starting with the domain file
+     */
+    protected Vector _sources = new Vector();
+
    /**
     * Constructor, location of domain file. Parses XML and loads it into a
     * hashtable. See class Javadoc comment for hashtable format.
@@ -121,6 +126,21 @@ public class SaxDomain extends Domain {
 
     //----------------------------------------------------------------------
    
+   /**
+    * Constructor, location of domain file and hashtable previously loaded
+    * from it, used to restore a domain from DomainCache without parsing.
+    * 
+    * @param url URL location of domainFile
+    * @param hash Domain hashtable, see class Javadoc comment for format
+    */
+   SaxDomain(URL url, Hashtable hash) {
+      this._url = url;
+      this._hash = hash;
+      this._sources.add(url.toString());
+   }
+
+    //----------------------------------------------------------------------
+   
    /**
     * Private method to do the XML parsing and load the hashtable. See class
     * Javadoc entry for hashtable format.
@@ -132,6 +152,9 @@ public class SaxDomain extends Domain {
       String schema = null;
       DomainXmlParser parser;
       
+      this._sources.clear();
+      this._sources.add(this._url.toString());
+      
       try {
           
          //xml = this._url.openStream();         
@@ -159,6 +182,7 @@ public class SaxDomain extends Domain {
          {
             // if document URI is set, load into hash
              Hashtable hashFromUri = null;
+             this._sources.add(docUri);
              try {                 
                  //xml = new URL(docUri).openStream();
                  xml = UrlInputStreamLoader.open(docUri);
@@ -190,6 +214,7 @@ public class SaxDomain extends Domain {
             String group = e.nextElement().toString();
             String uri = h.get(group).toString();
             if (!uri.equalsIgnoreCase("")) {
+               this._sources.add(uri);
                //xml = new URL(uri).openStream();
                xml = UrlInputStreamLoader.open(uri);
                Hashtable gh = parser.getHashtable(xml);
@@ -739,6 +764,29 @@ public class SaxDomain extends Domain {
    
    //----------------------------------------------------------------------
    
+   /**
+    * Returns the domain hashtable.  See class Javadoc comment for format.
+    * 
+    * @return Domain hashtable
+    */
+   Hashtable getHashtable() {
+      return this._hash;
+   }
+   
+   //----------------------------------------------------------------------
+   
+   /**
+    * Returns the URLs read while loading this domain, starting with the
+    * domain file itself.
+    * 
+    * @return List of URL strings
+    */
+   List getSources() {
+      return this._sources;
+   }
+   
+   //----------------------------------------------------------------------
+   
    protected ContentHandler getParserContentHandler()
    {
        return new DomainHandler();
@@ -5,19 +5,27 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import jpl.mipl.mdms.FileService.io.BufferedStreamIO;
+import jpl.mipl.mdms.FileService.io.DigestFactory;
+import jpl.mipl.mdms.FileService.io.DirectBufferAllocator;
 import jpl.mipl.mdms.FileService.io.MessagePkg;
 import jpl.mipl.mdms.FileService.io.VerifyException;
+import jpl.mipl.mdms.FileService.util.ChecksumCache;
 import jpl.mipl.mdms.FileService.util.DateTimeUtil;
 import jpl.mipl.mdms.FileService.util.DirectoryUtil;
 import jpl.mipl.mdms.FileService.util.Errno;
@@ -26,6 +34,7 @@ import jpl.mipl.mdms.FileService.util.FileSystemFactory;
 import jpl.mipl.mdms.FileService.util.FileUtil;
 import jpl.mipl.mdms.FileService.util.GeneralFileFilter;
 import jpl.mipl.mdms.FileService.util.PrintfFormat;
+import jpl.mipl.mdms.connection.Reactor;
 import jpl.mipl.mdms.utils.logging.Logger;
 
 
@@ -72,17 +81,24 @@ import jpl.mipl.mdms.utils.logging.Logger;
 public class ServerProxy implements Runnable {
     
    //flag for server proxy lifecycle
-   private boolean _alive = true; 
+   private volatile boolean _alive = true; 
     
-   private final Vector _requests; // Dispatcher queues requests here.
-   private final Vector _controlReqs; // Dispatcher queues interrupts here.
+   private final BlockingDeque _requests; // Dispatcher queues requests here.
+   private final BlockingDeque _controlReqs; // Dispatcher queues interrupts here.
+   
+   // Queued by terminate() to wake service threads blocked on their queues
+   private static final Request WAKEUP_REQUEST = new Request();
    
    private static final String PROXY_THREAD_SUFFIX   = "Service_Thread";
    private static final String CONTROL_THREAD_SUFFIX = "Control_Thread";
-   private static final String PULSE_THREAD_SUFFIX   = "Pulse_Thread";
    private Thread _proxyThread;    // Thread services for command processing.
    private Thread _controlThread;  //Thread for dispatching from init Q
-   private Thread _pulseThread;  //Thread for dispatching heartbeat ops
+   
+   //heartbeat checks of this proxy, iff heartbeat is enabled
+   private HeartbeatScheduler.Registration _heartbeat = null;
+   
+   //true while the service thread is executing a request
+   private volatile boolean _busy = false;
    
    private Request _currentCmd;     // The command we're now executing.
    private Request _currentCntlCmd; // The cntl command we're now executing.
@@ -93,7 +109,7 @@ public class ServerProxy implements Runnable {
    private ServerInfo _serverInfo;
    private Connection _conn = null; // Connection to Fei server.
    private String _currentType = null; // Current type being serviced.
-   private int _refCount = 1; // Initialize ref count to 1 on creation.
+   private final AtomicInteger _refCount = new AtomicInteger(1); // 1 on creation.
    private boolean _admin = false;
    //private RestartInfo _restartInfo = null;
    private MessagePkg _srvReply; // Last package message reply seen from server.
@@ -105,7 +121,7 @@ public class ServerProxy implements Runnable {
    public static final long DB_DELTA_MS = 4;
    
    //flag indicating that DB workaround behavior is enabled
-   private static boolean DB_ACCURRACY_FIX_ENABLED = true;
+   static boolean DB_ACCURRACY_FIX_ENABLED = true;
    
    //termination handler reference
    private RequestTerminationHandler _reqTermHandler;
@@ -124,6 +140,24 @@ public class ServerProxy implements Runnable {
    //they will all be assigned this value
    protected final int INTERNAL_TRANSACTION_ID = -1;
    
+   //true if this proxy is an additional connection owned by another
+   //proxy, used to stripe transfers.  Stripe proxies have no threads
+   //and never end transactions.
+   private final boolean _stripe;
+   
+   //additional connections to the same server, used to stripe
+   //multi-file gets.  Only accessed from the service thread.
+   private final Vector _stripeProxies = new Vector();
+
+   //progress of the striped get this proxy is taking part in, and the
+   //index of its stripe, null when not striping
+   private StripeProgress _stripeProgress = null;
+   private int _stripeIndex = 0;
+   
+   //push subscription serviced by the shared subscription reactor over
+   //this proxy's connection, while the service thread is stopped
+   private volatile SubscriptionHandler _subscription = null;
+   
    //----------------------------------------------------------------------
    
    /**
@@ -158,15 +192,36 @@ public class ServerProxy implements Runnable {
    
    ServerProxy(Session session, ServerInfo serverInfo, boolean admin, 
                boolean login) throws SessionException 
+   {
+       this(session, serverInfo, admin, login, false);
+   }
+   
+   //----------------------------------------------------------------------
+   
+   /**
+    * Constructor. Estabishes a connection to the server associated with
+    * the serverInfo parameter.
+    * @param session the reference to the FEI session
+    * @param serverInfo the server info reference to connection management
+    *           information.
+    * @param admin if true, add 1 to Port number to get admin port connection
+    * @param login if true, perform login using user/password info from 
+    *        session object.  Otherwise, perform no login.
+    * @param stripe if true, proxy is an additional connection driven
+    *        directly by its owning proxy, so no service threads are started
+    * @throws SessionException when connection fails
+    */
+   
+   private ServerProxy(Session session, ServerInfo serverInfo, boolean admin,
+                       boolean login, boolean stripe) throws SessionException
    {
       this._id = nextId();
+      this._stripe = stripe;
       this._session = session;
       this._serverInfo = serverInfo;
       this._admin = admin;
-      this._requests   = new Vector(Constants.REQUESTCAPACITY,
-                                    Constants.REQUESTCAPINCR);
-      this._controlReqs = new Vector(Constants.REQUESTCAPACITY,
-                                    Constants.REQUESTCAPINCR);
+      this._requests    = new LinkedBlockingDeque();
+      this._controlReqs = new LinkedBlockingDeque();
       
       //---------------------------
       
@@ -176,14 +231,31 @@ public class ServerProxy implements Runnable {
          if (admin)
             port += 1;
          
+         // Push subscriptions can only be handed to the subscription 
+         // reactor over a channel based connection.
+         boolean multiplexable = !stripe && SubscriptionReactor.isEnabled();
+         
          // TODO - What is an appropriate socket timeout value. Make it configurable
          this._conn = new Connection(serverInfo.getHostName(), port, 
                                      session.getSecurityModel(), 
                                      session.getTcpStartPort(), 
                                      session.getTcpEndPort(),
-                                     session.getConnectionTimeout());
+                                     session.getConnectionTimeout(),
+                                     multiplexable);
          this._logger.trace(this + " Got connection " + this._conn);
          
+         //the protocol does not negotiate the checksum digest, and servers
+         //use SHA, so refuse any other before it can desync the stream
+         String digest = this._conn.getIO().getDigestAlgorithm();
+         if (!DigestFactory.isServerAlgorithm(digest))
+         {
+             this._conn.close();
+             throw new SessionException("Digest algorithm '" + digest + 
+                          "' is not supported by server, set property '" +
+                          Constants.PROPERTY_IO_DIGEST_ALGORITHM + 
+                          "' to " + DigestFactory.SHA, Constants.CONN_FAILED);
+         }
+         
          //if login flag is set, perform a login using session username
          //and password settings.  Also, perform a show capabilities 
          //for that user.  Otherwise, skip this step.
@@ -286,18 +358,20 @@ public class ServerProxy implements Runnable {
              }
          } //end_if_login
          
+         //stripe proxies are driven by their owner's service thread
+         if (stripe)
+             return;
+         
          // Create a service thread, and start it.
          String threadPrefix = "Proxy_"+this._id+"_";
          this._proxyThread = new Thread(this);
          this._proxyThread.setName(threadPrefix + PROXY_THREAD_SUFFIX);
          this._controlThread = new Thread(this);
          this._controlThread.setName(threadPrefix + CONTROL_THREAD_SUFFIX);
-         this._pulseThread = new Thread(this);
-         this._pulseThread.setName(threadPrefix + PULSE_THREAD_SUFFIX);
          
          this._proxyThread.start();
          this._controlThread.start();
-         this._pulseThread.start();
+         this._startHeartbeat();
          
       } catch (IOException e) {
          this._logger.trace(null, e);
@@ -318,9 +392,7 @@ public class ServerProxy implements Runnable {
     * @return new reference count.
     */
    int incrementRefCount() {
-      synchronized (this._requests) {
-         return ++this._refCount;
-      }
+      return this._refCount.incrementAndGet();
    }
 
    //----------------------------------------------------------------------
@@ -331,9 +403,7 @@ public class ServerProxy implements Runnable {
     * @return new reference count.
     */
    int decrementRefCount() {
-      synchronized (this._requests) {
-         return --this._refCount;
-      }
+      return this._refCount.decrementAndGet();
    }
 
    //----------------------------------------------------------------------
@@ -352,8 +422,6 @@ public class ServerProxy implements Runnable {
            runControl();
        else if (threadName.endsWith(PROXY_THREAD_SUFFIX))
            runProxy();
-       else if (threadName.endsWith(PULSE_THREAD_SUFFIX))
-           runPulse();
        else
            return;
    }
@@ -389,7 +457,25 @@ public class ServerProxy implements Runnable {
               * Now, decode and execute the command. Results are placed on
               * the parent komodo results queue.
               */
-             this._decodeAndExecuteRequest();
+             this._busy = true;
+             this._conn.setActive();
+             try {
+                this._decodeAndExecuteRequest();
+             } finally {
+                this._conn.setActive();
+                this._busy = this._subscription != null;
+             }
+             
+             // A subscription handed to the reactor now owns the
+             // connection.  The thread stops, and is restarted by 
+             // resumeService() once the subscription ends.
+             SubscriptionHandler subscription = this._subscription;
+             if (subscription != null) {
+                this._logger.trace(this + " Stopping serverproxy service " +
+                                   "thread during subscription.");
+                subscription.open();
+                return;
+             }
           }
        } catch (IOException e) {
           this._logger.trace(this + " ServerProxy.run ()", e);
@@ -429,6 +515,7 @@ public class ServerProxy implements Runnable {
                 * Now, decode and execute the command. 
                 */
                this._decodeAndExecuteControl();
+               this._conn.setActive();
            } 
        } catch (InterruptedException e) {
            this._logger.trace(this + " Close immediate has been called, exiting " +
@@ -439,72 +526,89 @@ public class ServerProxy implements Runnable {
    //----------------------------------------------------------------------
    
    /**
-    * Run implementation for pulse service.  First, exchanges pulse
-    * period value with server, then enters thread registering
-    * no-ops to be exchanged with server to keep connection alive.
+    * Starts the heartbeat of this proxy if enabled by property
+    * <code>Constants.PROPERTY_CLIENT_PULSE</code>.  First, exchanges
+    * pulse period value with server, then registers with the shared
+    * heartbeat scheduler, which queues a no-op whenever the connection
+    * has been idle for the period.
     */
    
-   protected void runPulse()
+   private void _startHeartbeat()
    {
-       this._logger.trace(this + " Server pulse thread started");
-       Request cmd;
-       
+       //look up the heartbeat value
+       String heartbeatValue = System.getProperty(
+                               Constants.PROPERTY_CLIENT_PULSE, "0");
        try {
-           
-           //look up the heartbeat value
-           String heartbeatValue = System.getProperty(
-                                   Constants.PROPERTY_CLIENT_PULSE, "0");
-           try {
-               this._heartbeatIntervalSec = Integer.parseInt(heartbeatValue);
-           } catch (NumberFormatException nfEx) {
-               this._logger.warn("Invalid value of property '"+
-                                 Constants.PROPERTY_CLIENT_PULSE+"': "+
-                                 heartbeatValue+".  Using default value.");
-               this._heartbeatIntervalSec = 0;
-           }   
-           
-           if (this._heartbeatIntervalSec < 0)
-               this._heartbeatIntervalSec = 0;
-           
-           //----------------------
-
-           if (this._heartbeatIntervalSec > 0)
-           {
-               //set pulse property on server side (quietly)
-               int serverInterval = (int) (this._heartbeatIntervalSec);
-               this._logger.trace("Setting server side heartbeat value: " +
-                                  serverInterval);
-               String[] pulsePropPair = {Constants.PROPERTY_CLIENT_PULSE, 
-                                         String.valueOf(serverInterval)}; 
-               cmd = new Request(Constants.EXCHANGEPROPERTY, pulsePropPair);
-               cmd.setModifier(Constants.SETPROPERTY);
-               
-               this.putInternal(cmd);           
-           
-               //----------------------
-               
-               // Wake up every time period and add no op to queue
-               // TODO - can make this smarter to only add no-ops if not active
-               while (this._alive) 
-               {
-                   //create no-op command
-                   cmd = new Request(Constants.NOOPERATION, new String[0]);
-                   cmd.setModifier(Constants.QUIET);
-                   
-                   //put command 
-                   this.putInternal(cmd);
-                   
-                   //sleep   
-                   if (this._alive)
-                       Thread.sleep(_heartbeatIntervalSec * 1000);               
-               }
-           }
-       } catch (InterruptedException e) {
-           this._logger.trace(this + " Close immediate has been called, exiting " +
-                              "serverproxy pulse thread.");
-           //this._logger.trace(null, e);
+           this._heartbeatIntervalSec = Integer.parseInt(heartbeatValue);
+       } catch (NumberFormatException nfEx) {
+           this._logger.warn("Invalid value of property '"+
+                             Constants.PROPERTY_CLIENT_PULSE+"': "+
+                             heartbeatValue+".  Using default value.");
+           this._heartbeatIntervalSec = 0;
+       }   
+       
+       if (this._heartbeatIntervalSec <= 0)
+       {
+           this._heartbeatIntervalSec = 0;
            return;
        }
+       
+       //----------------------
+
+       //set pulse property on server side (quietly)
+       int serverInterval = (int) (this._heartbeatIntervalSec);
+       this._logger.trace("Setting server side heartbeat value: " +
+                          serverInterval);
+       String[] pulsePropPair = {Constants.PROPERTY_CLIENT_PULSE, 
+                                 String.valueOf(serverInterval)}; 
+       Request cmd = new Request(Constants.EXCHANGEPROPERTY, pulsePropPair);
+       cmd.setModifier(Constants.SETPROPERTY);
+       
+       this.putInternal(cmd);           
+       
+       //----------------------
+       
+       this._heartbeat = HeartbeatScheduler.getInstance().schedule(
+                                 new HeartbeatScheduler.Target() {
+           public long beat(long interval) {
+               return _beat(interval);
+           }
+           
+           public String toString() {
+               return ServerProxy.this.toString();
+           }
+       }, this._heartbeatIntervalSec * 1000L);
+   }
+   
+   //----------------------------------------------------------------------
+   
+   /**
+    * Queues a no-op if the connection has been idle for the heartbeat
+    * interval.  A connection is not idle while a request is executing
+    * or queued.
+    * 
+    * @param interval heartbeat interval in milliseconds
+    * @return milliseconds until the next check, negative once terminated
+    */
+   
+   private long _beat(long interval)
+   {
+       if (!this._alive)
+           return -1;
+       if (this._busy || !this._requests.isEmpty())
+           return interval;
+       
+       long idle = System.currentTimeMillis() - this._conn.getLastActivity();
+       if (idle < interval)
+           return interval - idle;
+       
+       //create no-op command
+       Request cmd = new Request(Constants.NOOPERATION, new String[0]);
+       cmd.setModifier(Constants.QUIET);
+       
+       //put command 
+       this.putInternal(cmd);
+       return interval;
    }
    
    //----------------------------------------------------------------------
@@ -516,28 +620,15 @@ public class ServerProxy implements Runnable {
     * @throws InterruptedException when signed to close immediately
     */
    private void _waitForCommand() throws InterruptedException {
-      synchronized (this._requests) {
-         if (this._refCount < 1) {
-            this._currentCmd = null;
-            return;
-         }
-
-         while (this._requests.isEmpty() && this._alive) {
-            this._logger.trace(this + " Server thread waiting..");
-            // This call can throw InterruptedException, the key to
-            // closing. Also, jtest complains that a non-synchronized
-            // method is calling wait, but we are synchronized on
-            // the requests queue.
-            this._requests.wait();
-            this._logger.trace(this + " Server thread wait over.");
-         }
-         
-         if (this._alive)
-         {
-             this._currentCmd = (Request) this._requests.get(0);
-             this._requests.remove(0);
-         }
+      this._currentCmd = null;
+      if (this._refCount.get() < 1) {
+         return;
       }
+
+      this._logger.trace(this + " Server thread waiting..");
+      // This call can throw InterruptedException, the key to closing.
+      this._currentCmd = this._takeRequest(this._requests);
+      this._logger.trace(this + " Server thread wait over.");
    }
 
    //----------------------------------------------------------------------
@@ -553,29 +644,37 @@ public class ServerProxy implements Runnable {
       this._currentCntlCmd = null;
       
       //check for exit case
-      synchronized (this._controlReqs) {
-         if (this._refCount < 1) {      
-            return;
-         }
-         
-         while (this._controlReqs.isEmpty() && this._alive) {
-            this._logger.trace(this + " Server thread waiting for "
-                               + "control command...");
-            // This call can throw InterruptedException, the key to
-            // closing. Also, jtest complains that a non-synchronized
-            // method is calling wait, but we are synchronized on
-            // the requests queue.
-            this._controlReqs.wait();
-            this._logger.trace(this + " Server control thread wait over.");
-         }
+      if (this._refCount.get() < 1) {      
+         return;
+      }
          
-         //if alive, then we are here because there's a control request
-         if (this._alive)
-         {
-             this._currentCntlCmd = (Request) this._controlReqs.get(0);
-             this._controlReqs.remove(0);
-         }
+      this._logger.trace(this + " Server thread waiting for "
+                         + "control command...");
+      // This call can throw InterruptedException, the key to closing.
+      this._currentCntlCmd = this._takeRequest(this._controlReqs);
+      this._logger.trace(this + " Server control thread wait over.");
+   }
+   
+   //----------------------------------------------------------------------
+   
+   /**
+    * Blocks until a request is available on a queue and removes it from
+    * the head of the queue.  Returns null once this proxy has been
+    * terminated.
+    * 
+    * @param queue the request queue
+    * @return the next request, or null if terminated
+    * @throws InterruptedException when signed to close immediately
+    */
+   private Request _takeRequest(BlockingDeque queue) 
+                                           throws InterruptedException
+   {
+      while (this._alive) {
+         Request request = (Request) queue.take();
+         if (request != WAKEUP_REQUEST)
+            return this._alive ? request : null;
       }
+      return null;
    }
    
    //----------------------------------------------------------------------
@@ -632,10 +731,10 @@ public class ServerProxy implements Runnable {
        mesg += (expedited) ? "front" : "back";
        
        //assume request, check if control request
-       List list = this._requests;
+       BlockingDeque queue = this._requests;
        if (isControlRequest(profile))       
        {   
-           list = this._controlReqs;
+           queue = this._controlReqs;
            mesg += " of control queue.";
        }
        else
@@ -645,29 +744,23 @@ public class ServerProxy implements Runnable {
 
        this._logger.trace(this + " "+mesg);       
 	
-       //queue command
-       synchronized(list) {
-           
-           // Queue this transaction-branded command.           
-           if (expedited)
-               list.add(0, profile);
-           else
-               list.add(profile);
-           
-           // Notify the associated service thread that there is something 
-           // on the queue. This will "wake up" the service thread if it is
-           // blocked waiting on the queue empty condition to pass. If
-           // the service thread is not waiting, then the notify will have
-           // no effect. There is no race condition, since the wait/notify
-           // is synchronized on the requests object. Note: jtest seems
-           // to want this method synched, but we really need to synch
-           // on the requests object. Also, jtest recommends the use of
-           // notifyAll(), but only one thread should be waiting
-           // this request queue. And even if we had a work gang on these
-           // requests, we only want one waiting thread to wake up to
-           // to service request.
-           list.notify();            
-       }
+       // Queue this transaction-branded command.  The queue wakes the
+       // associated service thread if it is blocked waiting for a
+       // request; producers do not contend with each other for longer
+       // than the insertion itself.
+       if (expedited)
+           queue.offerFirst(profile);
+       else
+           queue.offerLast(profile);
+       
+       // A close of the subscribed file type would wait for the reactor
+       // serviced subscription to end, so end it.
+       SubscriptionHandler subscription = this._subscription;
+       if (subscription != null && 
+           profile.getCommand().equals(Constants.QUIT) &&
+           (profile.getType() == null || 
+            profile.getType().equals(subscription.getType())))
+           subscription.stop();
        
        return transactionId;
    }
@@ -870,6 +963,7 @@ public class ServerProxy implements Runnable {
               switch (this._currentCntlCmd.getModifier()) {               
                   case Constants.KILLSUBSCRIPTION:
                      this._stopSubscription();
+                     this._endControlTransactionDoNotShowUser();
                      break;
                   default:
                      this._execCmd(Constants.NEEDNOTYPE);
@@ -904,7 +998,9 @@ public class ServerProxy implements Runnable {
    private void _endTransaction(int errno, String message) {
       // create the result object
       Result lastResult = new Result(this._currentCmd, errno, message);
-      lastResult.setEoT(); // the transaction is complete
+      // the owning proxy ends the transaction for stripes
+      if (!this._stripe)
+          lastResult.setEoT(); // the transaction is complete
       this._session.postResult(lastResult); // queue the result
    }
 
@@ -918,6 +1014,10 @@ public class ServerProxy implements Runnable {
     * @param message the message string
     */
    private void _endTransactionDoNotShowUser(int errno, String message) {
+      // the owning proxy ends the transaction for stripes
+      if (this._stripe)
+          return;
+      
       // create the result object
       Result lastResult = new Result(this._currentCmd, errno, message);
       lastResult.setEoT(); // the transaction is complete
@@ -927,6 +1027,19 @@ public class ServerProxy implements Runnable {
 
    //----------------------------------------------------------------------
    
+   /**
+    * Signal control command complete, for control commands that produce
+    * no results of their own.
+    */
+   private void _endControlTransactionDoNotShowUser() {
+      Result lastResult = new Result(this._currentCntlCmd, Constants.OK, "");
+      lastResult.setEoT(); // the transaction is complete
+      lastResult.setDoNotShowUser();
+      this._session.postResult(lastResult); // queue the result
+   }
+
+   //----------------------------------------------------------------------
+   
    /**
     * Method to handle regular expression add operation
     * 
@@ -1027,6 +1140,7 @@ public class ServerProxy implements Runnable {
       String currDir = this._currentCmd.getDirectory();
       String fileName;
       byte[] checksum = null;
+      long sendThreshold = this._getSendThreshold();
 
       // First, make sure there are any files to add.
       if (fileNames == null || fileNames.length < 1) {
@@ -1190,18 +1304,30 @@ public class ServerProxy implements Runnable {
                    //Send READY
                    io.writeLine(Constants.PROTOCOLVERSION + " " + Constants.READY);
            
+                   // Large files are sent with zero-copy channel transfers.
+                   boolean transfer = sendThreshold >= 0 && 
+                                      fileSize >= sendThreshold;
+
                    // Server tells us its calculating a checksum.
                    if (isSrvrChksuming) 
                    {
                       this._logger.trace(this + " server computing checksum");
-                      checksum = io.writeAndVerifyFileToStream(f.getAbsolutePath(),
-                                                               fileSize);
+                      if (transfer)
+                         checksum = io.transferAndVerifyFileToStream(
+                                        f.getAbsolutePath(), 0, fileSize);
+                      else
+                         checksum = io.writeAndVerifyFileToStream(
+                                        f.getAbsolutePath(), fileSize);
                       fileInfo.setChecksum(checksum);
                    } 
                    else 
                    {
                       this._logger.trace(this + " server not computing checksum");
-                      io.writeFileToStream(f.getAbsolutePath(), fileSize);
+                      if (transfer)
+                         io.transferFileToStream(f.getAbsolutePath(), 0, 
+                                                 fileSize);
+                      else
+                         io.writeFileToStream(f.getAbsolutePath(), fileSize);
                    }
                    
                    this._srvReply = io.readMessage();
@@ -1282,6 +1408,30 @@ public class ServerProxy implements Runnable {
    
    //----------------------------------------------------------------------
 
+   /**
+    * Returns the file size at or above which added files are sent with
+    * zero-copy channel transfers, from property 
+    * <code>Constants.PROPERTY_IO_NIO_SEND_THRESHOLD</code>.
+    * 
+    * @return size threshold in bytes, negative if disabled
+    */
+   
+   private long _getSendThreshold()
+   {
+       String value = System.getProperty(
+                         Constants.PROPERTY_IO_NIO_SEND_THRESHOLD, "1048576");
+       try {
+           return Long.parseLong(value.trim());
+       } catch (NumberFormatException nfEx) {
+           this._logger.warn("Invalid value of property '"+
+                             Constants.PROPERTY_IO_NIO_SEND_THRESHOLD+"': "+
+                             value+".  Using default value.");
+           return 1048576;
+       }
+   }
+
+   //----------------------------------------------------------------------
+
    /**
     * Negotiate file add request with server, and ship files.
     * 
@@ -1351,13 +1501,23 @@ public class ServerProxy implements Runnable {
             // Server tells us its calculating a checksum.
             if (reply.indexOf("checksum") != -1) {
                this._logger.trace(this + " checksum");
-               checksum = io.writeAndVerifyBufferToStream(this._currentCmd
-                     .getFileBuffer(), this._currentCmd.getFileBufferLength());
+               if (this._currentCmd.getByteBuffer() != null)
+                  checksum = io.writeAndVerifyBufferToStream(this._currentCmd
+                        .getByteBuffer().duplicate(), 
+                        this._currentCmd.getFileBufferLength());
+               else
+                  checksum = io.writeAndVerifyBufferToStream(this._currentCmd
+                        .getFileBuffer(), 
+                        this._currentCmd.getFileBufferLength());
                fileInfo.setChecksum(checksum);
             } else {
                this._logger.trace(this + " No checksum");
-               io.writeFileToStream(this._currentCmd.getFileBuffer(),
-                     this._currentCmd.getFileBufferLength());
+               if (this._currentCmd.getByteBuffer() != null)
+                  io.writeFileToStream(this._currentCmd.getByteBuffer()
+                        .duplicate(), this._currentCmd.getFileBufferLength());
+               else
+                  io.writeFileToStream(this._currentCmd.getFileBuffer(),
+                        this._currentCmd.getFileBufferLength());
             }
             this._srvReply = io.readMessage();
             reply = this._srvReply.getMessage();
@@ -2322,7 +2482,7 @@ public class ServerProxy implements Runnable {
             // Some times, such as with getVFT, getFilesFromList must be
             // called repeatedly w/o ending the transaction. Don't clean 
             // this up by putting endTran... into getFilesFromList.
-            this._getFilesFromList(fileNames, null);       
+            this._getFilesStriped(fileNames);       
             
             //end the transaction 
             this._endTransactionDoNotShowUser(Constants.OK, "");
@@ -2341,11 +2501,268 @@ public class ServerProxy implements Runnable {
             return;
          }
       } else {
-         this._getFilesFromList(fileNames, null);
+         this._getFilesStriped(fileNames);
          this._endTransactionDoNotShowUser(Constants.OK, "");
       }
    }
 
+   //----------------------------------------------------------------------
+
+   /**
+    * Gets files, striping the list across this proxy's connection and
+    * up to <code>Session.getConnectionPoolSize() - 1</code> additional
+    * connections to the same server.  Files are assigned to stripes
+    * round-robin.  Results are posted to the session by each stripe as
+    * files arrive; this method returns once all stripes have completed,
+    * so the caller can end the transaction.
+    * 
+    * @param fileNames the file name array.
+    * @throws SessionException when session failure on this proxy's 
+    *         connection
+    */
+   private void _getFilesStriped(String[] fileNames) throws SessionException 
+   {
+      int stripeCount = Math.min(this._session.getConnectionPoolSize(),
+                                 fileNames.length);
+      
+      Vector stripeProxies = null;
+      if (!this._stripe && !this._admin && stripeCount > 1)
+          stripeProxies = this._getStripeProxies(stripeCount - 1);
+      
+      if (stripeProxies == null || stripeProxies.isEmpty())
+      {
+          this._getFilesFromList(fileNames, null);
+          return;
+      }
+      
+      //---------------------------
+      
+      //assign files to stripes round-robin
+      stripeCount = stripeProxies.size() + 1;
+      Vector[] stripes = new Vector[stripeCount];
+      for (int i = 0; i < stripeCount; i++)
+          stripes[i] = new Vector();
+      for (int i = 0; i < fileNames.length; i++)
+          stripes[i % stripeCount].add(fileNames[i]);
+      
+      this._logger.trace(this + " Striping " + fileNames.length + 
+                         " files across " + stripeCount + " connections");
+      
+      //---------------------------
+      
+      //start the additional stripes
+      final StripeProgress progress = new StripeProgress(stripeCount);
+      Thread[] workers = new Thread[stripeCount - 1];
+      for (int i = 1; i < stripeCount; i++)
+      {
+          final ServerProxy stripeProxy = (ServerProxy) 
+                                          stripeProxies.get(i - 1);
+          final Request request = this._currentCmd;
+          final String[] stripeFiles = (String[]) stripes[i].toArray(
+                                        new String[stripes[i].size()]);
+          final int stripeIndex = i;
+          workers[i - 1] = new Thread() {
+              public void run() {
+                  stripeProxy._getStripeFiles(request, stripeFiles,
+                                              progress, stripeIndex);
+              }
+          };
+          workers[i - 1].setName("Proxy_" + stripeProxy._id + "_Stripe");
+          workers[i - 1].start();
+      }
+      
+      //---------------------------
+      
+      //our own stripe, then wait for the others before returning
+      this._stripeProgress = progress;
+      this._stripeIndex = 0;
+      try {
+          this._getFilesFromList((String[]) stripes[0].toArray(
+                                 new String[stripes[0].size()]), null);
+      } finally {
+          this._stripeProgress = null;
+          progress.finish(0);
+          boolean interrupted = false;
+          for (int i = 0; i < workers.length; i++)
+          {
+              while (workers[i].isAlive())
+              {
+                  try {
+                      workers[i].join();
+                  } catch (InterruptedException iEx) {
+                      interrupted = true;
+                  }
+              }
+          }
+          if (interrupted)
+              Thread.currentThread().interrupt();
+      }
+      
+      //all stripes done, commit the time the last ones reached
+      ClientRestartCache restartCache = 
+                               this._currentCmd.getClientRestartCache();
+      if (restartCache != null && 
+          this._session.getOption(Constants.RESTART) &&
+          this._session.getOption(Constants.AUTOCOMMIT) &&
+          progress.getSafeTime() != StripeProgress.NONE)
+      {
+          restartCache.setLastQueryTime(progress.getSafeTime());
+          restartCache.commit();
+      }
+   }
+
+   //----------------------------------------------------------------------
+
+   /**
+    * Gets files on a stripe proxy's connection on behalf of its owner.
+    * Errors are posted as results, and leave the connection marked
+    * unusable so the owner replaces it.
+    * 
+    * @param request the owner's current request
+    * @param fileNames the files assigned to this stripe
+    * @param progress progress of the stripes of the get
+    * @param stripeIndex index of this stripe
+    */
+   private void _getStripeFiles(Request request, String[] fileNames,
+                                StripeProgress progress, int stripeIndex)
+   {
+       this._currentCmd = request;
+       this._stripeProgress = progress;
+       this._stripeIndex = stripeIndex;
+       try {
+           this._getFilesFromList(fileNames, null);
+       } catch (SessionException sesEx) {
+           this._logger.trace(this + " Stripe get failed", sesEx);
+           this._session.postResult(new Result(request, sesEx.getErrno(),
+                                               sesEx.getMessage()));
+           this._alive = false;
+       } finally {
+           progress.finish(stripeIndex);
+       }
+       this._stripeProgress = null;
+       this._currentCmd = null;
+   }
+
+   //----------------------------------------------------------------------
+
+   /**
+    * Advances the last query time of the restart cache to the modification
+    * time of a file this proxy has delivered.  When striping, the time is
+    * held back to the time all stripes have delivered up to.
+    * 
+    * @param restartCache the restart cache
+    * @param time modification time of the delivered file
+    */
+   private void _advanceQueryTime(ClientRestartCache restartCache, long time)
+   {
+       if (this._stripeProgress != null)
+           time = this._stripeProgress.complete(this._stripeIndex, time);
+       if (time != StripeProgress.NONE)
+           restartCache.setLastQueryTime(time);
+   }
+
+   //----------------------------------------------------------------------
+
+   /**
+    * Returns up to <code>count</code> stripe proxies connected to this
+    * proxy's server, reusing existing ones that still respond and
+    * opening new ones as needed.  Fewer are returned if a connection
+    * cannot be established.
+    * 
+    * @param count the number of additional connections wanted
+    * @return Vector of stripe proxies
+    */
+   private Vector _getStripeProxies(int count)
+   {
+       //drop stripes that have failed or gone idle on the server side
+       for (int i = this._stripeProxies.size() - 1; i >= 0; i--)
+       {
+           ServerProxy stripeProxy = (ServerProxy) this._stripeProxies.get(i);
+           if (!stripeProxy._alive || !stripeProxy._isStripeResponsive())
+           {
+               this._stripeProxies.remove(i);
+               stripeProxy._closeStripe(false);
+           }
+       }
+       
+       while (this._stripeProxies.size() < count)
+       {
+           try {
+               this._stripeProxies.add(new ServerProxy(this._session, 
+                                       this._serverInfo, this._admin, 
+                                       true, true));
+           } catch (SessionException sesEx) {
+               this._logger.warn(this + " Could not open additional " +
+                                 "connection to " + this._serverInfo.getName() +
+                                 ": " + sesEx.getMessage());
+               break;
+           }
+       }
+       
+       int available = Math.min(count, this._stripeProxies.size());
+       return new Vector(this._stripeProxies.subList(0, available));
+   }
+
+   //----------------------------------------------------------------------
+
+   /**
+    * Exchanges a no-op with the server to check that this stripe's
+    * connection is still usable.
+    * 
+    * @return true if server replied, false otherwise
+    */
+   private boolean _isStripeResponsive()
+   {
+       BufferedStreamIO io = this._conn.getIO();
+       try {
+           io.writeLine(Constants.PROTOCOLVERSION + " " + 
+                        Constants.NOOPERATION);
+           this._srvReply = io.readMessage();
+           
+           //if UNKCMD, eat up remaining 'OK done' message from server
+           if (this._srvReply.getErrno() == Constants.UNKNOWNCMD)
+               io.readMessage();
+       } catch (IOException ioEx) {
+           this._logger.trace(this + " Stripe connection unusable", ioEx);
+           return false;
+       }
+       return true;
+   }
+
+   //----------------------------------------------------------------------
+
+   /**
+    * Closes the connection of a stripe proxy.
+    * 
+    * @param quit if true, send quit command to server first
+    */
+   private void _closeStripe(boolean quit)
+   {
+       try {
+           if (quit)
+               this._conn.getIO().writeLine(Constants.QUIT);
+       } catch (IOException ioEx) {
+           this._logger.trace(this + " Could not send quit", ioEx);
+       }
+       try {
+           this._conn.close();
+       } catch (IOException ioEx) {
+           this._logger.trace(this + " Could not close connection", ioEx);
+       }
+   }
+
+   //----------------------------------------------------------------------
+
+   /**
+    * Closes all stripe proxies owned by this proxy.
+    */
+   private void _closeStripeProxies()
+   {
+       for (int i = 0; i < this._stripeProxies.size(); i++)
+           ((ServerProxy) this._stripeProxies.get(i))._closeStripe(true);
+       this._stripeProxies.clear();
+   }
+
    //----------------------------------------------------------------------
    
    /**
@@ -2629,9 +3046,11 @@ public class ServerProxy implements Runnable {
       String reply = null;      
       byte[] xferChecksum = null;
       byte[] buffer = null;
+      ByteBuffer directBuffer = null; // pooled, until handed to a result
       boolean doXferChecksum = false;
       boolean doReceipt = false;
       final boolean inMem = this._currentCmd.getInMem();
+      final boolean direct = inMem && this._currentCmd.getDirectBuffer();
       String type = this._currentCmd.getType();
 
       String destinationFilePath = null;
@@ -2648,6 +3067,12 @@ public class ServerProxy implements Runnable {
       int MAX_ATTEMPT_COUNT = 3;   //max number of retries before skipping
       int attemptCount = 1;        //current attempt count
 
+      //index of the file whose get command has already been sent ahead
+      //of the current loop iteration, -1 if none
+      int pipelinedIndex = -1;
+      final boolean pipeline = Boolean.getBoolean(
+                                     Constants.PROPERTY_GET_PIPELINE);
+
       BufferedStreamIO io = this._conn.getIO();
 
       //---------------------------
@@ -2674,7 +3099,8 @@ public class ServerProxy implements Runnable {
 
          if (!shadowDir.exists()) 
          {
-            if (!shadowDir.mkdir()) 
+            //concurrent stripes may race to create it
+            if (!shadowDir.mkdir() && !shadowDir.isDirectory()) 
             {
                this._endTransaction(Constants.MKDIRERROR,
                                     "Cannot create shadow directory.");
@@ -2773,14 +3199,24 @@ public class ServerProxy implements Runnable {
             
             //---------------------------
             
-            // Format the get command.
-            cmd = this._createGetCommand(fileNames[i]);
-            this._logger.trace(this + " #######  Get command: " + cmd);
-            
-            // Send the get command request to the server.
-            this._logger.trace(this + " #######  Get command for file " 
-                               + fileNames[i]);
-            io.writeLine(cmd);
+            // Send the get command request to the server, unless it
+            // was already sent while completing the previous file.
+            if (pipelinedIndex == i)
+            {
+                this._logger.trace(this + " #######  Get command for file "
+                                   + fileNames[i] + " already issued");
+            }
+            else
+            {
+                // Format the get command.
+                cmd = this._createGetCommand(fileNames[i]);
+                this._logger.trace(this + " #######  Get command: " + cmd);
+                
+                this._logger.trace(this + " #######  Get command for file " 
+                                   + fileNames[i]);
+                io.writeLine(cmd);
+            }
+            pipelinedIndex = -1;
             
             //---------------------------
             
@@ -2824,6 +3260,8 @@ public class ServerProxy implements Runnable {
                   }      
                   
                   this._session.postResult(fileReceived);
+                  pipelinedIndex = this._pipelineGetCommand(io, fileNames, 
+                                                   i, pipelinedIndex, pipeline);
                   continue;
                } //end_reply_not_put
 
@@ -3047,7 +3485,7 @@ public class ServerProxy implements Runnable {
                            String localChecksum = null;
                            try {
                                String path = destinationFilePath;
-                               localChecksum = FileUtil.getStringChecksum(path);
+                               localChecksum = _getLocalChecksum(path, true);
                            } catch (IOException ioEx) {
                                localChecksum = "";
                            }
@@ -3066,7 +3504,9 @@ public class ServerProxy implements Runnable {
                        this._logger.trace(this + " Diffing concluded that files are identical.");
                        
                        String diffErrMsg = "File skipped. Diff enabled and files are identical.";
-                       _sendServerResponse(io, Constants.FILE_SKIPPED, diffErrMsg);
+                       pipelinedIndex = _sendFinalServerResponse(io,
+                                           Constants.FILE_SKIPPED, diffErrMsg,
+                                           fileNames, i, pipelinedIndex, pipeline);
                                
                        //create client result object
                        Result result = new Result(this._currentCmd,
@@ -3155,7 +3595,9 @@ public class ServerProxy implements Runnable {
                        
                        String dirErrMsg = "File skipped. Directory with same name exists.";
                           
-                       _sendServerResponse(io, Constants.FILE_SKIPPED,dirErrMsg);                         
+                       pipelinedIndex = _sendFinalServerResponse(io,
+                                           Constants.FILE_SKIPPED, dirErrMsg,
+                                           fileNames, i, pipelinedIndex, pipeline);
                           
                        Result result = new Result(this._currentCmd,
                                            Constants.FILE_EXISTS, 
@@ -3192,6 +3634,7 @@ public class ServerProxy implements Runnable {
                   prevFile = new File(destinationFilePath);
                   versionedFile = null;
                   buffer = null;
+                  directBuffer = null;
                   
                   // If the file exists, and is not a directory, then rename
                   // the file. If the file is a directory, then report it
@@ -3246,8 +3689,8 @@ public class ServerProxy implements Runnable {
                         if (this._session.getOption(Constants.RESTART) &&
                             this._session.getOption(Constants.AUTOCOMMIT)) 
                         {
-                            restartCache.setLastQueryTime(Long.parseLong(
-                                                              fileTimeString));
+                            this._advanceQueryTime(restartCache, 
+                                             Long.parseLong(fileTimeString));
                             restartCache.commit();    
                         }
                         
@@ -3255,8 +3698,10 @@ public class ServerProxy implements Runnable {
                         // necessary.
                         //io.skipFile(fileSize, doXferChecksum);
                         
-                        _sendServerResponse(io, Constants.FILE_SKIPPED, 
-                                            "File skipped.  Version and replace not set.");                                                                         
+                        pipelinedIndex = _sendFinalServerResponse(io,
+                                   Constants.FILE_SKIPPED, 
+                                   "File skipped.  Version and replace not set.",
+                                   fileNames, i, pipelinedIndex, pipeline);
                         //io.writeLine("File skipped.");
                         
                         Result result = new Result(this._currentCmd,
@@ -3326,6 +3771,14 @@ public class ServerProxy implements Runnable {
                         xferChecksum = io.readAndVerifyFileFromStream(destinationFilePath,
                                                        resumeoffset.longValue(), fileSize);
                      } 
+                     else if (direct)
+                     {
+                        directBuffer = DirectBufferAllocator.getDefault()
+                                                          .allocate(fileSize);
+                        xferChecksum = io.readAndVerifyBufferFromStream(
+                                                   directBuffer, fileSize);
+                        directBuffer.flip();
+                     }
                      else 
                      {
                         // Can't handle large files. Hence the cast.
@@ -3334,6 +3787,12 @@ public class ServerProxy implements Runnable {
                                                                  fileSize);
                      }
                   } catch (VerifyException ve) {
+                     if (directBuffer != null)
+                     {
+                        DirectBufferAllocator.getDefault().release(
+                                                             directBuffer);
+                        directBuffer = null;
+                     }
                
                       _sendServerResponse(io, Constants.FILE_NOT_DELIVERED,
                                           "File transfer verification failed");
@@ -3387,6 +3846,13 @@ public class ServerProxy implements Runnable {
                   // Read file from stream.
                   if (!inMem)
                      io.readFileFromStream(destinationFilePath, 0, fileSize);
+                  else if (direct)
+                  {
+                     directBuffer = DirectBufferAllocator.getDefault()
+                                                          .allocate(fileSize);
+                     io.readBufferFromStream(directBuffer, fileSize, false);
+                     directBuffer.flip();
+                  }
                   else 
                   {
                      // Can't get > 2GB file in memory.
@@ -3462,6 +3928,11 @@ public class ServerProxy implements Runnable {
                   fileReceived.setChecksum(xferChecksum);
                if (buffer != null)
                   fileReceived.setFileBuffer(buffer);
+               if (directBuffer != null)
+               {
+                  fileReceived.setByteBuffer(directBuffer);
+                  directBuffer = null;
+               }
 
                //---------------------------
                
@@ -3495,8 +3966,12 @@ public class ServerProxy implements Runnable {
                      message += " Checksum: \"" + fileReceived.getChecksumStr()
                            + "\"";
 
-                  // Acknowledge receipt of the file.
-                  _sendServerResponse(io, Constants.OK, "File received.");
+                  // Acknowledge receipt of the file.  Server reads nothing
+                  // more from us for this file, so the next get can overlap
+                  // the trailing receipt/done.
+                  pipelinedIndex = _sendFinalServerResponse(io, Constants.OK,
+                                           "File received.", fileNames, i,
+                                           pipelinedIndex, pipeline);
                   //io.writeLine("ACK");
                }
                
@@ -3541,12 +4016,12 @@ public class ServerProxy implements Runnable {
                   if (this._session.getOption(Constants.RESTART))
                   {
                       fileReceived.setClientRestartCache(restartCache);
+                      fileReceived.setStripeProgress(this._stripeProgress);
+                      if (this._stripeProgress != null)
+                          this._stripeProgress.complete(this._stripeIndex,
+                                fileReceived.getFileModificationTime().getTime());
                       if (this._session.getOption(Constants.AUTOCOMMIT))
-                      {
-                          restartCache.setLastQueryTime(fileReceived
-                                       .getFileModificationTime().getTime());
                           fileReceived.commit();
-                      }
                   }
                }
                
@@ -3557,6 +4032,7 @@ public class ServerProxy implements Runnable {
             }
          } catch (SocketTimeoutException stoEx) {
              
+            DirectBufferAllocator.getDefault().release(directBuffer);
             message = "Can't get file \"" + fileName + "\".  IO exception: \""
                       + stoEx.getMessage() + "\".";
             this._logger.trace(message, stoEx);
@@ -3568,6 +4044,7 @@ public class ServerProxy implements Runnable {
             
          } catch (IOException ie) {
              
+             DirectBufferAllocator.getDefault().release(directBuffer);
              message = "Can't get file \"" + fileName + "\".  IO exception: \""
                          + ie.getMessage() + "\".";
              this._logger.trace(message, ie);
@@ -3592,6 +4069,101 @@ public class ServerProxy implements Runnable {
       }
    }
 
+   /**
+    * Returns the get command for the file following index <code>i</code>
+    * if pipelining is enabled and it has not already been issued.
+    * @param fileNames the file name array
+    * @param i index of the file currently being received
+    * @param pipelinedIndex index of the file already issued ahead, or -1
+    * @param pipeline true if get pipelining is enabled
+    * @return get command for the next file, or null if none is to be sent
+    */
+   private String _nextGetCommand(String[] fileNames, int i, 
+                                  int pipelinedIndex, boolean pipeline)
+   {
+       int next = i + 1;
+       
+       //restart info for a repeated filename depends on current outcome
+       if (!pipeline || pipelinedIndex == next || next >= fileNames.length ||
+           fileNames[next].equals(fileNames[i]))
+           return null;
+       
+       return this._createGetCommand(fileNames[next]);
+   }
+   
+   //----------------------------------------------------------------------
+   
+   /**
+    * Sends the get command for the file following index <code>i</code>
+    * if pipelining is enabled, so that the server may begin processing
+    * it while the client reads the trailing messages of the current
+    * file.  Must only be called once the server expects no further
+    * response from the client for the current file.
+    * @param io IO Stream to which command will be written
+    * @param fileNames the file name array
+    * @param i index of the file currently being received
+    * @param pipelinedIndex index of the file already issued ahead, or -1
+    * @param pipeline true if get pipelining is enabled
+    * @return index of the file whose get command has been issued ahead,
+    *         or -1 if none
+    * @throws IOException if error occurs while writing to stream
+    */
+   private int _pipelineGetCommand(BufferedStreamIO io, String[] fileNames,
+                                   int i, int pipelinedIndex, 
+                                   boolean pipeline) throws IOException
+   {
+       String cmd = this._nextGetCommand(fileNames, i, pipelinedIndex, 
+                                         pipeline);
+       if (cmd == null)
+           return (pipelinedIndex == i + 1) ? pipelinedIndex : -1;
+       
+       this._logger.trace(this + " #######  Pipelined get command: " + cmd);
+       io.writeLine(cmd);
+       
+       return i + 1;
+   }
+   
+   //----------------------------------------------------------------------
+   
+   /**
+    * Writes the client's final response for the current file to the
+    * server.  If pipelining is enabled, the get command for the next file
+    * is written along with it in a single flush, so that the two small
+    * writes are not held back by delayed acknowledgement.
+    * @param io IO Stream to which message will be written
+    * @param code Error code value, Constants.OK for no error
+    * @param msg Message string
+    * @param fileNames the file name array
+    * @param i index of the file currently being received
+    * @param pipelinedIndex index of the file already issued ahead, or -1
+    * @param pipeline true if get pipelining is enabled
+    * @return index of the file whose get command has been issued ahead,
+    *         or -1 if none
+    * @throws IOException If IO error occurs
+    */
+   private int _sendFinalServerResponse(BufferedStreamIO io, int code, 
+                                        String msg, String[] fileNames, 
+                                        int i, int pipelinedIndex,
+                                        boolean pipeline) throws IOException
+   {
+       String cmd = this._nextGetCommand(fileNames, i, pipelinedIndex, 
+                                         pipeline);
+       if (cmd == null)
+       {
+           _sendServerResponse(io, code, msg);
+           return (pipelinedIndex == i + 1) ? pipelinedIndex : -1;
+       }
+       
+       this._logger.trace(this + " #######  Sending response to server: " +
+                          code + "\t" + msg + ", pipelined get command: " + 
+                          cmd);
+       io.write(code + ":" + msg + "\n" + cmd + "\n");
+       
+       return i + 1;
+   }
+   
+   //----------------------------------------------------------------------
+   
    /**
     * Writes a response message to the server.  This message includes
     * an error code and a message string.
@@ -3861,7 +4433,8 @@ public class ServerProxy implements Runnable {
    /**
     * Create subscription session with server that receives new file metadata
     * information as it becomes available.  This method returns then session
-    * ends, either normally or in error.
+    * ends, either normally or in error, unless the session is handed to the
+    * shared subscription reactor, which then ends the transaction.
     * @throws SessionException when session failure.  If a session cannot
     * be initialized, then errno will be Constants.NACKED.  Errors occuring
     * after initialization will have the errno associated with original 
@@ -3873,18 +4446,9 @@ public class ServerProxy implements Runnable {
       
       String cmd;
       String reply = null;
-      String comment = null;
-      String archiveNote = null;
-      String checksum = null;
-      String fileName = null;
-      String remoteLocation = null;
-      String date = null;
       String regexp = this._currentCmd.getRegExp();
-      String[] fileNames = this._currentCmd.getFileNames();
-      long fileSize;
-      Result fileInfo;
       String type = this._currentCmd.getType();
-      BufferedStreamIO io = this._conn.getIO();
+      final BufferedStreamIO io = this._conn.getIO();
       
       //cmd starts with protocol version and command
       cmd = Constants.PROTOCOLVERSION + " " + this._currentCmd.getCommand();
@@ -3910,6 +4474,38 @@ public class ServerProxy implements Runnable {
       
       //---------------------------
       
+      //hand subscription off to the shared reactor if possible
+      Reactor reactor = null;
+      if (SubscriptionReactor.isEnabled() && !this._stripe &&
+          this._conn.getChannel() != null)
+      {
+          try {
+              reactor = SubscriptionReactor.getInstance().next();
+          } catch (IOException ioEx) {
+              this._logger.warn(this + " Subscription reactor unavailable: "
+                                + ioEx.getMessage());
+          }
+      }
+      
+      SubscriptionReplyParser parser = new SubscriptionReplyParser(this,
+                                this._session, this._currentCmd, clientTime) {
+          protected void send(String line) throws IOException {
+              io.writeLine(line);
+          }
+          
+          protected boolean killAcknowledged() {
+              synchronized(ServerProxy.this) {
+                  if (_reqTermHandler == null || 
+                      !_reqTermHandler.isRunning())
+                      return false;
+                  _reqTermHandler.confirm();
+                  return true;
+              }
+          }
+      };
+      
+      //---------------------------
+      
       try {
           try {
     
@@ -3941,6 +4537,18 @@ public class ServerProxy implements Runnable {
     
              //------------------------
              
+             //the reactor services the subscription over this connection,
+             //once the service thread has stopped (see runProxy)
+             if (reactor != null)
+             {
+                 this._subscription = new SubscriptionHandler(this, 
+                                    this._session, this._currentCmd, 
+                                    this._conn, clientTime, reactor);
+                 return;
+             }
+             
+             //------------------------
+             
              //set new shutdown handler
              synchronized(this) {
                  this._reqTermHandler = new SubscriptionShutdown(this._conn);
@@ -3948,212 +4556,20 @@ public class ServerProxy implements Runnable {
              
              //------------------------
              
-             // Read from reply loop.  Possiblities: (1) file info, (2) ping 
-             //                                      request, (3) done/other
+             // Read from reply loop until the session ends
              
-             while ((reply = io.readLine()) != null) 
+             while (!parser.isFinished()) 
              {
-                this._logger.trace(this + " subscribePush reply: \"" 
-                                   + reply + "\"");
-                
+                reply = io.readLine();
                 if (reply.length() == 0)
                    throw new SessionException("Unexpected eof from server",
                                               Constants.UNEXPECTED_EOF);
-    
-                
-                //---------------------
-                
-                if (reply.charAt(0) == 'p') 
-                {
-                    //this is ping request, p <timestamp>, send ACK to server
-                    clientTime = System.currentTimeMillis();
-                    long serverTime = Long.parseLong(reply.substring(2).trim());
-                    
-                    String pingAck = "p ACK ";
-                    pingAck += Long.toString(clientTime) + " ";
-                    pingAck += Long.toString(serverTime);
-                    this._logger.trace(this + " subscribePush acknowledging ping: \"" 
-                            + pingAck + "\"");
-                    io.writeLine(pingAck);
-                    
-                    //create result object to notify client that ping request
-                    //was recv'd and not to timeout
-                    fileInfo = new Result(this._currentCmd, Constants.PING_RECVD,
-                                          "Ping request received from server");
-                    this._session.postResult(fileInfo);                
-                    continue;
-                }
-                
-               //---------------------
-                
-                if (reply.charAt(0) == 'm') 
-                {
-                    //this is more files following notification, similar
-                    //to a ping but without time stamps                    
-                    String moreAck = Constants.GET_MORE_FILES;
-                    this._logger.trace(this + " subscribePush requesting next file batch: \"" 
-                            + moreAck + "\"");
-                    io.writeLine(moreAck);
-               
-                    continue;
-                }
-
-                
-                //---------------------
-                
-                else if (reply.charAt(0) == 'i')
-                {
-                    //file metadata
-                    StringTokenizer st = new StringTokenizer(reply.substring(2), "\t");
-                    fileName = st.nextToken();
-                    date = st.nextToken();
-                    fileSize = Long.parseLong(st.nextToken().trim());
-                    fileInfo = new Result(this._currentCmd, fileName, fileSize,
-                                          new Date(Long.parseLong(date)));
-    
-                    reply = io.readLine();
-                    st = new StringTokenizer(reply, "\t");
-                    fileInfo.setFileContributor(st.nextToken());
-                    fileInfo.setFileCreationTime(new Date(Long.parseLong(
-                                                 st.nextToken().trim())));
-    
-                    // See if there is a comment too.
-                    comment = io.readLine();
-                    this._logger.trace(this + " Comment = \"" 
-                                       + comment + "\"");
-                    if (comment.length() > 1)
-                       fileInfo.setComment(comment.trim());
-    
-                    // See if there is an archiveNote too.
-                    archiveNote = io.readLine();
-                    this._logger.trace(this + " ArchiveNote = \"" 
-                                       + archiveNote + "\"");
-                    if (archiveNote.length() > 1)
-                       fileInfo.setArchiveNote(archiveNote.trim());
-    
-                    // See if there is a checksum too.
-                    checksum = io.readLine();
-                    this._logger.trace(this + " Checksum = \"" 
-                                       + checksum + "\"");
-                    if (checksum.length() > 1)
-                       fileInfo.setChecksum(checksum.trim());
-                    
-                     // See if there is a remote location too.
-                    remoteLocation = io.readLine();
-                    this._logger.trace(this + " Location = \"" 
-                                       + remoteLocation + "\"");
-                    if (remoteLocation.length() > 1)
-                       fileInfo.setRemoteLocation(remoteLocation.trim());
-                    
-                    
-                    //set restart cache if one was attached to the request
-                    ClientRestartCache cache = _currentCmd.getClientRestartCache(); 
-                    if (cache != null)
-                        fileInfo.setClientRestartCache(cache);
-                    
-                    //-----------------
-                    
-                    if (DB_ACCURRACY_FIX_ENABLED)
-                    {
-                        //noticed that with restart enabled, we would end up 
-                        //retriveing a file that we already had retrieved in 
-                        //previous session. The cause was an accurracy issue 
-                        //in the DB where accurracy was limited to 3/100 of a 
-                        //second.  As such, we look for files that already exist 
-                        //and fall within this range.  If found, then they are 
-                        //ignored
-                        
-                        File file = new File(this._session.getDir(), fileName);                    
-                        long modTime = Long.parseLong(date);
-                        
-                        //check if file already exists locally
-                        if (file.exists())
-                        {
-                            long localSize = file.length();
-                            
-                            //now check if modtime is within delta of clientTime
-                            //and file length (as it could be a resume transfer)
-                            if (localSize == fileSize && (modTime < clientTime && 
-                                              modTime > clientTime - DB_DELTA_MS))   
-                            {
-                                this._logger.trace(this + " Ignoring '"
-                                           +fileName+"' . " + 
-                                           "(per DB accuraccy workaround)");
-                                continue;
-                            }
-                        }
-                    }
-                    
-                    //-----------------
-
-                    this._session.postResult(fileInfo);
-                    this._logger.trace(this + " subscribe posted result; " +
-                                       "going back for more");
-                    continue;
-                }
-                
-                //---------------------
-                
-                // '[' used to be the command char for push-subscribe.
-                // Server will still send that character followed by
-                //the KILLSUBSCRIPTION modifier to represent kill action
-                else if (reply.charAt(0) == '[')
-                {
-                    //this a kill?
-                    if (reply.charAt(1) == Constants.KILLSUBSCRIPTION) 
-                    {
-                        String rest = reply.substring(3);
-                        //check if request was actually sent
-                        
-                        if (rest.startsWith("ACK "))
-                        {     
-                            boolean termRequested = false;
-                            synchronized(this) {
-                                termRequested = this._reqTermHandler == null ?
-                                    false : this._reqTermHandler.isRunning();
-                            }
-                                
-                            if (termRequested) 
-                            {
-                                StringTokenizer st = new StringTokenizer(rest.substring(4));
-                                String sTime = st.nextToken();
-                                String cTime = st.nextToken();
-                                String msg = "Client request time: "+cTime+".  " +
-                                             "Server ACK time: " + sTime + "."; 
-                                _logger.debug(this + " Received termination"
-                                              + " ACK from server.");
-                                _logger.trace(this + " "+msg);
-                                synchronized(this) {
-                                    this._reqTermHandler.confirm();
-                                }
-                                continue;
-                            }                    
-                            else
-                            {
-                                _logger.error(this + " Received *UNREQUESTED* "
-                                              +"termination"
-                                              + " ACK from server.");
-                                _logger.debug(this + " Reply = "+reply);
-                                continue;
-                            }
-                        } //end_if_ACK
-                    } //end_if_kill_modifier
-                    break;                    
-                }
-                            
-                //---------------------
-                
-                //unrecognized reply
-                else
-                {
-                    break;
-                }
-                            
-                //---------------------
-                
-             } //end_while
+                parser.parse(reply);
+             }
           } catch (IOException e) {
-             String message = "IO exception during subscription session";
+             String message = parser.isDone() ?
+                              "IO exception closing subscription session" :
+                              "IO exception during subscription session";
              try {
                 io.writeLine("File transfer failed");
              } catch (IOException ne) {
@@ -4164,50 +4580,13 @@ public class ServerProxy implements Runnable {
              return;
           } 
           
-          //---------------------------
-    
-          //check that we've got a 'done' mesg
-          //Then check next message, if OK, then exit, else error
-          
-          this._logger.trace(this + " Exited item from server: \"" + reply + "\"");
-          if (!reply.startsWith("done")) 
-          {
-             this._logger.trace(this + " Protocol Error: Expected 'done'");
-             this._endTransaction(Constants.PROTOCOL_ERROR, reply);
-             return;
-          } 
-          
           //---------------------------
           
-          //read next message
-          try {
-              this._srvReply = io.readMessage();
-              if (this._srvReply.getErrno() == Constants.OK)
-              {
-                  //normal termination
-                  this._logger.trace(this + " Subscription session closed.");
-                  this._endTransactionDoNotShowUser(Constants.OK, 
-                                        this._srvReply.getMessage());
-              }
-              else
-              {
-                  //error condition
-                  this._logger.error(this + " Subscription session "
-                                     + "terminated abnormally.");
-                  this._endTransaction(this._srvReply.getErrno(),  
-                                       this._srvReply.getMessage());
-              }
-          } catch (IOException ioEx) {
-              String message = "IO exception closing subscription session";
-              try {
-                 io.writeLine("File transfer failed");
-              } catch (IOException ne) {
-                 this._logger.trace(null, ne);
-              } finally {
-                 this._endTransaction(Constants.IO_ERROR, message);
-              }
-              return;
-          } 
+          if (parser.isShownToUser())
+              this._endTransaction(parser.getErrno(), parser.getMessage());
+          else
+              this._endTransactionDoNotShowUser(parser.getErrno(), 
+                                                parser.getMessage());
       } finally {
           this._resetShutdownHandler();
       }
@@ -4217,6 +4596,30 @@ public class ServerProxy implements Runnable {
    
    //----------------------------------------------------------------------
    
+   /**
+    * Called by a reactor serviced subscription once it has ended and 
+    * returned the connection to blocking mode.  Restarts the service
+    * thread, which then executes the requests queued meanwhile.
+    * @param handler the subscription handler
+    */
+   
+   void resumeService(SubscriptionHandler handler)
+   {
+       if (this._subscription != handler)
+           return;
+       
+       this._subscription = null;
+       this._conn.setActive();
+       this._busy = false;
+       
+       this._proxyThread = new Thread(this);
+       this._proxyThread.setName("Proxy_" + this._id + "_" +
+                                 PROXY_THREAD_SUFFIX);
+       this._proxyThread.start();
+   }
+   
+   //----------------------------------------------------------------------
+   
    /**
     * Sends a request to server to kill current subscription session.
     * Waits for notification from the subscription thread that it has 
@@ -4226,6 +4629,14 @@ public class ServerProxy implements Runnable {
    
    private void _stopSubscription() throws SessionException {
        
+       //subscriptions serviced by the reactor are killed there
+       SubscriptionHandler handler = this._subscription;
+       if (handler != null)
+       {
+           handler.kill();
+           return;
+       }
+       
        //if no current command, or if kill command does not match
        //current command, then warn and exit
        if (this._currentCmd == null || this._reqTermHandler == null ||
@@ -4971,45 +5382,44 @@ public class ServerProxy implements Runnable {
                  this + " we are in close type "+ft;
           
          this._logger.trace(msg);
-         synchronized (this._requests) 
+         // Remove all commands for this type.  The iterator is weakly
+         // consistent, so requests may be queued concurrently.
+         Iterator it = this._requests.iterator();
+         while (it.hasNext()) 
          {
-            int size = this._requests.size();
-            // Remove all commands for this type.
-            for (int i = size - 1; i >= 0; --i) 
-            {
-               nextCmd = (Request) this._requests.get(i);
-               this._logger.trace(this + " nextCmd type = " + 
-                                  nextCmd.getType());
-               this._logger.trace(this + " currentCmd type = " +
-                                  this._currentCmd.getType());
-               
-               // Admin close / FileType close.
-               if ( (this._currentCmd.getType() == null && 
-                     nextCmd.getType() == null) ||
-                    (this._currentCmd.getType() != null &&
-                     nextCmd.getType() != null &&
-                     nextCmd.getType().compareTo(this._currentCmd.getType()) == 0))
-               {
-                  this._requests.remove(i);
-               }
-            }
-            this._logger.trace(this + " refcount first " + this._refCount);
-            if (this.decrementRefCount() < 1) 
-            {
-               //send quit command to server
-               this._logger.trace(this + " bye");
-               //this._conn.getIO().writeLine("q");
-               this._conn.getIO().writeLine(Constants.QUIT);
-               
-               //remove self as proxy for the server
-               if (this._serverInfo.getProxy() == this)
-                   this._serverInfo.setProxy(null);
-            } 
-            else 
+            nextCmd = (Request) it.next();
+            this._logger.trace(this + " nextCmd type = " + 
+                               nextCmd.getType());
+            this._logger.trace(this + " currentCmd type = " +
+                               this._currentCmd.getType());
+            
+            // Admin close / FileType close.
+            if ( (this._currentCmd.getType() == null && 
+                  nextCmd.getType() == null) ||
+                 (this._currentCmd.getType() != null &&
+                  nextCmd.getType() != null &&
+                  nextCmd.getType().compareTo(this._currentCmd.getType()) == 0))
             {
-               this._logger.trace(this + " refcount now " + this._refCount);
+               it.remove();
             }
          }
+         this._logger.trace(this + " refcount first " + this._refCount);
+         if (this.decrementRefCount() < 1) 
+         {
+            //send quit command to server
+            this._logger.trace(this + " bye");
+            //this._conn.getIO().writeLine("q");
+            this._conn.getIO().writeLine(Constants.QUIT);
+            this._closeStripeProxies();
+            
+            //remove self as proxy for the server
+            if (this._serverInfo.getProxy() == this)
+                this._serverInfo.setProxy(null);
+         } 
+         else 
+         {
+            this._logger.trace(this + " refcount now " + this._refCount);
+         }
       } catch (IOException e) {
          this._logger.trace(this + " ServerProxy.closeConnection.run ()", e);
       }
@@ -5085,17 +5495,14 @@ public class ServerProxy implements Runnable {
        this._alive = false;
        
        //proxy service thread
-       synchronized(this._requests) {
-           this._requests.notify();
-       }
+       this._requests.offerFirst(WAKEUP_REQUEST);
        
        //proxy control thread
-       synchronized(this._controlReqs) {
-           this._controlReqs.notify();
-       }       
+       this._controlReqs.offerFirst(WAKEUP_REQUEST);
        
-       //pulse thread
-       this._pulseThread.interrupt();
+       //heartbeat
+       if (this._heartbeat != null)
+           this._heartbeat.cancel();
    }
 
    //----------------------------------------------------------------------
@@ -5136,6 +5543,28 @@ public class ServerProxy implements Runnable {
    
 
    
+   //----------------------------------------------------------------------
+   
+   /**
+    * Returns the checksum string of a local file.  Unless disabled by
+    * property <code>Constants.PROPERTY_CHECKSUM_CACHE</code>, the checksum
+    * cache of the file's directory is used, so unchanged files are not
+    * rehashed.  Only the cache of an output directory is persisted.
+    * @param fileName the full file path with name
+    * @param output true if the file is in the output directory of a get
+    * @return checksum in string representation
+    * @throws IOException when file I/O fail
+    */
+   
+   protected String _getLocalChecksum(String fileName, boolean output)
+                                                     throws IOException
+   {
+       if ("false".equalsIgnoreCase(System.getProperty(
+                                    Constants.PROPERTY_CHECKSUM_CACHE)))
+           return FileUtil.getStringChecksum(fileName);
+       return ChecksumCache.getStringChecksum(fileName, output);
+   }
+   
    //----------------------------------------------------------------------
    
    protected void _sendFileChecksum(BufferedStreamIO io, Request request, 
@@ -5143,7 +5572,7 @@ public class ServerProxy implements Runnable {
    {
        String checksum = null;
        try {
-           checksum = FileUtil.getStringChecksum(fileName);
+           checksum = _getLocalChecksum(fileName, false);
        } catch (IOException ioEx) {
            checksum = "";
            if (false)
@@ -7,12 +7,18 @@ package jpl.mipl.mdms.FileService.komodo.api;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jpl.mipl.mdms.FileService.komodo.util.Closable;
 import jpl.mipl.mdms.FileService.komodo.util.ConfigFileURLResolver;
@@ -33,9 +39,10 @@ public class Session {
    
    private URL _domainFile;
    private Domain _domain;
-   private int _transactionCount = 0;
-   private int _transactionId = 0;
+   private final AtomicInteger _transactionCount = new AtomicInteger(0);
+   private final AtomicInteger _transactionId = new AtomicInteger(0);
    private int _connTimeout = Constants.TIMEOUT_NONE;
+   private int _connPoolSize = 1;
    private int _closeTranId = Constants.NOT_SET;
    private int _securityModel = Constants.INSECURE;
    private int _tcpStartPort;
@@ -49,7 +56,9 @@ public class Session {
    int _userAccess; // admin = 3, write_all = 2, read_all = 1, none = 0.
    
    boolean _addVFT; // If not admin, is this session allowed to add VFT?
-   private Vector _results;   
+   private BlockingQueue _results;   
+   // longest wait for a result before the transaction count is rechecked
+   private static final long RESULT_WAIT_SLICE = 500;
    private final Logger _logger = Logger.getLogger(Session.class.getName());
    private Hashtable _sgClients = new Hashtable();  
    
@@ -110,6 +119,7 @@ public class Session {
       this._tcpEndPort = 0;
       this._onOffOptions = 0;
       this._connTimeout = _getInitialConnectionTimeout();
+      this._connPoolSize = _getInitialConnectionPoolSize();
       
       if (this._connTimeout == Constants.TIMEOUT_NONE)
           this._logger.trace("Session not setting an initial timeout.");
@@ -130,8 +140,7 @@ public class Session {
       //---------------------------
       
       //create results queue
-      this._results = new Vector(Constants.RESULTCAPACITY,
-                                 Constants.RESULTCAPINCR);
+      this._results = new LinkedBlockingQueue();
       
       this._userAccess = Constants.NOT_SET;
       this._addVFT = false; // Default is no add vft.
@@ -961,18 +970,32 @@ public class Session {
    //---------------------------------------------------------------------
    
    /**
-    * Method to post a result to the result queue.
+    * Method to post a result to the result queue.  Results of requests
+    * with a result stream are delivered to that stream instead, which
+    * blocks the caller while the stream buffer is full.
     * 
     * @param result the file profile
     */
    public void postResult(Result result) {
       this._logger.trace("Posting result.");
-      synchronized (this._results) {         
-         this._results.add(result);
-         this._logger.trace("Posting result notify.");
-         this._results.notify();
-         this._logger.trace("Posting result notified.");
-      }
+      Request request = result.getRequest();
+      ResultStream stream = (request == null) ? null 
+                                              : request.getResultStream();
+      if (stream != null)
+         stream.post(result);
+      else
+         this._results.offer(result);
+      this._logger.trace("Posting result notified.");
+   }
+
+   //---------------------------------------------------------------------
+   
+   /**
+    * Called by a result stream when the end of its transaction has been
+    * consumed or discarded.
+    */
+   void endStreamedTransaction() {
+      this._transactionCount.decrementAndGet();
    }
 
    //---------------------------------------------------------------------
@@ -983,9 +1006,7 @@ public class Session {
     * @return transaction count
     */
    public int getTransactionCount() {
-      synchronized (this) {
-         return (this._transactionCount);
-      }
+      return this._transactionCount.get();
    }
    
    //---------------------------------------------------------------------
@@ -1193,29 +1214,12 @@ public class Session {
     *  
     */
    public Result result() throws SessionException {
-      Result result = null;
-      synchronized (this._results) {
-         if (this.getTransactionCount() > 0) {
-            while (this._results.isEmpty()) {
-               try {
-                  this._results.wait();
-               } catch (InterruptedException e) {
-                  this._logger.trace(null, e);
-                  throw new SessionException("Unexpected interrupt.",
-                        Constants.INTERRUPTED);
-               }
-            }
-            result = (Result) this._results.get(0);
-            this._results.remove(0);
-            if (result.isEoT()) {
-               synchronized (this) {
-                  this._transactionCount--;
-               }
-            }
-         }
-         
-         return (result == null || result.isDoNotShowUser() ? null : result);
+      Result result = this._nextResult(-1);
+      if (result != null && result.isEoT()) {
+         this._transactionCount.decrementAndGet();
       }
+         
+      return (result == null || result.isDoNotShowUser() ? null : result);
    }
 
    //---------------------------------------------------------------------
@@ -1236,45 +1240,157 @@ public class Session {
                + Constants.RESULTMINTIMEOUT + "," + Constants.RESULTMAXTIMEOUT
                + ")" + ".", Constants.TIMEOUT_RANGE);
       }
-      synchronized (this._results) {
-         if (this.getTransactionCount() > 0) {
-            if (this._results.isEmpty()
-                  && timeDelay > Constants.RESULTNOTIMEOUT) {
-               try {
-                  this._results.wait((long) timeDelay);
-               } catch (InterruptedException e) {
-                  this._logger.trace(null, e);
-                  throw new SessionException("Unexpected interrupt.",
-                        Constants.INTERRUPTED);
-               }
-            }
-         }
-         
-         if (!this._results.isEmpty())
-             result = (Result) this._results.get(0);
+      if (this.getTransactionCount() > 0
+            && timeDelay > Constants.RESULTNOTIMEOUT) {
+         result = this._nextResult(timeDelay);
+      } else {
+         result = (Result) this._results.poll();
+      }
          
-         if (result != null) {
-            this._results.remove(0);
-            if (result.isEoT()) {
-               synchronized (this) {
-                  this._transactionCount--;
-               }
-            }
-         }           
-         return (result == null || result.isDoNotShowUser() ? null : result);
+      if (result != null && result.isEoT()) {
+         this._transactionCount.decrementAndGet();
       }
+      return (result == null || result.isDoNotShowUser() ? null : result);
    }
 
    //---------------------------------------------------------------------
    
+   /**
+    * Removes all available results from the result queue, up to a maximum,
+    * and adds them to a collection in the order in which they were posted.
+    * Waits forever for the first result if none is available and there
+    * are outstanding transactions.  The transaction count is decremented
+    * once for all EoT results of the batch.  Results not intended for the
+    * user are removed but not added to the collection.
+    * 
+    * @param results the collection to which results are added
+    * @param max maximum number of results to remove, or 0 for no limit
+    * @return the number of results added to the collection
+    * @throws SessionException when session failure
+    */
+   public int drainResults(Collection results, int max) 
+                                              throws SessionException {
+      return this._drainResults(results, max, -1);
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Removes all available results from the result queue, up to a maximum,
+    * and adds them to a collection in the order in which they were posted.
+    * Blocks up to a specified number of milliseconds for the first result
+    * if none is available and there are outstanding transactions.  The
+    * transaction count is decremented once for all EoT results of the
+    * batch.  Results not intended for the user are removed but not added
+    * to the collection.
+    * 
+    * @param results the collection to which results are added
+    * @param max maximum number of results to remove, or 0 for no limit
+    * @param timeDelay time in milliseconds.
+    * @return the number of results added to the collection
+    * @throws SessionException when session failure
+    */
+   public int drainResults(Collection results, int max, int timeDelay) 
+                                              throws SessionException {
+      if (timeDelay < Constants.RESULTMINTIMEOUT
+            || timeDelay > Constants.RESULTMAXTIMEOUT) {
+         throw new SessionException("Time delay '"+timeDelay+"' not in range ("
+               + Constants.RESULTMINTIMEOUT + "," + Constants.RESULTMAXTIMEOUT
+               + ")" + ".", Constants.TIMEOUT_RANGE);
+      }
+      return this._drainResults(results, max, timeDelay);
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Implementation of drainResults.  A negative time delay waits forever.
+    */
+   private int _drainResults(Collection results, int max, int timeDelay) 
+                                              throws SessionException {
+      if (max <= 0)
+         max = Integer.MAX_VALUE;
+      
+      // take all available results under a single acquisition of the
+      // queue lock, blocking only if there are none
+      List batch = new ArrayList();
+      this._results.drainTo(batch, max);
+      if (batch.isEmpty()) {
+         Result first = null;
+         if (timeDelay < 0 || timeDelay > Constants.RESULTNOTIMEOUT)
+            first = this._nextResult(timeDelay);
+         if (first == null)
+            return 0;
+         batch.add(first);
+         if (max > 1)
+            this._results.drainTo(batch, max - 1);
+      }
+      
+      int added = 0;
+      int endCount = 0;
+      for (int i = 0; i < batch.size(); ++i) {
+         Result result = (Result) batch.get(i);
+         if (result.isEoT())
+            ++endCount;
+         if (!result.isDoNotShowUser()) {
+            results.add(result);
+            ++added;
+         }
+      }
+      if (endCount > 0)
+         this._transactionCount.addAndGet(-endCount);
+      
+      return added;
+   }
+
+   //---------------------------------------------------------------------
+   
+   /**
+    * Removes the next result from the result queue, waiting while there
+    * are outstanding transactions.  The transaction count is checked
+    * again at least every RESULT_WAIT_SLICE milliseconds, so that a
+    * consumer does not block forever once another consumer has removed
+    * the last EoT.  A negative time delay waits as long as there are
+    * outstanding transactions.
+    * 
+    * @param timeDelay time in milliseconds, or negative to wait forever
+    * @return the result, or null if none arrived in time
+    * @throws SessionException when interrupted
+    */
+   private Result _nextResult(long timeDelay) throws SessionException {
+      long deadline = System.currentTimeMillis() + timeDelay;
+      try {
+         while (this.getTransactionCount() > 0) {
+            long wait = RESULT_WAIT_SLICE;
+            if (timeDelay >= 0) {
+               long remaining = deadline - System.currentTimeMillis();
+               if (remaining <= 0)
+                  break;
+               wait = Math.min(wait, remaining);
+            }
+            Result result = (Result) this._results.poll(wait,
+                                                  TimeUnit.MILLISECONDS);
+            if (result != null)
+               return result;
+         }
+      } catch (InterruptedException e) {
+         this._logger.trace(null, e);
+         throw new SessionException("Unexpected interrupt.",
+               Constants.INTERRUPTED);
+      }
+      return null;
+   }
+   
+   //---------------------------------------------------------------------
+   
    /**
     * Get new transaction id. Also increments the transaction count.
     * 
     * @return the transaction id
     */
-   public synchronized int getTransactionId() {
+   public int getTransactionId() {
       this._incrementTransactionCount();
-      return ++this._transactionId;
+      return this._transactionId.incrementAndGet();
    }
    
    //---------------------------------------------------------------------
@@ -1535,9 +1651,7 @@ public class Session {
     * Called by server proxy when new requests are queued.
     */
    private void _incrementTransactionCount() {
-      synchronized (this) {
-         this._transactionCount++;
-      }
+      this._transactionCount.incrementAndGet();
    }
    
    //----------------------------------------------------------------------
@@ -1589,6 +1703,68 @@ public class Session {
 
    //---------------------------------------------------------------------
    
+   /**
+    * Sets the number of connections that may be opened to a single
+    * server.  Multi-file gets are striped across that many connections,
+    * with results posted to this session as usual.  Applies to
+    * subsequent requests.
+    * 
+    * @param size the connection pool size, must be at least 1
+    * @throws SessionException if size is less than 1
+    */
+   public void setConnectionPoolSize(int size) throws SessionException
+   {
+       if (size < 1)
+           throw new SessionException("Connection pool size must be at " +
+                                      "least 1.", Constants.EXCEPTION);
+       this._connPoolSize = size;
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Returns the number of connections that may be opened to a single
+    * server.
+    * 
+    * @return connection pool size
+    */
+   public int getConnectionPoolSize()
+   {
+       return this._connPoolSize;
+   }
+   
+   //----------------------------------------------------------------------
+   
+   /**
+    * Checks property <code>Constants.PROPERTY_CONNECTION_POOL_SIZE</code>.
+    * If set to a valid positive integer, that value is used, otherwise
+    * a single connection is used.
+    * @return Initial connection pool size to use by session
+    */
+   
+   private int _getInitialConnectionPoolSize()
+   {
+       int size = 1;
+       
+       String sizeStr = System.getProperty(
+                               Constants.PROPERTY_CONNECTION_POOL_SIZE);
+       if (sizeStr != null)
+       {
+           try {
+               size = Integer.parseInt(sizeStr.trim());
+           } catch (NumberFormatException nfEx) {
+               this._logger.warn("Invalid value of property '" +
+                                 Constants.PROPERTY_CONNECTION_POOL_SIZE +
+                                 "': " + sizeStr + ".  Using default value.");
+               size = 1;
+           }
+       }
+       
+       return (size < 1) ? 1 : size;
+   }
+
+   //---------------------------------------------------------------------
+   
    boolean isCapabilitiesLoaded(String servergroup)
    {
        
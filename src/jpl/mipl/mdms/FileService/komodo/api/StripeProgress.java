@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.api;
+
+/**
+ * <b>Purpose:</b> Progress of the stripes of one striped get, giving the
+ * latest file modification time up to which every stripe has delivered
+ * its files.  Files are assigned to stripes in listing order, so once a
+ * stripe has delivered a file, the files it has yet to deliver are no
+ * older.  The time returned is therefore the earliest of the last times
+ * delivered by the stripes still running, and is the time a restart cache
+ * can be advanced to without skipping files still in flight on another
+ * stripe.
+ */
+
+class StripeProgress
+{
+   /** Time returned while no time is safe to commit */
+   static final long NONE = Long.MIN_VALUE;
+
+   private final long[] _last;
+
+   private final boolean[] _finished;
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.
+    *
+    * @param stripes number of stripes
+    */
+   StripeProgress(int stripes)
+   {
+      this._last = new long[stripes];
+      this._finished = new boolean[stripes];
+      for (int i = 0; i < stripes; ++i)
+         this._last[i] = NONE;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Records a file delivered by a stripe.
+    *
+    * @param stripe index of the stripe
+    * @param time modification time of the file
+    * @return time all stripes have completed, or NONE
+    */
+   synchronized long complete(int stripe, long time)
+   {
+      if (time > this._last[stripe])
+         this._last[stripe] = time;
+      return this.getSafeTime();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Records that a stripe has no more files to deliver.
+    *
+    * @param stripe index of the stripe
+    * @return time all stripes have completed, or NONE
+    */
+   synchronized long finish(int stripe)
+   {
+      this._finished[stripe] = true;
+      return this.getSafeTime();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the latest time up to which all stripes have delivered their
+    * files.
+    *
+    * @return time all stripes have completed, or NONE
+    */
+   synchronized long getSafeTime()
+   {
+      long safe = NONE;
+      boolean running = false;
+      for (int i = 0; i < this._last.length; ++i)
+      {
+         if (this._finished[i])
+            continue;
+         if (this._last[i] == NONE)
+            return NONE;
+         safe = running ? Math.min(safe, this._last[i]) : this._last[i];
+         running = true;
+      }
+      if (running)
+         return safe;
+
+      //all finished, everything delivered is safe
+      for (int i = 0; i < this._last.length; ++i)
+         safe = Math.max(safe, this._last[i]);
+      return safe;
+   }
+
+   // ----------------------------------------------------------------------
+}
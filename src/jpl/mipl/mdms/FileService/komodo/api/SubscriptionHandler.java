@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.util.NoSuchElementException;
+
+import jpl.mipl.mdms.FileService.net.SSLEngineChannel;
+import jpl.mipl.mdms.connection.Reactor;
+import jpl.mipl.mdms.connection.ServiceHandler;
+import jpl.mipl.mdms.utils.logging.Logger;
+
+/**
+ * <b>Purpose:</b> Services a push subscription session from a reactor
+ * thread, over the connection of the proxy that started it.  Once the
+ * subscription request has been acknowledged and the proxy service
+ * thread has stopped, the connection is switched to non-blocking mode
+ * and replies are fed to a <code>SubscriptionReplyParser</code> as they
+ * arrive.  When the session ends, the connection is returned to blocking
+ * mode and the proxy service thread is restarted.
+ * <p>
+ * All state is accessed from the reactor thread only.  Other threads
+ * request a kill or stop through <code>Reactor.execute()</code>.
+ */
+
+class SubscriptionHandler implements ServiceHandler
+{
+   private static final int BUFFER_SIZE = 8192;
+
+   private final ServerProxy _owner;
+   private final Session _session;
+   private final Request _request;
+   private final Connection _conn;
+   private final ByteChannel _io;
+   private final Reactor _reactor;
+   private final SubscriptionReplyParser _parser;
+   private SelectionKey _key = null;
+
+   private final ByteBuffer _in = ByteBuffer.allocate(BUFFER_SIZE);
+   private ByteBuffer _out = ByteBuffer.allocate(0);
+   private final StringBuffer _line = new StringBuffer();
+
+   // true once a kill has been sent without waiting for it
+   private boolean _stopping = false;
+   private boolean _closed = false;
+
+   private final KillHandler _killHandler = new KillHandler();
+
+   private final Logger _logger = Logger.getLogger(
+                                       SubscriptionHandler.class.getName());
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.
+    *
+    * @param owner proxy that started the subscription
+    * @param session session to which results are posted
+    * @param request the subscription request
+    * @param conn connection of the proxy, acknowledged by the server and
+    *        not yet read past the acknowledgement
+    * @param clientTime subscription start time
+    * @param reactor reactor that will service the connection
+    */
+   SubscriptionHandler(ServerProxy owner, Session session, Request request,
+                       Connection conn, long clientTime, Reactor reactor)
+   {
+      this._owner = owner;
+      this._session = session;
+      this._request = request;
+      this._conn = conn;
+      this._io = conn.getByteChannel();
+      this._reactor = reactor;
+      this._out.flip();
+      this._parser = new SubscriptionReplyParser(this, session, request,
+                                                 clientTime) {
+         protected void send(String line) throws IOException {
+            _send(line);
+         }
+
+         protected boolean killAcknowledged() {
+            if (_killHandler.isRunning())
+            {
+               _killHandler.confirm();
+               return true;
+            }
+            return _stopping;
+         }
+      };
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the file type subscribed to.
+    *
+    * @return file type name
+    */
+   String getType()
+   {
+      return this._request.getType();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Queues registration of the connection with the reactor.  Called by
+    * the proxy service thread as it stops.
+    */
+   public void open()
+   {
+      this._reactor.execute(this);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Registers the connection with the reactor, after processing replies
+    * already buffered by the connection streams.  Run by the reactor
+    * thread.
+    */
+   public void run()
+   {
+      try {
+         this._conn.getChannel().configureBlocking(false);
+         while (!this._closed && this._conn.drainBuffered(this._in) > 0)
+            this._processInput();
+         if (this._closed)
+            return;
+
+         if (!this._reactor.register(this, SelectionKey.OP_READ))
+            throw new IOException("Could not register subscription channel");
+         this._read();
+         this._updateInterest();
+      } catch (IOException ioEx) {
+         this._logger.trace(this + " " + ioEx.getMessage(), ioEx);
+         this._finish(Constants.IO_ERROR,
+                      "IO exception during subscription session", true);
+      } catch (RuntimeException rtEx) {
+         this._protocolError(rtEx);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Services I/O events on the connection.
+    *
+    * @param key selection key of the connection
+    * @return true, the handler ends the session itself on failure
+    */
+   public boolean activate(SelectionKey key)
+   {
+      try {
+         if (key.isValid() && key.isWritable())
+            this._write();
+         if (key.isValid() && key.isReadable())
+            this._read();
+         this._updateInterest();
+      } catch (IOException ioEx) {
+         this._logger.trace(this + " " + ioEx.getMessage(), ioEx);
+         this._finish(Constants.IO_ERROR,
+                      "IO exception during subscription session", true);
+      } catch (RuntimeException rtEx) {
+         this._protocolError(rtEx);
+      }
+      return true;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Closes the connection when the reactor shuts down.
+    *
+    * @return true
+    */
+   public boolean deactivate()
+   {
+      try {
+         this._conn.close();
+      } catch (IOException ioEx) {
+         this._logger.trace(this + " Could not close connection", ioEx);
+      }
+      return true;
+   }
+
+   // ----------------------------------------------------------------------
+
+   public SelectionKey getKey()
+   {
+      return this._key;
+   }
+
+   // ----------------------------------------------------------------------
+
+   public void setKey(SelectionKey key)
+   {
+      this._key = key;
+   }
+
+   // ----------------------------------------------------------------------
+
+   public SelectableChannel getHandle()
+   {
+      return this._conn.getChannel();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Sends a request to server to kill the subscription session.  Returns
+    * once the server acknowledges the request, or the session ends.
+    */
+   void kill()
+   {
+      this._logger.trace(this + " killing subscribe push");
+      this._killHandler.start();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Sends a request to server to kill the subscription session without
+    * waiting for it.  Used when the file type is closed, as the close
+    * request is executed once the session has ended.
+    */
+   void stop()
+   {
+      this._reactor.execute(new Runnable() {
+         public void run() {
+            if (_closed || _stopping)
+               return;
+            _stopping = true;
+            _sendKill();
+         }
+      });
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Reads available replies.
+    */
+   private void _read() throws IOException
+   {
+      int n;
+      while (!this._closed && (n = this._io.read(this._in)) != 0)
+      {
+         if (n < 0)
+            throw new IOException("Unexpected EOF from network peer.");
+         this._processInput();
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Splits input into lines, which keep their terminator as with
+    * <code>BufferedStreamIO.readLine()</code>, and parses them.
+    */
+   private void _processInput() throws IOException
+   {
+      this._in.flip();
+      while (!this._closed && this._in.hasRemaining())
+      {
+         char ch = (char) (this._in.get() & 0xff);
+         this._line.append(ch);
+         if (ch == '\n' || ch == '\r')
+         {
+            String reply = this._line.toString();
+            this._line.setLength(0);
+            this._parser.parse(reply);
+            if (this._parser.isFinished())
+               this._finish(this._parser.getErrno(),
+                            this._parser.getMessage(),
+                            this._parser.isShownToUser());
+         }
+      }
+      this._in.clear();
+   }
+
+   // ----------------------------------------------------------------------
+
+   private void _protocolError(RuntimeException rtEx)
+   {
+      this._logger.trace(this + " Malformed subscription reply", rtEx);
+      String message = (rtEx instanceof NoSuchElementException) ?
+                       "Missing field in subscription reply" :
+                       "Malformed subscription reply: " + rtEx.getMessage();
+      this._finish(Constants.PROTOCOL_ERROR, message, true);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Sends the kill request.  Run by the reactor thread.
+    */
+   private void _sendKill()
+   {
+      //cmd starts sub id, modified, then client date
+      String cmd = Constants.SUBSCRIBEPUSH + Constants.KILLSUBSCRIPTION +
+                   " " + System.currentTimeMillis();
+      try {
+         this._logger.trace(this + " kill subscribePush command = \"" +
+                            cmd + "\"");
+         this._send(cmd);
+         this._updateInterest();
+      } catch (IOException ioEx) {
+         this._logger.trace(this + " " + ioEx.getMessage(), ioEx);
+         this._finish(Constants.IO_ERROR, "IO exception while "
+                      + "terminating subscription session", true);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Queues a line to be written to the server.
+    */
+   private void _send(String line) throws IOException
+   {
+      byte[] b = line.getBytes();
+      ByteBuffer out = ByteBuffer.allocate(this._out.remaining()
+                                           + b.length + 1);
+      out.put(this._out);
+      out.put(b);
+      out.put((byte) 10);
+      out.flip();
+      this._out = out;
+      this._write();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Writes queued output as far as possible without blocking.
+    */
+   private void _write() throws IOException
+   {
+      if (this._out.hasRemaining())
+         this._io.write(this._out);
+      if (this._io instanceof SSLEngineChannel)
+         ((SSLEngineChannel) this._io).flush();
+   }
+
+   // ----------------------------------------------------------------------
+
+   private boolean _hasPendingOutput()
+   {
+      return this._out.hasRemaining() ||
+             (this._io instanceof SSLEngineChannel &&
+              ((SSLEngineChannel) this._io).hasPendingOutput());
+   }
+
+   // ----------------------------------------------------------------------
+
+   private void _updateInterest()
+   {
+      if (this._key != null && this._key.isValid())
+         this._key.interestOps(this._hasPendingOutput() ?
+                               SelectionKey.OP_READ | SelectionKey.OP_WRITE :
+                               SelectionKey.OP_READ);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Ends the subscription, deregistering the connection.  The connection
+    * is handed back to the proxy by a reactor task, as the channel stays
+    * registered until the selector has processed the cancelled key.
+    */
+   private void _finish(final int errno, final String message,
+                        final boolean showUser)
+   {
+      if (this._closed)
+         return;
+      this._closed = true;
+
+      //wake a pending kill request
+      this._killHandler.abort();
+
+      if (this._key != null)
+         this._key.cancel();
+
+      this._reactor.execute(new Runnable() {
+         public void run() {
+            _release(errno, message, showUser);
+         }
+      });
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the connection to blocking mode, restarts the proxy service
+    * thread, and ends the subscription transaction.  Run by the reactor
+    * thread between selections.
+    */
+   private void _release(int errno, String message, boolean showUser)
+   {
+      try {
+         if (this._key != null)
+         {
+            //deregister the cancelled key, then have the next selection
+            //return at once for keys this one may have selected
+            this._key.selector().selectNow();
+            this._key.selector().wakeup();
+         }
+         this._conn.getChannel().configureBlocking(true);
+         while (this._out.hasRemaining())
+            this._io.write(this._out);
+         if (this._io instanceof SSLEngineChannel)
+            ((SSLEngineChannel) this._io).flush();
+      } catch (IOException ioEx) {
+         this._logger.trace(this + " Could not restore connection", ioEx);
+      }
+      this._owner.resumeService(this);
+
+      Result lastResult = new Result(this._request, errno, message);
+      lastResult.setEoT();
+      if (!showUser)
+         lastResult.setDoNotShowUser();
+      this._session.postResult(lastResult);
+   }
+
+   // ----------------------------------------------------------------------
+
+   public String toString()
+   {
+      return this._owner + " [" + this.getType() + "]";
+   }
+
+   // ======================================================================
+
+   /**
+    * Sends the kill request from the reactor thread and waits for the
+    * server to acknowledge it.
+    */
+   class KillHandler extends RequestTerminationHandler
+   {
+      KillHandler()
+      {
+         super(true);
+      }
+
+      // ------------------------------------------------------------------
+
+      protected void shutdown()
+      {
+         _reactor.execute(new Runnable() {
+            public void run() {
+               if (!_closed)
+                  _sendKill();
+            }
+         });
+      }
+
+      // ------------------------------------------------------------------
+
+      public void postShutdown()
+      {
+         if (this.isSuccessful())
+            _logger.debug(SubscriptionHandler.this + " Subscription "
+                          + "shutdown handler completed successfully.");
+         else
+            _logger.debug(SubscriptionHandler.this + " Subscription "
+                          + "shutdown handler operation aborted.");
+      }
+   }
+
+   // ======================================================================
+}
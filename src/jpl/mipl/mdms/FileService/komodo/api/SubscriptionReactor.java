@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.api;
+
+import java.io.IOException;
+
+import jpl.mipl.mdms.connection.Reactor;
+import jpl.mipl.mdms.utils.logging.Logger;
+
+/**
+ * <b>Purpose:</b> Small fixed set of reactor threads shared by all push
+ * subscriptions of the JVM.  Subscription connections are assigned to
+ * reactors in turn, so that an idle subscription costs a selection key
+ * rather than a thread blocked reading its socket.
+ */
+
+class SubscriptionReactor
+{
+   private static final int DEFAULT_THREADS = 2;
+
+   private static final String THREAD_PREFIX = "Subscription_Reactor_";
+
+   private static SubscriptionReactor _instance = null;
+
+   private final Reactor[] _reactors;
+
+   private int _next = 0;
+
+   private final Logger _logger = Logger.getLogger(
+                                       SubscriptionReactor.class.getName());
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.  Starts the reactor threads as daemons.
+    *
+    * @param threads number of reactor threads
+    * @throws IOException when a selector cannot be opened
+    */
+   SubscriptionReactor(int threads) throws IOException
+   {
+      this._reactors = new Reactor[threads];
+      for (int i = 0; i < threads; ++i)
+      {
+         this._reactors[i] = new Reactor();
+         Thread thread = new Thread(this._reactors[i], THREAD_PREFIX + i);
+         thread.setDaemon(true);
+         thread.start();
+      }
+      this._logger.trace("Started " + threads + " subscription reactor(s)");
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the shared instance, creating it on first call with the
+    * thread count of property
+    * <code>Constants.PROPERTY_SUBSCRIPTION_REACTOR_THREADS</code>.
+    *
+    * @return shared subscription reactor
+    * @throws IOException when a selector cannot be opened
+    */
+   static synchronized SubscriptionReactor getInstance() throws IOException
+   {
+      if (_instance == null)
+      {
+         int threads = DEFAULT_THREADS;
+         String value = System.getProperty(
+                              Constants.PROPERTY_SUBSCRIPTION_REACTOR_THREADS);
+         if (value != null)
+         {
+            try {
+               threads = Math.max(1, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException nfEx) {
+               Logger.getLogger(SubscriptionReactor.class.getName()).warn(
+                         "Illegal subscription reactor thread count: " + value);
+            }
+         }
+         _instance = new SubscriptionReactor(threads);
+      }
+      return _instance;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns true if enabled by property
+    * <code>Constants.PROPERTY_SUBSCRIPTION_REACTOR</code>.
+    *
+    * @return true if subscriptions are multiplexed
+    */
+   static boolean isEnabled()
+   {
+      return "true".equalsIgnoreCase(System.getProperty(
+                                    Constants.PROPERTY_SUBSCRIPTION_REACTOR));
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the reactor that should service the next subscription.
+    *
+    * @return reactor
+    */
+   synchronized Reactor next()
+   {
+      Reactor reactor = this._reactors[this._next];
+      this._next = (this._next + 1) % this._reactors.length;
+      return reactor;
+   }
+
+   // ----------------------------------------------------------------------
+}
@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.StringTokenizer;
+
+import jpl.mipl.mdms.utils.logging.Logger;
+
+/**
+ * <b>Purpose:</b> Parses the replies of a push subscription session once
+ * the subscription request has been acknowledged.  Replies are fed one
+ * line at a time, with their terminator as returned by
+ * <code>BufferedStreamIO.readLine()</code>, so that the same parser
+ * serves the blocking service thread of <code>ServerProxy</code> and the
+ * non-blocking <code>SubscriptionHandler</code>.
+ * <p>
+ * Pings and more-files notifications are answered through
+ * <code>send()</code>, and file metadata is posted to the session as
+ * results.  Once the final message following 'done' has been parsed, or
+ * the session fails with a protocol error, <code>isFinished()</code>
+ * returns true and the outcome is available to end the transaction.
+ */
+
+abstract class SubscriptionReplyParser
+{
+   private static final int FILE_INFO_LINES = 5;
+
+   private final Object _owner;
+   private final Session _session;
+   private final Request _request;
+
+   // client time of last ping, for the DB accuracy workaround
+   private long _clientTime;
+
+   // file metadata being read, and number of its lines read so far
+   private Result _fileInfo = null;
+   private int _fileInfoLines = 0;
+   private long _fileModTime;
+
+   // true once 'done' is received, the final message follows
+   private boolean _done = false;
+   private boolean _finished = false;
+
+   // outcome of the session, once finished
+   private int _errno = Constants.OK;
+   private String _message = null;
+   private boolean _showUser = false;
+
+   private final Logger _logger = Logger.getLogger(
+                                    SubscriptionReplyParser.class.getName());
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.
+    *
+    * @param owner object named in log messages
+    * @param session session to which results are posted
+    * @param request the subscription request
+    * @param clientTime subscription start time
+    */
+   SubscriptionReplyParser(Object owner, Session session, Request request,
+                           long clientTime)
+   {
+      this._owner = owner;
+      this._session = session;
+      this._request = request;
+      this._clientTime = clientTime;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Sends a line to the server.
+    *
+    * @param line the line, without terminator
+    * @throws IOException when network I/O failure
+    */
+   protected abstract void send(String line) throws IOException;
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Called when the server acknowledges a kill request, to confirm it to
+    * the thread waiting for it.
+    *
+    * @return true if the kill had been requested
+    */
+   protected abstract boolean killAcknowledged();
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Parses a reply line.  Possiblities: (1) file info, (2) ping request,
+    * (3) more files notification, (4) kill acknowledgement, (5) done,
+    * followed by the final message.
+    *
+    * @param reply the reply line
+    * @throws IOException when network I/O failure, or the final message
+    *         is malformed
+    */
+   void parse(String reply) throws IOException
+   {
+      if (this._finished)
+         return;
+      if (this._fileInfo != null)
+      {
+         this._parseFileInfo(reply);
+         return;
+      }
+      if (this._done)
+      {
+         this._parseFinalMessage(reply);
+         return;
+      }
+
+      this._logger.trace(this._owner + " subscribePush reply: \"" + reply
+                         + "\"");
+
+      if (reply.charAt(0) == 'p')
+      {
+         //this is ping request, p <timestamp>, send ACK to server
+         this._clientTime = System.currentTimeMillis();
+         long serverTime = Long.parseLong(reply.substring(2).trim());
+         String pingAck = "p ACK " + Long.toString(this._clientTime) + " "
+                          + Long.toString(serverTime);
+         this._logger.trace(this._owner + " subscribePush acknowledging "
+                            + "ping: \"" + pingAck + "\"");
+         this.send(pingAck);
+
+         //create result object to notify client that ping request
+         //was recv'd and not to timeout
+         this._session.postResult(new Result(this._request,
+                                  Constants.PING_RECVD,
+                                  "Ping request received from server"));
+         return;
+      }
+
+      if (reply.charAt(0) == 'm')
+      {
+         //this is more files following notification, similar
+         //to a ping but without time stamps
+         this._logger.trace(this._owner + " subscribePush requesting next "
+                            + "file batch: \"" + Constants.GET_MORE_FILES
+                            + "\"");
+         this.send(Constants.GET_MORE_FILES);
+         return;
+      }
+
+      if (reply.charAt(0) == 'i')
+      {
+         //file metadata, followed by FILE_INFO_LINES lines
+         StringTokenizer st = new StringTokenizer(reply.substring(2), "\t");
+         String fileName = st.nextToken();
+         this._fileModTime = Long.parseLong(st.nextToken());
+         long fileSize = Long.parseLong(st.nextToken().trim());
+         this._fileInfo = new Result(this._request, fileName, fileSize,
+                                     new Date(this._fileModTime));
+         this._fileInfoLines = 0;
+         return;
+      }
+
+      // '[' used to be the command char for push-subscribe.
+      // Server will still send that character followed by
+      // the KILLSUBSCRIPTION modifier to represent kill action
+      if (reply.charAt(0) == '[' && reply.length() > 3 &&
+          reply.charAt(1) == Constants.KILLSUBSCRIPTION &&
+          reply.substring(3).startsWith("ACK "))
+      {
+         if (this.killAcknowledged())
+         {
+            StringTokenizer st = new StringTokenizer(reply.substring(7));
+            String sTime = st.nextToken();
+            String cTime = st.nextToken();
+            this._logger.debug(this._owner + " Received termination ACK "
+                               + "from server.");
+            this._logger.trace(this._owner + " Client request time: "
+                               + cTime + ".  Server ACK time: " + sTime
+                               + ".");
+         }
+         else
+         {
+            this._logger.error(this._owner + " Received *UNREQUESTED* "
+                               + "termination ACK from server.");
+            this._logger.debug(this._owner + " Reply = " + reply);
+         }
+         return;
+      }
+
+      //check that we've got a 'done' mesg, final message follows
+      this._logger.trace(this._owner + " Exited item from server: \""
+                         + reply + "\"");
+      if (reply.startsWith("done"))
+      {
+         this._done = true;
+      }
+      else
+      {
+         this._logger.trace(this._owner + " Protocol Error: Expected 'done'");
+         this._finish(Constants.PROTOCOL_ERROR, reply, true);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns true once 'done' has been received.
+    *
+    * @return true if only the final message remains
+    */
+   boolean isDone()
+   {
+      return this._done;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns true once the session has ended.
+    *
+    * @return true if no more replies are expected
+    */
+   boolean isFinished()
+   {
+      return this._finished;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the error number that ended the session.
+    *
+    * @return error number, Constants.OK on normal termination
+    */
+   int getErrno()
+   {
+      return this._errno;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the message that ended the session.
+    *
+    * @return message
+    */
+   String getMessage()
+   {
+      return this._message;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns true if the outcome should be shown to the user, which is
+    * the case unless the session ended normally.
+    *
+    * @return true if the session ended in error
+    */
+   boolean isShownToUser()
+   {
+      return this._showUser;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Parses a line of file metadata following the file info header.
+    */
+   private void _parseFileInfo(String reply)
+   {
+      switch (this._fileInfoLines++)
+      {
+         case 0:
+            StringTokenizer st = new StringTokenizer(reply, "\t");
+            this._fileInfo.setFileContributor(st.nextToken());
+            this._fileInfo.setFileCreationTime(new Date(Long.parseLong(
+                                               st.nextToken().trim())));
+            return;
+         case 1:
+            // See if there is a comment too.
+            this._logger.trace(this._owner + " Comment = \"" + reply + "\"");
+            if (reply.length() > 1)
+               this._fileInfo.setComment(reply.trim());
+            return;
+         case 2:
+            // See if there is an archiveNote too.
+            this._logger.trace(this._owner + " ArchiveNote = \"" + reply
+                               + "\"");
+            if (reply.length() > 1)
+               this._fileInfo.setArchiveNote(reply.trim());
+            return;
+         case 3:
+            // See if there is a checksum too.
+            this._logger.trace(this._owner + " Checksum = \"" + reply
+                               + "\"");
+            if (reply.length() > 1)
+               this._fileInfo.setChecksum(reply.trim());
+            return;
+         default:
+            // See if there is a remote location too.
+            this._logger.trace(this._owner + " Location = \"" + reply
+                               + "\"");
+            if (reply.length() > 1)
+               this._fileInfo.setRemoteLocation(reply.trim());
+            break;
+      }
+
+      Result fileInfo = this._fileInfo;
+      this._fileInfo = null;
+
+      //set restart cache if one was attached to the request
+      ClientRestartCache cache = this._request.getClientRestartCache();
+      if (cache != null)
+         fileInfo.setClientRestartCache(cache);
+
+      if (ServerProxy.DB_ACCURRACY_FIX_ENABLED)
+      {
+         //noticed that with restart enabled, we would end up
+         //retriveing a file that we already had retrieved in
+         //previous session. The cause was an accurracy issue
+         //in the DB where accurracy was limited to 3/100 of a
+         //second.  As such, we look for files that already exist
+         //and fall within this range.  If found, then they are
+         //ignored
+         File file = new File(this._session.getDir(), fileInfo.getName());
+         if (file.exists() && file.length() == fileInfo.getSize() &&
+             this._fileModTime < this._clientTime &&
+             this._fileModTime > this._clientTime - ServerProxy.DB_DELTA_MS)
+         {
+            this._logger.trace(this._owner + " Ignoring '"
+                               + fileInfo.getName() + "' . "
+                               + "(per DB accuraccy workaround)");
+            return;
+         }
+      }
+
+      this._session.postResult(fileInfo);
+      this._logger.trace(this._owner + " subscribe posted result; "
+                         + "going back for more");
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Parses the final message following 'done', as
+    * <code>BufferedStreamIO.readMessage()</code> does.
+    */
+   private void _parseFinalMessage(String reply) throws IOException
+   {
+      int index = reply.indexOf(':');
+      if (index < 0)
+         throw new IOException("Expected numeric value.  Error: " + reply);
+      int errno;
+      try {
+         errno = Integer.parseInt(reply.substring(0, index));
+      } catch (NumberFormatException nfEx) {
+         throw new IOException("Expected numeric value.  Error: " +
+                               nfEx.getMessage());
+      }
+      String message = reply.substring(index + 1);
+
+      if (errno == Constants.OK)
+      {
+         //normal termination
+         this._logger.trace(this._owner + " Subscription session closed.");
+         this._finish(Constants.OK, message, false);
+      }
+      else
+      {
+         //error condition
+         this._logger.error(this._owner + " Subscription session "
+                            + "terminated abnormally.");
+         this._finish(errno, message, true);
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   private void _finish(int errno, String message, boolean showUser)
+   {
+      this._finished = true;
+      this._errno = errno;
+      this._message = message;
+      this._showUser = showUser;
+   }
+
+   // ----------------------------------------------------------------------
+}
@@ -4,10 +4,14 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 
 import jpl.mipl.mdms.FileService.komodo.api.Client;
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
 import jpl.mipl.mdms.FileService.komodo.api.Result;
 import jpl.mipl.mdms.FileService.komodo.api.SessionException;
 import jpl.mipl.mdms.FileService.komodo.util.LoginFile;
@@ -25,6 +29,10 @@ public class ClientDaemon
     private static String serverGroup;
     private static final int shutdownTime = 2; // shutdown hook delay time in
                                                // seconds
+    // file types published in watch mode, each on its own connection
+    private static String[] fileTypes;
+    private static List<PublishWatcher> watchers = new ArrayList<PublishWatcher>();
+
     public static void main(String[] args)
     {
         int sleepMS = 3000; // number of milliseconds to sleep between checks
@@ -65,6 +73,13 @@ public class ClientDaemon
 
         daemonize();
 
+        if ("watch".equalsIgnoreCase(System.getenv("FEI5_PUBLISH_MODE")))
+        { // publish files as they are staged, file types may be a list
+            fileTypes = fileType.trim().split("\\s*,\\s*");
+            watchStaging(args[0] + '/' + serverGroup);
+            return;
+        }
+
         try
         {
             while (true)
@@ -103,7 +118,16 @@ public class ClientDaemon
             log("shutdown");
         }
 
-        removeClient(serverGroup, fileType);
+        synchronized (watchers)
+        {
+            for (PublishWatcher watcher : watchers)
+                watcher.stop();
+        }
+        if (fileTypes == null)
+            removeClient(serverGroup, fileType);
+        else
+            for (int i = 0; i < fileTypes.length; i++)
+                removeClient(serverGroup, fileTypes[i]);
         log("Shutdown Tasks completed");
         logStream.close();
     }
@@ -184,6 +208,142 @@ public class ClientDaemon
         }
     }
 
+    /**
+     *
+     * Watch the staging directory of each file type, publishing files as
+     * soon as they have been completely written.  Each file type is
+     * published by its own thread and connection.  Settle time (in
+     * seconds) and batch size are taken from FEI5_PUBLISH_SETTLE and
+     * FEI5_PUBLISH_BATCH.
+     *
+     * @param groupDirName
+     *            the staging directory of the server group
+     */
+
+    private static void watchStaging(String groupDirName)
+    {
+        long settleMS = PublishWatcher.DEFAULT_SETTLE_TIME;
+        int maxBatch = PublishWatcher.DEFAULT_MAX_BATCH;
+        try
+        {
+            if (System.getenv("FEI5_PUBLISH_SETTLE") != null)
+                settleMS = (long) (1000 * Double.parseDouble(
+                                   System.getenv("FEI5_PUBLISH_SETTLE")));
+            if (System.getenv("FEI5_PUBLISH_BATCH") != null)
+                maxBatch = Integer.parseInt(System.getenv("FEI5_PUBLISH_BATCH"));
+        }
+        catch (NumberFormatException e)
+        {
+            log("Invalid publish setting: " + e.getMessage());
+        }
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < fileTypes.length; i++)
+        {
+            final String type = fileTypes[i];
+            File stageDir = new File(groupDirName + '/' + type);
+            stageDir.mkdirs();
+
+            PublishWatcher watcher = new PublishWatcher(stageDir,
+                    new PublishWatcher.Publisher() {
+                        public Collection<File> publish(List<File> files)
+                        {
+                            return publishFiles(type, files);
+                        }
+
+                        public void log(String message)
+                        {
+                            ClientDaemon.log(type + ": " + message);
+                        }
+                    }, settleMS, maxBatch);
+            synchronized (watchers)
+            {
+                watchers.add(watcher);
+            }
+
+            log("Watching " + stageDir.getAbsolutePath());
+            Thread thread = new Thread(watcher, "FeiPublish_" + type);
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                log("Exception: " + e.toString());
+                break;
+            }
+        }
+    }
+
+    /**
+     *
+     * Publish a batch of staged files with a single replace request,
+     * deleting each file the server accepted.
+     *
+     * @param type
+     *            the file type to publish to
+     *
+     * @param files
+     *            the staged files
+     *
+     * @return the files that were published
+     */
+
+    private static Collection<File> publishFiles(String type, List<File> files)
+    {
+        List<File> published = new ArrayList<File>();
+        Client theClient = getClient(serverGroup, type);
+
+        if (theClient == null)
+            return published; // try again after settle time
+
+        HashMap<String, File> staged = new HashMap<String, File>();
+        String[] replFileNames = new String[files.size()];
+        for (int k = 0; k < replFileNames.length; k++)
+        {
+            File file = files.get(k);
+            replFileNames[k] = file.getAbsolutePath();
+            staged.put(file.getName(), file);
+            log(replFileNames[k]);
+        }
+
+        try
+        {
+            theClient.replace(replFileNames, null);
+            while (theClient.getTransactionCount() > 0)
+            {
+                // Get results from result queue
+                Result result = theClient.getResult(60000);
+                if (result == null)
+                { // we may have timed out--force new connection
+                    theClient.logout();
+                    removeClient(serverGroup, type);
+                    break;
+                }
+
+                log(result.getMessage());
+                File replFile = staged.remove(result.getName());
+                if (replFile != null && result.getErrno() == Constants.OK)
+                {
+                    replFile.delete();
+                    published.add(replFile);
+                }
+            }
+        }
+        catch (SessionException e)
+        {
+            log("Client replace error: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return published;
+    }
+
     /**
      *
      * Allow program to keep running by closing stdout and stderr.
@@ -211,7 +371,8 @@ public class ClientDaemon
      *         retrieved
      */
 
-    private static Client getClient(String serverGroup, String fileType)
+    private static synchronized Client getClient(String serverGroup,
+                                                 String fileType)
     {
         String clientKey;
         String domainFileName;
@@ -313,7 +474,8 @@ public class ClientDaemon
      *            the file type for this request
      */
 
-    private static void removeClient(String serverGroup, String fileType)
+    private static synchronized void removeClient(String serverGroup,
+                                                  String fileType)
     {
         File dirFile;
         String clientKey;
@@ -0,0 +1,460 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <b>Purpose:</b>
+ * Watches a staging directory and hands files to a publisher in batches
+ * once they are completely written.  The directory is registered with
+ * a <code>WatchService</code>, so that new files are seen as soon as
+ * they are created rather than at the next poll.  A file is ready once
+ * its size and modification time have not changed for the settle time,
+ * which keeps files still being written out of a batch.  Ready files
+ * are held until every staged file has settled, so that a burst of files
+ * is published together, but no longer than a further settle time.
+ * Batches are limited to the maximum batch size.
+ * <BR>
+ * Files the publisher does not report as published are retried after
+ * the settle time.  After each batch, the number of files, throughput
+ * and latency from last modification to publication are logged through
+ * the publisher.
+ */
+
+public class PublishWatcher implements Runnable
+{
+    /** Default time a file must be unchanged before publication, in ms */
+    public static final long DEFAULT_SETTLE_TIME = 1000;
+
+    /** Default maximum number of files published in one request */
+    public static final int DEFAULT_MAX_BATCH = 500;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Destination of staged files.
+     */
+
+    public interface Publisher
+    {
+        /**
+         * Publishes a batch of files.
+         * @param files Files ready for publication
+         * @return Files that were published, which are no longer watched
+         */
+        public Collection<File> publish(List<File> files);
+
+        /**
+         * Writes a message to the publication log.
+         * @param message Log message
+         */
+        public void log(String message);
+    }
+
+    //---------------------------------------------------------------------
+
+    /** Size and modification time of a staged file when last checked */
+    protected static class Candidate
+    {
+        final File file;
+        long size;
+        long modified;
+        long checked;
+        long ready = 0;
+
+        Candidate(File file, long now)
+        {
+            this.file = file;
+            this.size = file.length();
+            this.modified = file.lastModified();
+            this.checked = now;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    protected final File _dir;
+    protected final Publisher _publisher;
+    protected final long _settleTime;
+    protected final int _maxBatch;
+
+    protected final Map<String, Candidate> _pending =
+                                    new LinkedHashMap<String, Candidate>();
+
+    protected volatile WatchService _watcher = null;
+    protected volatile boolean _stopped = false;
+
+    //statistics, guarded by this
+    protected long _batches = 0;
+    protected long _published = 0;
+    protected long _bytes = 0;
+    protected long _publishTime = 0;
+    protected long _totalLatency = 0;
+    protected long _maxLatency = 0;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param dir Staging directory
+     * @param publisher Destination of ready files
+     * @param settleTime Milliseconds a file must be unchanged
+     * @param maxBatch Maximum number of files per batch
+     */
+
+    public PublishWatcher(File dir, Publisher publisher, long settleTime,
+                          int maxBatch)
+    {
+        this._dir = dir;
+        this._publisher = publisher;
+        this._settleTime = Math.max(0, settleTime);
+        this._maxBatch = Math.max(1, maxBatch);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Watches the directory until stopped.
+     */
+
+    public void run()
+    {
+        try {
+            watch();
+        } catch (IOException ioEx) {
+            this._publisher.log("Unable to watch " + this._dir + ": " +
+                                ioEx.getMessage());
+        } catch (InterruptedException iEx) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Watches the directory until stopped, publishing files as they
+     * become ready.  Files already staged are published first.
+     * @throws IOException if the directory cannot be watched
+     * @throws InterruptedException if interrupted while waiting
+     */
+
+    public void watch() throws IOException, InterruptedException
+    {
+        Path dirPath = this._dir.toPath();
+        this._watcher = FileSystems.getDefault().newWatchService();
+        try {
+            dirPath.register(this._watcher,
+                             StandardWatchEventKinds.ENTRY_CREATE,
+                             StandardWatchEventKinds.ENTRY_MODIFY);
+            if (this._stopped)
+                return;
+
+            //register before scanning so no file is missed
+            _scan(System.currentTimeMillis());
+
+            while (!this._stopped)
+            {
+                long wait = _publishReady(System.currentTimeMillis());
+
+                WatchKey key = (wait < 0) ? this._watcher.take() :
+                               this._watcher.poll(wait, TimeUnit.MILLISECONDS);
+                if (key == null)
+                    continue;
+
+                long now = System.currentTimeMillis();
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                        _scan(now);
+                    else
+                        _changed(dirPath.resolve(
+                                 (Path) event.context()).toFile(), now);
+                }
+                if (!key.reset())
+                {
+                    this._publisher.log("Staging directory " + this._dir +
+                                        " is no longer accessible");
+                    break;
+                }
+            }
+        } catch (ClosedWatchServiceException cwsEx) {
+            //stopped
+        } finally {
+            this._watcher.close();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Stops watching.  A batch being published is completed.
+     */
+
+    public void stop()
+    {
+        this._stopped = true;
+        WatchService watcher = this._watcher;
+        if (watcher != null)
+        {
+            try {
+                watcher.close();
+            } catch (IOException ioEx) {
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized long getPublishedCount()
+    {
+        return this._published;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized long getBatchCount()
+    {
+        return this._batches;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the mean time from last modification to publication.
+     * @return Mean latency in milliseconds
+     */
+
+    public synchronized long getMeanLatency()
+    {
+        return this._published == 0 ? 0 : this._totalLatency / this._published;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized long getMaxLatency()
+    {
+        return this._maxLatency;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized String toString()
+    {
+        return this._published + " files in " + this._batches + " batches, "
+               + _rate(this._published, this._bytes, this._publishTime)
+               + "; latency mean " + getMeanLatency() + " ms, max "
+               + this._maxLatency + " ms";
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Adds all files of the directory as candidates.
+     */
+
+    protected void _scan(long now)
+    {
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            _changed(files[i], now);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Records a change to a staged file, restarting its settle time.
+     */
+
+    protected void _changed(File file, long now)
+    {
+        if (!file.isFile())
+        {
+            this._pending.remove(file.getName());
+            return;
+        }
+
+        Candidate candidate = this._pending.get(file.getName());
+        if (candidate == null)
+            this._pending.put(file.getName(), new Candidate(file, now));
+        else
+        {
+            candidate.size = file.length();
+            candidate.modified = file.lastModified();
+            candidate.checked = now;
+            candidate.ready = 0;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Publishes files that have settled, in batches, once no other files
+     * are settling, a batch is full, or the oldest ready file has waited
+     * the settle time.
+     * @return Milliseconds until the next candidate may settle, or -1 if
+     *         there are none
+     */
+
+    protected long _publishReady(long now)
+    {
+        List<File> ready = new ArrayList<File>();
+        long oldestReady = now;
+        long wait = -1;
+
+        Iterator<Candidate> it = this._pending.values().iterator();
+        while (it.hasNext())
+        {
+            Candidate candidate = it.next();
+            long remaining = candidate.checked + this._settleTime - now;
+            if (remaining <= 0)
+            {
+                File file = candidate.file;
+                long size = file.length();
+                long modified = file.lastModified();
+                if (!file.isFile())
+                {
+                    it.remove();
+                    continue;
+                }
+                if (size == candidate.size && modified == candidate.modified)
+                {
+                    if (candidate.ready == 0)
+                        candidate.ready = now;
+                    oldestReady = Math.min(oldestReady, candidate.ready);
+                    ready.add(file);
+                    continue;
+                }
+
+                //changed without an event, such as an append in place
+                candidate.size = size;
+                candidate.modified = modified;
+                candidate.checked = now;
+                candidate.ready = 0;
+                remaining = this._settleTime;
+            }
+            if (wait < 0 || remaining < wait)
+                wait = remaining;
+        }
+
+        if (ready.isEmpty())
+            return wait;
+
+        long linger = oldestReady + this._settleTime - now;
+        if (wait >= 0 && ready.size() < this._maxBatch && linger > 0)
+            return Math.min(wait, linger);
+
+        for (int i = 0; i < ready.size(); i += this._maxBatch)
+            _publish(new ArrayList<File>(ready.subList(i,
+                     Math.min(ready.size(), i + this._maxBatch))));
+
+        //failed files are retried after the settle time
+        wait = -1;
+        now = System.currentTimeMillis();
+        for (Candidate candidate : this._pending.values())
+        {
+            long remaining = Math.max(1, candidate.checked +
+                                         this._settleTime - now);
+            if (wait < 0 || remaining < wait)
+                wait = remaining;
+        }
+        return wait;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Hands a batch to the publisher and records its statistics.  Files
+     * not published are retried after the settle time.
+     */
+
+    protected void _publish(List<File> batch)
+    {
+        long[] sizes = new long[batch.size()];
+        long[] modified = new long[batch.size()];
+        for (int i = 0; i < sizes.length; ++i)
+        {
+            File file = batch.get(i);
+            sizes[i] = file.length();
+            modified[i] = file.lastModified();
+        }
+
+        long start = System.currentTimeMillis();
+        Collection<File> published = this._publisher.publish(batch);
+        long end = System.currentTimeMillis();
+
+        int count = 0;
+        long bytes = 0;
+        long totalLatency = 0;
+        long maxLatency = 0;
+        for (int i = 0; i < sizes.length; ++i)
+        {
+            File file = batch.get(i);
+            if (published != null && published.contains(file))
+            {
+                this._pending.remove(file.getName());
+                long latency = Math.max(0, end - modified[i]);
+                ++count;
+                bytes += sizes[i];
+                totalLatency += latency;
+                maxLatency = Math.max(maxLatency, latency);
+            }
+            else
+            {
+                Candidate candidate = this._pending.get(file.getName());
+                if (candidate != null)
+                {
+                    candidate.checked = end;
+                    candidate.ready = 0;
+                }
+            }
+        }
+
+        String message;
+        synchronized (this)
+        {
+            ++this._batches;
+            this._published += count;
+            this._bytes += bytes;
+            this._publishTime += end - start;
+            this._totalLatency += totalLatency;
+            this._maxLatency = Math.max(this._maxLatency, maxLatency);
+
+            message = "Published " + count + " of " + sizes.length +
+                      " files, " + _rate(count, bytes, end - start) +
+                      "; latency mean " + (count == 0 ? 0 :
+                      totalLatency / count) + " ms, max " + maxLatency +
+                      " ms.  Total " + this.toString();
+        }
+        this._publisher.log(message);
+    }
+
+    //---------------------------------------------------------------------
+
+    private static String _rate(long files, long bytes, long millis)
+    {
+        millis = Math.max(1, millis);
+        return (files * 1000 / millis) + " files/s, " +
+               (bytes * 1000 / millis / 1024) + " KB/s";
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -34,6 +34,7 @@ import jpl.mipl.mdms.FileService.komodo.api.DomainFactory;
 import jpl.mipl.mdms.FileService.komodo.api.DomainFactoryIF;
 import jpl.mipl.mdms.FileService.komodo.api.FileType;
 import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.ResultStream;
 import jpl.mipl.mdms.FileService.komodo.api.SessionException;
 import jpl.mipl.mdms.FileService.komodo.client.handlers.FileEventHandlerManager;
 import jpl.mipl.mdms.FileService.komodo.client.handlers.FileEventHandlerSet;
@@ -62,6 +63,7 @@ import jpl.mipl.mdms.FileService.util.DateTimeUtil;
 import jpl.mipl.mdms.FileService.util.Errno;
 import jpl.mipl.mdms.FileService.util.ExpressionEvaluator;
 import jpl.mipl.mdms.FileService.util.FileUtil;
+import jpl.mipl.mdms.FileService.util.InvocationExecutor;
 import jpl.mipl.mdms.FileService.util.PasswordUtil;
 import jpl.mipl.mdms.FileService.util.PrintfFormat;
 import jpl.mipl.mdms.FileService.util.SystemProcess;
@@ -173,6 +175,12 @@ public class UtilClient
    // Mail flags
    private boolean _mailmessage = false;
    private boolean _mailreport = false;
+   
+   // Executor of asynchronous invocations, created on first use
+   private InvocationExecutor _invocationExecutor = null;
+   private String _invocationFileType = null;
+   private String _invocationOpName = null;
+   private boolean _invocationAborted = false;
     
    
 
@@ -363,6 +371,9 @@ public class UtilClient
 
          //-------------------------
 
+         //wait for asynchronous invocations
+         this._finishInvocations();
+         
          //logout successfully
          this._logout();
 
@@ -371,6 +382,7 @@ public class UtilClient
       } catch (Exception ex) {
          this._logger.error(ERROR_TAG + ex.getMessage());
          this._logger.debug(null, ex);
+         this._finishInvocations();
          try {
             this._logout();
          } catch (Exception le) {
@@ -2168,10 +2180,15 @@ public class UtilClient
 
          boolean shouldExit = false;
 
-         //handle resulting files
-         while (this._client.getTransactionCount() > 0) {
+         //handle resulting files, a batch at a time
+         LinkedList pending = new LinkedList();
+         while (!pending.isEmpty() ||
+                this._client.getTransactionCount() > 0) {
              
-            Result result = this._client.getResult();
+            if (pending.isEmpty())
+               this._client.drainResults(pending, 0);
+            Result result = pending.isEmpty() ? null :
+                            (Result) pending.removeFirst();
             if (result == null) {
                continue;
             } else if (result.getErrno() == Constants.NO_FILES_MATCH) {
@@ -3131,7 +3148,7 @@ public class UtilClient
                     this._logger.debug("Checking for query results...");
                     shouldSleep = shouldSleep && this._queryClient.isAlive();
                     if (shouldSleep)
-                        Thread.sleep(sleeptime);
+                        starScream.awaitResults(sleeptime);
                 }
             } catch (InterruptedException e) {
                break; // exit the infinite loop and return
@@ -3799,7 +3816,7 @@ public class UtilClient
                  shouldSleep = !starScream.isResultAvailable();
                  shouldSleep = shouldSleep && this._queryClient.isAlive();
                  if (shouldSleep)
-                     Thread.sleep(sleeptime);
+                     starScream.awaitResults(sleeptime);
              }
          } catch (InterruptedException e) {
              break; // exit the infinite loop and return
@@ -3940,69 +3957,189 @@ public class UtilClient
        this._logger.info(msg);
 
        //execute the command
-       Errno errno;
        if (invokeAsync)
-           errno = SystemProcess.executeAsync(cmdStr, this._logger);
-       else
-           errno = SystemProcess.execute(cmdStr, this._logger);
+           return _performAsyncInvocation(ftString, opName, cmdStr, 
+                                          exitOnError);
+       
+       Errno errno = SystemProcess.execute(cmdStr, this._logger);
 
        //check for error
        if (errno.getId() != Constants.OK) 
        {
-           
-           String errnoReport = "(errno = "+errno.getId();
-           if (errno.getMessage() != null)
-               errnoReport += "; errmsg = "+errno.getMessage();
-           errnoReport += ")";
-           
-           msg = "FEI5 Information on " +
-                     DateTimeUtil.getCurrentDateCCSDSAString() + 
-                     "\n";
-           msg += ERROR_TAG + "File type [" + ftString +
-                     "]: invoke process \"" + cmdStr +
-                     "\" failed. "+errnoReport+"\n";
-           
-           if (this._mailmessage)
-              this._emailMessageLogger.error(msg);
-           if (this._mailreport)
-           {
-               synchronized (this._reportmessage) {
-                   this._reportmessage.append(msg + "\n");
-               }
-           }
-           this._logger.error(msg);
+           _logInvocationFailure(ftString, cmdStr, errno);
         
            //----------------------
            
            //if exitOnErr set, write message and break loop
            if (exitOnError) 
            {
-              msg = "FEI5 Information on "
-                    + DateTimeUtil.getCurrentDateCCSDSAString()
-                    + "\n";
-              msg += ERROR_TAG + opName + " ["
-                    + ftString + "]: Aborted.\n";
-              if (this._mailmessage)
-                 this._emailMessageLogger.error(msg);
-              this._logger.error(msg);
-        
-              ++this._errorCount;
+              _logInvocationAbort(ftString, opName);
               canProceed = false;
            }
        }
        else
        {
-           msg =  "FEI5 Information on " + 
-                              DateTimeUtil.getCurrentDateCCSDSAString() + "\n";
-           msg += "Message from filetype [" + ftString +
-                              "]: invoke process \"" + cmdStr +
-                              "\" (errno = "+errno.getId()+"): " + 
-                              errno.getMessage()+"\n";
-           this._logger.debug(msg);
+           _logInvocationSuccess(ftString, cmdStr, errno);
        }
        
        return canProceed;
    }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Submits the invocation to the asynchronous invocation executor,
+    * creating it on first use.  Blocks while the executor queue is full.
+    * Failures are reported as invocations complete.  If exitOnError is 
+    * set, a failure halts the executor, and processing is aborted at the 
+    * next file.
+    * @param ftString Full file type name
+    * @param opName Operation name for messages
+    * @param cmdStr Invocation command
+    * @param exitOnError Flag indicating that processing should be
+    *        aborted after a failed invocation
+    * @return False if an invocation failed and exitOnError was set,
+    *         true otherwise.
+    */
+   
+   private boolean _performAsyncInvocation(String ftString, String opName,
+                                           String cmdStr, 
+                                           boolean exitOnError)
+   {
+       if (this._invocationExecutor == null)
+       {
+           this._invocationExecutor = InvocationExecutor.createDefault(
+                                                           this._logger);
+           this._invocationExecutor.setListener(
+                           new InvocationExecutor.InvocationListener() {
+               public void invocationCompleted(
+                             InvocationExecutor.Invocation invocation)
+               {
+                   if (invocation.isSkipped())
+                       _logger.warn(ERROR_TAG + "File type [" 
+                                    + invocation.getKey() 
+                                    + "]: invoke process \"" 
+                                    + invocation.getCommand() 
+                                    + "\" skipped after earlier failure.");
+                   else if (invocation.getErrno().getId() != Constants.OK)
+                       _logInvocationFailure(invocation.getKey(),
+                                             invocation.getCommand(),
+                                             invocation.getErrno());
+                   else
+                       _logInvocationSuccess(invocation.getKey(),
+                                             invocation.getCommand(),
+                                             invocation.getErrno());
+               }
+           });
+       }
+       
+       this._invocationExecutor.setHaltOnError(exitOnError);
+       this._invocationFileType = ftString;
+       this._invocationOpName = opName;
+       boolean submitted = this._invocationExecutor.submit(ftString, cmdStr);
+       
+       if (exitOnError && (!submitted || 
+                           this._invocationExecutor.isHalted()))
+       {
+           _logInvocationAbort(ftString, opName);
+           this._invocationAborted = true;
+           return false;
+       }
+       return true;
+   }
+   
+   //---------------------------------------------------------------------
+   
+   /**
+    * Waits for outstanding asynchronous invocations to complete, then 
+    * logs the invocation statistics.  The wait is bounded by property
+    * <code>mdms.invoke.async.timeout</code>, after which outstanding
+    * invocations are cancelled.  If exitOnError is set, a failure 
+    * cancels them at once.
+    */
+   
+   private void _finishInvocations()
+   {
+       if (this._invocationExecutor == null)
+           return;
+       
+       long timeout = InvocationExecutor.getFinishTimeout();
+       if (!this._invocationExecutor.finish(timeout) && 
+           !this._invocationExecutor.isHalted())
+       {
+           this._logger.error(ERROR_TAG + "Asynchronous invocations did " +
+                              "not complete within " + timeout + 
+                              " ms and were cancelled.");
+           ++this._errorCount;
+       }
+       
+       //a failure of the last invocations halted the executor
+       if (this._invocationExecutor.isHalted() && !this._invocationAborted)
+           _logInvocationAbort(this._invocationFileType, 
+                               this._invocationOpName);
+       
+       this._logger.debug(this._invocationExecutor.getStatistics());
+       this._invocationExecutor = null;
+       this._invocationAborted = false;
+   }
+   
+   //---------------------------------------------------------------------
+   
+   private void _logInvocationFailure(String ftString, String cmdStr,
+                                      Errno errno)
+   {
+       String errnoReport = "(errno = "+errno.getId();
+       if (errno.getMessage() != null)
+           errnoReport += "; errmsg = "+errno.getMessage();
+       errnoReport += ")";
+       
+       String msg = "FEI5 Information on " +
+                    DateTimeUtil.getCurrentDateCCSDSAString() + 
+                    "\n";
+       msg += ERROR_TAG + "File type [" + ftString +
+                 "]: invoke process \"" + cmdStr +
+                 "\" failed. "+errnoReport+"\n";
+       
+       if (this._mailmessage)
+          this._emailMessageLogger.error(msg);
+       if (this._mailreport)
+       {
+           synchronized (this._reportmessage) {
+               this._reportmessage.append(msg + "\n");
+           }
+       }
+       this._logger.error(msg);
+   }
+   
+   //---------------------------------------------------------------------
+   
+   private void _logInvocationAbort(String ftString, String opName)
+   {
+       String msg = "FEI5 Information on "
+                    + DateTimeUtil.getCurrentDateCCSDSAString()
+                    + "\n";
+       msg += ERROR_TAG + opName + " ["
+             + ftString + "]: Aborted.\n";
+       if (this._mailmessage)
+          this._emailMessageLogger.error(msg);
+       this._logger.error(msg);
+ 
+       ++this._errorCount;
+   }
+   
+   //---------------------------------------------------------------------
+   
+   private void _logInvocationSuccess(String ftString, String cmdStr,
+                                      Errno errno)
+   {
+       String msg =  "FEI5 Information on " + 
+                          DateTimeUtil.getCurrentDateCCSDSAString() + "\n";
+       msg += "Message from filetype [" + ftString +
+                          "]: invoke process \"" + cmdStr +
+                          "\" (errno = "+errno.getId()+"): " + 
+                          errno.getMessage()+"\n";
+       this._logger.debug(msg);
+   }
 
    //---------------------------------------------------------------------
    
@@ -4238,53 +4375,59 @@ public class UtilClient
       
       this._dateFormatter = new DateTimeFormatter(format);
 
-      int transId;
+      ResultStream stream = null;
 
       try {
          if (before != null) {
-            transId = this._client.showBefore(
+            stream = this._client.showBeforeStream(
                             this._dateFormatter.parseDate(before), 
                             files[0]);
          } else if (after != null) {
-            transId = this._client.showAfter(
+            stream = this._client.showAfterStream(
                             this._dateFormatter.parseDate(after),
                             files[0]);
          } else if (between != null && and != null) {
-            transId = this._client.showBetween(
+            stream = this._client.showBetweenStream(
                             this._dateFormatter.parseDate(between), 
                             this._dateFormatter.parseDate(and),
                             files[0]);
          } else if (before == null && after == null && between == null
                && and == null) {
-            transId = this._client.show(files[0]);
+            stream = this._client.showStream(files[0]);
          }
       } catch (ParseException e) {
          throw new SessionException(e.getMessage(), -1);
       }
+      
+      if (stream == null)
+         return true;
 
+      //print each result as it is read from the server, closing the
+      //stream on failure so that the proxy is not left blocked on it
       int count = 0;
-      while (this._client.getTransactionCount() > 0) {
-         Result r = this._client.getResult();
-         if (r == null) {
-            continue;
-         }
+      try {
+         while (stream.hasNext()) {
+            Result r = stream.next();
 
-         if (r.getErrno() == Constants.NO_FILES_MATCH) {
-            this._logger.info(r.getMessage());
-            continue;
-         } else if (r.getErrno() == Constants.OK) {
-            count++;
-            _listResult(r, longList, verylongList, count);   
-            this._triggerFileResultEvent(Constants.SHOWFILES, r);            
-         } else {
-             this._logger.error(ERROR_TAG + r.getMessage());           
-            ++this._errorCount;
-            
-            //invoke error handlers
-            this._triggerFileResultError(Constants.SHOWFILES, r);
-            
-            continue;
+            if (r.getErrno() == Constants.NO_FILES_MATCH) {
+               this._logger.info(r.getMessage());
+               continue;
+            } else if (r.getErrno() == Constants.OK) {
+               count++;
+               _listResult(r, longList, verylongList, count);   
+               this._triggerFileResultEvent(Constants.SHOWFILES, r);            
+            } else {
+                this._logger.error(ERROR_TAG + r.getMessage());           
+               ++this._errorCount;
+               
+               //invoke error handlers
+               this._triggerFileResultError(Constants.SHOWFILES, r);
+               
+               continue;
+            }
          }
+      } finally {
+         stream.close();
       }
       return true;
    }
@@ -4524,7 +4667,7 @@ public class UtilClient
                     this._logger.debug("Checking for query results...");
                     shouldSleep = shouldSleep && this._queryClient.isAlive();
                     if (shouldSleep)
-                        Thread.sleep(sleeptime);
+                        starScream.awaitResults(sleeptime);
                 }
             } catch (InterruptedException e) {
                e.printStackTrace();            	
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.client.handlers;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import jpl.mipl.mdms.utils.logging.Logger;
+
+/**
+ * Wraps a file event handler so that events and errors are queued and
+ * passed to the handler by its own worker threads, rather than on the
+ * thread that received the file.  The queue is bounded; when full, the
+ * overflow policy from the handler metadata either blocks the
+ * dispatching thread, drops the event, or spills it to the dispatching
+ * thread.  Spilling is only applied to unordered handlers, as it would
+ * otherwise reorder events; ordered handlers block instead.  Failures
+ * of the handler are logged and counted, but are not passed back to the
+ * dispatching thread.
+ */
+
+public class AsyncFileEventHandler implements FileEventHandler
+{
+    /** Queue entry telling a worker to exit */
+    private static final Object STOP = new Object();
+
+    protected final FileEventHandler _handler;
+    protected final BlockingQueue _queue;
+    protected final String _overflowPolicy;
+    protected final FileEventHandlerMetrics _metrics;
+    protected final Thread[] _workers;
+
+    protected volatile boolean _closed = false;
+
+    private Logger _logger = Logger.getLogger(
+                                     AsyncFileEventHandler.class.getName());
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor.  Starts the worker threads.
+     * @param handler Initialized handler to which events are passed
+     * @param info Handler metadata defining queue capacity, overflow
+     *        policy, ordering and worker count
+     */
+
+    public AsyncFileEventHandler(FileEventHandler handler,
+                                 FileEventHandlerInfo info)
+    {
+        this._handler = handler;
+        this._metrics = new FileEventHandlerMetrics(handler.getId());
+        this._queue   = new LinkedBlockingQueue(
+                                     Math.max(1, info.getQueueCapacity()));
+
+        String policy = info.getOverflowPolicy();
+        if (FileEventHandlerInfo.OVERFLOW_SPILL.equalsIgnoreCase(policy) &&
+            info.isOrdered())
+            policy = FileEventHandlerInfo.OVERFLOW_BLOCK;
+        this._overflowPolicy = policy;
+
+        this._workers = new Thread[Math.max(1, info.getWorkers())];
+        for (int i = 0; i < this._workers.length; ++i)
+        {
+            this._workers[i] = new Thread(new Runnable() {
+                public void run() {
+                    _work();
+                }
+            }, "FileEventHandler_" + handler.getId() + "_" + i);
+            this._workers[i].setDaemon(true);
+            this._workers[i].start();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the wrapped handler.
+     * @return Handler
+     */
+
+    public FileEventHandler getHandler()
+    {
+        return this._handler;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the processing statistics of the wrapped handler.
+     * @return Handler metrics
+     */
+
+    public FileEventHandlerMetrics getMetrics()
+    {
+        return this._metrics;
+    }
+
+    //---------------------------------------------------------------------
+
+    public String getName()
+    {
+        return this._handler.getName();
+    }
+
+    //---------------------------------------------------------------------
+
+    public String getDescription()
+    {
+        return this._handler.getDescription();
+    }
+
+    //---------------------------------------------------------------------
+
+    public String getVersion()
+    {
+        return this._handler.getVersion();
+    }
+
+    //---------------------------------------------------------------------
+
+    public String getId()
+    {
+        return this._handler.getId();
+    }
+
+    //---------------------------------------------------------------------
+
+    public String getProperty(String propertyName)
+    {
+        return this._handler.getProperty(propertyName);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Queues the event for the handler.
+     * @param fileEvent Instance of FileResultEvent
+     */
+
+    public void eventOccurred(FileResultEvent fileEvent)
+                                                    throws HandlerException
+    {
+        _dispatch(fileEvent);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Queues the error for the handler.
+     * @param fileError Instance of FileResultError
+     */
+
+    public void errorOccurred(FileResultError fileError)
+                                                    throws HandlerException
+    {
+        _dispatch(fileError);
+    }
+
+    //---------------------------------------------------------------------
+
+    public void initialize(FileEventsContext context,
+                           FileEventHandlerInfo info) throws HandlerException
+    {
+        this._handler.initialize(context, info);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Stops accepting events, waits for queued events to be handled,
+     * then closes the wrapped handler.
+     */
+
+    public void close()
+    {
+        if (this._closed)
+            return;
+        this._closed = true;
+
+        try {
+            for (int i = 0; i < this._workers.length; ++i)
+                this._queue.put(STOP);
+            for (int i = 0; i < this._workers.length; ++i)
+                this._workers[i].join();
+        } catch (InterruptedException iEx) {
+            Thread.currentThread().interrupt();
+        }
+
+        this._logger.debug(this._metrics.toString());
+        this._handler.close();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Implementation of Comparable interface, uses natural ordering
+     * of the handler ids.
+     */
+
+    public int compareTo(Object o)
+    {
+        if (!(o instanceof FileEventHandler))
+            return 0;
+
+        return this.getId().compareTo(((FileEventHandler) o).getId());
+    }
+
+    //---------------------------------------------------------------------
+
+    public String toString()
+    {
+        return this.getClass().getName() + "::" + this._handler.toString();
+    }
+
+    //---------------------------------------------------------------------
+
+    protected void _dispatch(Object item)
+    {
+        if (this._closed)
+        {
+            this._metrics.recordDropped();
+            this._logger.warn("Handler '" + getId() + "' is closed, " +
+                              "event discarded.");
+            return;
+        }
+
+        if (FileEventHandlerInfo.OVERFLOW_DROP.equalsIgnoreCase(
+                                                     this._overflowPolicy))
+        {
+            if (!this._queue.offer(item))
+            {
+                this._metrics.recordDropped();
+                this._logger.warn("Handler '" + getId() + "' queue full, " +
+                                  "event discarded.");
+            }
+        }
+        else if (FileEventHandlerInfo.OVERFLOW_SPILL.equalsIgnoreCase(
+                                                     this._overflowPolicy))
+        {
+            if (!this._queue.offer(item))
+            {
+                this._metrics.recordSpilled();
+                _process(item);
+            }
+        }
+        else
+        {
+            try {
+                this._queue.put(item);
+            } catch (InterruptedException iEx) {
+                Thread.currentThread().interrupt();
+                this._metrics.recordDropped();
+                this._logger.warn("Interrupted while queueing event for " +
+                                  "handler '" + getId() + "'.");
+            }
+        }
+
+        this._metrics.recordQueueDepth(this._queue.size());
+    }
+
+    //---------------------------------------------------------------------
+
+    protected void _process(Object item)
+    {
+        long start = System.currentTimeMillis();
+        try {
+            if (item instanceof FileResultEvent)
+                this._handler.eventOccurred((FileResultEvent) item);
+            else
+                this._handler.errorOccurred((FileResultError) item);
+        } catch (HandlerException hEx) {
+            _failed(hEx);
+        } catch (RuntimeException rEx) {
+            _failed(rEx);
+        } finally {
+            this._metrics.recordProcessed(System.currentTimeMillis() - start);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    protected void _failed(Exception ex)
+    {
+        String msg = "Handler '" + getId() + "' threw exception: " +
+                     ex.getMessage();
+        this._metrics.recordError(msg);
+        this._logger.error(msg);
+        this._logger.debug(null, ex);
+    }
+
+    //---------------------------------------------------------------------
+
+    protected void _work()
+    {
+        while (true)
+        {
+            Object item;
+            try {
+                item = this._queue.take();
+            } catch (InterruptedException iEx) {
+                return;
+            }
+            this._metrics.recordQueueDepth(this._queue.size());
+            if (item == STOP)
+                return;
+            _process(item);
+        }
+    }
+
+    //---------------------------------------------------------------------
+}
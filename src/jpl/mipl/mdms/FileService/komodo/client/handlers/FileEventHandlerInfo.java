@@ -29,6 +29,23 @@ import java.util.Properties;
 
 public class FileEventHandlerInfo
 {
+    /** Dispatch mode calling the handler on the dispatching thread */
+    public static final String DISPATCH_SYNC  = "sync";
+    
+    /** Dispatch mode queueing events for a handler worker thread */
+    public static final String DISPATCH_ASYNC = "async";
+    
+    /** Overflow policy blocking the dispatching thread */
+    public static final String OVERFLOW_BLOCK = "block";
+    
+    /** Overflow policy discarding the event */
+    public static final String OVERFLOW_DROP  = "drop";
+    
+    /** Overflow policy handling the event on the dispatching thread */
+    public static final String OVERFLOW_SPILL = "spill";
+    
+    /** Default capacity of an asynchronous handler queue */
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
     
     protected String name;
     protected String id;
@@ -37,6 +54,11 @@ public class FileEventHandlerInfo
     protected String description;
     protected String implName;
     protected Properties properties;
+    protected String dispatchMode   = DISPATCH_SYNC;
+    protected int    queueCapacity  = DEFAULT_QUEUE_CAPACITY;
+    protected String overflowPolicy = OVERFLOW_BLOCK;
+    protected boolean ordered       = true;
+    protected int    workers        = 1;
     
     public FileEventHandlerInfo()
     {
@@ -117,5 +139,77 @@ public class FileEventHandlerInfo
     {
         this.org = org;
     }    
+    
+    public String getDispatchMode()
+    {
+        return dispatchMode;
+    }
+    
+    /**
+     * Sets the dispatch mode, one of DISPATCH_{SYNC,ASYNC}.
+     * @param mode Dispatch mode
+     */
+    
+    public void setDispatchMode(String mode)
+    {
+        this.dispatchMode = mode;
+    }
+    
+    public boolean isAsync()
+    {
+        return DISPATCH_ASYNC.equalsIgnoreCase(dispatchMode);
+    }
+    
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+    
+    public void setQueueCapacity(int capacity)
+    {
+        this.queueCapacity = capacity;
+    }
+    
+    public String getOverflowPolicy()
+    {
+        return overflowPolicy;
+    }
+    
+    /**
+     * Sets the policy applied when an asynchronous handler queue is 
+     * full, one of OVERFLOW_{BLOCK,DROP,SPILL}.
+     * @param policy Overflow policy
+     */
+    
+    public void setOverflowPolicy(String policy)
+    {
+        this.overflowPolicy = policy;
+    }
+    
+    public boolean isOrdered()
+    {
+        return ordered;
+    }
+    
+    /**
+     * Sets whether an asynchronous handler receives events in the order
+     * they were dispatched.  If so, a single worker is used.
+     * @param ordered Ordering flag
+     */
+    
+    public void setOrdered(boolean ordered)
+    {
+        this.ordered = ordered;
+    }
+    
+    public int getWorkers()
+    {
+        return ordered ? 1 : workers;
+    }
+    
+    public void setWorkers(int workers)
+    {
+        this.workers = workers;
+    }
         
 }
@@ -81,6 +81,24 @@ public class FileEventHandlerInfoLoader
                 /** Name of the attribute defining a handler property value */
                 public static final String ATTR_VALUE = "value";
     
+        /** Name of the element defining handler dispatch */
+        public static final String ELEMENT_DISPATCH = "dispatch";
+        
+            /** Name of the attribute defining dispatch mode */
+            public static final String ATTR_MODE = "mode";
+            
+            /** Name of the attribute defining queue capacity */
+            public static final String ATTR_QUEUE = "queue";
+            
+            /** Name of the attribute defining overflow policy */
+            public static final String ATTR_OVERFLOW = "overflow";
+            
+            /** Name of the attribute defining event ordering */
+            public static final String ATTR_ORDERED = "ordered";
+            
+            /** Name of the attribute defining worker count */
+            public static final String ATTR_WORKERS = "workers";
+    
     
     public FileEventHandlerInfoLoader(URL descriptorUrl)
     {   
@@ -181,6 +199,36 @@ public class FileEventHandlerInfoLoader
             {
                 parseProperties(child);
             }
+            else if (compareElementName(child, FEI_NAMESPACE, ELEMENT_DISPATCH))
+            {
+                parseDispatch(child);
+            }
+        }
+    }
+    
+    protected void parseDispatch(Element node)
+    {
+        String mode = node.getAttribute(ATTR_MODE);
+        if (mode.length() > 0)
+            info.setDispatchMode(mode.trim());
+        
+        String overflow = node.getAttribute(ATTR_OVERFLOW);
+        if (overflow.length() > 0)
+            info.setOverflowPolicy(overflow.trim());
+        
+        String ordered = node.getAttribute(ATTR_ORDERED);
+        if (ordered.length() > 0)
+            info.setOrdered(Boolean.valueOf(ordered.trim()).booleanValue());
+        
+        try {
+            String queue = node.getAttribute(ATTR_QUEUE);
+            if (queue.length() > 0)
+                info.setQueueCapacity(Integer.parseInt(queue.trim()));
+            String workers = node.getAttribute(ATTR_WORKERS);
+            if (workers.length() > 0)
+                info.setWorkers(Integer.parseInt(workers.trim()));
+        } catch (NumberFormatException nfEx) {
+            //keep defaults
         }
     }
     
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.client.handlers;
+
+/**
+ * Processing statistics of a single file event handler: events
+ * processed, processing time, failures and, for asynchronously
+ * dispatched handlers, queue depth and events dropped or spilled
+ * on overflow.
+ */
+
+public class FileEventHandlerMetrics
+{
+    protected final String _id;
+
+    protected long _processed = 0;
+    protected long _errors    = 0;
+    protected long _dropped   = 0;
+    protected long _spilled   = 0;
+    protected long _totalTime = 0;
+    protected long _maxTime   = 0;
+    protected int  _queueDepth    = 0;
+    protected int  _maxQueueDepth = 0;
+    protected String _lastError = null;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param id Id of the handler
+     */
+
+    public FileEventHandlerMetrics(String id)
+    {
+        this._id = id;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Records an event or error processed by the handler.
+     * @param time Processing time in milliseconds
+     */
+
+    public synchronized void recordProcessed(long time)
+    {
+        ++this._processed;
+        this._totalTime += time;
+        if (time > this._maxTime)
+            this._maxTime = time;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Records a failure of the handler.
+     * @param message Failure message
+     */
+
+    public synchronized void recordError(String message)
+    {
+        ++this._errors;
+        this._lastError = message;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Records an event dropped because the handler queue was full.
+     */
+
+    public synchronized void recordDropped()
+    {
+        ++this._dropped;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Records an event processed by the dispatching thread because
+     * the handler queue was full.
+     */
+
+    public synchronized void recordSpilled()
+    {
+        ++this._spilled;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Records the current depth of the handler queue.
+     * @param depth Number of queued events
+     */
+
+    public synchronized void recordQueueDepth(int depth)
+    {
+        this._queueDepth = depth;
+        if (depth > this._maxQueueDepth)
+            this._maxQueueDepth = depth;
+    }
+
+    //---------------------------------------------------------------------
+
+    public String getId()
+    {
+        return this._id;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized long getProcessedCount()
+    {
+        return this._processed;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized long getErrorCount()
+    {
+        return this._errors;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the message of the most recent failure.
+     * @return Failure message, null if none occurred
+     */
+
+    public synchronized String getLastError()
+    {
+        return this._lastError;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized long getDroppedCount()
+    {
+        return this._dropped;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized long getSpilledCount()
+    {
+        return this._spilled;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the mean processing time per event.
+     * @return Mean time in milliseconds
+     */
+
+    public synchronized long getMeanProcessingTime()
+    {
+        return this._processed == 0 ? 0 : this._totalTime / this._processed;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the longest processing time of an event.
+     * @return Maximum time in milliseconds
+     */
+
+    public synchronized long getMaxProcessingTime()
+    {
+        return this._maxTime;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized int getQueueDepth()
+    {
+        return this._queueDepth;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized int getMaxQueueDepth()
+    {
+        return this._maxQueueDepth;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized String toString()
+    {
+        return "Handler '" + this._id + "': " + this._processed
+               + " processed, " + this._errors + " failed, "
+               + this._dropped + " dropped, " + this._spilled
+               + " spilled; time mean " + getMeanProcessingTime()
+               + " ms, max " + this._maxTime + " ms; queue depth "
+               + this._queueDepth + ", max " + this._maxQueueDepth;
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -113,6 +113,9 @@ public class FileEventHandlerRegistry implements FileEventHandlerRegistryIF
             
             if (handler != null)
             {
+                //queue events for handlers requesting async dispatch
+                if (metadata.isAsync())
+                    handler = new AsyncFileEventHandler(handler, metadata);
                 set.addHandler(handler);      
             }
             else
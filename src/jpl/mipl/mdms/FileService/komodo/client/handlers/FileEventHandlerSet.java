@@ -1,7 +1,9 @@
 package jpl.mipl.mdms.FileService.komodo.client.handlers;
 
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import jpl.mipl.mdms.FileService.komodo.api.Result;
@@ -9,7 +11,9 @@ import jpl.mipl.mdms.FileService.komodo.api.Result;
 /**
  * A collection of FileEventHandlers that forwards instances
  * of FileResultEvent and FileResultError events to all
- * members of the set.
+ * members of the set.  Handlers wrapped by AsyncFileEventHandler
+ * return once the event is queued.  Processing statistics are kept
+ * for each handler.
  * 
  *   <PRE>
  *   Copyright 2008, California Institute of Technology.
@@ -37,6 +41,7 @@ public class FileEventHandlerSet
 {
     final Object _lock = new Object();
     Set<FileEventHandler> handlers;
+    Map<String, FileEventHandlerMetrics> metrics;
     
     Object error;
     
@@ -49,6 +54,7 @@ public class FileEventHandlerSet
     public FileEventHandlerSet()
     {
         this.handlers = new TreeSet<FileEventHandler>();
+        this.metrics  = new TreeMap<String, FileEventHandlerMetrics>();
         this.error    = null;
     }
     
@@ -64,7 +70,16 @@ public class FileEventHandlerSet
     {
         synchronized(_lock)
         {
-            return this.handlers.add(handler);
+            if (!this.handlers.add(handler))
+                return false;
+            
+            FileEventHandlerMetrics m;
+            if (handler instanceof AsyncFileEventHandler)
+                m = ((AsyncFileEventHandler) handler).getMetrics();
+            else
+                m = new FileEventHandlerMetrics(handler.getId());
+            this.metrics.put(handler.getId(), m);
+            return true;
         }
     }
     
@@ -84,12 +99,16 @@ public class FileEventHandlerSet
             while (it.hasNext())
             {
                FileEventHandler handler = it.next();
+               long start = System.currentTimeMillis();
                 
                 try {
                     handler.eventOccurred(fileEvent);
                 } catch (HandlerException hEx) {
+                    _recordError(handler, hEx);
                     throw new HandlerException("Handler '" + handler.getId() +
                                   " threw exception: "+hEx.getMessage(), hEx);
+                } finally {
+                    _recordProcessed(handler, start);
                 }
             }
         }        
@@ -111,12 +130,16 @@ public class FileEventHandlerSet
             while (it.hasNext())
             {
                 FileEventHandler handler = it.next();
+                long start = System.currentTimeMillis();
                 
                 try {
                     handler.errorOccurred(fileError);
                 } catch (HandlerException hEx) {
+                    _recordError(handler, hEx);
                     throw new HandlerException("Handler '" + handler.getId() +
                                   " threw exception: "+hEx.getMessage(), hEx);
+                } finally {
+                    _recordProcessed(handler, start);
                 }
             }
         }        
@@ -124,6 +147,64 @@ public class FileEventHandlerSet
     
     //---------------------------------------------------------------------
     
+    /**
+     * Records the dispatch time of a synchronous handler.  Asynchronous 
+     * handlers record their own processing time.
+     */
+    
+    protected void _recordProcessed(FileEventHandler handler, long start)
+    {
+        if (handler instanceof AsyncFileEventHandler)
+            return;
+        FileEventHandlerMetrics m = this.metrics.get(handler.getId());
+        if (m != null)
+            m.recordProcessed(System.currentTimeMillis() - start);
+    }
+    
+    //---------------------------------------------------------------------
+    
+    protected void _recordError(FileEventHandler handler, Exception ex)
+    {
+        FileEventHandlerMetrics m = this.metrics.get(handler.getId());
+        if (m != null)
+            m.recordError(ex.getMessage());
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Returns the processing statistics of a handler in this set.
+     * @param id Handler id
+     * @return Handler metrics, null if no handler has that id
+     */
+    
+    public FileEventHandlerMetrics getMetrics(String id)
+    {
+        synchronized(_lock)
+        {
+            return this.metrics.get(id);
+        }
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Returns the processing statistics of all handlers in this set,
+     * ordered by handler id.
+     * @return Array of handler metrics
+     */
+    
+    public FileEventHandlerMetrics[] getMetrics()
+    {
+        synchronized(_lock)
+        {
+            return this.metrics.values().toArray(
+                        new FileEventHandlerMetrics[this.metrics.size()]);
+        }
+    }
+    
+    //---------------------------------------------------------------------
+    
     
     /**
      * Iterates over handlers and invokes the <code>destroy()</code>
@@ -52,6 +52,27 @@ public class QConstants
     /** If set, client query client will bundle results by filetype */
     public static final String PROP_BUNDLE_RESULTS = "komodo.query.bundle.results";
     
+    /** Milliseconds between result polls while query results arrive */
+    public static final String PROP_POLL_MIN_PERIOD = "komodo.query.poll.min.period";
+    
+    /** Longest milliseconds between result polls of an idle query */
+    public static final String PROP_POLL_MAX_PERIOD = "komodo.query.poll.max.period";
+    
+    /** Default minimum poll period */
+    public static final long DEFAULT_POLL_MIN_PERIOD = 500L;
+    
+    /** Default maximum poll period, the fixed period of earlier clients */
+    public static final long DEFAULT_POLL_MAX_PERIOD = 10000L;
+    
+    /** Maximum number of query results the client holds in memory */
+    public static final String PROP_COLLECTOR_MAX_RESULTS = "komodo.query.collector.max.results";
+    
+    /** Directory to which query results beyond the maximum are written */
+    public static final String PROP_COLLECTOR_SPILL_DIR = "komodo.query.collector.spill.dir";
+    
+    /** Default maximum number of query results held in memory */
+    public static final int DEFAULT_COLLECTOR_MAX_RESULTS = 10000;
+    
     //---------------------------------------------------------------------
     //Server-side properties
     
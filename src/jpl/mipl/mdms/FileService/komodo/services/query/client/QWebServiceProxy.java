@@ -15,6 +15,7 @@ import jpl.mipl.mdms.FileService.komodo.services.query.api.QRequest;
 import jpl.mipl.mdms.FileService.komodo.services.query.api.QResult;
 import jpl.mipl.mdms.FileService.komodo.services.query.api.QueryConstraints;
 import jpl.mipl.mdms.FileService.komodo.services.query.api.QueryList;
+import jpl.mipl.mdms.FileService.komodo.services.query.client.QueryResultPoller.ProcessResultsReturnCode;
 import jpl.mipl.mdms.FileService.komodo.services.query.server.QueryFault;
 import jpl.mipl.mdms.FileService.komodo.services.query.server.QueryFault_Exception;
 import jpl.mipl.mdms.FileService.komodo.services.query.server.QueryService;
@@ -53,11 +54,6 @@ import jpl.mipl.mdms.utils.logging.Logger;
 public class QWebServiceProxy implements Runnable, QServiceProxy 
 {    
    
-    enum ProcessResultsReturnCode
-    {
-        NO_MORE_RESULTS, GET_MORE_RESULTS, DONE, ERROR
-    };
-
     // flag for server proxy lifecycle
     private boolean _alive = true;
 
@@ -111,7 +107,12 @@ public class QWebServiceProxy implements Runnable, QServiceProxy
     // they will all be assigned this value
     protected final int INTERNAL_TRANSACTION_ID = -1;
 
-    protected long _queryPeriod = 10000; // 30 seconds
+    // bounds of the adaptive period between result polls
+    protected long _minQueryPeriod = QConstants.DEFAULT_POLL_MIN_PERIOD;
+    protected long _maxQueryPeriod = QConstants.DEFAULT_POLL_MAX_PERIOD;
+    
+    // poller of the running query, null when no query is running
+    protected volatile QueryResultPoller _poller = null;
    
    //----------------------------------------------------------------------
    
@@ -177,6 +178,15 @@ public class QWebServiceProxy implements Runnable, QServiceProxy
 
             this._filetypes = ftList.toArray(new String[0]);
 
+            // -----------------------
+
+            this._minQueryPeriod = this._getPeriodProperty(
+                                       QConstants.PROP_POLL_MIN_PERIOD,
+                                       QConstants.DEFAULT_POLL_MIN_PERIOD);
+            this._maxQueryPeriod = this._getPeriodProperty(
+                                       QConstants.PROP_POLL_MAX_PERIOD,
+                                       QConstants.DEFAULT_POLL_MAX_PERIOD);
+
             // notify query client of the filetypes
             this._client.setAccessibleFiletypes(this._filetypes);
 
@@ -718,62 +728,77 @@ public class QWebServiceProxy implements Runnable, QServiceProxy
    //----------------------------------------------------------------------
    
    
+   /**
+    * Reads results of the current query until it is done, polling the
+    * service at a period adapted to the activity of the query.
+    * @throws SessionException if the service fails
+    */
+   
    protected void _readResults() throws SessionException
    {
-       boolean stayAlive = this._currentCmd.isSubscribe();
-       boolean cont = false;
+       QueryResultPoller poller = new QueryResultPoller(
+               new QueryResultPoller.ResultSource() {
+                   public List<String> getResults()
+                                                   throws SessionException {
+                       return _getResults();
+                   }
+               },
+               new QueryResultPoller.ResultProcessor() {
+                   public ProcessResultsReturnCode processResults(
+                                                   List<String> results) {
+                       return QWebServiceProxy.this.processResults(results);
+                   }
+               },
+               this._minQueryPeriod, this._maxQueryPeriod);
        
-       //enter read loop
-       do   //stayAlive used for subscriptions 
-       {
-           cont = false;
-           do {
-               
-               List<String> results = null;
-               try {
-                   results = this._service.getResults(this._sessionId, 
-                                                this._querySessionId);
-               } catch (QueryFault_Exception qfEx) {
-            	   qfEx.printStackTrace();
-                   throw new SessionException(qfEx.getMessage(), 
-                                              Constants.EXCEPTION);
-               }
-               
-               if (results == null || results.isEmpty())
-                   ;//
-               
-               //process the results
-               //int returnCode = processResults(results);
-               ProcessResultsReturnCode returnCode = processResults(results);   
-               switch (returnCode)
-               {
-                   case GET_MORE_RESULTS:
-                       cont = true;
-                       break;
-                   case NO_MORE_RESULTS:
-                       cont = false;
-                       stayAlive = true;
-                       break;
-                   case DONE:
-                   case ERROR:
-                       cont = false;
-                       stayAlive = false;
-                       break;
-                   default:
-                       cont = false;
-                       break;                       
-               }                   
-           } while (cont);
-           
-           if (stayAlive)
-           {
-               try {
-                   Thread.sleep(_queryPeriod);
-               } catch (InterruptedException ioEx) {
-                   ioEx.printStackTrace();                 
-               }
-           }           
-       } while (stayAlive);
+       this._poller = poller;
+       if (!this._alive)
+           poller.stop();
+       try {
+           poller.poll();
+       } finally {
+           this._poller = null;
+           this._logger.debug(this + " Query " + this._querySessionId + 
+                              ": " + poller);
+       }
+   }
+   
+   //----------------------------------------------------------------------
+   
+   /**
+    * Retrieves the next results of the current query from the service.
+    * @return Result lines
+    * @throws SessionException if the service fails
+    */
+   
+   protected List<String> _getResults() throws SessionException
+   {
+       try {
+           return this._service.getResults(this._sessionId, 
+                                           this._querySessionId);
+       } catch (QueryFault_Exception qfEx) {
+           throw new SessionException(qfEx.getMessage(), 
+                                      Constants.EXCEPTION);
+       }
+   }
+   
+   //----------------------------------------------------------------------
+   
+   private long _getPeriodProperty(String name, long defaultValue)
+   {
+       String value = System.getProperty(name);
+       if (value == null)
+           return defaultValue;
+       
+       try {
+           long period = Long.parseLong(value.trim());
+           if (period > 0)
+               return period;
+       } catch (NumberFormatException nfEx) {
+       }
+       this._logger.warn("Invalid value of property '" + name + "': " +
+                         value + ".  Using default value.");
+       return defaultValue;
    }
    
    //----------------------------------------------------------------------
@@ -805,6 +830,11 @@ public class QWebServiceProxy implements Runnable, QServiceProxy
                    if (crc != null)
                 	   fileInfo.setClientRestartCache(crc);
                    
+                   QueryResultPoller poller = this._poller;
+                   if (poller != null)
+                       poller.recordNotification(
+                                     fileInfo.getFileModificationTime());
+                   
                    //alert client of result
                    this._client.postResult(fileInfo);
                }
@@ -975,6 +1005,11 @@ public class QWebServiceProxy implements Runnable, QServiceProxy
            this._controlReqs.notify();
        }       
        
+       //running query
+       QueryResultPoller poller = this._poller;
+       if (poller != null)
+           poller.stop();
+       
        //pulse thread
        //this._pulseThread.interrupt();
    }
@@ -996,6 +1031,11 @@ public class QWebServiceProxy implements Runnable, QServiceProxy
                    this._service.stopQuery(this._sessionId, 
                                            this._querySessionId);
                    this._querySessionId = QConstants.NO_ID;
+                   
+                   //read the end of the query without waiting out the period
+                   QueryResultPoller poller = this._poller;
+                   if (poller != null)
+                       poller.wakeup();
                } catch (QueryFault_Exception qfEx) {
                    throw new SessionException(qfEx.getMessage(),
                                               Constants.EXCEPTION);
@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.services.query.client;
+
+import java.util.Date;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.api.SessionException;
+
+/**
+ * <b>Purpose:</b>
+ * Drives the result fetching loop of a running query, adapting the
+ * period between polls to the activity of the query.  Once a poll
+ * returns results, the poller snaps to the minimum period; each empty
+ * poll that follows doubles the period, up to the maximum.
+ * <BR>
+ * The poller also keeps the end-to-end notification latency, measured
+ * from the modification time of each file to its receipt by the client.
+ */
+
+public class QueryResultPoller
+{
+    /** Outcome of processing a set of results */
+    public enum ProcessResultsReturnCode
+    {
+        NO_MORE_RESULTS, GET_MORE_RESULTS, DONE, ERROR
+    };
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Source of query results, such as the query web service.
+     */
+
+    public interface ResultSource
+    {
+        /**
+         * Returns the next set of result lines of the query.
+         * @return Result lines, may be empty
+         * @throws SessionException if the request fails
+         */
+        public List<String> getResults() throws SessionException;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Consumer of query results.
+     */
+
+    public interface ResultProcessor
+    {
+        /**
+         * Processes a set of result lines.
+         * @param results Result lines returned by the source
+         * @return Code indicating whether the query has more results
+         */
+        public ProcessResultsReturnCode processResults(List<String> results);
+    }
+
+    //---------------------------------------------------------------------
+
+    /** Factor by which the period grows after each empty poll */
+    public static final int BACKOFF_FACTOR = 2;
+
+    protected final ResultSource _source;
+    protected final ResultProcessor _processor;
+    protected final long _minPeriod;
+    protected final long _maxPeriod;
+    protected long _period;
+
+    protected final Object _lock = new Object();
+    protected boolean _wakeup = false;
+    protected boolean _stopped = false;
+
+    protected long _polls = 0;
+    protected long _emptyPolls = 0;
+    protected long _notifications = 0;
+    protected long _totalLatency = 0;
+    protected long _maxLatency = 0;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param source Source of result lines
+     * @param processor Consumer of result lines
+     * @param minPeriod Period between polls while results arrive, in ms
+     * @param maxPeriod Longest period between idle polls, in ms
+     */
+
+    public QueryResultPoller(ResultSource source, ResultProcessor processor,
+                             long minPeriod, long maxPeriod)
+    {
+        this._source    = source;
+        this._processor = processor;
+        this._minPeriod = Math.max(1, minPeriod);
+        this._maxPeriod = Math.max(this._minPeriod, maxPeriod);
+        this._period    = this._minPeriod;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Polls the source until the processor reports that the query is
+     * done, or the poller is stopped.
+     * @throws SessionException if a poll fails
+     */
+
+    public void poll() throws SessionException
+    {
+        while (!isStopped())
+        {
+            List<String> results = this._source.getResults();
+            boolean received = _countPoll(results);
+
+            ProcessResultsReturnCode returnCode =
+                                this._processor.processResults(results);
+
+            switch (returnCode)
+            {
+                case GET_MORE_RESULTS:
+                    break;
+                case DONE:
+                case ERROR:
+                    return;
+                default:
+                    _adapt(received);
+                    _await(getPeriod());
+                    break;
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Interrupts the current idle wait, causing the next poll to be
+     * issued immediately.  Used when the query has been stopped, so that
+     * its end is read without waiting out the period.
+     */
+
+    public void wakeup()
+    {
+        synchronized (this._lock)
+        {
+            this._wakeup = true;
+            this._lock.notifyAll();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Stops polling.  The poll loop returns once the current poll, if
+     * any, completes.
+     */
+
+    public void stop()
+    {
+        synchronized (this._lock)
+        {
+            this._stopped = true;
+            this._lock.notifyAll();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    public boolean isStopped()
+    {
+        synchronized (this._lock)
+        {
+            return this._stopped;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Records the receipt of a file for the notification latency.
+     * @param fileTime Modification time of the file on the server
+     */
+
+    public void recordNotification(Date fileTime)
+    {
+        if (fileTime == null)
+            return;
+        long latency = Math.max(0, System.currentTimeMillis() -
+                                   fileTime.getTime());
+        synchronized (this._lock)
+        {
+            ++this._notifications;
+            this._totalLatency += latency;
+            if (latency > this._maxLatency)
+                this._maxLatency = latency;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the current period between idle polls.
+     * @return Period in milliseconds
+     */
+
+    public long getPeriod()
+    {
+        synchronized (this._lock)
+        {
+            return this._period;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    public long getPollCount()
+    {
+        synchronized (this._lock)
+        {
+            return this._polls;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    public long getEmptyPollCount()
+    {
+        synchronized (this._lock)
+        {
+            return this._emptyPolls;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    public long getNotificationCount()
+    {
+        synchronized (this._lock)
+        {
+            return this._notifications;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the mean time from file modification to receipt.
+     * @return Mean latency in milliseconds
+     */
+
+    public long getMeanLatency()
+    {
+        synchronized (this._lock)
+        {
+            return this._notifications == 0 ? 0 :
+                   this._totalLatency / this._notifications;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the longest time from file modification to receipt.
+     * @return Maximum latency in milliseconds
+     */
+
+    public long getMaxLatency()
+    {
+        synchronized (this._lock)
+        {
+            return this._maxLatency;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    public String toString()
+    {
+        synchronized (this._lock)
+        {
+            return this._polls + " polls (" + this._emptyPolls + " empty), "
+                   + this._notifications + " files; latency mean "
+                   + getMeanLatency() + " ms, max " + this._maxLatency
+                   + " ms";
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Counts a poll, returning true if it returned any file entries.
+     */
+
+    protected boolean _countPoll(List<String> results)
+    {
+        boolean received = false;
+        if (results != null)
+        {
+            for (String resultLine : results)
+            {
+                if (resultLine.startsWith("i"))
+                {
+                    received = true;
+                    break;
+                }
+            }
+        }
+
+        synchronized (this._lock)
+        {
+            ++this._polls;
+            if (!received)
+                ++this._emptyPolls;
+        }
+        return received;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Snaps the period to the minimum if results were received, otherwise
+     * backs off towards the maximum.
+     */
+
+    protected void _adapt(boolean received)
+    {
+        synchronized (this._lock)
+        {
+            if (received)
+                this._period = this._minPeriod;
+            else
+                this._period = Math.min(this._maxPeriod,
+                                        this._period * BACKOFF_FACTOR);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Waits for up to the given time, returning early on wakeup or stop.
+     */
+
+    protected void _await(long millis)
+    {
+        long deadline = System.currentTimeMillis() + millis;
+        synchronized (this._lock)
+        {
+            try {
+                long remaining;
+                while (!this._wakeup && !this._stopped &&
+                       (remaining = deadline - System.currentTimeMillis()) > 0)
+                    this._lock.wait(remaining);
+            } catch (InterruptedException iEx) {
+                this._stopped = true;
+                Thread.currentThread().interrupt();
+            }
+            this._wakeup = false;
+        }
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -0,0 +1,571 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.komodo.services.query.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import jpl.mipl.mdms.FileService.komodo.api.ClientRestartCache;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.utils.logging.Logger;
+
+/**
+ * <b>Purpose:</b>
+ * Filetype-partitioned store of query results awaiting retrieval, with a
+ * ceiling on the number of results held in memory.  Results beyond the
+ * ceiling are appended to a compact per-filetype log on disk, holding
+ * only file name, modification time and size, and are read back as
+ * the results in memory are removed.  Results of a filetype are
+ * returned in modification time order.
+ * <BR>
+ * A result is ignored if a result with the same filetype, file name and
+ * modification time is pending, or was recently removed.
+ */
+
+public class QueryResultStore
+{
+    /** Number of removed results remembered per filetype for dedupe */
+    public static final int RECENT_KEY_CAPACITY = 10000;
+
+    protected final int _maxResults;
+    protected final File _spillDir;
+    protected final Map<String, FiletypeQueue> _queues;
+    protected final Comparator<Result> _comparator;
+
+    protected int _memoryCount = 0;
+    protected long _duplicateCount = 0;
+    protected long _spillCount = 0;
+    protected boolean _wakeup = false;
+
+    private Logger _logger = Logger.getLogger(
+                                  QueryResultStore.class.getName());
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param maxResults Maximum number of results held in memory
+     * @param spillDir Directory for overflow logs, null for the
+     *        temporary directory
+     */
+
+    public QueryResultStore(int maxResults, File spillDir)
+    {
+        this._maxResults = Math.max(1, maxResults);
+        this._spillDir   = spillDir;
+        this._queues     = new Hashtable<String, FiletypeQueue>();
+        this._comparator = new ResultComparator();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Adds a result, spilling it to disk if the memory ceiling has been
+     * reached or earlier results of its filetype are on disk.
+     * @param result Result with filetype set
+     * @return True if added, false if it was a duplicate or has no
+     *         filetype
+     */
+
+    public synchronized boolean addResult(Result result)
+    {
+        String filetype = result.getType();
+        if (filetype == null)
+            return false;
+
+        FiletypeQueue queue = this._queues.get(filetype);
+        if (queue == null)
+        {
+            queue = new FiletypeQueue(filetype);
+            this._queues.put(filetype, queue);
+        }
+
+        if (!queue.add(result))
+        {
+            ++this._duplicateCount;
+            return false;
+        }
+
+        this._wakeup = true;
+        notifyAll();
+        return true;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized void removeResults(List<Result> results)
+    {
+        for (Result result : results)
+        {
+            removeResult(result);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Removes a result, reading further results of its filetype from
+     * disk once none remain in memory.
+     * @param result Result to remove
+     */
+
+    public synchronized void removeResult(Result result)
+    {
+        String filetype = result.getType();
+        if (filetype == null)
+            return;
+
+        FiletypeQueue queue = this._queues.get(filetype);
+        if (queue != null)
+            queue.remove(result);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the filetypes with pending results.
+     * @return List of filetypes
+     */
+
+    public synchronized List<String> getKeys()
+    {
+        List<String> list = new ArrayList<String>();
+        for (FiletypeQueue queue : this._queues.values())
+        {
+            if (queue.size() > 0)
+                list.add(queue.filetype);
+        }
+        return list;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the results of a filetype held in memory, in modification
+     * time order.
+     * @param filetype Filetype
+     * @return List of results
+     */
+
+    public synchronized List<Result> getResults(String filetype)
+    {
+        List<Result> list = new Vector<Result>();
+        FiletypeQueue queue = this._queues.get(filetype);
+        if (queue != null)
+        {
+            queue.refill();
+            list.addAll(queue.memory);
+        }
+        return list;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the results of all filetypes held in memory, in
+     * modification time order.
+     * @return List of results
+     */
+
+    public synchronized List<Result> getResults()
+    {
+        List<Result> list = new Vector<Result>();
+        for (FiletypeQueue queue : this._queues.values())
+        {
+            queue.refill();
+            list.addAll(queue.memory);
+        }
+
+        //sort list according to mod times
+        Collections.sort(list, this._comparator);
+
+        return list;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the earliest pending result in memory with the given
+     * filetype and file name.
+     * @param filetype Filetype
+     * @param filename File name
+     * @return Result, null if none found
+     */
+
+    public synchronized Result getResult(String filetype, String filename)
+    {
+        FiletypeQueue queue = this._queues.get(filetype);
+        if (queue != null)
+        {
+            for (Result r : queue.memory)
+            {
+                if (r.getName().equals(filename))
+                    return r;
+            }
+        }
+        return null;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of pending results, in memory and on disk.
+     * @return Result count
+     */
+
+    public synchronized int size()
+    {
+        int size = 0;
+        for (FiletypeQueue queue : this._queues.values())
+        {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    //---------------------------------------------------------------------
+
+    public synchronized boolean isEmpty()
+    {
+        for (FiletypeQueue queue : this._queues.values())
+        {
+            if (queue.size() > 0)
+                return false;
+        }
+        return true;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of results held in memory.
+     * @return Result count
+     */
+
+    public synchronized int getMemoryCount()
+    {
+        return this._memoryCount;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of results written to disk since creation.
+     * @return Result count
+     */
+
+    public synchronized long getSpillCount()
+    {
+        return this._spillCount;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of duplicate results ignored since creation.
+     * @return Result count
+     */
+
+    public synchronized long getDuplicateCount()
+    {
+        return this._duplicateCount;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Waits until results are pending, a result is added, or
+     * <code>wakeup()</code> is called.
+     * @param timeout Maximum time to wait, in milliseconds
+     * @return True if results are pending
+     * @throws InterruptedException if interrupted while waiting
+     */
+
+    public synchronized boolean awaitResults(long timeout)
+                                            throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining;
+        while (!this._wakeup && isEmpty() &&
+               (remaining = deadline - System.currentTimeMillis()) > 0)
+            wait(remaining);
+        this._wakeup = false;
+        return !isEmpty();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Releases threads waiting for results.
+     */
+
+    public synchronized void wakeup()
+    {
+        this._wakeup = true;
+        notifyAll();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Discards all pending results and deletes the overflow logs.
+     */
+
+    public synchronized void clear()
+    {
+        for (FiletypeQueue queue : this._queues.values())
+        {
+            queue.closeSpill();
+        }
+        this._queues.clear();
+        this._memoryCount = 0;
+    }
+
+    //=====================================================================
+    //=====================================================================
+
+    /**
+     * Pending results of a single filetype.  Once a result has been
+     * spilled, further results are spilled until the log is drained,
+     * so that memory always holds the earliest results.
+     */
+
+    class FiletypeQueue
+    {
+        final String filetype;
+        final TreeSet<Result> memory;
+        final Set<String> pendingKeys;
+        final Map<String, Boolean> recentKeys;
+
+        String serverGroup;
+        ClientRestartCache restartCache;
+
+        File spillFile;
+        DataOutputStream spillOut;
+        long spillReadPos = 0;
+        int spilled = 0;
+
+        //-----------------------------------------------------------------
+
+        FiletypeQueue(String filetype)
+        {
+            this.filetype    = filetype;
+            this.memory      = new TreeSet<Result>(_comparator);
+            this.pendingKeys = new HashSet<String>();
+            this.recentKeys  = new LinkedHashMap<String, Boolean>() {
+                protected boolean removeEldestEntry(
+                                       Map.Entry<String, Boolean> eldest) {
+                    return size() > RECENT_KEY_CAPACITY;
+                }
+            };
+        }
+
+        //-----------------------------------------------------------------
+
+        int size()
+        {
+            return this.memory.size() + this.spilled;
+        }
+
+        //-----------------------------------------------------------------
+
+        boolean add(Result result)
+        {
+            String key = _key(result);
+            if (this.pendingKeys.contains(key) ||
+                this.recentKeys.containsKey(key))
+                return false;
+            this.pendingKeys.add(key);
+
+            //results read back from disk share these
+            this.serverGroup  = result.getServerGroup();
+            this.restartCache = result.getClientRestartCache();
+
+            if (this.spilled > 0 || _memoryCount >= _maxResults)
+            {
+                try {
+                    spill(result);
+                    return true;
+                } catch (IOException ioEx) {
+                    _logger.error("Unable to write query results for '" +
+                                  this.filetype + "' to disk, holding in " +
+                                  "memory: " + ioEx.getMessage());
+                    _logger.debug(null, ioEx);
+                }
+            }
+
+            this.memory.add(result);
+            ++_memoryCount;
+            return true;
+        }
+
+        //-----------------------------------------------------------------
+
+        void remove(Result result)
+        {
+            if (!this.memory.remove(result))
+                return;
+            --_memoryCount;
+
+            String key = _key(result);
+            this.pendingKeys.remove(key);
+            this.recentKeys.put(key, Boolean.TRUE);
+
+            if (this.memory.isEmpty())
+                refill();
+        }
+
+        //-----------------------------------------------------------------
+
+        void spill(Result result) throws IOException
+        {
+            if (this.spillOut == null)
+            {
+                this.spillFile = File.createTempFile("fei_query_", ".log",
+                                                     _spillDir);
+                this.spillFile.deleteOnExit();
+                this.spillOut = new DataOutputStream(new BufferedOutputStream(
+                                    new FileOutputStream(this.spillFile)));
+            }
+
+            Date modTime = result.getFileModificationTime();
+            byte[] name = result.getName().getBytes("UTF-8");
+            this.spillOut.writeShort(name.length);
+            this.spillOut.write(name);
+            this.spillOut.writeLong(modTime == null ? -1L : modTime.getTime());
+            this.spillOut.writeLong(result.getSize());
+            ++this.spilled;
+            ++_spillCount;
+        }
+
+        //-----------------------------------------------------------------
+
+        /**
+         * Reads results back from disk if memory holds none of this
+         * filetype, up to the free memory but at least one.
+         */
+
+        void refill()
+        {
+            if (this.spilled == 0 || !this.memory.isEmpty())
+                return;
+
+            int count = Math.min(this.spilled,
+                                 Math.max(1, _maxResults - _memoryCount));
+            DataInputStream in = null;
+            try {
+                this.spillOut.flush();
+                FileInputStream fis = new FileInputStream(this.spillFile);
+                fis.getChannel().position(this.spillReadPos);
+                in = new DataInputStream(new BufferedInputStream(fis));
+
+                for (int i = 0; i < count; ++i)
+                {
+                    byte[] name = new byte[in.readUnsignedShort()];
+                    in.readFully(name);
+                    long modTime = in.readLong();
+                    long size = in.readLong();
+                    this.spillReadPos += 2 + name.length + 16;
+
+                    Result result = new Result(null, new String(name, "UTF-8"),
+                                  size, modTime < 0 ? null : new Date(modTime));
+                    result.setServerGroup(this.serverGroup);
+                    result.setType(this.filetype);
+                    result.setClientRestartCache(this.restartCache);
+                    this.memory.add(result);
+                    ++_memoryCount;
+                    --this.spilled;
+                }
+            } catch (IOException ioEx) {
+                _logger.error("Unable to read query results for '" +
+                              this.filetype + "' from disk, " + this.spilled
+                              + " results lost: " + ioEx.getMessage());
+                _logger.debug(null, ioEx);
+                this.spilled = 0;
+            } finally {
+                if (in != null)
+                    try { in.close(); } catch (IOException ioEx) {}
+            }
+
+            if (this.spilled == 0)
+                closeSpill();
+        }
+
+        //-----------------------------------------------------------------
+
+        void closeSpill()
+        {
+            if (this.spillOut != null)
+            {
+                try {
+                    this.spillOut.close();
+                } catch (IOException ioEx) {
+                }
+                this.spillFile.delete();
+            }
+            this.spillOut     = null;
+            this.spillFile    = null;
+            this.spillReadPos = 0;
+            this.spilled      = 0;
+        }
+
+        //-----------------------------------------------------------------
+
+        String _key(Result result)
+        {
+            Date modTime = result.getFileModificationTime();
+            return result.getName() + "\t" +
+                   (modTime == null ? -1L : modTime.getTime());
+        }
+
+        //-----------------------------------------------------------------
+    }
+
+    //=====================================================================
+    //=====================================================================
+
+    /**
+     * Orders results by modification time, then by file name.
+     */
+
+    static class ResultComparator implements Comparator<Result>
+    {
+        public int compare(Result r1, Result r2)
+        {
+            Date d1 = r1.getFileModificationTime();
+            Date d2 = r2.getFileModificationTime();
+            long t1 = (d1 == null) ? -1L : d1.getTime();
+            long t2 = (d2 == null) ? -1L : d2.getTime();
+            if (t1 != t2)
+                return t1 < t2 ? -1 : 1;
+
+            String n1 = r1.getName() == null ? "" : r1.getName();
+            String n2 = r2.getName() == null ? "" : r2.getName();
+            return n1.compareTo(n2);
+        }
+    }
+
+    //=====================================================================
+    //=====================================================================
+}
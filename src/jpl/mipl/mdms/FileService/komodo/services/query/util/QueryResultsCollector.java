@@ -3,20 +3,13 @@
  */
 package jpl.mipl.mdms.FileService.komodo.services.query.util;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
-import java.util.Hashtable;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.io.File;
 import java.util.List;
-import java.util.Map;
-import java.util.Vector;
 
 import jpl.mipl.mdms.FileService.komodo.api.Constants;
 import jpl.mipl.mdms.FileService.komodo.api.Result;
 import jpl.mipl.mdms.FileService.komodo.api.SessionException;
+import jpl.mipl.mdms.FileService.komodo.services.query.api.QConstants;
 import jpl.mipl.mdms.FileService.komodo.services.query.client.QueryClient;
 import jpl.mipl.mdms.FileService.util.DateTimeUtil;
 import jpl.mipl.mdms.utils.logging.Logger;
@@ -26,7 +19,11 @@ import jpl.mipl.mdms.utils.logging.Logger;
  * This class acts as the middle-man between the query client and a 
  * filetype-based partitioned Result registry.  The run method
  * will collect results and add to registry, allowing client of this
- * class to request those results by filetype.
+ * class to request those results by filetype.  Results are held in a
+ * QueryResultStore, bounded in memory by the property
+ * <code>QConstants.PROP_COLLECTOR_MAX_RESULTS</code>, with overflow 
+ * written to the directory named by 
+ * <code>QConstants.PROP_COLLECTOR_SPILL_DIR</code>.
  * 
  *   <PRE>
  *   Copyright 2007, California Institute of Technology.
@@ -53,7 +50,7 @@ import jpl.mipl.mdms.utils.logging.Logger;
 public class QueryResultsCollector implements Runnable
 {
     String _serverGroup;
-    ResultMap _resultMap;
+    QueryResultStore _resultStore;
     QueryClient _queryClient;
 
     private Logger _logger = Logger.getLogger(
@@ -69,7 +66,8 @@ public class QueryResultsCollector implements Runnable
 
     public QueryResultsCollector(QueryClient queryClient)
     {
-        this._resultMap = new ResultMap();
+        this._resultStore = new QueryResultStore(_getMaxResults(), 
+                                               _getSpillDir());
         this._queryClient = queryClient;
         this._serverGroup = this._queryClient.getServerGroup();
 
@@ -85,6 +83,34 @@ public class QueryResultsCollector implements Runnable
 
     //---------------------------------------------------------------------
 
+    protected int _getMaxResults()
+    {
+        String value = System.getProperty(
+                                  QConstants.PROP_COLLECTOR_MAX_RESULTS);
+        if (value != null)
+        {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException nfEx) {
+                this._logger.warn("Invalid value of property '" + 
+                                  QConstants.PROP_COLLECTOR_MAX_RESULTS +
+                                  "': " + value + ".  Using default value.");
+            }
+        }
+        return QConstants.DEFAULT_COLLECTOR_MAX_RESULTS;
+    }
+
+    //---------------------------------------------------------------------
+
+    protected File _getSpillDir()
+    {
+        String value = System.getProperty(
+                                  QConstants.PROP_COLLECTOR_SPILL_DIR);
+        return (value == null) ? null : new File(value);
+    }
+
+    //---------------------------------------------------------------------
+
     /**
      * Passes control to the collect and partition loop of this class.
      */
@@ -132,14 +158,7 @@ public class QueryResultsCollector implements Runnable
                 } 
                 else if (result.getErrno() == Constants.OK)
                 {
-                    String filetype = result.getType();
-                    if (filetype != null)
-                    {
-                        synchronized (this)
-                        {
-                            this._resultMap.addResult(result);
-                        }
-                    }
+                    this._resultStore.addResult(result);
                     continue;
                 } 
                 else if (result.getErrno() == Constants.IO_ERROR)
@@ -165,7 +184,13 @@ public class QueryResultsCollector implements Runnable
             alive = this._queryClient.isQueryActive();
         }
 
-        this._logger.trace("Done collecting results");
+        //let waiting consumers see that collection has ended
+        this._resultStore.wakeup();
+        this._logger.trace("Done collecting results: " + 
+                           this._resultStore.getDuplicateCount() + 
+                           " duplicates ignored, " + 
+                           this._resultStore.getSpillCount() + 
+                           " results written to disk");
     }
 
     //---------------------------------------------------------------------
@@ -187,256 +212,74 @@ public class QueryResultsCollector implements Runnable
 
     public boolean isResultAvailable()
     {
-        return !this._resultMap.isEmpty();
+        return !this._resultStore.isEmpty();
     }
 
     //---------------------------------------------------------------------
 
     public List<String> getResultKeys()
     {
-        return this._resultMap.getKeys();
+        return this._resultStore.getKeys();
     }
 
     //---------------------------------------------------------------------
 
     public List<Result> getResultsForFiletype(String filetype)
     {
-        return this._resultMap.getResults(filetype);
+        return this._resultStore.getResults(filetype);
     }
 
     //---------------------------------------------------------------------
 
     public List<Result> getAllResults()
     {
-        return this._resultMap.getResults();
+        return this._resultStore.getResults();
     }
 
     //---------------------------------------------------------------------
 
     public void remove(List<Result> results)
     {
-        this._resultMap.removeResults(results);
+        this._resultStore.removeResults(results);
     }
 
     //---------------------------------------------------------------------
 
     public void remove(Result result)
     {
-        this._resultMap.removeResult(result);
+        this._resultStore.removeResult(result);
     }
 
     //---------------------------------------------------------------------
 
     public void remove(String filetype, String filename)
     {
-        Result result = this._resultMap.getResult(filetype, filename);
+        Result result = this._resultStore.getResult(filetype, filename);
         if (result != null)
-            this._resultMap.removeResult(result);
+            this._resultStore.removeResult(result);
     }
 
     //---------------------------------------------------------------------
 
     public int getResultCount()
     {
-        return this._resultMap.size();
+        return this._resultStore.size();
     }
 
-    //=====================================================================
-    //=====================================================================
-
-    class ResultMap
-    {
-        Map<String, List<Result>> map;
-        Comparator resultComparator;
-
-        //-----------------------------------------------------------------
-
-        public ResultMap()
-        {
-            map = new Hashtable<String, List<Result>>();
-            resultComparator = new ResultComparator();
-        }
-
-        //-----------------------------------------------------------------
-
-        public List<String> getKeys()
-        {
-            List<String> list = new ArrayList<String>();
-            synchronized (this)
-            {
-                list.addAll(this.map.keySet());
-            }
-            return list;
-        }
-
-        //-----------------------------------------------------------------
-
-        public void addResult(Result result)
-        {
-            String filetype = result.getType();
-            if (filetype != null)
-            {
-                synchronized (this)
-                {
-                    List<Result> list = this.map.get(filetype);
-                    if (list == null)
-                    {
-                        list = new LinkedList<Result>();
-                        this.map.put(filetype, list);
-                    }
-                    list.add(result);
-                }
-            }
-        }
-
-        //-----------------------------------------------------------------
-
-        public void removeResults(List<Result> results)
-        {
-            for (Result result : results)
-            {
-                removeResult(result);
-            }
-        }
-
-        //-----------------------------------------------------------------
-
-        public void removeResult(Result result)
-        {
-            String filetype = result.getType();
-            if (filetype != null)
-            {
-                synchronized (this)
-                {
-                    if (this.map.containsKey(filetype))
-                    {
-                        this.map.get(filetype).remove(result);
-                    }
-                }
-            }
-        }
-
-        //-----------------------------------------------------------------
-
-        public List<Result> getResults(String filetype)
-        {
-            List<Result> list = new Vector<Result>();
-            synchronized (this)
-            {
-                if (this.map.containsKey(filetype))
-                {
-                    list.addAll(this.map.get(filetype));
-                }
-            }
-            return list;
-        }
-
-        //-----------------------------------------------------------------
-
-        public List<Result> getResults()
-        {
-            List<Result> list = new Vector<Result>();
-            synchronized (this)
-            {
-                for (String filetype : this.map.keySet())
-                {
-                    list.addAll(getResults(filetype));
-
-                }
-            }
-
-            //sort list according to mod times
-            Collections.sort(list, this.resultComparator);
-
-            return list;
-        }
-
-        //-----------------------------------------------------------------
-
-        public Result getResult(String filetype, String filename)
-        {
-            List<Result> list;
-            synchronized (this)
-            {
-                if (this.map.containsKey(filetype))
-                {
-                    list = this.map.get(filetype);
-                    for (Result r : list)
-                    {
-                        if (r.getName().equals(filename))
-                            return r;
-                    }
-                }
-            }
-            return null;
-        }
-
-        //-----------------------------------------------------------------
-
-        public int size()
-        {
-            int size = 0;
-
-            synchronized (this)
-            {
-                for (List list : this.map.values())
-                {
-                    size += list.size();
-                }
-            }
-
-            return size;
-        }
-
-        //-----------------------------------------------------------------
-
-        public boolean isEmpty()
-        {
-            boolean empty = true;
-
-            synchronized (this)
-            {
-                Iterator<String> it = this.map.keySet().iterator();
-                while (it.hasNext() && empty)
-                {
-                    if (!this.map.get(it.next()).isEmpty())
-                        empty = false;
-                }
-            }
-
-            return empty;
-        }
-
-        //-----------------------------------------------------------------
-    }
+    //---------------------------------------------------------------------
 
-    //=====================================================================
-    //=====================================================================
+    /**
+     * Waits until results are available or collection ends, so that 
+     * consumers can fetch results while collection is still running.
+     * @param timeout Maximum time to wait, in milliseconds
+     * @return True if results are available
+     * @throws InterruptedException if interrupted while waiting
+     */
 
-    class ResultComparator implements Comparator
+    public boolean awaitResults(long timeout) throws InterruptedException
     {
-        public int compare(Object o1, Object o2)
-        {
-            if (o1 == null || o2 == null)
-                return 0;
-            if (!(o1 instanceof Result && o2 instanceof Result))
-                return 0;
-            Result r1 = (Result) o1;
-            Result r2 = (Result) o2;
-            Date d1 = r1.getFileModificationTime();
-            Date d2 = r2.getFileModificationTime();
-            if (d1 != null && d2 != null)
-                return d1.compareTo(d2);
-            else
-                return 0;
-        }
-
-        public boolean equals(Object o)
-        {
-            return this == o;
-        }
+        return this._resultStore.awaitResults(timeout);
     }
-    
-    //=====================================================================
-    //=====================================================================
+
+    //---------------------------------------------------------------------
 }
@@ -9,9 +9,10 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.Timer;
 import java.util.TimerTask;
 import java.util.Vector;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -98,7 +99,10 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
     protected final long _BLOCK_TIME = 180000L;
     
     /** state of the subscription */
-    protected int _state = SubscriptionConstants.STATE_INITIALIZED;
+    protected volatile int _state = SubscriptionConstants.STATE_INITIALIZED;
+    
+    /** Monitor notified when the state or interrupt flag changes */
+    protected final Object _stateSignal = new Object();
     
     /** Reference to the property change support */
     protected PropertyChangeSupport _changes = new PropertyChangeSupport(this);
@@ -107,7 +111,7 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
     protected List _history;
     
     /** Paused by external source flag */
-    protected boolean _externalPause = false;
+    protected volatile boolean _externalPause = false;
     
     /** Time at which this subscription was started */
     protected long _startTime = -1L;
@@ -140,7 +144,8 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
     protected boolean _mailReport       = false;
     protected boolean _mailSilentReconn = false;
     
-    protected Timer   _reportScheduler = new Timer();
+    /** Report mailings scheduled with the shared manager scheduler */
+    protected List    _reportTasks = new Vector();
     
     protected ReconnectThrottle _throttle;
 
@@ -266,6 +271,7 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
         {
             boolean oldState = this._externalPause;
             this._externalPause = interrupted;
+            signalStateChange();
         }
     }
     
@@ -655,8 +661,8 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
     {
         setState(SubscriptionConstants.STATE_RUNNING);
         
-        while (!this.isTerminated())
-            Thread.yield();
+        while (awaitWakeup(Long.MAX_VALUE))
+            ;
         
         setState(SubscriptionConstants.STATE_TERMINATED);
     }   
@@ -679,18 +685,56 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
      * Utility method that checks interrupt and terminate flags.
      * If terminate flag is set, immediately return with value false.
      * Else while interrupt flag is set and not terminated, 
-     * then pause this thread via Thread.yield().
+     * then block this thread until the state changes.
      * Return terminate value.
      * 
      * @return True if caller should proceed normally, false if caller
      *         should initiate terminate sequence.
      */
     
-    protected synchronized boolean canProceed()
+    protected boolean canProceed()
+    {
+        synchronized (this._stateSignal)
+        {
+            while (this.isInterrupted() && !this.isTerminated())
+            {
+                try {
+                    this._stateSignal.wait();
+                } catch (InterruptedException iEx) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        
+        return !this.isTerminated();
+    }
+    
+    //---------------------------------------------------------------------
+    
+    /**
+     * Blocks the calling thread until the wakeup time is reached or
+     * the subscription is terminated, whichever comes first.
+     * @param wakeupTime Time in milliseconds at which to return
+     * @return True if caller should proceed normally, false if caller
+     *         should initiate terminate sequence.
+     */
+    
+    protected boolean awaitWakeup(long wakeupTime)
     {
-        while (this.isInterrupted() && !this.isTerminated())
+        synchronized (this._stateSignal)
         {
-            Thread.yield();
+            long now = System.currentTimeMillis();
+            while (now < wakeupTime && !this.isTerminated())
+            {
+                try {
+                    this._stateSignal.wait(wakeupTime - now);
+                } catch (InterruptedException iEx) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                now = System.currentTimeMillis();
+            }
         }
         
         return !this.isTerminated();
@@ -698,6 +742,21 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
     
     //---------------------------------------------------------------------
     
+    /**
+     * Wakes threads blocked in canProceed() or awaitWakeup() so that
+     * they re-examine the interrupt and terminate flags.
+     */
+    
+    protected void signalStateChange()
+    {
+        synchronized (this._stateSignal)
+        {
+            this._stateSignal.notifyAll();
+        }
+    }
+    
+    //---------------------------------------------------------------------
+    
     /**
      * Returns history object that records what files have been
      * handled by the meta-subscription.
@@ -784,6 +843,7 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
         //if state change, first property change event
         if (this._state != oldState)
         {
+            signalStateChange();
             firePropertyChangeAsync(MetaSubscription.PROPERTY_STATE, 
                                     new Integer(oldState), 
                                     new Integer(this._state));
@@ -1028,11 +1088,7 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
                 this._mailReport = true;
                 this._emailReportLogger = Logger.getLogger(rprtLoggerName);
                 
-                if (this._reportScheduler != null)
-                {
-                    this._reportScheduler.cancel();
-                }
-                _reportScheduler = new Timer();
+                cancelReportTasks();
                 this._emailReportLogger.setMail(mailMsgFrom, mailRptTo,
                                                 mailHost, rprtTitle);
                 this._emailReportLogger.enableSendMail();
@@ -1047,19 +1103,27 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
                                   + "\".");
                       this._logger.error("Ignore report mailing request. " +
                             " Please use \"hh:mm am|pm, hh:mm am|pm, ...\"");
-                      _reportScheduler.cancel();
                       this._mailReport = false;
                  } 
                 else 
                 {                    
                     //create tasks to be run at given times per day
+                    long now = System.currentTimeMillis();
                     for (int i = 0; i < dateList.length; ++i) 
                     {
+                        if (dateList[i] == null)
+                            continue;
                         this._logger.debug("scheduling task for " + dateList[i]);
-                        _reportScheduler.scheduleAtFixedRate(
+                        long delay = dateList[i].getTime() - now;
+                        while (delay < 0)
+                            delay += SubscriptionConstants.DAY_MS;
+                        ScheduledFuture task = DefaultMetaSubscriptionManager.
+                                  getScheduler().scheduleAtFixedRate(
                                             new ScheduledMailer(rprtHeader), 
-                                            dateList[i], 
-                                            SubscriptionConstants.DAY_MS);
+                                            delay, 
+                                            SubscriptionConstants.DAY_MS,
+                                            TimeUnit.MILLISECONDS);
+                        this._reportTasks.add(task);
                    }
                 }
             }
@@ -1070,9 +1134,8 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
     
     protected void cleanupMailLoggers()
     {
-        //cancel scheduler
-        if (this._reportScheduler != null)
-            this._reportScheduler.cancel();
+        //cancel scheduled reports
+        cancelReportTasks();
         
         //disable mailers
         if (this._emailMessageLogger != null)
@@ -1089,6 +1152,22 @@ public class DefaultMetaSubscription implements MetaSubscription, Comparable
     
     //---------------------------------------------------------------------
 
+    /**
+     * Cancels report mailings scheduled by this subscription.
+     */
+    
+    protected void cancelReportTasks()
+    {
+        synchronized (this._reportTasks)
+        {
+            for (int i = 0; i < this._reportTasks.size(); ++i)
+                ((ScheduledFuture) this._reportTasks.get(i)).cancel(false);
+            this._reportTasks.clear();
+        }
+    }
+    
+    //---------------------------------------------------------------------
+
     protected class ScheduledMailer extends TimerTask 
     {
         protected String _title;
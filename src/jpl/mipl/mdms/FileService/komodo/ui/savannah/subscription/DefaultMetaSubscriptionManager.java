@@ -9,6 +9,9 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.SwingUtilities;
 
@@ -93,6 +96,12 @@ public class DefaultMetaSubscriptionManager implements MetaSubscriptionManager
     
     SessionCacheRegistry _sessionCache;
     
+    /** Number of threads of the shared subscription scheduler */
+    protected static final int SCHEDULER_THREADS = 1;
+    
+    /** Scheduler shared by all metasubscriptions of the application */
+    private static ScheduledExecutorService _scheduler = null;
+    
     //---------------------------------------------------------------------
     
     /**
@@ -716,4 +725,37 @@ public class DefaultMetaSubscriptionManager implements MetaSubscriptionManager
         return id;
     }
     //---------------------------------------------------------------------
+    
+    /**
+     * Returns the scheduler shared by all metasubscriptions for timed
+     * work, such as scheduled report mailings.  Its threads are daemons,
+     * so the scheduler is never shut down.  Metasubscriptions waiting 
+     * between queries, or while paused, block on their own state signal 
+     * rather than occupying a scheduler thread.
+     * @return Shared scheduled executor
+     */
+    
+    public static synchronized ScheduledExecutorService getScheduler()
+    {
+        if (_scheduler == null)
+        {
+            ThreadFactory factory = new ThreadFactory() {
+                private int _count = 0;
+                public synchronized Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, 
+                                "MetaSubscription_Scheduler_" + _count++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            ScheduledThreadPoolExecutor executor = 
+                new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, factory);
+            executor.setRemoveOnCancelPolicy(true);
+            _scheduler = executor;
+        }
+        return _scheduler;
+    }
+    
+    //---------------------------------------------------------------------
 }
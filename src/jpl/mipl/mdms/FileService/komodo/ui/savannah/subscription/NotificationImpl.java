@@ -4,6 +4,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
@@ -274,11 +275,16 @@ public class NotificationImpl extends DefaultMetaSubscription
             queryTime = null;
             boolean timeToExit = false;
 
-            //handle files
-            while (this._client.getTransactionCount() > 0)
+            //handle files, a batch at a time
+            LinkedList pending = new LinkedList();
+            while (!pending.isEmpty() ||
+                   this._client.getTransactionCount() > 0)
             {
-                Result result = this._client.getResult(SubscriptionConstants.
-                                                       GET_RESULT_TIME_OUT_MS);
+                if (pending.isEmpty())
+                    this._client.drainResults(pending, 0, 
+                                   SubscriptionConstants.GET_RESULT_TIME_OUT_MS);
+                Result result = pending.isEmpty() ? null :
+                                (Result) pending.removeFirst();
                 if (result == null)
                 {
                     if (isTerminated())
@@ -453,9 +459,7 @@ public class NotificationImpl extends DefaultMetaSubscription
                             queryInterval - processTime;
                 long wakeupTime = System.currentTimeMillis() + sleeptime;
                 this._logger.trace("wakeup time = " + wakeupTime);
-                while (System.currentTimeMillis() < wakeupTime  
-                        && !isTerminated())
-                    Thread.yield();
+                awaitWakeup(wakeupTime);
             }
         }
         
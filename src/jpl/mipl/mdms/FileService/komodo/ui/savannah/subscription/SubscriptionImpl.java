@@ -5,6 +5,7 @@ import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -334,11 +335,16 @@ public class SubscriptionImpl extends DefaultMetaSubscription
             queryTime = null;
             boolean timeToExit = false;
 
-            //handle resulting files
-            while (this._client.getTransactionCount() > 0)
+            //handle resulting files, a batch at a time
+            LinkedList pending = new LinkedList();
+            while (!pending.isEmpty() ||
+                   this._client.getTransactionCount() > 0)
             {
-                Result result = this._client.getResult(SubscriptionConstants.
-                                                       GET_RESULT_TIME_OUT_MS);
+                if (pending.isEmpty())
+                    this._client.drainResults(pending, 0, 
+                                   SubscriptionConstants.GET_RESULT_TIME_OUT_MS);
+                Result result = pending.isEmpty() ? null :
+                                (Result) pending.removeFirst();
                 if (result == null)
                 {
                     if (isTerminated())
@@ -518,9 +524,7 @@ public class SubscriptionImpl extends DefaultMetaSubscription
                             queryInterval - processTime;
                 long wakeupTime = System.currentTimeMillis() + sleeptime;
                 this._logger.trace("wakeup time = " + wakeupTime);
-                while (System.currentTimeMillis() < wakeupTime  
-                       && !isTerminated())
-                    Thread.yield();
+                awaitWakeup(wakeupTime);
             }
         }
         
@@ -3,6 +3,7 @@ package jpl.mipl.mdms.FileService.komodo.util;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
@@ -405,12 +406,21 @@ public class PushSubscriptionClient implements Runnable
                 
                 //-------------------------
                 
-                while (this._client.getTransactionCount() > 0 && this._continue)
+                LinkedList pending = new LinkedList();
+                while ((!pending.isEmpty() ||
+                        this._client.getTransactionCount() > 0) && 
+                       this._continue)
                 {
-                    //wait max of time out period for a result
-                    int resWaitTime = (int)Math.min(Constants.RESULTMAXTIMEOUT,
-                                                    this._keepAliveTimeout);  
-                    Result result = this._client.getResult(resWaitTime);
+                    //wait max of time out period for a batch of results
+                    if (pending.isEmpty())
+                    {
+                        int resWaitTime = (int)Math.min(
+                                                Constants.RESULTMAXTIMEOUT,
+                                                this._keepAliveTimeout);  
+                        this._client.drainResults(pending, 0, resWaitTime);
+                    }
+                    Result result = pending.isEmpty() ? null :
+                                    (Result) pending.removeFirst();
                     
                     //-------------------------
                     
@@ -0,0 +1,382 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+
+/**
+ * <b>Purpose:</b> Byte channel that encrypts and decrypts data exchanged
+ * over a socket channel with an SSL engine.  Unlike an SSL socket, the
+ * socket channel may be placed in non-blocking mode and registered with a
+ * selector, so that many secure connections can share a thread.
+ * <p>
+ * In non-blocking mode, <code>read()</code> may return 0 and
+ * <code>write()</code> may leave encrypted data unsent.  Callers should
+ * then select for write and call <code>flush()</code> until
+ * <code>hasPendingOutput()</code> returns false.
+ */
+
+public class SSLEngineChannel implements ByteChannel
+{
+   private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+   private final SocketChannel _channel;
+   private final SSLEngine _engine;
+
+   // network bytes read but not yet unwrapped, in write mode
+   private ByteBuffer _netIn;
+
+   // network bytes wrapped but not yet written, in read mode
+   private ByteBuffer _netOut;
+
+   // application bytes unwrapped but not yet read, in read mode
+   private ByteBuffer _appIn;
+
+   private boolean _eof = false;
+   private boolean _closed = false;
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Constructor.
+    *
+    * @param channel the connected socket channel
+    * @param engine the SSL engine, in client or server mode
+    */
+   public SSLEngineChannel(SocketChannel channel, SSLEngine engine)
+   {
+      this._channel = channel;
+      this._engine = engine;
+      int packetSize = engine.getSession().getPacketBufferSize();
+      this._netIn = ByteBuffer.allocate(packetSize);
+      this._netOut = ByteBuffer.allocate(packetSize);
+      this._netOut.flip();
+      this._appIn = ByteBuffer.allocate(
+                           engine.getSession().getApplicationBufferSize());
+      this._appIn.flip();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns the socket channel underlying this channel.
+    *
+    * @return socket channel
+    */
+   public SocketChannel getChannel()
+   {
+      return this._channel;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Performs the initial handshake.  The socket channel must be in
+    * blocking mode.
+    *
+    * @throws IOException when network I/O failure or handshake failure
+    */
+   public synchronized void handshake() throws IOException
+   {
+      this._engine.beginHandshake();
+      HandshakeStatus status = this._engine.getHandshakeStatus();
+      while (status != HandshakeStatus.FINISHED &&
+             status != HandshakeStatus.NOT_HANDSHAKING)
+      {
+         if (status == HandshakeStatus.NEED_UNWRAP)
+         {
+            SSLEngineResult result = this._unwrap();
+            if (result.getStatus() == Status.CLOSED)
+               throw new SSLException("Connection closed during handshake");
+            if (result.getStatus() == Status.BUFFER_UNDERFLOW &&
+                this._readNet() < 0)
+               throw new EOFException("Unexpected EOF during handshake");
+            status = result.getHandshakeStatus();
+         }
+         else if (status == HandshakeStatus.NEED_TASK)
+         {
+            this._runTasks();
+            status = this._engine.getHandshakeStatus();
+         }
+         else if (status == HandshakeStatus.NEED_WRAP)
+         {
+            status = this._wrap(EMPTY).getHandshakeStatus();
+            this.flush();
+         }
+         else
+         {
+            throw new SSLException("Unexpected handshake status " + status);
+         }
+      }
+      this.flush();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Reads decrypted bytes into <code>dst</code>.
+    *
+    * @param dst destination buffer
+    * @return number of bytes read, possibly 0 in non-blocking mode, or -1
+    *         at end of stream
+    * @throws IOException when network I/O failure
+    */
+   public synchronized int read(ByteBuffer dst) throws IOException
+   {
+      while (!this._appIn.hasRemaining())
+      {
+         if (this._eof)
+            return -1;
+
+         SSLEngineResult result = this._unwrap();
+         if (this._handshake(result.getHandshakeStatus()) ||
+             result.getStatus() == Status.BUFFER_OVERFLOW)
+            continue;
+         if (result.getStatus() == Status.CLOSED)
+         {
+            this._eof = true;
+            continue;
+         }
+         if (result.getStatus() == Status.BUFFER_UNDERFLOW ||
+             (result.bytesConsumed() == 0 && result.bytesProduced() == 0))
+         {
+            int n = this._readNet();
+            if (n < 0)
+            {
+               this._eof = true;
+               try {
+                  this._engine.closeInbound();
+               } catch (SSLException ex) {
+                  //peer closed without close_notify
+               }
+            }
+            else if (n == 0)
+               return 0;
+         }
+      }
+
+      int n = Math.min(this._appIn.remaining(), dst.remaining());
+      int limit = this._appIn.limit();
+      this._appIn.limit(this._appIn.position() + n);
+      dst.put(this._appIn);
+      this._appIn.limit(limit);
+      return n;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Encrypts bytes from <code>src</code> and writes them.  In
+    * non-blocking mode, encrypted bytes may be left pending.
+    *
+    * @param src source buffer
+    * @return number of bytes consumed from <code>src</code>
+    * @throws IOException when network I/O failure
+    */
+   public synchronized int write(ByteBuffer src) throws IOException
+   {
+      int written = 0;
+      while (src.hasRemaining() && this.flush())
+      {
+         SSLEngineResult result = this._wrap(src);
+         if (result.getStatus() == Status.CLOSED)
+            throw new SSLException("SSL engine closed");
+         written += result.bytesConsumed();
+         this._handshake(result.getHandshakeStatus());
+      }
+      this.flush();
+      return written;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Writes pending encrypted bytes.
+    *
+    * @return true if no bytes remain pending
+    * @throws IOException when network I/O failure
+    */
+   public synchronized boolean flush() throws IOException
+   {
+      while (this._netOut.hasRemaining())
+      {
+         if (this._channel.write(this._netOut) == 0 &&
+             !this._channel.isBlocking())
+            return false;
+      }
+      return true;
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns true if encrypted bytes remain to be written by
+    * <code>flush()</code>.
+    *
+    * @return true if output is pending
+    */
+   public synchronized boolean hasPendingOutput()
+   {
+      return this._netOut.hasRemaining();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns true if decrypted bytes can be read without touching the
+    * socket.
+    *
+    * @return true if input is buffered
+    */
+   public synchronized boolean hasBufferedInput()
+   {
+      return this._appIn.hasRemaining();
+   }
+
+   // ----------------------------------------------------------------------
+
+   public synchronized boolean isOpen()
+   {
+      return !this._closed && this._channel.isOpen();
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Sends close_notify to the peer, if possible without blocking, and
+    * closes the socket channel.
+    *
+    * @throws IOException when network I/O failure
+    */
+   public synchronized void close() throws IOException
+   {
+      if (this._closed)
+         return;
+      this._closed = true;
+      try {
+         this._engine.closeOutbound();
+         while (this._channel.isOpen() && !this._engine.isOutboundDone())
+         {
+            if (!this.flush())
+               break;
+            SSLEngineResult result = this._wrap(EMPTY);
+            if (result.bytesProduced() == 0)
+               break;
+         }
+         this.flush();
+      } catch (IOException ex) {
+         //peer may already be gone
+      } finally {
+         this._channel.close();
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Continues a handshake in progress, running tasks and wrapping
+    * handshake messages.
+    *
+    * @param status handshake status from last engine result
+    * @return true if progress was made
+    * @throws IOException when network I/O failure
+    */
+   private boolean _handshake(HandshakeStatus status) throws IOException
+   {
+      boolean progress = false;
+      while (true)
+      {
+         if (status == HandshakeStatus.NEED_TASK)
+            this._runTasks();
+         else if (status == HandshakeStatus.NEED_WRAP && this.flush())
+            this._wrap(EMPTY);
+         else
+            return progress;
+         progress = true;
+         status = this._engine.getHandshakeStatus();
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   private void _runTasks()
+   {
+      Runnable task;
+      while ((task = this._engine.getDelegatedTask()) != null)
+         task.run();
+   }
+
+   // ----------------------------------------------------------------------
+
+   private SSLEngineResult _unwrap() throws IOException
+   {
+      this._netIn.flip();
+      this._appIn.compact();
+      try {
+         SSLEngineResult result = this._engine.unwrap(this._netIn,
+                                                      this._appIn);
+         if (result.getStatus() == Status.BUFFER_OVERFLOW)
+            this._appIn = this._grow(this._appIn,
+                      this._engine.getSession().getApplicationBufferSize());
+         return result;
+      } finally {
+         this._netIn.compact();
+         this._appIn.flip();
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   private SSLEngineResult _wrap(ByteBuffer src) throws IOException
+   {
+      this._netOut.compact();
+      try {
+         SSLEngineResult result = this._engine.wrap(src, this._netOut);
+         if (result.getStatus() == Status.BUFFER_OVERFLOW)
+            this._netOut = this._grow(this._netOut,
+                           this._engine.getSession().getPacketBufferSize());
+         return result;
+      } finally {
+         this._netOut.flip();
+      }
+   }
+
+   // ----------------------------------------------------------------------
+
+   private int _readNet() throws IOException
+   {
+      if (!this._netIn.hasRemaining())
+         this._netIn = this._grow(this._netIn,
+                           this._engine.getSession().getPacketBufferSize());
+      return this._channel.read(this._netIn);
+   }
+
+   // ----------------------------------------------------------------------
+
+   /**
+    * Returns a copy of a buffer in write mode with room for at least
+    * <code>size</code> more bytes.
+    */
+   private ByteBuffer _grow(ByteBuffer buffer, int size)
+   {
+      ByteBuffer grown = ByteBuffer.allocate(buffer.position() + size);
+      buffer.flip();
+      grown.put(buffer);
+      return grown;
+   }
+
+   // ----------------------------------------------------------------------
+}
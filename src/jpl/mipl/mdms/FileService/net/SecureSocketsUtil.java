@@ -19,6 +19,7 @@ import java.security.cert.CertificateException;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLServerSocket;
 import javax.net.ssl.SSLServerSocketFactory;
 import javax.net.ssl.SSLSocket;
@@ -316,6 +317,38 @@ public class SecureSocketsUtil {
       return this.getSecureClientSocket(host, port, localAddr, localPort, 0);
    }
 
+   /**
+    * Gets an SSL engine in client mode for a connection to the specified
+    * host and port number.  The engine can be used with a non-blocking
+    * socket channel.
+    *
+    * @param host the remote host name
+    * @param port the remote port number (between 0 and 65536)
+    * @return a client mode SSL engine
+    * @throws IOException when context initialization fails
+    */
+   public SSLEngine getSecureClientEngine(String host, int port)
+         throws IOException {
+      SSLContext context;
+      synchronized (_contextLock) {
+         if (this._context == null) {
+            try {
+               this._context = SSLContext.getInstance(this._algorithm);
+               this._context.init(null, this._tms, this._getSecureRandom());
+            } catch (NoSuchAlgorithmException e) {
+               throw new IOException(e.getMessage());
+            } catch (KeyManagementException e) {
+               throw new IOException(e.getMessage());
+            }
+         }
+         context = this._context;
+      }
+
+      SSLEngine engine = context.createSSLEngine(host, port);
+      engine.setUseClientMode(true);
+      return engine;
+   }
+
    /**
     * Gets a secure client socket with authorization. The client machine is
     * assumed to be authorized to connect to the remote server host, therefore
@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <b>Purpose: </b> Cache of local file checksums, so that files which have
+ * not changed are not rehashed each time they are diffed against the
+ * server.  Entries are keyed by file name and validated against the
+ * file's size, modification time and file key (device and inode on
+ * Unix).  Each directory has its own cache.  The cache of an output
+ * directory, into which files are received, is persisted in a small
+ * append-only index file within that directory.  Other directories, such
+ * as the sources of an add, are cached in memory only and never written
+ * to.  If the index cannot be written, checksums are still cached for the
+ * life of the process.
+ */
+
+public class ChecksumCache
+{
+    /** Name of the index file kept in each directory */
+    public static final String INDEX_FILENAME = ".komodo.checksums";
+
+    /** Maximum number of directory caches held in memory */
+    private static final int MAX_DIRECTORIES = 64;
+
+    /** Files modified this recently are not cached, as a further change
+        within the same timestamp tick would go unnoticed */
+    private static final long MIN_AGE_MS = 2000;
+
+    private static final Map _caches = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_DIRECTORIES;
+        }
+    };
+
+    private final File _indexFile;
+    private final Hashtable _entries = new Hashtable();
+    private int _records = 0;
+    private boolean _loaded = false;
+    private boolean _persist = true;
+
+    // set once the directory is used as an output directory
+    private boolean _indexed = false;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param directory Directory whose files are cached
+     */
+
+    protected ChecksumCache(File directory)
+    {
+        this._indexFile = new File(directory, INDEX_FILENAME);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the cache for a directory.
+     * @param directory Directory whose files are cached
+     * @return checksum cache
+     */
+
+    public static ChecksumCache getInstance(File directory)
+    {
+        String key = directory.getAbsolutePath();
+        synchronized (_caches)
+        {
+            ChecksumCache cache = (ChecksumCache) _caches.get(key);
+            if (cache == null)
+            {
+                cache = new ChecksumCache(directory.getAbsoluteFile());
+                _caches.put(key, cache);
+            }
+            return cache;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the checksum string of a local file, as computed by
+     * <code>FileUtil.getStringChecksum()</code>, using the cache of the
+     * file's directory.
+     * @param fileName the full file path with name
+     * @param persist true if the file's directory is an output directory,
+     *        whose cache may be persisted in an index file
+     * @return checksum in string representation
+     * @throws IOException when file I/O fail
+     */
+
+    public static String getStringChecksum(String fileName, boolean persist)
+                                                    throws IOException
+    {
+        File file = new File(fileName).getAbsoluteFile();
+        File parent = file.getParentFile();
+        if (parent == null)
+            return FileUtil.getStringChecksum(fileName);
+        return getInstance(parent).getChecksum(file, persist);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the checksum string of a file in this cache's directory,
+     * hashing the file only if no valid entry exists.
+     * @param file File within the cache directory
+     * @param persist true if the cache directory is an output directory,
+     *        whose cache may be persisted in an index file
+     * @return checksum in string representation
+     * @throws IOException when file I/O fail
+     */
+
+    public String getChecksum(File file, boolean persist) throws IOException
+    {
+        Entry current = _stat(file);
+        String name = file.getName();
+
+        synchronized (this)
+        {
+            if (persist)
+                this._indexed = true;
+            _load();
+            Entry entry = (Entry) this._entries.get(name);
+            if (entry != null && entry.matches(current))
+                return entry.checksum;
+        }
+
+        // hash outside of the lock so files of one directory can be
+        // hashed concurrently
+        String checksum = FileUtil.getStringChecksum(file.getPath());
+
+        // only cache if the file did not change while being hashed
+        Entry after = _stat(file);
+        if (after.matches(current) &&
+            System.currentTimeMillis() - after.mtime >= MIN_AGE_MS)
+        {
+            after.name = name;
+            after.checksum = checksum;
+            synchronized (this)
+            {
+                this._entries.put(name, after);
+                _append(after);
+            }
+        }
+        return checksum;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Loads the index file on first use, compacting it if most of its
+     * records are stale.
+     */
+
+    private void _load()
+    {
+        if (this._loaded)
+            return;
+        this._loaded = true;
+        if (!this._indexFile.isFile())
+            return;
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(this._indexFile));
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                Entry entry = Entry.parse(line);
+                if (entry != null)
+                {
+                    this._entries.put(entry.name, entry);
+                    ++this._records;
+                }
+            }
+        } catch (IOException ioEx) {
+            this._persist = false;
+        } finally {
+            if (reader != null)
+            {
+                try {
+                    reader.close();
+                } catch (IOException ioEx) {
+                    // ignore
+                }
+            }
+        }
+
+        if (this._persist && this._indexed &&
+            this._records > 2 * this._entries.size() + 16)
+            _compact();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Appends an entry to the index file of an output directory.  Later
+     * records of a name replace earlier ones when the index is loaded.
+     * @param entry Entry to be appended
+     */
+
+    private void _append(Entry entry)
+    {
+        if (!this._persist || !this._indexed)
+            return;
+
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(new FileWriter(this._indexFile, true));
+            writer.println(entry.format());
+            ++this._records;
+        } catch (IOException ioEx) {
+            // directory not writable, keep cache in memory only
+            this._persist = false;
+        } finally {
+            if (writer != null)
+                writer.close();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Rewrites the index file with the current entries, dropping those of
+     * files that no longer exist.
+     */
+
+    private void _compact()
+    {
+        File parent = this._indexFile.getParentFile();
+        File tmpFile = new File(parent, INDEX_FILENAME + ".tmp");
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(new FileWriter(tmpFile));
+            this._records = 0;
+            Iterator it = this._entries.values().iterator();
+            while (it.hasNext())
+            {
+                Entry entry = (Entry) it.next();
+                if (!new File(parent, entry.name).isFile())
+                {
+                    it.remove();
+                    continue;
+                }
+                writer.println(entry.format());
+                ++this._records;
+            }
+            writer.close();
+            writer = null;
+            if (!tmpFile.renameTo(this._indexFile))
+            {
+                this._indexFile.delete();
+                if (!tmpFile.renameTo(this._indexFile))
+                    this._persist = false;
+            }
+        } catch (IOException ioEx) {
+            this._persist = false;
+        } finally {
+            if (writer != null)
+                writer.close();
+            tmpFile.delete();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the current size, modification time and file key of a file.
+     * @param file File to examine
+     * @return entry without name or checksum
+     * @throws IOException if file attributes cannot be read
+     */
+
+    private static Entry _stat(File file) throws IOException
+    {
+        BasicFileAttributes attrs = Files.readAttributes(file.toPath(),
+                                             BasicFileAttributes.class);
+        Entry entry = new Entry();
+        entry.size = attrs.size();
+        entry.mtime = attrs.lastModifiedTime().toMillis();
+        Object key = attrs.fileKey();
+        entry.key = (key == null) ? "-" : key.toString();
+        return entry;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Clears the in-memory caches.  Index files are left as is.
+     */
+
+    public static void clear()
+    {
+        synchronized (_caches)
+        {
+            _caches.clear();
+        }
+    }
+
+    //=====================================================================
+
+    /**
+     * Cached checksum of one file.
+     */
+
+    static class Entry
+    {
+        String name;
+        long size;
+        long mtime;
+        String key;
+        String checksum;
+
+        boolean matches(Entry other)
+        {
+            return this.size == other.size && this.mtime == other.mtime &&
+                   this.key.equals(other.key);
+        }
+
+        String format()
+        {
+            return this.size + "\t" + this.mtime + "\t" + this.key + "\t" +
+                   this.checksum + "\t" + this.name;
+        }
+
+        static Entry parse(String line)
+        {
+            String[] fields = line.split("\t", 5);
+            if (fields.length != 5 || fields[4].length() == 0)
+                return null;
+            try {
+                Entry entry = new Entry();
+                entry.size = Long.parseLong(fields[0]);
+                entry.mtime = Long.parseLong(fields[1]);
+                entry.key = fields[2];
+                entry.checksum = fields[3];
+                entry.name = fields[4];
+                return entry;
+            } catch (NumberFormatException nfEx) {
+                return null;
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------
+}
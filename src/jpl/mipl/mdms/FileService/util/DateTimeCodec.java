@@ -0,0 +1,425 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.util;
+
+import java.util.TimeZone;
+
+/**
+ * <b>Purpose: </b> Thread-safe parser and formatter for the time formats
+ * exchanged with the server: CCSDS ASCII type A (yyyy-MM-ddTHH:mm:ss.SSS),
+ * optionally followed by an RFC822 zone (+HHMM), the DB format
+ * (yyyy-MM-dd HH:mm:ss.SSS) and UTC day of year (yyyy-DDDTHH:mm:ss.SSS).
+ * Times are converted by arithmetic on the character positions, with no
+ * objects created other than the returned string.
+ * <BR>
+ * Parsing accepts only the canonical form of each format, optionally
+ * truncated after the date, hour, minute or second as
+ * <code>DateTimeUtil.completeTimeString()</code> allows, with years from
+ * 1583 to 9999.  Anything else, including values that a non-lenient
+ * SimpleDateFormat would reject, returns <code>UNPARSED</code>, and
+ * callers fall back to SimpleDateFormat so that results and error
+ * messages are unchanged.  Formatting likewise returns null outside of
+ * that year range.
+ */
+
+public final class DateTimeCodec
+{
+    /** Returned by the parse methods when the string was not handled */
+    public static final long UNPARSED = Long.MIN_VALUE;
+
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    /** Length of yyyy-MM-ddTHH:mm:ss.SSS and the DB equivalent */
+    private static final int FULL_LENGTH = 23;
+
+    /** Length of yyyy-DDDTHH:mm:ss.SSS */
+    private static final int UTC_LENGTH = 21;
+
+    private static final ThreadLocal<char[]> _buffer =
+                                            new ThreadLocal<char[]>() {
+        protected char[] initialValue() {
+            return new char[FULL_LENGTH + 5];
+        }
+    };
+
+    //---------------------------------------------------------------------
+
+    private DateTimeCodec()
+    {
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Parses yyyy-MM-ddTHH:mm:ss.SSS.
+     * @param s Time string
+     * @param complete True if the time may be truncated
+     * @param tz Time zone of the string
+     * @return Milliseconds since the epoch, or UNPARSED
+     */
+
+    public static long parseCCSDSA(CharSequence s, boolean complete,
+                                   TimeZone tz)
+    {
+        return _parse(s, 'T', false, complete, tz);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Parses yyyy-MM-ddTHH:mm:ss.SSS(+/-)HHMM.  If the zone is absent,
+     * the current offset of the given time zone is used, as
+     * <code>DateTimeUtil.completeTimeStringWithWithRFC822TimeZone()</code>
+     * does.
+     * @param s Time string
+     * @param tz Time zone used if the string has none
+     * @return Milliseconds since the epoch, or UNPARSED
+     */
+
+    public static long parseCCSDSAWithZone(CharSequence s, TimeZone tz)
+    {
+        int len = s.length();
+        if (len != FULL_LENGTH + 5)
+        {
+            long local = _parseLocal(s, len, 'T', false, true);
+            if (local == UNPARSED)
+                return UNPARSED;
+            return local - tz.getOffset(System.currentTimeMillis());
+        }
+
+        char sign = s.charAt(FULL_LENGTH);
+        int hh = _digits(s, FULL_LENGTH + 1, 2);
+        int mm = _digits(s, FULL_LENGTH + 3, 2);
+        if ((sign != '+' && sign != '-') || hh < 0 || hh > 23 ||
+            mm < 0 || mm > 59)
+            return UNPARSED;
+
+        long local = _parseLocal(s, FULL_LENGTH, 'T', false, false);
+        if (local == UNPARSED)
+            return UNPARSED;
+        long offset = (hh * 60 + mm) * 60000L;
+        return (sign == '+') ? local - offset : local + offset;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Parses yyyy-MM-dd HH:mm:ss.SSS.
+     * @param s Time string
+     * @param complete True if the time may be truncated
+     * @param tz Time zone of the string
+     * @return Milliseconds since the epoch, or UNPARSED
+     */
+
+    public static long parseDB(CharSequence s, boolean complete, TimeZone tz)
+    {
+        return _parse(s, ' ', false, complete, tz);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Parses yyyy-DDDTHH:mm:ss.SSS.
+     * @param s Time string
+     * @param complete True if the time may be truncated
+     * @param tz Time zone of the string
+     * @return Milliseconds since the epoch, or UNPARSED
+     */
+
+    public static long parseUTC(CharSequence s, boolean complete, TimeZone tz)
+    {
+        return _parse(s, 'T', true, complete, tz);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Formats as yyyy-MM-ddTHH:mm:ss.SSS.
+     * @param millis Milliseconds since the epoch
+     * @param tz Time zone of the string
+     * @return Time string, or null if out of range
+     */
+
+    public static String formatCCSDSA(long millis, TimeZone tz)
+    {
+        return _format(millis, tz, 'T', false, false);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Formats as yyyy-MM-ddTHH:mm:ss.SSS(+/-)HHMM.
+     * @param millis Milliseconds since the epoch
+     * @param tz Time zone of the string
+     * @return Time string, or null if out of range
+     */
+
+    public static String formatCCSDSAWithZone(long millis, TimeZone tz)
+    {
+        return _format(millis, tz, 'T', false, true);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Formats as yyyy-MM-dd HH:mm:ss.SSS.
+     * @param millis Milliseconds since the epoch
+     * @param tz Time zone of the string
+     * @return Time string, or null if out of range
+     */
+
+    public static String formatDB(long millis, TimeZone tz)
+    {
+        return _format(millis, tz, ' ', false, false);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Formats as yyyy-DDDTHH:mm:ss.SSS.
+     * @param millis Milliseconds since the epoch
+     * @param tz Time zone of the string
+     * @return Time string, or null if out of range
+     */
+
+    public static String formatUTC(long millis, TimeZone tz)
+    {
+        return _format(millis, tz, 'T', true, false);
+    }
+
+    //---------------------------------------------------------------------
+
+    private static long _parse(CharSequence s, char sep, boolean dayOfYear,
+                               boolean complete, TimeZone tz)
+    {
+        long local = _parseLocal(s, s.length(), sep, dayOfYear, complete);
+        if (local == UNPARSED)
+            return UNPARSED;
+
+        //resolve the wall time as GregorianCalendar does, leaving
+        //times skipped by a daylight saving transition to the fallback
+        long offset = tz.getOffset(local - tz.getRawOffset());
+        long millis = local - offset;
+        if (tz.getOffset(millis) != offset)
+            return UNPARSED;
+        return millis;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the wall time of the first len characters of the string as
+     * milliseconds since the epoch in GMT, or UNPARSED.
+     */
+
+    private static long _parseLocal(CharSequence s, int len, char sep,
+                                    boolean dayOfYear, boolean complete)
+    {
+        int dateLen = dayOfYear ? 8 : 10;
+        int fullLen = dayOfYear ? UTC_LENGTH : FULL_LENGTH;
+
+        //date, then hour, minute, second and millisecond if complete
+        if (len != fullLen && (!complete || (len != dateLen &&
+            len != dateLen + 3 && len != dateLen + 6 && len != dateLen + 9)))
+            return UNPARSED;
+
+        int year = _digits(s, 0, 4);
+        if (year < MIN_YEAR || year > MAX_YEAR || s.charAt(4) != '-')
+            return UNPARSED;
+
+        long days;
+        if (dayOfYear)
+        {
+            int doy = _digits(s, 5, 3);
+            if (doy < 1 || doy > (_isLeap(year) ? 366 : 365))
+                return UNPARSED;
+            days = _epochDay(year, 1, 1) + doy - 1;
+        }
+        else
+        {
+            int month = _digits(s, 5, 2);
+            int day = _digits(s, 8, 2);
+            if (s.charAt(7) != '-' || month < 1 || month > 12 ||
+                day < 1 || day > _monthLength(year, month))
+                return UNPARSED;
+            days = _epochDay(year, month, day);
+        }
+
+        int hour = 0, minute = 0, second = 0, milli = 0;
+        int i = dateLen;
+        if (len > i)
+        {
+            hour = _digits(s, i + 1, 2);
+            if (s.charAt(i) != sep || hour < 0 || hour > 23)
+                return UNPARSED;
+            i += 3;
+        }
+        if (len > i)
+        {
+            minute = _digits(s, i + 1, 2);
+            if (s.charAt(i) != ':' || minute < 0 || minute > 59)
+                return UNPARSED;
+            i += 3;
+        }
+        if (len > i)
+        {
+            second = _digits(s, i + 1, 2);
+            if (s.charAt(i) != ':' || second < 0 || second > 59)
+                return UNPARSED;
+            i += 3;
+        }
+        if (len > i)
+        {
+            milli = _digits(s, i + 1, 3);
+            if (s.charAt(i) != '.' || milli < 0)
+                return UNPARSED;
+        }
+
+        return days * MILLIS_PER_DAY +
+               ((hour * 60 + minute) * 60 + second) * 1000L + milli;
+    }
+
+    //---------------------------------------------------------------------
+
+    private static String _format(long millis, TimeZone tz, char sep,
+                                  boolean dayOfYear, boolean zone)
+    {
+        int offset = tz.getOffset(millis);
+        long local = millis + offset;
+        long days = _floorDiv(local, MILLIS_PER_DAY);
+        int time = (int) (local - days * MILLIS_PER_DAY);
+
+        //civil date from days since the epoch
+        long z = days + DAYS_0000_TO_1970;
+        long era = _floorDiv(z, 146097);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doyMar = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doyMar + 2) / 153;
+        int day = doyMar - (153 * mp + 2) / 5 + 1;
+        int month = (mp < 10) ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + ((month <= 2) ? 1 : 0);
+        if (year < MIN_YEAR || year > MAX_YEAR)
+            return null;
+
+        char[] buf = _buffer.get();
+        int i = _put(buf, 0, (int) year, 4);
+        buf[i++] = '-';
+        if (dayOfYear)
+        {
+            int doy = (int) (days - _epochDay((int) year, 1, 1)) + 1;
+            i = _put(buf, i, doy, 3);
+        }
+        else
+        {
+            i = _put(buf, i, month, 2);
+            buf[i++] = '-';
+            i = _put(buf, i, day, 2);
+        }
+        buf[i++] = sep;
+        i = _put(buf, i, time / 3600000, 2);
+        buf[i++] = ':';
+        i = _put(buf, i, (time / 60000) % 60, 2);
+        buf[i++] = ':';
+        i = _put(buf, i, (time / 1000) % 60, 2);
+        buf[i++] = '.';
+        i = _put(buf, i, time % 1000, 3);
+
+        if (zone)
+        {
+            int minutes = offset / 60000;
+            buf[i++] = (minutes < 0) ? '-' : '+';
+            minutes = Math.abs(minutes);
+            i = _put(buf, i, minutes / 60, 2);
+            i = _put(buf, i, minutes % 60, 2);
+        }
+        return new String(buf, 0, i);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the value of count decimal digits at the offset, or -1 if
+     * any is not a digit.
+     */
+
+    private static int _digits(CharSequence s, int offset, int count)
+    {
+        int value = 0;
+        for (int i = offset; i < offset + count; ++i)
+        {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    //---------------------------------------------------------------------
+
+    private static int _put(char[] buf, int offset, int value, int count)
+    {
+        for (int i = offset + count - 1; i >= offset; --i)
+        {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + count;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns days since 1970-01-01 of a proleptic Gregorian date.
+     */
+
+    private static long _epochDay(int year, int month, int day)
+    {
+        int y = (month <= 2) ? year - 1 : year;
+        int era = y / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - DAYS_0000_TO_1970;
+    }
+
+    //---------------------------------------------------------------------
+
+    private static boolean _isLeap(int year)
+    {
+        return (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    //---------------------------------------------------------------------
+
+    private static int _monthLength(int year, int month)
+    {
+        switch (month)
+        {
+            case 2:
+                return _isLeap(year) ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private static long _floorDiv(long x, long y)
+    {
+        long q = x / y;
+        return ((x % y != 0) && ((x ^ y) < 0)) ? q - 1 : q;
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -16,12 +16,16 @@ import java.util.TimeZone;
 /**
  * This class manipulates time strings of format mm/dd/yyyy hh:mm:ss.SSS
  * and UTC format yyyy-dddThh:mm:ss.SSS.  All times are assumed GMT
+ * <BR>
+ * The CCSDSA, UTC and DB conversions are handled by DateTimeCodec where
+ * possible, falling back to SimpleDateFormat otherwise.
  *
  * @author G.Turek
  * @version $Id: DateTimeUtil.java,v 1.9 2010/09/09 18:43:03 ntt Exp $
  */
 public class DateTimeUtil 
 {
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
     
     //---------------------------------------------------------------------
     
@@ -48,6 +52,11 @@ public class DateTimeUtil
      */
     public static String convertFromDBFormat(String datetime)
         throws ParseException {
+        if (datetime != null) {
+            long time = DateTimeCodec.parseDB(datetime, true, localZone());
+            if (time != DateTimeCodec.UNPARSED)
+                return DateTimeUtil.getDateCCSDSAString(new Date(time));
+        }
         SimpleDateFormat format = DateTimeUtil.getDBFormat();
         try {
             Date date =
@@ -112,6 +121,11 @@ public class DateTimeUtil
      * @throws ParseException when string parsing fail
      */
     public static Date getUTCDate(String datetime) throws ParseException {
+        if (datetime != null) {
+            long time = DateTimeCodec.parseUTC(datetime, true, localZone());
+            if (time != DateTimeCodec.UNPARSED)
+                return new Date(time);
+        }
         SimpleDateFormat format = DateTimeUtil.getUTCFormat();
         try {
             String s1 = DateTimeUtil.completeTimeString(datetime, true);
@@ -145,6 +159,11 @@ public class DateTimeUtil
      */
     public static Date getCCSDSADateGMT(String datetime)
         throws ParseException {
+        if (datetime != null) {
+            long time = DateTimeCodec.parseCCSDSA(datetime, true, GMT);
+            if (time != DateTimeCodec.UNPARSED)
+                return new Date(time);
+        }
         SimpleDateFormat format = DateTimeUtil.getCCSDSAFormat();
         format.setTimeZone(TimeZone.getTimeZone("GMT"));
         try {
@@ -178,6 +197,11 @@ public class DateTimeUtil
      * @throws ParseException when string parse fail
      */
     public static Date getCCSDSADate(String datetime) throws ParseException {
+        if (datetime != null) {
+            long time = DateTimeCodec.parseCCSDSA(datetime, true, localZone());
+            if (time != DateTimeCodec.UNPARSED)
+                return new Date(time);
+        }
         SimpleDateFormat format = DateTimeUtil.getCCSDSAFormat();
         try {
             String s1 = DateTimeUtil.completeTimeString(datetime, true);
@@ -210,6 +234,12 @@ public class DateTimeUtil
      * @throws ParseException when string parse fail
      */
     public static Date getCCSDSAWithTimeZoneDate(String datetime, boolean local) throws ParseException {
+        if (datetime != null) {
+            long time = DateTimeCodec.parseCCSDSAWithZone(datetime,
+                                                     local ? localZone() : GMT);
+            if (time != DateTimeCodec.UNPARSED)
+                return new Date(time);
+        }
         SimpleDateFormat format = DateTimeUtil.getCCSDSAWithRFC822TimeZoneFormat();
         try {
             String s1 = DateTimeUtil.completeTimeStringWithWithRFC822TimeZone(
@@ -255,6 +285,11 @@ public class DateTimeUtil
      * @throws ParseException when string parse fail
      */
     public static Date getDBDate(String datetime) throws ParseException {
+        if (datetime != null) {
+            long time = DateTimeCodec.parseDB(datetime, true, localZone());
+            if (time != DateTimeCodec.UNPARSED)
+                return new Date(time);
+        }
         SimpleDateFormat format = DateTimeUtil.getDBFormat();
         try {
             String s1 = DateTimeUtil.completeTimeString(datetime, false);
@@ -336,6 +371,9 @@ public class DateTimeUtil
      * @return converted date string
      */
     public static String getDateUTCString(Date date) {
+        String s = DateTimeCodec.formatUTC(date.getTime(), localZone());
+        if (s != null)
+            return s;
         SimpleDateFormat format = DateTimeUtil.getUTCFormat();
         return format.format(date);
     }
@@ -349,6 +387,9 @@ public class DateTimeUtil
      * @return converted date string
      */
     public static String getDateCCSDSAString(Date date) {
+        String s = DateTimeCodec.formatCCSDSA(date.getTime(), localZone());
+        if (s != null)
+            return s;
         SimpleDateFormat format = DateTimeUtil.getCCSDSAFormat();
         return format.format(date);
     }
@@ -363,6 +404,9 @@ public class DateTimeUtil
      * @return converted date string with timezone
      */
     public static String getDateCCSDSAWithTimeZoneString(Date date) {
+        String s = DateTimeCodec.formatCCSDSAWithZone(date.getTime(), localZone());
+        if (s != null)
+            return s;
         SimpleDateFormat format = DateTimeUtil.getCCSDSAWithRFC822TimeZoneFormat();        
         return format.format(date);
         
@@ -377,6 +421,9 @@ public class DateTimeUtil
      * @return converted date string
      */
     public static String getDateDBString(Date date) {
+        String s = DateTimeCodec.formatDB(date.getTime(), localZone());
+        if (s != null)
+            return s;
         SimpleDateFormat format = DateTimeUtil.getDBFormat();
         return format.format(date);
     }
@@ -426,6 +473,9 @@ public class DateTimeUtil
      * @return converted date string
      */
     public static String getCurrentDateUTCString() {
+        String s = DateTimeCodec.formatUTC(System.currentTimeMillis(), localZone());
+        if (s != null)
+            return s;
         SimpleDateFormat format = DateTimeUtil.getUTCFormat();
         return format.format(DateTimeUtil.getCurrentDate());
     }
@@ -438,6 +488,9 @@ public class DateTimeUtil
      * @return converted date string
      */
     public static String getCurrentDateCCSDSAString() {
+        String s = DateTimeCodec.formatCCSDSA(System.currentTimeMillis(), localZone());
+        if (s != null)
+            return s;
         SimpleDateFormat format = DateTimeUtil.getCCSDSAFormat();
         return format.format(DateTimeUtil.getCurrentDate());
     }
@@ -450,6 +503,9 @@ public class DateTimeUtil
      * @return converted date string
      */
     public static String getCurrentDateDBString() {
+        String s = DateTimeCodec.formatDB(System.currentTimeMillis(), localZone());
+        if (s != null)
+            return s;
         SimpleDateFormat format = DateTimeUtil.getDBFormat();
         return format.format(DateTimeUtil.getCurrentDate());
     }
@@ -584,6 +640,9 @@ public class DateTimeUtil
      * @return true if input is a valid UTC value.
      */
     public static boolean isValidUTC(String datetime) {
+        if (datetime != null && DateTimeCodec.parseUTC(datetime, false, localZone()) !=
+                                DateTimeCodec.UNPARSED)
+            return true;
         SimpleDateFormat format = DateTimeUtil.getUTCFormat();
         try {
             format.parse(datetime);
@@ -604,6 +663,9 @@ public class DateTimeUtil
      * @return true if input is a valid CCSDSA value.
      */
     public static boolean isValidCCSDSA(String datetime) {
+        if (datetime != null && DateTimeCodec.parseCCSDSA(datetime, false, localZone()) !=
+                                DateTimeCodec.UNPARSED)
+            return true;
         SimpleDateFormat format = DateTimeUtil.getCCSDSAFormat();
         try {
             format.parse(datetime);
@@ -624,6 +686,9 @@ public class DateTimeUtil
      * @return true if input is a valid DB format value
      */
     public static boolean isValidDB(String datetime) {
+        if (datetime != null && DateTimeCodec.parseDB(datetime, false, localZone()) !=
+                                DateTimeCodec.UNPARSED)
+            return true;
         SimpleDateFormat format = DateTimeUtil.getDBFormat();
         try {
             format.parse(datetime);
@@ -845,6 +910,19 @@ public class DateTimeUtil
     
     //---------------------------------------------------------------------
     
+    /**
+     * Returns the time zone of the CCSDSA, UTC and DB formats.  The default
+     * zone is read on each call, as SimpleDateFormat does, so that changes
+     * to it after class load are honored.
+     * 
+     * @return the default time zone
+     */
+    private static TimeZone localZone() {
+        return TimeZone.getDefault();
+    }
+    
+    //---------------------------------------------------------------------
+    
     /**
      * Returns instance of a SimpleDateFormat where the
      * format has been set to yyyy-mm-ddThh:mm:ss.SSS(+/-)HHMM
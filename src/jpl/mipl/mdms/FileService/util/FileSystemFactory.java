@@ -1,5 +1,6 @@
 package jpl.mipl.mdms.FileService.util;
 
+import jpl.mipl.mdms.utils.Constants;
 
 /**
  * <b>Purpose: </b> Factory that creates new instances of FileSystem 
@@ -21,6 +22,8 @@ package jpl.mipl.mdms.FileService.util;
  * <B>Date              Who          What </B>
  * ----------------------------------------------------------------------------
  * 06/24/2008        Nick          Initial release
+ *                                 Unix platforms use in-process file
+ *                                 operations unless disabled
  * ============================================================================
  * </PRE>
  * 
@@ -47,7 +50,10 @@ public class FileSystemFactory
     //---------------------------------------------------------------------
     
     /**
-     * Returns a newly instantiated implementation of FileSystem
+     * Returns a newly instantiated implementation of FileSystem.
+     * On Unix platforms, the in-process implementation is returned 
+     * unless the property <code>Constants.PROPERTY_NIO_FILESYSTEM</code>
+     * is false, in which case shell commands are used.
      * @return Instance of FileSystem
      */
     
@@ -58,7 +64,13 @@ public class FileSystemFactory
         if (osName.equalsIgnoreCase("sunos") || 
             osName.equalsIgnoreCase("Linux") ||
             osName.equalsIgnoreCase("Mac OS X"))
-           fs = new UnixFileSystem();
+        {
+           if ("false".equalsIgnoreCase(System.getProperty(
+                                        Constants.PROPERTY_NIO_FILESYSTEM)))
+               fs = new UnixFileSystem();
+           else
+               fs = new NioFileSystem();
+        }
         else
            fs = new SimpleFileSystem();
         
@@ -5,9 +5,11 @@
 package jpl.mipl.mdms.FileService.util;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -18,7 +20,7 @@ import java.security.NoSuchAlgorithmException;
  * @version $Id: FileUtil.java,v 1.6 2013/03/19 21:12:34 awt Exp $
  */
 public class FileUtil {
-    private static final int DEFINBUFSIZE = 512;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
 
     /**
      * Calculate a message digest (checksum) on a local file.  No
@@ -77,27 +79,32 @@ public class FileUtil {
         long length)
         throws IOException {
 
-        long bytesToRead = length;
-
-        byte[] data = new byte[FileUtil.DEFINBUFSIZE];
-
-        FileInputStream fin = new FileInputStream(fileName);
-        fin.skip(offset);
-
-        while (bytesToRead > 0) {
-            int bytesRead;
-            int buffersize = FileUtil.DEFINBUFSIZE;
-            if (FileUtil.DEFINBUFSIZE >= bytesToRead)
-                buffersize = (int) bytesToRead;
-
-            bytesRead = fin.read(data, 0, buffersize);
-            if (bytesRead < 1)
+        // Read through one large buffer rather than 512 byte reads.  The
+        // file is not mapped: a mapping outlives the close until collected,
+        // and keeps the file locked on Windows.
+        RandomAccessFile raf = new RandomAccessFile(fileName, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (offset + length > channel.size())
                 throw new IOException("File reading error.");
 
-            digest.update(data, 0, bytesRead);
-            bytesToRead -= bytesRead;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(
+                                     FileUtil.READ_BUFFER_SIZE, length));
+            while (length > 0) {
+                buffer.clear();
+                if (buffer.remaining() > length)
+                    buffer.limit((int) length);
+                int bytesRead = channel.read(buffer, offset);
+                if (bytesRead < 1)
+                    throw new IOException("File reading error.");
+
+                digest.update(buffer.array(), 0, bytesRead);
+                offset += bytesRead;
+                length -= bytesRead;
+            }
+        } finally {
+            raf.close();
         }
-        fin.close();
     }
 
     /**
@@ -0,0 +1,670 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.util;
+
+import java.util.Hashtable;
+import java.util.LinkedList;
+import java.util.Vector;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import jpl.mipl.mdms.utils.Constants;
+import jpl.mipl.mdms.utils.logging.Logger;
+
+/**
+ * <b>Purpose: </b> Runs system commands, such as those of the client
+ * <code>-invoke</code> option, on a fixed number of threads.  Commands
+ * beyond those running wait in a bounded queue; once the queue is full,
+ * <code>submit()</code> blocks, slowing the caller to the rate at which
+ * commands complete.  Commands submitted with the same key may be run
+ * one at a time in submission order.  If halt on error is set, the
+ * first failure causes queued commands to be skipped and further
+ * submissions to be refused.  <code>finish()</code> waits a bounded time
+ * for outstanding commands, destroying those still running once the
+ * time is up or a failure has halted the executor.
+ */
+
+public class InvocationExecutor
+{
+    /** Default number of commands that may wait for a thread */
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+    /** Default time finish() waits for outstanding commands, in ms */
+    public static final long DEFAULT_FINISH_TIMEOUT = 300000;
+
+    /** Time finish() waits for cancelled commands to end, in ms */
+    private static final long CANCEL_TIMEOUT = 5000;
+
+    private static final String THREAD_PREFIX = "Invocation_Thread_";
+
+    private final ThreadPoolExecutor _executor;
+
+    /** Permits for running and queued commands */
+    private final Semaphore _slots;
+
+    private final boolean _ordered;
+
+    /** Commands waiting behind a running command of the same key */
+    private final Hashtable _lanes = new Hashtable();
+
+    /** Commands currently running */
+    private final Vector _running = new Vector();
+
+    private final Logger _logger;
+
+    private InvocationListener _listener = null;
+
+    private volatile boolean _haltOnError = false;
+    private volatile boolean _halted = false;
+    private volatile boolean _shutdown = false;
+    private volatile boolean _cancelled = false;
+
+    private int _pending = 0;
+
+    //statistics, guarded by this
+    private long _completed = 0;
+    private long _failed = 0;
+    private long _skipped = 0;
+    private long _totalLatency = 0;
+    private long _maxLatency = 0;
+    private long _totalQueueTime = 0;
+    private long _maxQueueTime = 0;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Callback for completed and skipped invocations.  Called from the
+     * invocation thread.
+     */
+
+    public interface InvocationListener
+    {
+        /**
+         * Called once an invocation has completed or been skipped.
+         * @param invocation Completed invocation
+         */
+
+        public void invocationCompleted(Invocation invocation);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param concurrency Maximum number of commands run at once
+     * @param capacity Number of commands that may wait for a thread
+     *        before <code>submit()</code> blocks
+     * @param ordered True to run commands with the same key one at a
+     *        time in submission order
+     * @param logger Logger to which command output is written
+     */
+
+    public InvocationExecutor(int concurrency, int capacity, boolean ordered,
+                              Logger logger)
+    {
+        if (concurrency < 1 || capacity < 0)
+            throw new IllegalArgumentException("Illegal invocation limits: "
+                                    + concurrency + ", " + capacity);
+        this._ordered = ordered;
+        this._logger = logger;
+        this._slots = new Semaphore(concurrency + capacity);
+        this._executor = new ThreadPoolExecutor(concurrency, concurrency,
+                                 60, TimeUnit.SECONDS,
+                                 new LinkedBlockingQueue(),
+                                 new ThreadFactory() {
+            private int _count = 0;
+            public synchronized Thread newThread(Runnable r)
+            {
+                return new Thread(r, THREAD_PREFIX + _count++);
+            }
+        });
+        this._executor.allowCoreThreadTimeOut(true);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Creates an executor configured by system properties
+     * <code>mdms.invoke.async.limit</code>,
+     * <code>mdms.invoke.async.queue</code> and
+     * <code>mdms.invoke.async.ordered</code>.
+     * @param logger Logger to which command output is written
+     * @return New executor
+     */
+
+    public static InvocationExecutor createDefault(Logger logger)
+    {
+        int concurrency = _getIntProperty(
+                                 Constants.PROPERTY_ASYNC_INVOKE_LIMIT,
+                                 SystemProcess.DEFAULT_AYSNC_LIMIT, 1);
+        int capacity = _getIntProperty(
+                                 Constants.PROPERTY_ASYNC_INVOKE_QUEUE,
+                                 DEFAULT_QUEUE_CAPACITY, 0);
+        boolean ordered = Boolean.getBoolean(
+                                 Constants.PROPERTY_ASYNC_INVOKE_ORDERED);
+        return new InvocationExecutor(concurrency, capacity, ordered, logger);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the time <code>finish()</code> should wait for outstanding
+     * commands, from system property <code>mdms.invoke.async.timeout
+     * </code>.
+     * @return Timeout in milliseconds
+     */
+
+    public static long getFinishTimeout()
+    {
+        return _getIntProperty(Constants.PROPERTY_ASYNC_INVOKE_TIMEOUT,
+                               (int) DEFAULT_FINISH_TIMEOUT, 1);
+    }
+
+    //---------------------------------------------------------------------
+
+    private static int _getIntProperty(String name, int defaultValue,
+                                       int minimum)
+    {
+        String value = System.getProperty(name, "");
+        try {
+            int count = Integer.parseInt(value.trim());
+            return count < minimum ? defaultValue : count;
+        } catch (NumberFormatException nfEx) {
+            return defaultValue;
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets the listener notified of each completed or skipped invocation.
+     * @param listener Listener, or null
+     */
+
+    public void setListener(InvocationListener listener)
+    {
+        this._listener = listener;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets whether a failed invocation halts this executor.
+     * @param flag True to skip queued and refuse further commands
+     *        after the first failure
+     */
+
+    public void setHaltOnError(boolean flag)
+    {
+        this._haltOnError = flag;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns true if a failure has halted this executor.
+     * @return Halted state
+     */
+
+    public boolean isHalted()
+    {
+        return this._halted;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Submits a command, blocking while the queue is full.
+     * @param key Key of commands to be run in order, such as the file
+     *        type; may be null
+     * @param command System command to be executed
+     * @return True if the command was accepted, false if this executor
+     *         has been halted by a failure or shut down
+     */
+
+    public boolean submit(String key, String command)
+    {
+        if (this._halted || this._shutdown)
+            return false;
+
+        this._slots.acquire();
+        if (this._halted || this._shutdown)
+        {
+            this._slots.release();
+            return false;
+        }
+
+        Invocation invocation = new Invocation(key, command);
+        synchronized (this)
+        {
+            ++this._pending;
+        }
+
+        if (this._ordered && key != null)
+        {
+            synchronized (this._lanes)
+            {
+                LinkedList lane = (LinkedList) this._lanes.get(key);
+                if (lane != null)
+                {
+                    lane.add(invocation);
+                    return true;
+                }
+                this._lanes.put(key, new LinkedList());
+            }
+        }
+
+        this._executor.execute(invocation);
+        return true;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Blocks until all submitted commands have completed or been skipped.
+     * @param timeout Maximum time to wait in milliseconds, 0 for no limit
+     * @return True if all commands completed, false on timeout
+     */
+
+    public synchronized boolean awaitCompletion(long timeout)
+    {
+        long deadline = timeout > 0 ? System.currentTimeMillis() + timeout
+                                    : Long.MAX_VALUE;
+        while (this._pending > 0)
+        {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                return false;
+            try {
+                wait(remaining);
+            } catch (InterruptedException iEx) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Waits for submitted commands to complete, then stops accepting
+     * commands.  If the commands have not completed within the timeout,
+     * or a failure has halted this executor with halt on error set, the
+     * outstanding commands are cancelled.
+     * @param timeout Maximum time to wait in milliseconds, 0 for no limit
+     * @return True if all commands completed, false if some were
+     *         cancelled
+     */
+
+    public boolean finish(long timeout)
+    {
+        long deadline = timeout > 0 ? System.currentTimeMillis() + timeout
+                                    : Long.MAX_VALUE;
+        boolean completed;
+        synchronized (this)
+        {
+            while (this._pending > 0 && !(this._halted && this._haltOnError))
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    break;
+                try {
+                    wait(remaining);
+                } catch (InterruptedException iEx) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            completed = this._pending == 0;
+        }
+
+        if (!completed)
+        {
+            cancel();
+            awaitCompletion(CANCEL_TIMEOUT);
+        }
+        shutdown();
+        return completed;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Cancels outstanding commands: queued commands are skipped, running
+     * commands are destroyed, and further submissions are refused.
+     */
+
+    public void cancel()
+    {
+        this._cancelled = true;
+        this._shutdown = true;
+        synchronized (this._running)
+        {
+            for (int i = 0; i < this._running.size(); ++i)
+                ((SystemProcess.ProcessRunner)
+                                 this._running.get(i)).destroy();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Stops accepting commands.  Commands already submitted are still run.
+     */
+
+    public void shutdown()
+    {
+        this._shutdown = true;
+        this._executor.shutdown();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of commands that have completed, including
+     * failures.
+     * @return Completed count
+     */
+
+    public synchronized long getCompletedCount()
+    {
+        return this._completed;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of commands that failed to start or returned a
+     * non-zero exit value.
+     * @return Failed count
+     */
+
+    public synchronized long getFailedCount()
+    {
+        return this._failed;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of commands skipped after a halting failure.
+     * @return Skipped count
+     */
+
+    public synchronized long getSkippedCount()
+    {
+        return this._skipped;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the mean run time of completed commands.
+     * @return Mean latency in milliseconds
+     */
+
+    public synchronized long getMeanLatency()
+    {
+        return this._completed == 0 ? 0 : this._totalLatency / this._completed;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the longest run time of a completed command.
+     * @return Maximum latency in milliseconds
+     */
+
+    public synchronized long getMaxLatency()
+    {
+        return this._maxLatency;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the mean time completed commands waited before running.
+     * @return Mean queue time in milliseconds
+     */
+
+    public synchronized long getMeanQueueTime()
+    {
+        return this._completed == 0 ? 0 :
+                                   this._totalQueueTime / this._completed;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the longest time a completed command waited before running.
+     * @return Maximum queue time in milliseconds
+     */
+
+    public synchronized long getMaxQueueTime()
+    {
+        return this._maxQueueTime;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns a one line summary of the invocation statistics.
+     * @return Statistics summary
+     */
+
+    public synchronized String getStatistics()
+    {
+        return "Invocations: " + this._completed + " completed, "
+               + this._failed + " failed, " + this._skipped + " skipped; "
+               + "latency mean " + getMeanLatency() + " ms, max "
+               + this._maxLatency + " ms; queue time mean "
+               + getMeanQueueTime() + " ms, max " + this._maxQueueTime
+               + " ms";
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Records the outcome of an invocation and notifies the listener.
+     * @param invocation Completed or skipped invocation
+     * @return Next invocation of the same key to be run, or null
+     */
+
+    private Invocation _completed(Invocation invocation)
+    {
+        boolean failed = !invocation.isSkipped() &&
+                         invocation.getErrno().getId() != 0;
+        if (failed && this._haltOnError)
+            this._halted = true;
+
+        synchronized (this)
+        {
+            if (invocation.isSkipped())
+            {
+                ++this._skipped;
+            }
+            else
+            {
+                ++this._completed;
+                if (failed)
+                    ++this._failed;
+                this._totalLatency += invocation.getLatency();
+                this._maxLatency = Math.max(this._maxLatency,
+                                            invocation.getLatency());
+                this._totalQueueTime += invocation.getQueueTime();
+                this._maxQueueTime = Math.max(this._maxQueueTime,
+                                              invocation.getQueueTime());
+            }
+        }
+
+        InvocationListener listener = this._listener;
+        if (listener != null)
+        {
+            try {
+                listener.invocationCompleted(invocation);
+            } catch (RuntimeException rEx) {
+                this._logger.error("Invocation listener failed: "
+                                   + rEx.getMessage());
+                this._logger.trace(null, rEx);
+            }
+        }
+
+        //start next command of the same key
+        Invocation next = null;
+        if (this._ordered && invocation.getKey() != null)
+        {
+            synchronized (this._lanes)
+            {
+                LinkedList lane = (LinkedList) this._lanes.get(
+                                                   invocation.getKey());
+                if (lane != null && !lane.isEmpty())
+                    next = (Invocation) lane.removeFirst();
+                else
+                    this._lanes.remove(invocation.getKey());
+            }
+        }
+
+        this._slots.release();
+        synchronized (this)
+        {
+            --this._pending;
+            notifyAll();
+        }
+
+        return next;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * A submitted command and its outcome.
+     */
+
+    public class Invocation implements Runnable
+    {
+        private final String _key;
+        private final String _command;
+        private final long _submitTime;
+        private long _startTime = 0;
+        private long _endTime = 0;
+        private Errno _errno = null;
+
+        //-----------------------------------------------------------------
+
+        Invocation(String key, String command)
+        {
+            this._key = key;
+            this._command = command;
+            this._submitTime = System.currentTimeMillis();
+        }
+
+        //-----------------------------------------------------------------
+
+        public String getKey()
+        {
+            return this._key;
+        }
+
+        //-----------------------------------------------------------------
+
+        public String getCommand()
+        {
+            return this._command;
+        }
+
+        //-----------------------------------------------------------------
+
+        /**
+         * Returns the result of the command.
+         * @return Errno, null if the command was skipped
+         */
+
+        public Errno getErrno()
+        {
+            return this._errno;
+        }
+
+        //-----------------------------------------------------------------
+
+        /**
+         * Returns true if the command was skipped after a halting failure.
+         * @return Skipped state
+         */
+
+        public boolean isSkipped()
+        {
+            return this._errno == null;
+        }
+
+        //-----------------------------------------------------------------
+
+        /**
+         * Returns the time the command waited before running.
+         * @return Queue time in milliseconds
+         */
+
+        public long getQueueTime()
+        {
+            return this._startTime - this._submitTime;
+        }
+
+        //-----------------------------------------------------------------
+
+        /**
+         * Returns the run time of the command.
+         * @return Latency in milliseconds
+         */
+
+        public long getLatency()
+        {
+            return this._endTime - this._startTime;
+        }
+
+        //-----------------------------------------------------------------
+
+        public void run()
+        {
+            Invocation invocation = this;
+            while (invocation != null)
+                invocation = invocation._execute();
+        }
+
+        //-----------------------------------------------------------------
+
+        private Invocation _execute()
+        {
+            this._startTime = System.currentTimeMillis();
+            try {
+                if (!_cancelled && (!_halted || !_haltOnError))
+                {
+                    SystemProcess.ProcessRunner runner =
+                         new SystemProcess.ProcessRunner(this._command,
+                                                         _logger);
+                    _running.add(runner);
+                    try {
+                        //cancel() may have missed the runner just added
+                        if (_cancelled)
+                            runner.destroy();
+                        runner.run();
+                    } finally {
+                        _running.remove(runner);
+                    }
+                    this._errno = runner.getErrno();
+                    if (this._errno == null)
+                        this._errno = new Errno(-1, "No process status");
+                }
+            } finally {
+                this._endTime = System.currentTimeMillis();
+            }
+            return _completed(this);
+        }
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (C) 2026 California Institute of Technology. All rights reserved US
+ * Government Sponsorship under NASA contract NAS7-918 is acknowledged
+ ******************************************************************************/
+
+package jpl.mipl.mdms.FileService.util;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * <b>Purpose: </b> Unix file system that performs moves, symbolic links
+ * and permission changes in process, rather than forking a shell command
+ * for each operation.  Files are moved with an atomic rename, or copied
+ * and deleted when source and destination are on different file systems.
+ * Permission changes are applied recursively through the POSIX attribute
+ * view, skipping symbolic links as <code>chmod -R</code> does.  Where
+ * the platform does not support an operation, the shell command of
+ * {@link UnixFileSystem} is used.
+ */
+
+public class NioFileSystem extends UnixFileSystem
+{
+    private static final Set<PosixFilePermission> GROUP_OTHER_RW = EnumSet.of(
+                   PosixFilePermission.GROUP_READ,
+                   PosixFilePermission.GROUP_WRITE,
+                   PosixFilePermission.OTHERS_READ,
+                   PosixFilePermission.OTHERS_WRITE);
+
+    private static final Set<PosixFilePermission> USER_GROUP_OTHER_RW =
+                   EnumSet.of(PosixFilePermission.OWNER_READ,
+                   PosixFilePermission.OWNER_WRITE,
+                   PosixFilePermission.GROUP_READ,
+                   PosixFilePermission.GROUP_WRITE,
+                   PosixFilePermission.OTHERS_READ,
+                   PosixFilePermission.OTHERS_WRITE);
+
+    private static final Set<PosixFilePermission> USER_GROUP_RW = EnumSet.of(
+                   PosixFilePermission.OWNER_READ,
+                   PosixFilePermission.OWNER_WRITE,
+                   PosixFilePermission.GROUP_READ,
+                   PosixFilePermission.GROUP_WRITE);
+
+    private static final Set<PosixFilePermission> USER_RW = EnumSet.of(
+                   PosixFilePermission.OWNER_READ,
+                   PosixFilePermission.OWNER_WRITE);
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Creates a symbolic link to the target.  If the link names an
+     * existing directory, the link is created inside it, as with
+     * <code>ln -s</code>.
+     *
+     * @param target the target file reference
+     * @param link the link to be created
+     * @return the Errno object reference
+     */
+
+    public Errno createSoftLink(String target, String link)
+    {
+        Path linkPath = Paths.get(link);
+        Path targetPath = Paths.get(target);
+        if (Files.isDirectory(linkPath))
+            linkPath = linkPath.resolve(targetPath.getFileName());
+
+        try {
+            Files.createSymbolicLink(linkPath, targetPath);
+        } catch (UnsupportedOperationException uoEx) {
+            return super.createSoftLink(target, link);
+        } catch (IOException ioEx) {
+            return new Errno(-1, "Can't create softlink <" + link + ">: " +
+                             ioEx.getMessage());
+        }
+        return new Errno(0, "Softlink <" + link + "> has been created.");
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Method to lock a file from group and other access.
+     *
+     * @param filename the target file name
+     * @return the Errno object reference
+     */
+
+    public Errno lockGroupOther(String filename)
+    {
+        Errno errno = _chmod(filename, null, GROUP_OTHER_RW);
+        return errno != null ? errno : super.lockGroupOther(filename);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Method to lock a file from user, group, and other access.
+     *
+     * @param filename the target file name
+     * @return the Errno object reference
+     */
+
+    public Errno lockUserGroupOther(String filename)
+    {
+        Errno errno = _chmod(filename, null, USER_GROUP_OTHER_RW);
+        return errno != null ? errno : super.lockUserGroupOther(filename);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Method to unlock a file for user and group access
+     *
+     * @param filename the target file name
+     * @return the Errno object reference
+     */
+
+    public Errno unlockUserGroup(String filename)
+    {
+        Errno errno = _chmod(filename, USER_GROUP_RW, null);
+        return errno != null ? errno : super.unlockUserGroup(filename);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Method to unlock a file for user access.
+     *
+     * @param filename the target file name
+     * @return the Errno object reference
+     */
+
+    public Errno unlockUser(String filename)
+    {
+        Errno errno = _chmod(filename, USER_RW, null);
+        return errno != null ? errno : super.unlockUser(filename);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Moves the file with an atomic rename, replacing any existing
+     * destination.  If source and destination are on different file
+     * systems, the file is copied and the source deleted.
+     *
+     * @param srcFileName the name and path of file being moved
+     * @param dstFileName the destination name and path of file
+     * @return the Errno object reference
+     */
+
+    public Errno moveFile(String srcFileName, String dstFileName)
+    {
+        Path src = Paths.get(srcFileName);
+        Path dst = Paths.get(dstFileName);
+
+        try {
+            try {
+                Files.move(src, dst, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException amnsEx) {
+                Files.move(src, dst, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (UnsupportedOperationException uoEx) {
+            return super.moveFile(srcFileName, dstFileName);
+        } catch (IOException ioEx) {
+            return new Errno(-1, "Unable to move " + srcFileName + " to " +
+                             dstFileName + ": " + ioEx.getMessage());
+        }
+        return new Errno(0, "Moved " + srcFileName + " to " + dstFileName + ".");
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Adds and removes permissions on the file and, if a directory, on
+     * everything beneath it.  Directories gain permissions before, and
+     * lose them after, their contents are visited, so that removing
+     * owner access does not prevent the traversal.
+     * @return Result, or null if POSIX permissions are not supported
+     */
+
+    protected Errno _chmod(String filename, final Set<PosixFilePermission> add,
+                           final Set<PosixFilePermission> remove)
+    {
+        Path root = Paths.get(filename);
+        if (Files.getFileAttributeView(root, PosixFileAttributeView.class)
+                                                                   == null)
+            return null;
+
+        try {
+            //a link named on the command line is followed, as with chmod
+            root = root.toRealPath();
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                public FileVisitResult preVisitDirectory(Path dir,
+                               BasicFileAttributes attrs) throws IOException
+                {
+                    if (add != null)
+                        _setPermissions(dir, add, null);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult visitFile(Path file,
+                               BasicFileAttributes attrs) throws IOException
+                {
+                    if (!attrs.isSymbolicLink())
+                        _setPermissions(file, add, remove);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                public FileVisitResult postVisitDirectory(Path dir,
+                               IOException ioEx) throws IOException
+                {
+                    if (ioEx != null)
+                        throw ioEx;
+                    if (remove != null)
+                        _setPermissions(dir, null, remove);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (UnsupportedOperationException uoEx) {
+            return null;
+        } catch (IOException ioEx) {
+            return new Errno(-1, "Unable to change permissions of " +
+                             filename + ": " + ioEx.getMessage());
+        }
+        return new Errno(0, "Changed permissions on " + filename);
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _setPermissions(Path path,
+                                        Set<PosixFilePermission> add,
+                                        Set<PosixFilePermission> remove)
+                                        throws IOException
+    {
+        PosixFileAttributeView view = Files.getFileAttributeView(path,
+                   PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        Set<PosixFilePermission> perms = view.readAttributes().permissions();
+        boolean changed = false;
+        if (add != null)
+            changed |= perms.addAll(add);
+        if (remove != null)
+            changed |= perms.removeAll(remove);
+        if (changed)
+            view.setPermissions(perms);
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -149,6 +149,9 @@ public class SystemProcess
         private Semaphore _semaphore = null;
         private boolean _semaphorePreAcquired = false;
         
+        private Process _process = null;
+        private boolean _destroyed = false;
+        
         //-----------------------------------------------------------------
         
         public ProcessRunner(String command, Logger logger)
@@ -184,6 +187,20 @@ public class SystemProcess
 
         //-----------------------------------------------------------------
         
+        /**
+         * Destroys the process if it is running, or as soon as it is 
+         * started.
+         */
+        
+        public synchronized void destroy()
+        {
+            this._destroyed = true;
+            if (this._process != null)
+                this._process.destroy();
+        }
+        
+        //-----------------------------------------------------------------
+        
         public void run()
         {
             StringBuffer errMsg = new StringBuffer();
@@ -195,6 +212,11 @@ public class SystemProcess
                     this._semaphore.acquire();
 
                 p = Runtime.getRuntime().exec(this._command);
+                synchronized (this) {
+                    this._process = p;
+                    if (this._destroyed)
+                        p.destroy();
+                }
 
                 //Security code review prompted this change to prevent DOS attack (nttoole 08.27.2013)
                 //BufferedReader is = new BufferedReader(new InputStreamReader(
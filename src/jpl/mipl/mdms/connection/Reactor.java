@@ -13,6 +13,7 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Set;
 
 import jpl.mipl.mdms.utils.MDMS;
@@ -34,6 +35,9 @@ public class Reactor implements Runnable {
     // return from its infinite select() loop.
     private long _timeout = 0;
 
+    // tasks queued by other threads to be run by the Reactor thread.
+    private final LinkedList _tasks = new LinkedList();
+
     /**
      * Default constructor without timeout.  This Reactor will on block on
      * listening to events forever.
@@ -120,6 +124,21 @@ public class Reactor implements Runnable {
         }
     }
 
+    /**
+     * Method to run a task in the Reactor thread before the next select.
+     * Channels registered by the task are not blocked by a select already
+     * in progress, so this is the safe way to register handlers once the
+     * Reactor is running.
+     * 
+     * @param task The task to be run.
+     */
+    public void execute(Runnable task) {
+        synchronized (this._tasks) {
+            this._tasks.add(task);
+        }
+        this._selector.wakeup();
+    }
+
     /**
      * Method to unregister a service handler from the Reactor.
      * @param handler The service handler to be unregistered.
@@ -162,6 +181,9 @@ public class Reactor implements Runnable {
                 // keeps track of the starting time used by checkTimeout.
                 long startTime = System.currentTimeMillis();
 
+                // run tasks queued by other threads.
+                this._runTasks();
+
                 // select for any I/O events.  This method will block forever
                 // if timeout__ is zero.
                 this._selector.select(this._timeout);
@@ -191,6 +213,25 @@ public class Reactor implements Runnable {
         }
     }
 
+    /**
+     * Internal method to run the tasks queued by execute().
+     */
+    protected void _runTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (this._tasks) {
+                if (this._tasks.isEmpty())
+                    return;
+                task = (Runnable) this._tasks.removeFirst();
+            }
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                MDMS.ERROR(ex.getMessage());
+            }
+        }
+    }
+
     /**
      * Internal method to dispatch the service handler that is associated with 
      * the input selection key.
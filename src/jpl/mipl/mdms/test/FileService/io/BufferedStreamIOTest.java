@@ -0,0 +1,474 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import jpl.mipl.mdms.FileService.io.BufferedStreamIO;
+import jpl.mipl.mdms.FileService.io.ChannelBufferedInputStream;
+import jpl.mipl.mdms.FileService.io.VerifyException;
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for the BufferedStreamIO NIO file transfer paths, over
+ * channel backed and plain sockets.
+ */
+public class BufferedStreamIOTest extends TestCase {
+    private static final int FILE_SIZE = 3 * 1024 * 1024 + 17;
+
+    private ServerSocket _serverSocket = null;
+    private Socket _sender = null;
+    private Socket _receiver = null;
+    private File _file = null;
+    private byte[] _data = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public BufferedStreamIOTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._serverSocket = new ServerSocket(0, 1,
+                                        InetAddress.getByName("localhost"));
+        this._file = File.createTempFile("bsiotest", ".dat");
+        this._data = new byte[FILE_SIZE];
+        for (int i = 0; i < FILE_SIZE; ++i)
+            this._data[i] = (byte) (i * 31 + 7);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        System.getProperties().remove(Constants.PROPERTY_IO_NIO_ENABLE);
+        if (this._sender != null)
+            this._sender.close();
+        if (this._receiver != null)
+            this._receiver.close();
+        this._serverSocket.close();
+        this._file.delete();
+    }
+
+    /**
+     * Test receive without checksum over a channel socket, which uses
+     * FileChannel.transferFrom.
+     *
+     * @throws Exception when general failure
+     */
+    public void testChannelReceive() throws Exception {
+        BufferedStreamIO io = this._connect(true);
+        this._send(this._data, 0, false, false);
+        assertEquals("header\n", io.readLine());
+        io.readFileFromStream(this._file.getAbsolutePath(), 0, FILE_SIZE);
+        assertEquals("trailer\n", io.readLine());
+        assertTrue(Arrays.equals(this._data, this._readFile()));
+    }
+
+    /**
+     * Test receive with checksum over a channel socket.
+     *
+     * @throws Exception when general failure
+     */
+    public void testChannelReceiveVerify() throws Exception {
+        BufferedStreamIO io = this._connect(true);
+        this._send(this._data, 0, true, false);
+        assertEquals("header\n", io.readLine());
+        byte[] checksum = io.readAndVerifyFileFromStream(
+                                  this._file.getAbsolutePath(), 0, FILE_SIZE);
+        assertEquals("trailer\n", io.readLine());
+        assertTrue(Arrays.equals(this._digest(this._data), checksum));
+        assertTrue(Arrays.equals(this._data, this._readFile()));
+    }
+
+    /**
+     * Test receive with checksum over a plain socket, which uses pooled
+     * buffers as SSL connections do.
+     *
+     * @throws Exception when general failure
+     */
+    public void testStreamReceiveVerify() throws Exception {
+        BufferedStreamIO io = this._connect(false);
+        this._send(this._data, 0, true, false);
+        assertEquals("header\n", io.readLine());
+        io.readAndVerifyFileFromStream(this._file.getAbsolutePath(), 0,
+                                       FILE_SIZE);
+        assertEquals("trailer\n", io.readLine());
+        assertTrue(Arrays.equals(this._data, this._readFile()));
+    }
+
+    /**
+     * Test resumed receive with checksum, where the first part of the
+     * file already exists locally.
+     *
+     * @throws Exception when general failure
+     */
+    public void testChannelResumeVerify() throws Exception {
+        int offset = FILE_SIZE / 3;
+        OutputStream out = new FileOutputStream(this._file);
+        out.write(this._data, 0, offset);
+        out.close();
+
+        BufferedStreamIO io = this._connect(true);
+        this._send(this._data, offset, true, false);
+        assertEquals("header\n", io.readLine());
+        io.readAndVerifyFileFromStream(this._file.getAbsolutePath(), offset,
+                                       FILE_SIZE);
+        assertEquals("trailer\n", io.readLine());
+        assertTrue(Arrays.equals(this._data, this._readFile()));
+    }
+
+    /**
+     * Test that a checksum mismatch is reported and leaves the stream
+     * positioned after the checksum.
+     *
+     * @throws Exception when general failure
+     */
+    public void testChannelVerifyFailure() throws Exception {
+        BufferedStreamIO io = this._connect(true);
+        this._send(this._data, 0, true, true);
+        assertEquals("header\n", io.readLine());
+        try {
+            io.readAndVerifyFileFromStream(this._file.getAbsolutePath(), 0,
+                                           FILE_SIZE);
+            fail("Expected VerifyException");
+        } catch (VerifyException vEx) {
+            // expected
+        }
+        assertEquals("trailer\n", io.readLine());
+    }
+
+    /**
+     * Test receive with the NIO path disabled.
+     *
+     * @throws Exception when general failure
+     */
+    public void testNioDisabled() throws Exception {
+        System.setProperty(Constants.PROPERTY_IO_NIO_ENABLE, "false");
+        BufferedStreamIO io = this._connect(true);
+        this._send(this._data, 0, true, false);
+        assertEquals("header\n", io.readLine());
+        io.readAndVerifyFileFromStream(this._file.getAbsolutePath(), 0,
+                                       FILE_SIZE);
+        assertEquals("trailer\n", io.readLine());
+        assertTrue(Arrays.equals(this._data, this._readFile()));
+    }
+
+    /**
+     * Test zero-copy send over a channel socket.
+     *
+     * @throws Exception when general failure
+     */
+    public void testChannelTransfer() throws Exception {
+        this._writeFile();
+        final BufferedStreamIO io = this._connect(true);
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    io.transferFileToStream(_file.getAbsolutePath(), 0,
+                                            FILE_SIZE);
+                } catch (IOException ioEx) {
+                    ioEx.printStackTrace();
+                }
+            }
+        };
+        t.start();
+        byte[] received = this._receive(FILE_SIZE);
+        t.join();
+        assertTrue(Arrays.equals(this._data, received));
+    }
+
+    /**
+     * Test send with checksum over a plain socket, from an offset.
+     *
+     * @throws Exception when general failure
+     */
+    public void testStreamTransferVerify() throws Exception {
+        this._writeFile();
+        final int offset = FILE_SIZE / 3;
+        final BufferedStreamIO io = this._connect(false);
+        final byte[][] checksum = new byte[1][];
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    checksum[0] = io.transferAndVerifyFileToStream(
+                            _file.getAbsolutePath(), offset,
+                            FILE_SIZE - offset);
+                } catch (IOException ioEx) {
+                    ioEx.printStackTrace();
+                }
+            }
+        };
+        t.start();
+        byte[] received = this._receive(FILE_SIZE - offset + 20);
+        t.join();
+        byte[] expected = this._digest(this._data);
+        assertTrue(Arrays.equals(expected, checksum[0]));
+        for (int i = 0; i < FILE_SIZE - offset; ++i)
+            assertEquals(this._data[offset + i], received[i]);
+        for (int i = 0; i < expected.length; ++i)
+            assertEquals(expected[i], received[FILE_SIZE - offset + i]);
+    }
+
+    /**
+     * Test send with checksum over a channel socket.
+     *
+     * @throws Exception when general failure
+     */
+    public void testChannelTransferVerify() throws Exception {
+        this._writeFile();
+        final BufferedStreamIO io = this._connect(true);
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    io.transferAndVerifyFileToStream(_file.getAbsolutePath(),
+                                                     0, FILE_SIZE);
+                } catch (IOException ioEx) {
+                    ioEx.printStackTrace();
+                }
+            }
+        };
+        t.start();
+        byte[] received = this._receive(FILE_SIZE + 20);
+        t.join();
+        byte[] expected = this._digest(this._data);
+        for (int i = 0; i < FILE_SIZE; ++i)
+            assertEquals(this._data[i], received[i]);
+        for (int i = 0; i < expected.length; ++i)
+            assertEquals(expected[i], received[FILE_SIZE + i]);
+    }
+
+    /**
+     * Test receive with checksum into a direct buffer over a channel
+     * socket.
+     *
+     * @throws Exception when general failure
+     */
+    public void testChannelReceiveBufferVerify() throws Exception {
+        BufferedStreamIO io = this._connect(true);
+        this._send(this._data, 0, true, false);
+        assertEquals("header\n", io.readLine());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(FILE_SIZE + 3);
+        buffer.position(3);
+        byte[] checksum = io.readAndVerifyBufferFromStream(buffer, FILE_SIZE);
+        assertEquals("trailer\n", io.readLine());
+        assertTrue(Arrays.equals(this._digest(this._data), checksum));
+        assertEquals(FILE_SIZE + 3, buffer.position());
+        buffer.position(3);
+        byte[] received = new byte[FILE_SIZE];
+        buffer.get(received);
+        assertTrue(Arrays.equals(this._data, received));
+    }
+
+    /**
+     * Test receive into a direct buffer over a plain socket, discarding
+     * the checksum.
+     *
+     * @throws Exception when general failure
+     */
+    public void testStreamReceiveBuffer() throws Exception {
+        BufferedStreamIO io = this._connect(false);
+        this._send(this._data, 0, true, false);
+        assertEquals("header\n", io.readLine());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(FILE_SIZE);
+        io.readBufferFromStream(buffer, FILE_SIZE, true);
+        assertEquals("trailer\n", io.readLine());
+        buffer.flip();
+        byte[] received = new byte[FILE_SIZE];
+        buffer.get(received);
+        assertTrue(Arrays.equals(this._data, received));
+    }
+
+    /**
+     * Test that a checksum mismatch on a buffer receive is reported and
+     * leaves the stream positioned after the checksum.
+     *
+     * @throws Exception when general failure
+     */
+    public void testChannelBufferVerifyFailure() throws Exception {
+        BufferedStreamIO io = this._connect(true);
+        this._send(this._data, 0, true, true);
+        assertEquals("header\n", io.readLine());
+        try {
+            io.readAndVerifyBufferFromStream(
+                               ByteBuffer.allocateDirect(FILE_SIZE), FILE_SIZE);
+            fail("Expected VerifyException");
+        } catch (VerifyException vEx) {
+            // expected
+        }
+        assertEquals("trailer\n", io.readLine());
+    }
+
+    /**
+     * Test send with checksum from a direct buffer over a channel socket
+     * and without checksum over a plain socket.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBufferSend() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(FILE_SIZE);
+        buffer.put(this._data);
+        buffer.flip();
+
+        final BufferedStreamIO io = this._connect(true);
+        final byte[][] checksum = new byte[1][];
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    checksum[0] = io.writeAndVerifyBufferToStream(
+                                        buffer.duplicate(), FILE_SIZE);
+                } catch (IOException ioEx) {
+                    ioEx.printStackTrace();
+                }
+            }
+        };
+        t.start();
+        byte[] received = this._receive(FILE_SIZE + 20);
+        t.join();
+        byte[] expected = this._digest(this._data);
+        assertTrue(Arrays.equals(expected, checksum[0]));
+        for (int i = 0; i < FILE_SIZE; ++i)
+            assertEquals(this._data[i], received[i]);
+        for (int i = 0; i < expected.length; ++i)
+            assertEquals(expected[i], received[FILE_SIZE + i]);
+        this._sender.close();
+        this._receiver.close();
+
+        final BufferedStreamIO plain = this._connect(false);
+        t = new Thread() {
+            public void run() {
+                try {
+                    plain.writeFileToStream(buffer, FILE_SIZE);
+                } catch (IOException ioEx) {
+                    ioEx.printStackTrace();
+                }
+            }
+        };
+        t.start();
+        received = this._receive(FILE_SIZE);
+        t.join();
+        assertTrue(Arrays.equals(this._data, received));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    //---------------------------------------------------------------------
+
+    private BufferedStreamIO _connect(boolean channel) throws Exception {
+        InetSocketAddress address = new InetSocketAddress(
+                                      InetAddress.getByName("localhost"),
+                                      this._serverSocket.getLocalPort());
+        BufferedInputStream bis;
+        if (channel) {
+            SocketChannel sc = SocketChannel.open(address);
+            this._receiver = sc.socket();
+            bis = new ChannelBufferedInputStream(sc,
+                                  this._receiver.getInputStream(), 32256);
+        } else {
+            this._receiver = new Socket(address.getAddress(),
+                                        address.getPort());
+            bis = new BufferedInputStream(this._receiver.getInputStream(),
+                                          32256);
+        }
+        this._receiver.setSoTimeout(10000);
+        this._sender = this._serverSocket.accept();
+        return new BufferedStreamIO(bis, new BufferedOutputStream(
+                      this._receiver.getOutputStream(), 32256), 32256);
+    }
+
+    private void _send(final byte[] data, final int offset,
+                       final boolean checksum, final boolean corrupt) {
+        Thread t = new Thread() {
+            public void run() {
+                try {
+                    OutputStream out = _sender.getOutputStream();
+                    out.write("header\n".getBytes());
+                    // odd sized writes so reads do not line up with them
+                    for (int i = offset; i < data.length; i += 65521)
+                        out.write(data, i, Math.min(65521, data.length - i));
+                    if (checksum) {
+                        byte[] digest = _digest(data);
+                        if (corrupt)
+                            digest[0]++;
+                        out.write(digest);
+                    }
+                    out.write("trailer\n".getBytes());
+                    out.flush();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+            }
+        };
+        t.start();
+    }
+
+    private byte[] _receive(int length) throws IOException {
+        byte[] content = new byte[length];
+        InputStream in = this._sender.getInputStream();
+        int read = 0;
+        while (read < length) {
+            int n = in.read(content, read, length - read);
+            if (n < 0)
+                throw new IOException("Unexpected EOF");
+            read += n;
+        }
+        return content;
+    }
+
+    private void _writeFile() throws IOException {
+        OutputStream out = new FileOutputStream(this._file);
+        out.write(this._data);
+        out.close();
+    }
+
+    private byte[] _digest(byte[] data) throws Exception {
+        return MessageDigest.getInstance("SHA").digest(data);
+    }
+
+    private byte[] _readFile() throws IOException {
+        byte[] content = new byte[(int) this._file.length()];
+        FileInputStream in = new FileInputStream(this._file);
+        try {
+            int read = 0;
+            while (read < content.length) {
+                int n = in.read(content, read, content.length - read);
+                if (n < 0)
+                    break;
+                read += n;
+            }
+        } finally {
+            in.close();
+        }
+        return content;
+    }
+}
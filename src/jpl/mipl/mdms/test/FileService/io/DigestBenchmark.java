@@ -0,0 +1,138 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledge. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+package jpl.mipl.mdms.test.FileService.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import jpl.mipl.mdms.FileService.io.BufferedStreamIO;
+import jpl.mipl.mdms.FileService.io.DigestFactory;
+
+/**
+ * Measures aggregate checksummed transfer throughput over loopback
+ * sockets with 1, 4 and 16 concurrent transfers, for each digest
+ * algorithm given (see DigestFactory).
+ * <p>
+ * Usage: DigestBenchmark [transferMB] [algorithm ...]
+ */
+public class DigestBenchmark
+{
+    private static final int[] CONCURRENCY = {1, 4, 16};
+    private static final int BUFFER_SIZE = 32256;
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    //---------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception
+    {
+        int transferMB = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+        String[] algorithms = {DigestFactory.SHA};
+        if (args.length > 1)
+        {
+            algorithms = new String[args.length - 1];
+            System.arraycopy(args, 1, algorithms, 0, algorithms.length);
+        }
+
+        System.out.println("transfer=" + transferMB + "MB per connection");
+
+        //warm up
+        _run(algorithms[0], 1, Math.min(transferMB, 16));
+
+        for (int a = 0; a < algorithms.length; ++a)
+        {
+            for (int c = 0; c < CONCURRENCY.length; ++c)
+            {
+                int threads = CONCURRENCY[c];
+                long elapsed = _run(algorithms[a], threads, transferMB);
+                double rate = (double) threads * transferMB * 1000.0 /
+                              Math.max(1, elapsed);
+                System.out.println(algorithms[a] + " x" + threads + ": " +
+                                   elapsed + " ms, " +
+                                   Math.round(rate * 10) / 10.0 + " MB/sec");
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private static long _run(final String algorithm, int threads,
+                             final int transferMB) throws Exception
+    {
+        ServerSocket server = new ServerSocket(0, threads,
+                                        InetAddress.getByName("localhost"));
+        Thread[] workers = new Thread[threads * 2];
+        Socket[] sockets = new Socket[threads * 2];
+        final Exception[] error = new Exception[1];
+
+        for (int i = 0; i < threads; ++i)
+        {
+            sockets[2 * i] = new Socket(server.getInetAddress(),
+                                        server.getLocalPort());
+            sockets[2 * i + 1] = server.accept();
+            final BufferedStreamIO sender = _createIO(sockets[2 * i],
+                                                      algorithm);
+            final BufferedStreamIO receiver = _createIO(sockets[2 * i + 1],
+                                                        algorithm);
+            workers[2 * i] = new Thread() {
+                public void run() {
+                    try {
+                        byte[] chunk = new byte[CHUNK_SIZE];
+                        for (int n = 0; n < transferMB; ++n)
+                            sender.writeAndVerifyBufferToStream(chunk,
+                                                                CHUNK_SIZE);
+                    } catch (Exception ex) {
+                        error[0] = ex;
+                    }
+                }
+            };
+            workers[2 * i + 1] = new Thread() {
+                public void run() {
+                    try {
+                        byte[] chunk = new byte[CHUNK_SIZE];
+                        for (int n = 0; n < transferMB; ++n)
+                            receiver.readAndVerifyBufferFromStream(chunk,
+                                                                CHUNK_SIZE);
+                    } catch (Exception ex) {
+                        error[0] = ex;
+                    }
+                }
+            };
+        }
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < workers.length; ++i)
+            workers[i].start();
+        for (int i = 0; i < workers.length; ++i)
+            workers[i].join();
+        long elapsed = System.currentTimeMillis() - start;
+
+        for (int i = 0; i < sockets.length; ++i)
+            sockets[i].close();
+        server.close();
+        if (error[0] != null)
+            throw error[0];
+        return elapsed;
+    }
+
+    //---------------------------------------------------------------------
+
+    private static BufferedStreamIO _createIO(Socket socket, String algorithm)
+                                                            throws Exception
+    {
+        BufferedStreamIO io = new BufferedStreamIO(
+                new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE),
+                new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE),
+                BUFFER_SIZE);
+        io.setDigestAlgorithm(algorithm);
+        return io;
+    }
+
+    //---------------------------------------------------------------------
+}
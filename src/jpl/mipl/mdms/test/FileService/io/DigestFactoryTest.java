@@ -0,0 +1,154 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.io;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import jpl.mipl.mdms.FileService.io.BufferedStreamIO;
+import jpl.mipl.mdms.FileService.io.DigestFactory;
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for DigestFactory.
+ */
+public class DigestFactoryTest extends TestCase {
+    private byte[] _data = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public DigestFactoryTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._data = new byte[100000];
+        for (int i = 0; i < this._data.length; ++i)
+            this._data[i] = (byte) (i * 13);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        System.getProperties().remove(Constants.PROPERTY_IO_DIGEST_ALGORITHM);
+    }
+
+    /**
+     * Test that digests match those of the security providers.
+     *
+     * @throws Exception when general failure
+     */
+    public void testGetInstance() throws Exception {
+        MessageDigest expected = MessageDigest.getInstance("SHA");
+        MessageDigest digest = DigestFactory.getInstance(DigestFactory.SHA);
+        assertNotSame(digest, DigestFactory.getInstance(DigestFactory.SHA));
+        digest.update(this._data, 0, 1000);
+        digest.update(this._data, 1000, this._data.length - 1000);
+        assertTrue(MessageDigest.isEqual(expected.digest(this._data),
+                                         digest.digest()));
+    }
+
+    /**
+     * Test that clones of digests copy the bytes digested so far, and
+     * continue independently of the original.
+     *
+     * @throws Exception when general failure
+     */
+    public void testClone() throws Exception {
+        this._checkClone(DigestFactory.SHA);
+        this._checkClone("MD5");
+    }
+
+    /**
+     * Test the names of the algorithm servers use.
+     *
+     * @throws Exception when general failure
+     */
+    public void testServerAlgorithm() throws Exception {
+        assertTrue(DigestFactory.isServerAlgorithm(DigestFactory.SHA));
+        assertTrue(DigestFactory.isServerAlgorithm("sha-1"));
+        assertFalse(DigestFactory.isServerAlgorithm("MD5"));
+        assertFalse(DigestFactory.isServerAlgorithm("SHA-256"));
+    }
+
+    /**
+     * Test the default algorithm and its property override.
+     *
+     * @throws Exception when general failure
+     */
+    public void testDefaultAlgorithm() throws Exception {
+        assertEquals(DigestFactory.SHA, DigestFactory.getDefaultAlgorithm());
+        BufferedStreamIO io = new BufferedStreamIO(null, null);
+        assertEquals(DigestFactory.SHA, io.getDigestAlgorithm());
+
+        System.setProperty(Constants.PROPERTY_IO_DIGEST_ALGORITHM, "MD5");
+        io = new BufferedStreamIO(null, null);
+        assertEquals("MD5", io.getDigestAlgorithm());
+
+        io.setDigestAlgorithm("SHA-256");
+        assertEquals("SHA-256", io.getDigestAlgorithm());
+    }
+
+    /**
+     * Test that unknown algorithms are rejected.
+     *
+     * @throws Exception when general failure
+     */
+    public void testUnknownAlgorithm() throws Exception {
+        try {
+            DigestFactory.getInstance("NoSuchDigest");
+            fail("Expected NoSuchAlgorithmException");
+        } catch (NoSuchAlgorithmException nsaEx) {
+            // expected
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private void _checkClone(String algorithm) throws Exception {
+        MessageDigest whole = DigestFactory.getInstance(algorithm);
+        whole.update(this._data);
+        byte[] expected = whole.digest();
+
+        MessageDigest digest = DigestFactory.getInstance(algorithm);
+        MessageDigest empty = (MessageDigest) digest.clone();
+        assertNotSame(digest, empty);
+        assertEquals(algorithm, empty.getAlgorithm());
+
+        digest.update(this._data, 0, 1000);
+        MessageDigest copy = (MessageDigest) digest.clone();
+        copy.update(this._data, 1000, 30000);
+        MessageDigest copy2 = (MessageDigest) copy.clone();
+        copy2.update(this._data, 31000, this._data.length - 31000);
+        assertTrue(MessageDigest.isEqual(expected, copy2.digest()));
+
+        digest.update(this._data, 1000, this._data.length - 1000);
+        assertTrue(MessageDigest.isEqual(expected, digest.digest()));
+
+        copy.update(this._data, 31000, this._data.length - 31000);
+        assertTrue(MessageDigest.isEqual(expected, copy.digest()));
+
+        // digest() resets the copy too
+        empty.update(this._data);
+        assertTrue(MessageDigest.isEqual(expected, empty.digest()));
+        copy.update(this._data);
+        assertTrue(MessageDigest.isEqual(expected, copy.digest()));
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import jpl.mipl.mdms.FileService.io.DirectBufferAllocator;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for the pooled off-heap buffers of in-memory transfers.
+ */
+public class DirectBufferAllocatorTest extends TestCase {
+    private static final int THRESHOLD = 1024 * 1024;
+
+    private File _dir = null;
+    private DirectBufferAllocator _allocator = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public DirectBufferAllocatorTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._dir = File.createTempFile("allocatortest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        this._allocator = new DirectBufferAllocator(4 * 64 * 1024, THRESHOLD,
+                                                    this._dir);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test that buffers are direct, limited to the requested size, and
+     * reused once released.
+     *
+     * @throws Exception when general failure
+     */
+    public void testReuse() throws Exception {
+        ByteBuffer first = this._allocator.allocate(40000);
+        assertTrue(first.isDirect());
+        assertEquals(0, first.position());
+        assertEquals(40000, first.limit());
+        assertEquals(65536, first.capacity());
+
+        first.put((byte) 1);
+        this._allocator.release(first);
+        assertEquals(65536, this._allocator.getPooledBytes());
+
+        ByteBuffer second = this._allocator.allocate(50000);
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(50000, second.limit());
+        assertEquals(0, this._allocator.getPooledBytes());
+
+        ByteBuffer small = this._allocator.allocate(10);
+        assertEquals(4096, small.capacity());
+        assertNotSame(second, small);
+    }
+
+    /**
+     * Test that a buffer released twice is pooled once, and that the pool
+     * keeps no more than its size.
+     *
+     * @throws Exception when general failure
+     */
+    public void testRelease() throws Exception {
+        ByteBuffer buffer = this._allocator.allocate(65536);
+        this._allocator.release(buffer);
+        this._allocator.release(buffer);
+        assertEquals(65536, this._allocator.getPooledBytes());
+
+        ByteBuffer[] buffers = new ByteBuffer[6];
+        for (int i = 0; i < buffers.length; ++i)
+            buffers[i] = this._allocator.allocate(65536);
+        for (int i = 0; i < buffers.length; ++i)
+            this._allocator.release(buffers[i]);
+        assertEquals(4 * 65536, this._allocator.getPooledBytes());
+
+        this._allocator.release(ByteBuffer.allocate(65536));
+        this._allocator.release(ByteBuffer.allocateDirect(1000));
+        assertEquals(4 * 65536, this._allocator.getPooledBytes());
+    }
+
+    /**
+     * Test that direct buffers of a pooled size which were not obtained
+     * from the allocator are not taken into the pool.
+     *
+     * @throws Exception when general failure
+     */
+    public void testForeignBuffer() throws Exception {
+        this._allocator.release(ByteBuffer.allocateDirect(65536));
+        this._allocator.release(ByteBuffer.allocateDirect(4096));
+        assertEquals(0, this._allocator.getPooledBytes());
+
+        ByteBuffer buffer = this._allocator.allocate(4096);
+        this._allocator.release(buffer);
+        assertEquals(4096, this._allocator.getPooledBytes());
+        assertSame(buffer, this._allocator.allocate(100));
+    }
+
+    /**
+     * Test that buffers at or above the threshold are mapped from a
+     * temporary file which does not outlive the mapping, and are not
+     * pooled.
+     *
+     * @throws Exception when general failure
+     */
+    public void testMapped() throws Exception {
+        ByteBuffer buffer = this._allocator.allocate(THRESHOLD + 5);
+        assertTrue(buffer.isDirect());
+        assertEquals(THRESHOLD + 5, buffer.capacity());
+        assertEquals(0, this._dir.listFiles().length);
+
+        buffer.put(THRESHOLD + 4, (byte) 7);
+        assertEquals(7, buffer.get(THRESHOLD + 4));
+        this._allocator.release(buffer);
+        assertEquals(0, this._allocator.getPooledBytes());
+
+        // rounding up would reach the threshold, so the size is exact
+        ByteBuffer below = this._allocator.allocate(THRESHOLD - 1);
+        assertEquals(THRESHOLD - 1, below.capacity());
+    }
+
+    /**
+     * Test that sizes beyond a single buffer are refused.
+     *
+     * @throws Exception when general failure
+     */
+    public void testTooLarge() throws Exception {
+        try {
+            this._allocator.allocate(Integer.MAX_VALUE + 1L);
+            fail("Expected IOException");
+        } catch (IOException ioEx) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import jpl.mipl.mdms.FileService.komodo.api.ClientRestartCache;
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for the ClientRestartCache commit journal.
+ */
+public class ClientRestartCacheTest extends TestCase {
+    private File _dir = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public ClientRestartCacheTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._dir = File.createTempFile("restarttest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        System.getProperties().remove(Constants.PROPERTY_RESTART_JOURNAL);
+        System.getProperties().remove(
+                              Constants.PROPERTY_RESTART_COMMIT_INTERVAL);
+        this._delete(this._dir);
+    }
+
+    /**
+     * Test that commits are journaled and restored, leaving the XML
+     * file untouched.
+     *
+     * @throws Exception when general failure
+     */
+    public void testJournalCommit() throws Exception {
+        ClientRestartCache crc = this._restore();
+        File xmlFile = new File(crc.getCacheFilename());
+        long xmlLength = xmlFile.length();
+
+        crc.addPersist("a.dat", 100, 1000000000000L);
+        crc.addPersist("b\tc.dat", "ref", 200, 1000000000000L,
+                       "/some/where");
+        crc.setLastQueryTime(1200000000000L);
+        crc.commit();
+        crc.removePersist("a.dat");
+        crc.addPersist("d.dat", 300, 1000000000000L);
+        crc.commit();
+
+        assertEquals(xmlLength, xmlFile.length());
+        assertTrue(this._journal(crc).isFile());
+
+        ClientRestartCache restored = this._restore();
+        assertNull(restored.getPersistedFileSize("a.dat"));
+        assertEquals(new Long(200), restored.getPersistedFileSize("b\tc.dat"));
+        assertEquals("ref", restored.getPersistedVFT("b\tc.dat"));
+        assertEquals("/some/where",
+                     restored.getPersistedFileLocation("b\tc.dat"));
+        assertEquals(new Long(300), restored.getPersistedFileSize("d.dat"));
+        assertEquals(crc.getLastQueryTime(), restored.getLastQueryTime());
+        assertEquals(crc.getPersistedCCSDSModTimeString("d.dat"),
+                     restored.getPersistedCCSDSModTimeString("d.dat"));
+    }
+
+    /**
+     * Test that an incomplete trailing commit is ignored, and the cache
+     * rewritten in full on next commit.
+     *
+     * @throws Exception when general failure
+     */
+    public void testIncompleteCommit() throws Exception {
+        ClientRestartCache crc = this._restore();
+        crc.addPersist("a.dat", 100, 1000000000000L);
+        crc.commit();
+
+        FileOutputStream out = new FileOutputStream(this._journal(crc), true);
+        out.write("P\tb.dat\t200\t".getBytes());
+        out.close();
+
+        ClientRestartCache restored = this._restore();
+        assertEquals(new Long(100), restored.getPersistedFileSize("a.dat"));
+        assertNull(restored.getPersistedFileSize("b.dat"));
+
+        restored.commit();
+        assertFalse(this._journal(restored).exists());
+        restored = this._restore();
+        assertEquals(new Long(100), restored.getPersistedFileSize("a.dat"));
+    }
+
+    /**
+     * Test that with journaling disabled every commit rewrites the XML
+     * file, which older clients can restore.
+     *
+     * @throws Exception when general failure
+     */
+    public void testJournalDisabled() throws Exception {
+        ClientRestartCache crc = this._restore();
+        crc.addPersist("a.dat", 100, 1000000000000L);
+        crc.commit();
+        assertTrue(this._journal(crc).isFile());
+
+        System.setProperty(Constants.PROPERTY_RESTART_JOURNAL, "false");
+        crc.addPersist("b.dat", 200, 1000000000000L);
+        crc.commit();
+        assertFalse(this._journal(crc).exists());
+
+        ClientRestartCache restored = this._restore();
+        assertEquals(new Long(100), restored.getPersistedFileSize("a.dat"));
+        assertEquals(new Long(200), restored.getPersistedFileSize("b.dat"));
+    }
+
+    /**
+     * Test that commits batched by count are only written once the batch
+     * is complete.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBatchCommit() throws Exception {
+        ClientRestartCache crc = this._restore();
+        crc.setCommitPolicy(3, 0);
+        crc.addPersist("a.dat", 100, 1000000000000L);
+        crc.commit();
+        crc.addPersist("b.dat", 200, 1000000000000L);
+        crc.commit();
+        Thread.sleep(200);
+        assertNull(this._restore().getPersistedFileSize("a.dat"));
+
+        crc.addPersist("c.dat", 300, 1000000000000L);
+        crc.commit();
+        assertTrue(this._await("c.dat"));
+        assertEquals(new Long(100),
+                     this._restore().getPersistedFileSize("a.dat"));
+    }
+
+    /**
+     * Test that commits batched by interval are written once due, and
+     * that flush writes outstanding commits.
+     *
+     * @throws Exception when general failure
+     */
+    public void testIntervalCommit() throws Exception {
+        ClientRestartCache crc = this._restore();
+        crc.setCommitPolicy(0, 300);
+        crc.addPersist("a.dat", 100, 1000000000000L);
+        crc.commit();
+        assertNull(this._restore().getPersistedFileSize("a.dat"));
+        assertTrue(this._await("a.dat"));
+
+        crc.addPersist("b.dat", 200, 1000000000000L);
+        crc.commit();
+        crc.flush();
+        assertEquals(new Long(200),
+                     this._restore().getPersistedFileSize("b.dat"));
+    }
+
+    /**
+     * Test that setting only the commit interval property writes commits
+     * by interval, however many files are committed.
+     *
+     * @throws Exception when general failure
+     */
+    public void testIntervalProperty() throws Exception {
+        this._restore().commit();
+        System.setProperty(Constants.PROPERTY_RESTART_COMMIT_INTERVAL,
+                           "500");
+        ClientRestartCache crc = this._restore();
+        for (int i = 0; i < 20; ++i) {
+            crc.addPersist("f" + i + ".dat", 100, 1000000000000L);
+            crc.commit();
+        }
+        assertNull(this._restore().getPersistedFileSize("f0.dat"));
+        assertNull(this._restore().getPersistedFileSize("f19.dat"));
+        assertTrue(this._await("f19.dat"));
+        assertEquals(new Long(100),
+                     this._restore().getPersistedFileSize("f0.dat"));
+    }
+
+    //---------------------------------------------------------------------
+
+    private ClientRestartCache _restore() {
+        return ClientRestartCache.restoreFromCache("group", "type", null,
+                         Constants.AUTOGETFILES, null,
+                         this._dir.getAbsolutePath(),
+                         this._dir.getAbsolutePath());
+    }
+
+    private boolean _await(String filename) throws Exception {
+        for (int i = 0; i < 50; ++i) {
+            if (this._restore().getPersistedFileSize(filename) != null)
+                return true;
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    private File _journal(ClientRestartCache crc) {
+        return new File(crc.getCacheFilename() + ".journal");
+    }
+
+    private void _delete(File file) {
+        File[] files = file.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            this._delete(files[i]);
+        file.delete();
+    }
+}
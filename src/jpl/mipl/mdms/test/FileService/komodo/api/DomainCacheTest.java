@@ -0,0 +1,194 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.api.Domain;
+import jpl.mipl.mdms.FileService.komodo.api.DomainCache;
+import jpl.mipl.mdms.FileService.komodo.api.DynamicDomainWrapper;
+import jpl.mipl.mdms.FileService.komodo.api.SaxDomain;
+import jpl.mipl.mdms.FileService.komodo.api.ServerInfo;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for the local cache of parsed domains and dynamic
+ * group file types.
+ */
+public class DomainCacheTest extends TestCase {
+    private File _dir = null;
+    private File _domainFile = null;
+    private URL _url = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public DomainCacheTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._dir = File.createTempFile("domaincachetest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        this._domainFile = new File(this._dir, "domain.xml");
+        this._writeDomain("hostA");
+        this._url = this._domainFile.toURI().toURL();
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Restores a domain from the cache and checks it against the parsed
+     * domain.
+     *
+     * @throws Exception when general failure
+     */
+    public void testSnapshot() throws Exception {
+        DomainCache cache = new DomainCache(this._dir, 60000);
+        SaxDomain parsed = cache.getDomain(this._url);
+        SaxDomain restored = cache.getDomain(this._url);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+
+        assertEquals(parsed.getDefaultGroup(), restored.getDefaultGroup());
+        assertEquals(parsed.getGroupNames().size(),
+                     restored.getGroupNames().size());
+        assertTrue(restored.getGroupNames().containsAll(
+                                             parsed.getGroupNames()));
+        assertEquals(parsed.getFileTypeNames("g1").size(),
+                     restored.getFileTypeNames("g1").size());
+        assertTrue(restored.getFileTypeNames("g1").containsAll(
+                                       parsed.getFileTypeNames("g1")));
+        assertFalse(restored.isGroupDynamic("g1"));
+        assertTrue(restored.isGroupDynamic("g2"));
+
+        ServerInfo info = restored.getServerInfo("g1", "s2");
+        assertEquals("hostB", info.getHostName());
+        assertEquals(8002, info.getPort());
+        assertEquals("SHA1", info.getAuth());
+        assertEquals("SSL", info.getCommunication());
+        assertEquals("g1", info.getGroupName());
+
+        //server level file type is served by its server only
+        List servers = restored.getServerInfoFromFileType("g1", "t2");
+        assertEquals(1, servers.size());
+        assertSame(restored.getServerInfo("g1", "s1"), servers.get(0));
+        assertEquals(2, restored.getServerInfoFromFileType("g1", "t1").size());
+    }
+
+    /**
+     * Checks that a modified domain file is parsed again.
+     *
+     * @throws Exception when general failure
+     */
+    public void testSourceChanged() throws Exception {
+        DomainCache cache = new DomainCache(this._dir, 60000);
+        cache.getDomain(this._url);
+        long modified = this._domainFile.lastModified();
+
+        this._writeDomain("hostC");
+        this._domainFile.setLastModified(modified + 2000);
+        SaxDomain domain = cache.getDomain(this._url);
+        assertEquals(2, cache.getMissCount());
+        assertEquals("hostC", domain.getServerInfo("g1", "s1").getHostName());
+
+        domain = cache.getDomain(this._url);
+        assertEquals(1, cache.getHitCount());
+        assertEquals("hostC", domain.getServerInfo("g1", "s1").getHostName());
+    }
+
+    /**
+     * Checks that dynamic group file types are reused within the time to
+     * live, without querying the group servers.
+     *
+     * @throws Exception when general failure
+     */
+    public void testGroupTypes() throws Exception {
+        DomainCache cache = new DomainCache(this._dir, 60000);
+        assertNull(cache.getGroupTypes(this._url.toString(), "g2"));
+        cache.putGroupTypes(this._url.toString(), "g2",
+                            Arrays.asList(new String[] {"d1", "d2"}));
+        assertEquals(Arrays.asList(new String[] {"d1", "d2"}),
+                     cache.getGroupTypes(this._url.toString(), "G2"));
+
+        DomainCache expired = new DomainCache(this._dir, 0);
+        assertNull(expired.getGroupTypes(this._url.toString(), "g2"));
+
+        //server of group g2 is unreachable, so types come from the cache
+        Domain domain = new DynamicDomainWrapper(cache.getDomain(this._url),
+                                       null, cache, this._url.toString());
+        List types = domain.getFileTypeNames("g2");
+        assertEquals(2, types.size());
+        assertTrue(types.contains("d1"));
+        assertTrue(types.contains("d2"));
+    }
+
+    /**
+     * Writes a domain with a static group of two servers, one of which
+     * declares its own file type, and a dynamic group.
+     */
+    private void _writeDomain(String host) throws IOException {
+        FileWriter writer = new FileWriter(this._domainFile);
+        try {
+            writer.write(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<fei:domain xmlns:fei=\"http://mdms.jpl.nasa.gov/schema/fei\">\n" +
+                "  <fei:defaultGroup>g1</fei:defaultGroup>\n" +
+                "  <fei:group name=\"g1\">\n" +
+                "    <fei:server name=\"s1\">\n" +
+                "      <fei:host>" + host + "</fei:host>\n" +
+                "      <fei:port>8001</fei:port>\n" +
+                "      <fei:auth>SHA1</fei:auth>\n" +
+                "      <fei:communication>SSL</fei:communication>\n" +
+                "      <fei:fileType>t2</fei:fileType>\n" +
+                "    </fei:server>\n" +
+                "    <fei:server name=\"s2\">\n" +
+                "      <fei:host>hostB</fei:host>\n" +
+                "      <fei:port>8002</fei:port>\n" +
+                "      <fei:auth>SHA1</fei:auth>\n" +
+                "      <fei:communication>SSL</fei:communication>\n" +
+                "    </fei:server>\n" +
+                "    <fei:fileType>t1</fei:fileType>\n" +
+                "  </fei:group>\n" +
+                "  <fei:group name=\"g2\" dynamicTypes=\"true\">\n" +
+                "    <fei:server name=\"s3\">\n" +
+                "      <fei:host>localhost</fei:host>\n" +
+                "      <fei:port>1</fei:port>\n" +
+                "      <fei:auth>SHA1</fei:auth>\n" +
+                "      <fei:communication>SSL</fei:communication>\n" +
+                "    </fei:server>\n" +
+                "  </fei:group>\n" +
+                "</fei:domain>\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
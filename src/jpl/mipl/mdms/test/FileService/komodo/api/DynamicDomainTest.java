@@ -0,0 +1,249 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.DynamicDomainWrapper;
+import jpl.mipl.mdms.FileService.komodo.api.FileTypeQueryClient;
+import jpl.mipl.mdms.FileService.komodo.api.SaxDomain;
+import jpl.mipl.mdms.FileService.komodo.api.ServerInfo;
+import jpl.mipl.mdms.FileService.komodo.api.SessionException;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for parallel file type queries of dynamic groups,
+ * using a query client that simulates slow and unreachable servers.
+ */
+public class DynamicDomainTest extends TestCase {
+    private static final int TIMEOUT = 1000;
+
+    private File _dir = null;
+    private SaxDomain _domain = null;
+    private FakeQueryClient _client = null;
+
+    /**
+     * Query client answering by host name: "fast" hosts return the types
+     * after a short delay, "slow" hosts never within the timeout, and
+     * "dead" hosts fail with an IO error.
+     */
+    private static class FakeQueryClient extends FileTypeQueryClient {
+        int calls = 0;
+
+        FakeQueryClient() throws SessionException {
+            super(false);
+        }
+
+        public List getFileTypes(ServerInfo serverInfo)
+                                          throws SessionException {
+            synchronized (this) {
+                ++this.calls;
+            }
+            String host = serverInfo.getHostName();
+            try {
+                if (host.startsWith("fast")) {
+                    Thread.sleep(50);
+                    return Arrays.asList(new String[] {"a", "b"});
+                }
+                if (host.startsWith("slow"))
+                    Thread.sleep(30000);
+            } catch (InterruptedException iEx) {
+            }
+            throw new SessionException("Connection refused",
+                                       Constants.IO_ERROR);
+        }
+    }
+
+    /**
+     * Wrapper using the fake query client, or its own if null.
+     */
+    private static class TestWrapper extends DynamicDomainWrapper {
+        TestWrapper(SaxDomain domain, FileTypeQueryClient client)
+                                               throws SessionException {
+            super(domain);
+            if (client != null)
+                this.typeQueryClient = client;
+        }
+
+        FileTypeQueryClient getQueryClient() {
+            return this.typeQueryClient;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public DynamicDomainTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        System.setProperty(Constants.PROPERTY_DOMAIN_QUERY_TIMEOUT,
+                           String.valueOf(TIMEOUT));
+        this._dir = File.createTempFile("dynamicdomaintest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+
+        //unique ports keep the static unreachable server set per test
+        int port = 20000 + (int) (System.nanoTime() % 10000);
+        File domainFile = new File(this._dir, "domain.xml");
+        FileWriter writer = new FileWriter(domainFile);
+        try {
+            writer.write(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<fei:domain xmlns:fei=\"http://mdms.jpl.nasa.gov/schema/fei\">\n" +
+                "  <fei:defaultGroup>g1</fei:defaultGroup>\n" +
+                _group("g1", new String[] {"slow", "dead", "fast"}, port) +
+                _group("g2", new String[] {"slow", "dead"}, port) +
+                _group("g3", new String[] {"fast"}, port) +
+                "</fei:domain>\n");
+        } finally {
+            writer.close();
+        }
+        this._domain = new SaxDomain(domainFile.toURI().toURL());
+        this._client = new FakeQueryClient();
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        System.getProperties().remove(
+                          Constants.PROPERTY_DOMAIN_QUERY_TIMEOUT);
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Checks that a group is initialized by its fastest server, without
+     * waiting for slow or failed servers.
+     *
+     * @throws Exception when general failure
+     */
+    public void testFastestServer() throws Exception {
+        DynamicDomainWrapper wrapper = new TestWrapper(this._domain,
+                                                       this._client);
+        long start = System.currentTimeMillis();
+        List types = wrapper.getFileTypeNames("g1");
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(2, types.size());
+        assertTrue(types.contains("a"));
+        assertTrue(types.contains("b"));
+        assertTrue("Took " + elapsed + " ms", elapsed < TIMEOUT);
+        assertEquals(3, this._client.calls);
+    }
+
+    /**
+     * Checks that servers not replying within the timeout are skipped by
+     * the next query.
+     *
+     * @throws Exception when general failure
+     */
+    public void testUnreachableServers() throws Exception {
+        DynamicDomainWrapper wrapper = new TestWrapper(this._domain,
+                                                       this._client);
+        long start = System.currentTimeMillis();
+        try {
+            wrapper.getFileTypeNames("g2");
+            fail("Expected connection failure");
+        } catch (SessionException sesEx) {
+            assertEquals(Constants.CONN_FAILED, sesEx.getErrno());
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Took " + elapsed + " ms", elapsed >= TIMEOUT);
+        assertTrue("Took " + elapsed + " ms", elapsed < 5 * TIMEOUT);
+        assertEquals(2, this._client.calls);
+
+        //slow server is skipped, only the failed server is queried again
+        start = System.currentTimeMillis();
+        try {
+            wrapper.getFileTypeNames("g2");
+            fail("Expected connection failure");
+        } catch (SessionException sesEx) {
+            assertEquals(Constants.CONN_FAILED, sesEx.getErrno());
+        }
+        elapsed = System.currentTimeMillis() - start;
+        assertTrue("Took " + elapsed + " ms", elapsed < TIMEOUT);
+        assertEquals(3, this._client.calls);
+    }
+
+    /**
+     * Checks that all groups are queried together when looking up a file
+     * type without a group.
+     *
+     * @throws Exception when general failure
+     */
+    public void testAllGroups() throws Exception {
+        DynamicDomainWrapper wrapper = new TestWrapper(this._domain,
+                                                       this._client);
+        long start = System.currentTimeMillis();
+        try {
+            wrapper.getFileType("missing");
+            fail("Expected lookup failure");
+        } catch (SessionException sesEx) {
+            //g2 cannot be reached, or missing is not found
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        //g2 waits out a single timeout for all groups
+        assertTrue("Took " + elapsed + " ms", elapsed < 2 * TIMEOUT);
+        assertEquals(2, wrapper.getFileTypeNames("g3").size());
+    }
+
+    /**
+     * Checks that socket reads of the query client are bounded by the
+     * query timeout, or by the default client timeout when queries wait
+     * indefinitely.
+     *
+     * @throws Exception when general failure
+     */
+    public void testReadTimeout() throws Exception {
+        TestWrapper wrapper = new TestWrapper(this._domain, null);
+        assertEquals(TIMEOUT, wrapper.getQueryClient().getTimeout());
+
+        System.setProperty(Constants.PROPERTY_DOMAIN_QUERY_TIMEOUT, "-1");
+        wrapper = new TestWrapper(this._domain, null);
+        assertEquals(Constants.TIMEOUT_DEFAULT,
+                     wrapper.getQueryClient().getTimeout());
+    }
+
+    /**
+     * Returns a dynamic group with a server for each host.
+     */
+    private static String _group(String name, String[] hosts, int port) {
+        StringBuffer buf = new StringBuffer();
+        buf.append("  <fei:group name=\"" + name +
+                   "\" dynamicTypes=\"true\">\n");
+        for (int i = 0; i < hosts.length; ++i) {
+            buf.append("    <fei:server name=\"" + name + hosts[i] + "\">\n" +
+                "      <fei:host>" + hosts[i] + name + "</fei:host>\n" +
+                "      <fei:port>" + port + "</fei:port>\n" +
+                "      <fei:auth>SHA1</fei:auth>\n" +
+                "      <fei:communication>SSL</fei:communication>\n" +
+                "    </fei:server>\n");
+        }
+        buf.append("  </fei:group>\n");
+        return buf.toString();
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledge. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.FileType;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.Session;
+
+/**
+ * Measures multi-file get throughput against a {@link StubKomodoServer}
+ * with simulated latency, with get command pipelining disabled and then
+ * enabled (see Constants.PROPERTY_GET_PIPELINE).
+ * <p>
+ * Usage: GetPipelineBenchmark [fileCount] [latencyMs] [fileSize]
+ */
+public class GetPipelineBenchmark
+{
+    private static final String GROUP = "bench";
+    private static final String TYPE  = "bench_type";
+
+    //---------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception
+    {
+        int fileCount = (args.length > 0) ? Integer.parseInt(args[0]) : 50;
+        long latency  = (args.length > 1) ? Long.parseLong(args[1]) : 20;
+        int fileSize  = (args.length > 2) ? Integer.parseInt(args[2]) : 4096;
+
+        StubKomodoServer server = new StubKomodoServer(latency, fileSize);
+        server.start();
+
+        File workDir = File.createTempFile("getbench", "");
+        workDir.delete();
+        workDir.mkdirs();
+        File domainFile = new File(workDir, "domain.xml");
+        server.writeDomainFile(domainFile, GROUP, TYPE);
+
+        String[] fileNames = new String[fileCount];
+        for (int i = 0; i < fileCount; ++i)
+            fileNames[i] = "file_" + i + ".dat";
+
+        System.out.println("files=" + fileCount + " latency=" + latency +
+                           "ms size=" + fileSize + " bytes");
+
+        //warm up
+        System.setProperty(Constants.PROPERTY_GET_PIPELINE, "false");
+        _run(domainFile, workDir, fileNames);
+
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            boolean pipeline = (pass == 1);
+            System.setProperty(Constants.PROPERTY_GET_PIPELINE,
+                               String.valueOf(pipeline));
+            long elapsed = _run(domainFile, workDir, fileNames);
+            double rate = fileCount * 1000.0 / Math.max(1, elapsed);
+            System.out.println((pipeline ? "pipelined:  " : "sequential: ") +
+                               elapsed + " ms, " +
+                               Math.round(rate * 10) / 10.0 + " files/sec");
+        }
+
+        server.shutdown();
+        File[] files = workDir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        workDir.delete();
+    }
+
+    //---------------------------------------------------------------------
+
+    private static long _run(File domainFile, File workDir,
+                             String[] fileNames) throws Exception
+    {
+        Session session = new Session(domainFile.toURI().toURL(),
+                                      Constants.INSECURE);
+        session.setLoginInfo("bench", "bench");
+        session.setDirectory(workDir.getAbsolutePath());
+        session.setOption(Constants.FILEREPLACE, true);
+        FileType fileType = session.open(GROUP, TYPE);
+
+        long start = System.currentTimeMillis();
+        fileType.get(fileNames);
+        int received = 0;
+        while (session.getTransactionCount() > 0)
+        {
+            Result result = session.result();
+            if (result != null && result.getErrno() == Constants.OK)
+                ++received;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        if (received != fileNames.length)
+            System.err.println("Expected " + fileNames.length +
+                               " files, received " + received);
+        session.closeImmediate();
+        return elapsed;
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -0,0 +1,114 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.FileType;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.Session;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for the heartbeat of server proxies, which sends no-ops
+ * to a {@link StubKomodoServer} only while a connection is idle.
+ */
+public class HeartbeatTest extends TestCase {
+    private StubKomodoServer _server = null;
+    private File _dir = null;
+    private Session _session = null;
+    private FileType _fileType = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public HeartbeatTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        System.setProperty(Constants.PROPERTY_CLIENT_PULSE, "1");
+        this._server = new StubKomodoServer(0, 128);
+        this._server.start();
+        this._dir = File.createTempFile("heartbeattest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        File domainFile = new File(this._dir, "domain.xml");
+        this._server.writeDomainFile(domainFile, "group", "type");
+        this._session = new Session(domainFile.toURI().toURL(),
+                                    Constants.INSECURE);
+        this._session.setLoginInfo("test", "test");
+        this._session.setDirectory(this._dir.getAbsolutePath());
+        this._session.setOption(Constants.FILEREPLACE, true);
+        this._fileType = this._session.open("group", "type");
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        System.getProperties().remove(Constants.PROPERTY_CLIENT_PULSE);
+        this._session.closeImmediate();
+        this._server.shutdown();
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test that an idle connection receives a no-op every interval, and
+     * that proxies have no heartbeat thread of their own.
+     *
+     * @throws Exception when general failure
+     */
+    public void testIdle() throws Exception {
+        Thread.sleep(2600);
+        int noOps = this._server.getNoOpCount();
+        assertTrue("no-ops: " + noOps, noOps >= 1 && noOps <= 3);
+
+        Thread[] threads = new Thread[Thread.activeCount() + 10];
+        int count = Thread.enumerate(threads);
+        boolean shared = false;
+        for (int i = 0; i < count; ++i) {
+            assertFalse(threads[i].getName().endsWith("Pulse_Thread"));
+            shared |= threads[i].getName().equals("Heartbeat_Thread");
+        }
+        assertTrue(shared);
+    }
+
+    /**
+     * Test that a connection busy with requests receives no no-ops.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBusy() throws Exception {
+        long end = System.currentTimeMillis() + 2600;
+        while (System.currentTimeMillis() < end) {
+            this._fileType.get(new String[] {"busy.dat"});
+            while (this._session.getTransactionCount() > 0) {
+                Result result = this._session.result(
+                                             Constants.RESULTMAXTIMEOUT);
+                if (result != null)
+                    assertEquals(Constants.OK, result.getErrno());
+            }
+            Thread.sleep(100);
+        }
+        assertEquals(0, this._server.getNoOpCount());
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import jpl.mipl.mdms.FileService.io.DirectBufferAllocator;
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.FileType;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.Session;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for in-memory gets into pooled off-heap buffers, using
+ * a {@link StubKomodoServer}.
+ */
+public class MemGetDirectTest extends TestCase {
+    private static final int FILE_SIZE = 200000;
+
+    private StubKomodoServer _server = null;
+    private File _dir = null;
+    private Session _session = null;
+    private FileType _fileType = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public MemGetDirectTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._server = new StubKomodoServer(0, FILE_SIZE);
+        this._server.start();
+        this._dir = File.createTempFile("memgetdirecttest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        File domainFile = new File(this._dir, "domain.xml");
+        this._server.writeDomainFile(domainFile, "group", "type");
+        this._session = new Session(domainFile.toURI().toURL(),
+                                    Constants.INSECURE);
+        this._session.setLoginInfo("test", "test");
+        this._session.setDirectory(this._dir.getAbsolutePath());
+        this._session.setOption(Constants.FILEREPLACE, true);
+        this._fileType = this._session.open("group", "type");
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        this._session.closeImmediate();
+        this._server.shutdown();
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test that files are received into direct buffers, and that released
+     * buffers return to the pool.
+     *
+     * @throws Exception when general failure
+     */
+    public void testGet() throws Exception {
+        this._checkGet(new String[] {"a.dat", "b.dat"});
+    }
+
+    /**
+     * Test that files received with checksum are verified in direct
+     * buffers.
+     *
+     * @throws Exception when general failure
+     */
+    public void testGetChecksum() throws Exception {
+        this._session.setOption(Constants.CHECKSUM, true);
+        this._checkGet(new String[] {"a.dat"});
+    }
+
+    private void _checkGet(String[] names) throws Exception {
+        byte[] expected = StubKomodoServer.getFileContent(FILE_SIZE);
+        DirectBufferAllocator allocator = DirectBufferAllocator.getDefault();
+        long pooled = allocator.getPooledBytes();
+
+        this._fileType.memGetDirect(names);
+        int received = 0;
+        while (this._session.getTransactionCount() > 0) {
+            Result result = this._session.result(Constants.RESULTMAXTIMEOUT);
+            if (result == null || result.getName() == null)
+                continue;
+            assertEquals(Constants.OK, result.getErrno());
+            assertNull(result.getFileBuffer());
+            assertEquals(FILE_SIZE, result.getFileBufferSize());
+
+            ByteBuffer buffer = result.getByteBuffer();
+            assertTrue(buffer.isDirect());
+            assertEquals(FILE_SIZE, buffer.remaining());
+            byte[] content = new byte[FILE_SIZE];
+            buffer.get(content);
+            assertTrue(Arrays.equals(expected, content));
+
+            result.releaseByteBuffer();
+            assertNull(result.getByteBuffer());
+            ++received;
+        }
+        assertEquals(names.length, received);
+        assertTrue(allocator.getPooledBytes() > 0);
+        assertTrue(allocator.getPooledBytes() >= pooled);
+        assertFalse(new File(this._dir, names[0]).exists());
+    }
+}
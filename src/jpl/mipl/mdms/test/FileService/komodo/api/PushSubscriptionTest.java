@@ -0,0 +1,191 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.FileType;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.Session;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for push subscriptions, serviced either by the shared
+ * subscription reactor or by the proxy service thread, using a
+ * {@link StubKomodoServer}.
+ */
+public class PushSubscriptionTest extends TestCase {
+    private StubKomodoServer _server = null;
+    private File _dir = null;
+    private Session _session = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public PushSubscriptionTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._server = new StubKomodoServer(0, 128);
+        this._server.start();
+        this._dir = File.createTempFile("subscribetest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        File domainFile = new File(this._dir, "domain.xml");
+        this._server.writeDomainFile(domainFile, "group", "type");
+        this._session = new Session(domainFile.toURI().toURL(),
+                                    Constants.INSECURE);
+        this._session.setLoginInfo("test", "test");
+        this._session.setDirectory(this._dir.getAbsolutePath());
+        this._session.setOption(Constants.FILEREPLACE, true);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        System.getProperties().remove(
+                               Constants.PROPERTY_SUBSCRIPTION_REACTOR);
+        if (this._session != null)
+            this._session.closeImmediate();
+        this._server.shutdown();
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test that a subscription serviced by the reactor delivers pings and
+     * files over the proxy connection, with the proxy service thread
+     * stopped, and that requests queued meanwhile run once it is killed.
+     *
+     * @throws Exception when general failure
+     */
+    public void testReactorSubscription() throws Exception {
+        System.setProperty(Constants.PROPERTY_SUBSCRIPTION_REACTOR, "true");
+        FileType fileType = this._session.open("group", "type");
+        this._subscribe(fileType);
+        assertTrue(this._waitForServiceThreads(0));
+
+        fileType.get(new String[] {"other.dat"});
+        fileType.stopSubscribe();
+        List results = this._drain();
+        assertTrue(this._waitForServiceThreads(1));
+
+        boolean got = false;
+        for (int i = 0; i < results.size(); ++i)
+            got |= "other.dat".equals(((Result) results.get(i)).getName());
+        assertTrue(got);
+        assertTrue(new File(this._dir, "other.dat").isFile());
+        assertEquals(1, this._server.getConnectionCount());
+    }
+
+    /**
+     * Test that a subscription serviced by the proxy service thread
+     * delivers the same results, the default.
+     *
+     * @throws Exception when general failure
+     */
+    public void testThreadSubscription() throws Exception {
+        FileType fileType = this._session.open("group", "type");
+        this._subscribe(fileType);
+        assertTrue(this._waitForServiceThreads(1));
+        fileType.stopSubscribe();
+        this._drain();
+    }
+
+    /**
+     * Test that closing the session ends a reactor subscription.
+     *
+     * @throws Exception when general failure
+     */
+    public void testCloseSubscription() throws Exception {
+        System.setProperty(Constants.PROPERTY_SUBSCRIPTION_REACTOR, "true");
+        FileType fileType = this._session.open("group", "type");
+        this._subscribe(fileType);
+        this._session.close();
+        this._drain();
+        this._session = null;
+    }
+
+    //---------------------------------------------------------------------
+
+    private void _subscribe(FileType fileType) throws Exception {
+        fileType.subscribe(null, "*", Constants.AUTOSHOWFILES, false);
+
+        boolean pinged = false;
+        List results = new ArrayList();
+        while (results.size() < 3) {
+            Result result = this._session.result(Constants.RESULTMAXTIMEOUT);
+            assertNotNull(result);
+            if (result.getErrno() == Constants.PING_RECVD) {
+                pinged = true;
+                continue;
+            }
+            assertEquals(Constants.OK, result.getErrno());
+            results.add(result);
+        }
+        assertTrue(pinged);
+        for (int i = 0; i < results.size(); ++i) {
+            Result result = (Result) results.get(i);
+            assertEquals("push_" + i + ".dat", result.getName());
+            assertEquals(128, result.getSize());
+            assertEquals("stub", result.getFileContributor());
+        }
+        assertEquals("first file", ((Result) results.get(0)).getComment());
+        assertNull(((Result) results.get(1)).getComment());
+    }
+
+    private List _drain() throws Exception {
+        long deadline = System.currentTimeMillis() +
+                        Constants.RESULTMAXTIMEOUT;
+        List results = new ArrayList();
+        while (this._session.getTransactionCount() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            this._session.drainResults(results, 0, 1000);
+        }
+        for (int i = 0; i < results.size(); ++i)
+            assertEquals(Constants.OK,
+                         ((Result) results.get(i)).getErrno());
+        return results;
+    }
+
+    private int _serviceThreadCount() {
+        Thread[] threads = new Thread[Thread.activeCount() + 16];
+        int count = Thread.enumerate(threads);
+        int service = 0;
+        for (int i = 0; i < count; ++i)
+            if (threads[i].getName().endsWith("_Service_Thread"))
+                ++service;
+        return service;
+    }
+
+    private boolean _waitForServiceThreads(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this._serviceThreadCount() != count) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+}
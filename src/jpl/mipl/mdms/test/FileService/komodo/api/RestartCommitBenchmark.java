@@ -0,0 +1,98 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledge. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+
+import jpl.mipl.mdms.FileService.komodo.api.ClientRestartCache;
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+
+/**
+ * Measures the rate at which received files can be recorded in a
+ * ClientRestartCache under each durability policy, following the
+ * commit sequence of a subscription: persist and commit before the
+ * transfer, then remove, advance the query time and commit after it.
+ * <p>
+ * Usage: RestartCommitBenchmark [fileCount]
+ */
+public class RestartCommitBenchmark
+{
+    /** {files, interval ms} per policy */
+    private static final long[][] POLICIES = {
+        {1, 0}, {10, 0}, {100, 0}, {0, 100}
+    };
+
+    //---------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception
+    {
+        int fileCount = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+
+        File workDir = File.createTempFile("restartbench", "");
+        workDir.delete();
+        workDir.mkdirs();
+
+        System.out.println("files=" + fileCount);
+        for (int p = 0; p < POLICIES.length; ++p)
+        {
+            int files = (int) POLICIES[p][0];
+            long interval = POLICIES[p][1];
+            long elapsed = _run(workDir, files, interval, fileCount);
+            double rate = fileCount * 1000.0 / Math.max(1, elapsed);
+            String policy = (interval > 0) ? "every " + interval + " ms" :
+                            (files > 1) ? "every " + files + " files" : 
+                            "per file";
+            System.out.println(policy + ": " + elapsed + " ms, " +
+                               Math.round(rate * 10) / 10.0 + " files/sec");
+        }
+
+        _delete(workDir);
+    }
+
+    //---------------------------------------------------------------------
+
+    private static long _run(File workDir, int files, long interval,
+                             int fileCount) throws Exception
+    {
+        ClientRestartCache crc = ClientRestartCache.restoreFromCache(
+                         "bench", "bench_type", null, Constants.AUTOGETFILES,
+                         null, workDir.getAbsolutePath(),
+                         workDir.getAbsolutePath());
+        crc.setCommitPolicy(files, interval);
+
+        long time = System.currentTimeMillis() - fileCount * 1000L;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < fileCount; ++i)
+        {
+            String name = "file_" + i + ".dat";
+            crc.addPersist(name, 4096, time);
+            crc.commit();
+            crc.removePersist(name);
+            crc.setLastQueryTime(time + i * 1000L);
+            crc.commit();
+        }
+        crc.flush();
+        long elapsed = System.currentTimeMillis() - start;
+
+        new File(crc.getCacheFilename()).delete();
+        new File(crc.getCacheFilename() + Constants.BACKUPEXTENSION).delete();
+        new File(crc.getCacheFilename() + ".journal").delete();
+        return elapsed;
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _delete(File file)
+    {
+        File[] files = file.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            _delete(files[i]);
+        file.delete();
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -0,0 +1,164 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledge. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.FileType;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.Session;
+
+/**
+ * Measures contention on the session result queue.  First, 1, 4 and 16
+ * producer threads post results directly while a single consumer takes
+ * them, as push subscriptions do.  Then a multi-file get is striped
+ * across 1, 4 and 8 ServerProxy connections to a {@link StubKomodoServer}
+ * without latency, so that every proxy posts results concurrently.
+ * <p>
+ * Usage: ResultQueueBenchmark [resultCount] [fileCount]
+ */
+public class ResultQueueBenchmark
+{
+    private static final String GROUP = "bench";
+    private static final String TYPE  = "bench_type";
+
+    private static final int[] PRODUCERS = {1, 4, 16};
+    private static final int[] PROXIES   = {1, 4, 8};
+
+    //---------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception
+    {
+        int resultCount = (args.length > 0) ? Integer.parseInt(args[0]) :
+                                              1000000;
+        int fileCount = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+
+        StubKomodoServer server = new StubKomodoServer(0, 64);
+        server.start();
+
+        File workDir = File.createTempFile("resultbench", "");
+        workDir.delete();
+        workDir.mkdirs();
+        File domainFile = new File(workDir, "domain.xml");
+        server.writeDomainFile(domainFile, GROUP, TYPE);
+
+        System.out.println("results=" + resultCount + " files=" + fileCount);
+
+        //warm up
+        _runPost(domainFile, 4, resultCount / 10);
+
+        for (int i = 0; i < PRODUCERS.length; ++i)
+        {
+            long elapsed = _runPost(domainFile, PRODUCERS[i], resultCount);
+            _report("post x" + PRODUCERS[i], resultCount, elapsed,
+                    "results");
+        }
+
+        String[] fileNames = new String[fileCount];
+        for (int i = 0; i < fileCount; ++i)
+            fileNames[i] = "file_" + i + ".dat";
+
+        for (int i = 0; i < PROXIES.length; ++i)
+        {
+            long elapsed = _runGet(domainFile, workDir, fileNames,
+                                   PROXIES[i]);
+            _report("get x" + PROXIES[i], fileCount, elapsed, "files");
+        }
+
+        server.shutdown();
+        File[] files = workDir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        workDir.delete();
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _report(String label, int count, long elapsed,
+                                String unit)
+    {
+        double rate = count * 1000.0 / Math.max(1, elapsed);
+        System.out.println(label + ": " + elapsed + " ms, " +
+                           Math.round(rate) + " " + unit + "/sec");
+    }
+
+    //---------------------------------------------------------------------
+
+    private static long _runPost(File domainFile, int producers,
+                                 int resultCount) throws Exception
+    {
+        final Session session = new Session(domainFile.toURI().toURL(),
+                                            Constants.INSECURE);
+        //open transaction so that the consumer blocks for results; no
+        //connection is made, so the session need not be closed
+        session.getTransactionId();
+
+        final int perProducer = resultCount / producers;
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; ++i)
+        {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int n = 0; n < perProducer; ++n)
+                        session.postResult(new Result("file", n));
+                }
+            };
+        }
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < producers; ++i)
+            threads[i].start();
+        int received = 0;
+        while (received < perProducer * producers)
+        {
+            if (session.result(Constants.RESULTMAXTIMEOUT) == null)
+                throw new IllegalStateException("Timed out after " +
+                                                received + " results");
+            ++received;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        for (int i = 0; i < producers; ++i)
+            threads[i].join();
+        return elapsed;
+    }
+
+    //---------------------------------------------------------------------
+
+    private static long _runGet(File domainFile, File workDir,
+                                String[] fileNames, int proxies)
+                                                       throws Exception
+    {
+        Session session = new Session(domainFile.toURI().toURL(),
+                                      Constants.INSECURE);
+        session.setLoginInfo("bench", "bench");
+        session.setDirectory(workDir.getAbsolutePath());
+        session.setOption(Constants.FILEREPLACE, true);
+        session.setConnectionPoolSize(proxies);
+        FileType fileType = session.open(GROUP, TYPE);
+
+        long start = System.currentTimeMillis();
+        fileType.get(fileNames);
+        int received = 0;
+        while (session.getTransactionCount() > 0)
+        {
+            Result result = session.result();
+            if (result != null && result.getErrno() == Constants.OK)
+                ++received;
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        if (received != fileNames.length)
+            System.err.println("Expected " + fileNames.length +
+                               " files, received " + received);
+        session.closeImmediate();
+        return elapsed;
+    }
+
+    //---------------------------------------------------------------------
+}
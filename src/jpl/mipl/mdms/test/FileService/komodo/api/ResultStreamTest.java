@@ -0,0 +1,138 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.FileType;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.ResultStream;
+import jpl.mipl.mdms.FileService.komodo.api.Session;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for streamed file listings, using a
+ * {@link StubKomodoServer}.
+ */
+public class ResultStreamTest extends TestCase {
+    private static final int FILES = 5000;
+    private static final int BATCH = 500;
+
+    private StubKomodoServer _server = null;
+    private File _dir = null;
+    private Session _session = null;
+    private FileType _fileType = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public ResultStreamTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._server = new StubKomodoServer(0, 128);
+        this._server.setListing(FILES, BATCH);
+        this._server.start();
+        this._dir = File.createTempFile("streamtest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        File domainFile = new File(this._dir, "domain.xml");
+        this._server.writeDomainFile(domainFile, "group", "type");
+        this._session = new Session(domainFile.toURI().toURL(),
+                                    Constants.INSECURE);
+        this._session.setLoginInfo("test", "test");
+        this._session.setDirectory(this._dir.getAbsolutePath());
+        this._fileType = this._session.open("group", "type");
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        this._session.closeImmediate();
+        this._server.shutdown();
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test that the listing is read no faster than the stream is
+     * consumed, and that every result arrives in order.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBackpressure() throws Exception {
+        ResultStream stream = this._fileType.showStream("*");
+
+        //reader stops once the stream buffer is full
+        Thread.sleep(500);
+        int batches = this._server.getListingBatchesSent();
+        int maxBatches = Constants.RESULTSTREAMCAPACITY / BATCH + 2;
+        assertTrue("Listing not throttled: " + batches,
+                   batches <= maxBatches);
+        assertTrue(batches < FILES / BATCH);
+        assertEquals(1, this._session.getTransactionCount());
+
+        int count = 0;
+        while (stream.hasNext()) {
+            Result r = stream.next();
+            assertEquals(Constants.OK, r.getErrno());
+            assertEquals("list_" + count + ".dat", r.getName());
+            ++count;
+        }
+        assertEquals(FILES, count);
+        assertTrue(stream.isEnded());
+        assertEquals(0, this._session.getTransactionCount());
+        assertEquals(FILES / BATCH, this._server.getListingBatchesSent());
+        assertNull(this._session.result(0));
+    }
+
+    /**
+     * Test that closing a stream early releases the reader and ends the
+     * transaction, leaving the session usable.
+     *
+     * @throws Exception when general failure
+     */
+    public void testClose() throws Exception {
+        ResultStream stream = this._fileType.showStream("*");
+        for (int i = 0; i < 10; ++i)
+            assertEquals("list_" + i + ".dat", stream.next().getName());
+        stream.close();
+        assertFalse(stream.hasNext());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (this._session.getTransactionCount() > 0) {
+            assertTrue("Transaction not ended",
+                       System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        this._server.setListing(3, BATCH);
+        stream = this._fileType.showStream("*");
+        int count = 0;
+        while (stream.hasNext()) {
+            stream.next();
+            ++count;
+        }
+        assertEquals(3, count);
+        assertEquals(0, this._session.getTransactionCount());
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.FileType;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.Session;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for draining Session results in batches, using a
+ * {@link StubKomodoServer}.
+ */
+public class SessionResultsTest extends TestCase {
+    private StubKomodoServer _server = null;
+    private File _dir = null;
+    private Session _session = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public SessionResultsTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._server = new StubKomodoServer(0, 128);
+        this._server.start();
+        this._dir = File.createTempFile("resultstest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        File domainFile = new File(this._dir, "domain.xml");
+        this._server.writeDomainFile(domainFile, "group", "type");
+        this._session = new Session(domainFile.toURI().toURL(),
+                                    Constants.INSECURE);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        this._session.closeImmediate();
+        this._server.shutdown();
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test that available results are drained in order, up to the
+     * maximum, and that an empty queue times out.
+     *
+     * @throws Exception when general failure
+     */
+    public void testDrainPosted() throws Exception {
+        for (int i = 0; i < 5; ++i)
+            this._session.postResult(new Result("file" + i, i));
+
+        List results = new ArrayList();
+        assertEquals(3, this._session.drainResults(results, 3, 0));
+        assertEquals(2, this._session.drainResults(results, 0, 0));
+        assertEquals(5, results.size());
+        for (int i = 0; i < 5; ++i)
+            assertEquals("file" + i, ((Result) results.get(i)).getName());
+
+        assertEquals(0, this._session.drainResults(results, 0, 0));
+        assertEquals(5, results.size());
+    }
+
+    /**
+     * Test that the results of a multi-file get are drained in batches,
+     * and that end of transaction bookkeeping completes the transaction.
+     *
+     * @throws Exception when general failure
+     */
+    public void testDrainTransaction() throws Exception {
+        this._session.setLoginInfo("test", "test");
+        this._session.setDirectory(this._dir.getAbsolutePath());
+        this._session.setOption(Constants.FILEREPLACE, true);
+        FileType fileType = this._session.open("group", "type");
+
+        String[] fileNames = new String[20];
+        for (int i = 0; i < fileNames.length; ++i)
+            fileNames[i] = "file_" + i + ".dat";
+        fileType.get(fileNames);
+
+        List results = new ArrayList();
+        while (this._session.getTransactionCount() > 0)
+            this._session.drainResults(results, 0,
+                                       Constants.RESULTMAXTIMEOUT);
+
+        int received = 0;
+        for (int i = 0; i < results.size(); ++i)
+            if (((Result) results.get(i)).getErrno() == Constants.OK)
+                ++received;
+        assertEquals(fileNames.length, received);
+        assertEquals(0, this._session.getTransactionCount());
+        assertTrue(new File(this._dir, fileNames[0]).isFile());
+    }
+
+    /**
+     * Test that consumers racing for the last result of a transaction
+     * all return once it has been removed.
+     *
+     * @throws Exception when general failure
+     */
+    public void testCompetingConsumers() throws Exception {
+        this._session.setLoginInfo("test", "test");
+        this._session.setDirectory(this._dir.getAbsolutePath());
+        this._session.setOption(Constants.FILEREPLACE, true);
+        FileType fileType = this._session.open("group", "type");
+        fileType.get(new String[] {"a.dat", "b.dat"});
+
+        final List errors = new ArrayList();
+        Thread[] consumers = new Thread[3];
+        for (int i = 0; i < consumers.length; ++i) {
+            final boolean drain = (i == 0);
+            consumers[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        List results = new ArrayList();
+                        while (_session.getTransactionCount() > 0) {
+                            if (drain)
+                                _session.drainResults(results, 0);
+                            else
+                                _session.result();
+                        }
+                    } catch (Exception ex) {
+                        synchronized (errors) {
+                            errors.add(ex);
+                        }
+                    }
+                }
+            });
+            consumers[i].start();
+        }
+        for (int i = 0; i < consumers.length; ++i) {
+            consumers[i].join(10000);
+            assertFalse(consumers[i].isAlive());
+        }
+        assertTrue(errors.isEmpty());
+        assertEquals(0, this._session.getTransactionCount());
+    }
+}
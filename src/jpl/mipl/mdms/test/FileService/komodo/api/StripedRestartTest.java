@@ -0,0 +1,147 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.File;
+
+import jpl.mipl.mdms.FileService.komodo.api.ClientRestartCache;
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+import jpl.mipl.mdms.FileService.komodo.api.FileType;
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.api.Session;
+import jpl.mipl.mdms.FileService.util.DateTimeUtil;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for the restart cache of a get striped across two
+ * connections of a {@link StubKomodoServer}, whose stripes deliver their
+ * files out of order.
+ */
+public class StripedRestartTest extends TestCase {
+    private static final String[] NAMES = {"f1.dat", "f2.dat", "f3.dat",
+                                           "f4.dat"};
+
+    private StubKomodoServer _server = null;
+    private File _dir = null;
+    private Session _session = null;
+    private FileType _fileType = null;
+    private long[] _times = new long[NAMES.length];
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public StripedRestartTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._server = new StubKomodoServer(0, 128);
+        //later than the time a new restart cache starts from
+        long base = (System.currentTimeMillis() / 1000 + 86400) * 1000;
+        for (int i = 0; i < NAMES.length; ++i) {
+            this._times[i] = base + i * 1000;
+            this._server.setFileTime(NAMES[i], this._times[i]);
+        }
+        //the second stripe gets f2 and f4, each well after the first
+        //stripe has delivered f1 and f3
+        this._server.setFileDelay("f2.dat", 1500);
+        this._server.setFileDelay("f4.dat", 1500);
+        this._server.start();
+
+        this._dir = File.createTempFile("stripedrestarttest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        File domainFile = new File(this._dir, "domain.xml");
+        this._server.writeDomainFile(domainFile, "group", "type");
+        this._session = new Session(domainFile.toURI().toURL(),
+                                    Constants.INSECURE);
+        this._session.setLoginInfo("test", "test");
+        this._session.setDirectory(this._dir.getAbsolutePath());
+        this._session.setOption(Constants.FILEREPLACE, true);
+        this._session.setOption(Constants.RESTART, true);
+        this._session.setOption(Constants.AUTOCOMMIT, true);
+        this._session.setConnectionPoolSize(2);
+        this._fileType = this._session.open("group", "type");
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        this._session.closeImmediate();
+        this._server.shutdown();
+        this._delete(this._dir);
+    }
+
+    /**
+     * Test that the committed query time never passes a file another
+     * stripe has yet to deliver, and reaches the last file once all
+     * stripes are done.
+     *
+     * @throws Exception when general failure
+     */
+    public void testOutOfOrder() throws Exception {
+        this._fileType.get(NAMES);
+
+        //first stripe done, second has delivered nothing yet
+        this._await(new String[] {"f1.dat", "f3.dat"});
+        assertTrue(this._queryTime() < this._times[0]);
+
+        //second stripe has delivered f2, first stripe is done
+        this._await(new String[] {"f2.dat"});
+        assertEquals(this._times[1], this._queryTime());
+
+        this._await(new String[] {"f4.dat"});
+        while (this._session.getTransactionCount() > 0)
+            this._session.result(Constants.RESULTMAXTIMEOUT);
+        assertEquals(this._times[3], this._queryTime());
+    }
+
+    //---------------------------------------------------------------------
+
+    private void _await(String[] names) throws Exception {
+        int remaining = names.length;
+        while (remaining > 0) {
+            Result result = this._session.result(Constants.RESULTMAXTIMEOUT);
+            assertNotNull(result);
+            if (result.getName() == null)
+                continue;
+            assertEquals(Constants.OK, result.getErrno());
+            boolean expected = false;
+            for (int i = 0; i < names.length; ++i)
+                expected |= names[i].equals(result.getName());
+            assertTrue(result.getName(), expected);
+            --remaining;
+        }
+    }
+
+    private long _queryTime() throws Exception {
+        ClientRestartCache crc = ClientRestartCache.restoreFromCache(
+                        "group", "type", null, Constants.GETFILES, null,
+                        this._session.getRegistry(),
+                        this._dir.getAbsolutePath());
+        return DateTimeUtil.getCCSDSAWithLocalTimeZoneDate(
+                                       crc.getLastQueryTime()).getTime();
+    }
+
+    private void _delete(File file) {
+        File[] files = file.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            this._delete(files[i]);
+        file.delete();
+    }
+}
@@ -0,0 +1,548 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledge. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+package jpl.mipl.mdms.test.FileService.komodo.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.util.Hashtable;
+import java.util.LinkedList;
+import java.util.StringTokenizer;
+
+import jpl.mipl.mdms.FileService.komodo.api.Constants;
+
+/**
+ * Minimal in-process Komodo server used by client benchmarks.  Speaks
+ * just enough of the protocol (login, showcaps, chngtype, getfiles,
+ * showfiles, push subscription, no_op and quit) to drive a Session over an insecure
+ * connection.
+ * Every message sent by the stub is delivered to the client after a
+ * configurable delay, so that round-trip costs of the client
+ * implementation can be measured without a real network.
+ */
+public class StubKomodoServer implements Runnable
+{
+    private final ServerSocket _serverSocket;
+    private final long _latency;
+    private final int _fileSize;
+    private volatile boolean _alive = true;
+    private volatile int _subscriptionFileCount = 3;
+    private volatile int _listingFileCount = 0;
+    private volatile int _listingBatchSize = 500;
+    private volatile int _listingBatchesSent = 0;
+    private int _noOpCount = 0;
+    private int _connectionCount = 0;
+    private final Hashtable _fileTimes = new Hashtable();
+    private final Hashtable _fileDelays = new Hashtable();
+    private Thread _acceptThread;
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param latency Delay in milliseconds applied to every server message
+     * @param fileSize Size in bytes of every file served
+     * @throws IOException if server socket cannot be created
+     */
+    public StubKomodoServer(long latency, int fileSize) throws IOException
+    {
+        this._latency = latency;
+        this._fileSize = fileSize;
+        this._serverSocket = new ServerSocket(0, 50,
+                                        InetAddress.getByName("localhost"));
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Starts the accept thread.
+     */
+    public void start()
+    {
+        this._acceptThread = new Thread(this, "StubKomodoServer_Accept");
+        this._acceptThread.setDaemon(true);
+        this._acceptThread.start();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Stops accepting connections.
+     */
+    public void shutdown()
+    {
+        this._alive = false;
+        try {
+            this._serverSocket.close();
+        } catch (IOException ioEx) {
+            //ignore
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the port the stub is listening on.
+     * @return listen port
+     */
+    public int getPort()
+    {
+        return this._serverSocket.getLocalPort();
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets the number of files announced by each push subscription once
+     * the client has acknowledged the first ping.
+     * @param count File count
+     */
+    public void setSubscriptionFileCount(int count)
+    {
+        this._subscriptionFileCount = count;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets the number of files returned by a show request, and the
+     * number sent before the stub waits for the client to request more.
+     * @param count File count
+     * @param batchSize Files per batch
+     */
+    public void setListing(int count, int batchSize)
+    {
+        this._listingFileCount = count;
+        this._listingBatchSize = batchSize;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets the modification time reported for a file, zero by default.
+     * @param name File name
+     * @param time Modification time in milliseconds
+     */
+    public void setFileTime(String name, long time)
+    {
+        this._fileTimes.put(name, new Long(time));
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Sets a delay applied before a file is served, none by default.
+     * @param name File name
+     * @param delay Delay in milliseconds
+     */
+    public void setFileDelay(String name, long delay)
+    {
+        this._fileDelays.put(name, new Long(delay));
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of listing batches sent so far.
+     * @return batch count
+     */
+    public int getListingBatchesSent()
+    {
+        return this._listingBatchesSent;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of no-op requests received so far.
+     * @return no-op count
+     */
+    public synchronized int getNoOpCount()
+    {
+        return this._noOpCount;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the number of connections accepted so far.
+     * @return connection count
+     */
+    public synchronized int getConnectionCount()
+    {
+        return this._connectionCount;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Writes a domain file referencing this server with a single group
+     * and file type.
+     * @param file Domain file to be written
+     * @param group Server group name
+     * @param type File type name
+     * @throws IOException if file cannot be written
+     */
+    public void writeDomainFile(File file, String group, String type)
+                                                        throws IOException
+    {
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<fei:domain xmlns:fei=\"http://mdms.jpl.nasa.gov/schema/fei\">\n" +
+                "  <fei:defaultGroup>" + group + "</fei:defaultGroup>\n" +
+                "  <fei:group name=\"" + group + "\">\n" +
+                "    <fei:server name=\"stub\">\n" +
+                "      <fei:host>localhost</fei:host>\n" +
+                "      <fei:port>" + getPort() + "</fei:port>\n" +
+                "      <fei:auth>SHA1</fei:auth>\n" +
+                "      <fei:communication>SSL</fei:communication>\n" +
+                "    </fei:server>\n" +
+                "    <fei:fileType>" + type + "</fei:fileType>\n" +
+                "  </fei:group>\n" +
+                "</fei:domain>\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Accept loop, one handler thread per connection.
+     */
+    public void run()
+    {
+        while (this._alive)
+        {
+            try {
+                final Socket socket = this._serverSocket.accept();
+                synchronized (this) {
+                    ++this._connectionCount;
+                }
+                Thread handler = new Thread(new Runnable() {
+                    public void run() {
+                        _serve(socket);
+                    }
+                }, "StubKomodoServer_Conn");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException ioEx) {
+                if (this._alive)
+                    ioEx.printStackTrace();
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Serves commands from a single client connection until quit.
+     * @param socket Client socket
+     */
+    protected void _serve(Socket socket)
+    {
+        DelayedWriter out = null;
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            out = new DelayedWriter(new BufferedOutputStream(
+                                    socket.getOutputStream()), this._latency);
+            byte[] data = getFileContent(this._fileSize);
+
+            String line;
+            while ((line = _readLine(in)) != null)
+            {
+                StringTokenizer st = new StringTokenizer(line);
+                if (st.countTokens() < 2)
+                    continue;
+                st.nextToken(); //protocol version
+                String cmd = st.nextToken();
+
+                if (cmd.equals(Constants.QUIT))
+                {
+                    break;
+                }
+                else if (cmd.equals(Constants.SHOWCAPS))
+                {
+                    out.send("0:Capabilities follow\n" + "a\t255\n" +
+                             "eol\n");
+                }
+                else if (cmd.startsWith(Constants.GETFILES))
+                {
+                    boolean checksum = st.nextToken().startsWith("checksum");
+                    String name = st.nextToken();
+                    Long delay = (Long) this._fileDelays.get(name);
+                    if (delay != null)
+                    {
+                        try {
+                            Thread.sleep(delay.longValue());
+                        } catch (InterruptedException iEx) {
+                            //serve now
+                        }
+                    }
+                    Long time = (Long) this._fileTimes.get(name);
+                    out.send("0:put\t" + name + "\t" + this._fileSize + "\t" +
+                             (time == null ? "0" : time.toString()) + "\t" +
+                             (checksum ? "checksum" : "noChecksum") +
+                             "\tstub\t0\n");
+                    String response = _readLine(in);
+                    if (response != null && response.startsWith("0:"))
+                    {
+                        out.send(data);
+                        if (checksum)
+                            out.send(_digest(data));
+                        _readLine(in); //client acknowledgement
+                    }
+                    out.send("0:done\n");
+                }
+                else if (cmd.startsWith(Constants.SHOWFILES))
+                {
+                    _serveListing(in, out);
+                }
+                else if (cmd.startsWith(Constants.SUBSCRIBEPUSH))
+                {
+                    _serveSubscription(in, out);
+                }
+                else
+                {
+                    if (cmd.equals(Constants.NOOPERATION))
+                    {
+                        synchronized (this) {
+                            ++this._noOpCount;
+                        }
+                    }
+                    //login, chngtype, no_op, exchprop
+                    out.send("0:OK\n");
+                }
+            }
+        } catch (IOException ioEx) {
+            //client went away
+        } finally {
+            if (out != null)
+                out.close();
+            try {
+                socket.close();
+            } catch (IOException ioEx) {
+                //ignore
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Serves a show request in batches, waiting for the client to request
+     * each batch after the first.
+     * @param in Client input
+     * @param out Client output
+     * @throws IOException if connection fails
+     */
+    protected void _serveListing(InputStream in, DelayedWriter out)
+                                                        throws IOException
+    {
+        int count = this._listingFileCount;
+        int batchSize = Math.max(1, this._listingBatchSize);
+        long time = System.currentTimeMillis();
+        int sent = 0;
+
+        while (true)
+        {
+            StringBuffer files = new StringBuffer("0:OK\n");
+            int end = Math.min(count, sent + batchSize);
+            for (; sent < end; ++sent)
+            {
+                files.append("i list_" + sent + ".dat\t" + time + "\t" +
+                             this._fileSize + "\n");
+                files.append("stub\t" + time + "\n");
+                files.append("\n\n\n\n");
+            }
+            ++this._listingBatchesSent;
+            if (sent >= count)
+            {
+                files.append("done\n");
+                out.send(files.toString());
+                return;
+            }
+            files.append("more\n");
+            out.send(files.toString());
+
+            String line = _readLine(in);
+            if (line == null || !line.startsWith(Constants.GET_MORE_FILES))
+                throw new IOException("Unexpected listing reply: " + line);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Serves a push subscription session: pings the client, announces
+     * files once the ping is acknowledged, then waits for the kill
+     * request.
+     * @param in Client input
+     * @param out Client output
+     * @throws IOException if connection fails
+     */
+    protected void _serveSubscription(InputStream in, DelayedWriter out)
+                                                        throws IOException
+    {
+        out.send("0:OK\n");
+        out.send("p " + System.currentTimeMillis() + "\n");
+
+        String line;
+        while ((line = _readLine(in)) != null)
+        {
+            if (line.startsWith("p ACK "))
+            {
+                StringBuffer files = new StringBuffer();
+                long time = System.currentTimeMillis();
+                for (int i = 0; i < this._subscriptionFileCount; ++i)
+                {
+                    files.append("i push_" + i + ".dat\t" + time + "\t" +
+                                 this._fileSize + "\n");
+                    files.append("stub\t" + time + "\n");
+                    files.append(i == 0 ? "first file\n" : "\n");
+                    files.append("\n\n\n");
+                }
+                files.append("m\n");
+                out.send(files.toString());
+            }
+            else if (line.startsWith(Constants.SUBSCRIBEPUSH +
+                                     Constants.KILLSUBSCRIPTION))
+            {
+                String clientTime = line.substring(line.indexOf(' ') + 1);
+                out.send("[" + Constants.KILLSUBSCRIPTION + " ACK " +
+                         System.currentTimeMillis() + " " + clientTime +
+                         "\n" + "done\n" + "0:OK\n");
+                return;
+            }
+        }
+        throw new IOException("Client closed subscription");
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the content served for every file of the given size.
+     * @param size File size in bytes
+     * @return file content
+     */
+    public static byte[] getFileContent(int size)
+    {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; ++i)
+            data[i] = (byte) (i % 251);
+        return data;
+    }
+
+    //---------------------------------------------------------------------
+
+    private static byte[] _digest(byte[] data) throws IOException
+    {
+        try {
+            return MessageDigest.getInstance("SHA").digest(data);
+        } catch (java.security.NoSuchAlgorithmException nsaEx) {
+            throw new IOException(nsaEx.getMessage());
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private static String _readLine(InputStream in) throws IOException
+    {
+        StringBuffer buf = new StringBuffer();
+        int c;
+        while ((c = in.read()) != -1)
+        {
+            if (c == '\n')
+                return buf.toString();
+            buf.append((char) c);
+        }
+        return null;
+    }
+
+    //=====================================================================
+
+    /**
+     * Writes queued messages to the client once their delay has elapsed,
+     * preserving order.
+     */
+    static class DelayedWriter implements Runnable
+    {
+        private final OutputStream _out;
+        private final long _latency;
+        private final LinkedList _queue = new LinkedList();
+        private boolean _closed = false;
+
+        DelayedWriter(OutputStream out, long latency)
+        {
+            this._out = out;
+            this._latency = latency;
+            Thread t = new Thread(this, "StubKomodoServer_Writer");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        void send(String message)
+        {
+            send(message.getBytes());
+        }
+
+        void send(byte[] bytes)
+        {
+            long due = System.currentTimeMillis() + this._latency;
+            synchronized (this._queue) {
+                this._queue.addLast(new Object[] {new Long(due), bytes});
+                this._queue.notify();
+            }
+        }
+
+        void close()
+        {
+            synchronized (this._queue) {
+                this._closed = true;
+                this._queue.notify();
+            }
+        }
+
+        public void run()
+        {
+            try {
+                while (true)
+                {
+                    Object[] entry;
+                    synchronized (this._queue) {
+                        while (this._queue.isEmpty() && !this._closed)
+                            this._queue.wait();
+                        if (this._queue.isEmpty())
+                            return;
+                        entry = (Object[]) this._queue.removeFirst();
+                    }
+                    long wait = ((Long) entry[0]).longValue() -
+                                System.currentTimeMillis();
+                    if (wait > 0)
+                        Thread.sleep(wait);
+                    this._out.write((byte[]) entry[1]);
+                    this._out.flush();
+                }
+            } catch (Exception ex) {
+                //connection closed
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------
+}
@@ -0,0 +1,191 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.client;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.client.PublishWatcher;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for the staging directory watcher of the publish
+ * daemon, using a publisher that records its batches.
+ */
+public class PublishWatcherTest extends TestCase {
+    private static final long SETTLE = 300;
+
+    private File _dir = null;
+    private RecordingPublisher _publisher = null;
+    private PublishWatcher _watcher = null;
+    private Thread _thread = null;
+
+    /**
+     * Publisher that deletes and records the files of each batch, failing
+     * a given number of batches first.
+     */
+    private static class RecordingPublisher
+                                implements PublishWatcher.Publisher {
+        final List<List<File>> batches = new ArrayList<List<File>>();
+        final List<Long> times = new ArrayList<Long>();
+        int failures = 0;
+
+        public synchronized Collection<File> publish(List<File> files) {
+            if (this.failures > 0) {
+                --this.failures;
+                return new ArrayList<File>();
+            }
+            for (File file : files)
+                file.delete();
+            this.batches.add(new ArrayList<File>(files));
+            this.times.add(Long.valueOf(System.currentTimeMillis()));
+            notifyAll();
+            return files;
+        }
+
+        public void log(String message) {
+        }
+
+        synchronized int published() {
+            int count = 0;
+            for (List<File> batch : this.batches)
+                count += batch.size();
+            return count;
+        }
+
+        synchronized void await(int files, long timeout)
+                                        throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeout;
+            long remaining;
+            while (published() < files &&
+                   (remaining = deadline - System.currentTimeMillis()) > 0)
+                wait(remaining);
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public PublishWatcherTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._dir = File.createTempFile("publishtest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        this._publisher = new RecordingPublisher();
+        this._watcher = new PublishWatcher(this._dir, this._publisher,
+                                           SETTLE, 100);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        this._watcher.stop();
+        if (this._thread != null)
+            this._thread.join(5000);
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test that files staged together are published in few batches,
+     * split at the maximum batch size.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBatches() throws Exception {
+        _start();
+        for (int i = 0; i < 250; ++i)
+            _write("file" + i, 100);
+
+        this._publisher.await(250, 10000);
+        this._watcher.stop();
+        this._thread.join(5000);
+        assertEquals(250, this._publisher.published());
+        assertEquals(250, this._watcher.getPublishedCount());
+        assertTrue(this._publisher.batches.size() >= 3);
+        assertTrue(this._publisher.batches.size() <= 6);
+        for (List<File> batch : this._publisher.batches)
+            assertTrue(batch.size() <= 100);
+        assertTrue(this._watcher.getMeanLatency() < 10 * SETTLE);
+    }
+
+    /**
+     * Test that a file is not published while it is being written.
+     *
+     * @throws Exception when general failure
+     */
+    public void testPartialFile() throws Exception {
+        _start();
+        File file = new File(this._dir, "growing");
+        FileOutputStream out = new FileOutputStream(file);
+        long lastWrite = 0;
+        try {
+            for (int i = 0; i < 10; ++i) {
+                out.write(new byte[1000]);
+                out.flush();
+                lastWrite = System.currentTimeMillis();
+                Thread.sleep(SETTLE / 3);
+            }
+        } finally {
+            out.close();
+        }
+
+        this._publisher.await(1, 10000);
+        assertEquals(1, this._publisher.batches.size());
+        long published = this._publisher.times.get(0).longValue();
+        assertTrue(published - lastWrite >= SETTLE);
+    }
+
+    /**
+     * Test that files staged before the watcher starts are published, and
+     * failed files are retried.
+     *
+     * @throws Exception when general failure
+     */
+    public void testExistingAndRetry() throws Exception {
+        _write("a", 10);
+        _write("b", 10);
+        this._publisher.failures = 1;
+        _start();
+
+        this._publisher.await(2, 10000);
+        assertEquals(2, this._publisher.published());
+        assertEquals(1, this._publisher.batches.size());
+        assertEquals(0, this._dir.list().length);
+    }
+
+    private void _start() {
+        this._thread = new Thread(this._watcher);
+        this._thread.start();
+    }
+
+    private void _write(String name, int size) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(this._dir, name));
+        out.write(new byte[size]);
+        out.close();
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.client.handlers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.client.handlers.AsyncFileEventHandler;
+import jpl.mipl.mdms.FileService.komodo.client.handlers.FileEventHandler;
+import jpl.mipl.mdms.FileService.komodo.client.handlers.FileEventHandlerInfo;
+import jpl.mipl.mdms.FileService.komodo.client.handlers.FileEventHandlerMetrics;
+import jpl.mipl.mdms.FileService.komodo.client.handlers.FileEventHandlerSet;
+import jpl.mipl.mdms.FileService.komodo.client.handlers.FileEventsContext;
+import jpl.mipl.mdms.FileService.komodo.client.handlers.FileResultError;
+import jpl.mipl.mdms.FileService.komodo.client.handlers.FileResultEvent;
+import jpl.mipl.mdms.FileService.komodo.client.handlers.HandlerException;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for asynchronous dispatch of file events through
+ * FileEventHandlerSet, covering the overflow policies, ordering and
+ * isolation of failing handlers.
+ */
+public class AsyncFileEventHandlerTest extends TestCase {
+    private static final long DELAY_MS = 100;
+
+    private FileEventHandlerSet _set = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public AsyncFileEventHandlerTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._set = new FileEventHandlerSet();
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        this._set.destroy();
+    }
+
+    /**
+     * Test that a slow async handler does not hold up dispatch, and that
+     * its events are all handled, in order, by close.
+     *
+     * @throws Exception when general failure
+     */
+    public void testOrderedDispatch() throws Exception {
+        RecordingHandler slow = new RecordingHandler("slow", DELAY_MS, false);
+        AsyncFileEventHandler async = this._async(slow, 10,
+                                    FileEventHandlerInfo.OVERFLOW_BLOCK, true);
+        this._set.addHandler(async);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 5; ++i)
+            this._set.eventOccurred(this._event(i));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Dispatch blocked: " + elapsed, elapsed < DELAY_MS);
+
+        async.close();
+        assertEquals(5, slow.getTaskIds().size());
+        for (int i = 0; i < 5; ++i)
+            assertEquals("task" + i, slow.getTaskIds().get(i));
+        assertEquals(1, slow.getMaxConcurrent());
+
+        FileEventHandlerMetrics metrics = this._set.getMetrics("slow");
+        assertSame(async.getMetrics(), metrics);
+        assertEquals(5, metrics.getProcessedCount());
+        assertTrue(metrics.getMaxQueueDepth() >= 3);
+        assertTrue(metrics.getMeanProcessingTime() >= DELAY_MS - 10);
+    }
+
+    /**
+     * Test that a full queue blocks the dispatching thread under the
+     * block policy.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBlockOverflow() throws Exception {
+        RecordingHandler slow = new RecordingHandler("slow", DELAY_MS, false);
+        AsyncFileEventHandler async = this._async(slow, 1,
+                                    FileEventHandlerInfo.OVERFLOW_BLOCK, true);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 4; ++i)
+            async.eventOccurred(this._event(i));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Dispatch did not block: " + elapsed,
+                   elapsed >= 2 * DELAY_MS - 20);
+
+        async.close();
+        assertEquals(4, slow.getTaskIds().size());
+        assertEquals(0, async.getMetrics().getDroppedCount());
+    }
+
+    /**
+     * Test that events are discarded rather than queued once the queue
+     * is full under the drop policy.
+     *
+     * @throws Exception when general failure
+     */
+    public void testDropOverflow() throws Exception {
+        RecordingHandler slow = new RecordingHandler("slow", DELAY_MS, false);
+        AsyncFileEventHandler async = this._async(slow, 1,
+                                    FileEventHandlerInfo.OVERFLOW_DROP, true);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 6; ++i)
+            async.eventOccurred(this._event(i));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Dispatch blocked: " + elapsed, elapsed < DELAY_MS);
+
+        async.close();
+        FileEventHandlerMetrics metrics = async.getMetrics();
+        assertTrue(metrics.getDroppedCount() >= 4);
+        assertEquals(6, slow.getTaskIds().size() + metrics.getDroppedCount());
+    }
+
+    /**
+     * Test that an unordered handler processes overflow on the
+     * dispatching thread under the spill policy.
+     *
+     * @throws Exception when general failure
+     */
+    public void testSpillOverflow() throws Exception {
+        RecordingHandler slow = new RecordingHandler("slow", DELAY_MS, false);
+        AsyncFileEventHandler async = this._async(slow, 1,
+                                    FileEventHandlerInfo.OVERFLOW_SPILL, false);
+
+        for (int i = 0; i < 4; ++i)
+            async.eventOccurred(this._event(i));
+        async.close();
+
+        FileEventHandlerMetrics metrics = async.getMetrics();
+        assertTrue(metrics.getSpilledCount() >= 1);
+        assertEquals(0, metrics.getDroppedCount());
+        assertEquals(4, slow.getTaskIds().size());
+    }
+
+    /**
+     * Test that a failing async handler neither fails the dispatch nor
+     * stops events reaching the other handlers of the set.
+     *
+     * @throws Exception when general failure
+     */
+    public void testFailureIsolation() throws Exception {
+        RecordingHandler failing = new RecordingHandler("failing", 0, true);
+        RecordingHandler healthy = new RecordingHandler("healthy", 0, false);
+        AsyncFileEventHandler async = this._async(failing, 10,
+                                    FileEventHandlerInfo.OVERFLOW_BLOCK, true);
+        this._set.addHandler(async);
+        this._set.addHandler(healthy);
+
+        for (int i = 0; i < 3; ++i)
+            this._set.eventOccurred(this._event(i));
+        this._set.errorOccurred(new FileResultError("error", null,
+                                          new Exception("transfer failed")));
+        async.close();
+
+        assertEquals(4, healthy.getTaskIds().size());
+        FileEventHandlerMetrics metrics = this._set.getMetrics("failing");
+        assertEquals(4, metrics.getErrorCount());
+        assertNotNull(metrics.getLastError());
+        assertEquals(4, this._set.getMetrics("healthy").getProcessedCount());
+        assertEquals(2, this._set.getMetrics().length);
+    }
+
+    //---------------------------------------------------------------------
+
+    private AsyncFileEventHandler _async(FileEventHandler handler,
+                                         int capacity, String policy,
+                                         boolean ordered) {
+        FileEventHandlerInfo info = new FileEventHandlerInfo();
+        info.setId(handler.getId());
+        info.setDispatchMode(FileEventHandlerInfo.DISPATCH_ASYNC);
+        info.setQueueCapacity(capacity);
+        info.setOverflowPolicy(policy);
+        info.setOrdered(ordered);
+        info.setWorkers(2);
+        return new AsyncFileEventHandler(handler, info);
+    }
+
+    private FileResultEvent _event(int i) {
+        return new FileResultEvent("task" + i, null);
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Handler recording the tasks it receives, optionally slow or
+     * failing on each.
+     */
+    private static class RecordingHandler implements FileEventHandler {
+        private final String _id;
+        private final long _delay;
+        private final boolean _fail;
+        private final List _taskIds = new ArrayList();
+        private int _running = 0;
+        private int _maxConcurrent = 0;
+
+        public RecordingHandler(String id, long delay, boolean fail) {
+            this._id = id;
+            this._delay = delay;
+            this._fail = fail;
+        }
+
+        public synchronized List getTaskIds() {
+            return new ArrayList(this._taskIds);
+        }
+
+        public synchronized int getMaxConcurrent() {
+            return this._maxConcurrent;
+        }
+
+        public String getName() {
+            return this._id;
+        }
+
+        public String getDescription() {
+            return "Recording handler";
+        }
+
+        public String getVersion() {
+            return "1.0";
+        }
+
+        public String getId() {
+            return this._id;
+        }
+
+        public String getProperty(String propertyName) {
+            return null;
+        }
+
+        public void eventOccurred(FileResultEvent fileEvent)
+                                                    throws HandlerException {
+            this._handle(fileEvent.getTaskId());
+        }
+
+        public void errorOccurred(FileResultError fileError)
+                                                    throws HandlerException {
+            this._handle(fileError.getTaskId());
+        }
+
+        public void initialize(FileEventsContext context,
+                               FileEventHandlerInfo info) {
+        }
+
+        public void close() {
+        }
+
+        public int compareTo(Object o) {
+            return this._id.compareTo(((FileEventHandler) o).getId());
+        }
+
+        private void _handle(String taskId) throws HandlerException {
+            synchronized (this) {
+                this._maxConcurrent = Math.max(this._maxConcurrent,
+                                               ++this._running);
+            }
+            try {
+                if (this._delay > 0)
+                    Thread.sleep(this._delay);
+            } catch (InterruptedException iEx) {
+                throw new HandlerException("Interrupted");
+            } finally {
+                synchronized (this) {
+                    --this._running;
+                }
+            }
+            if (this._fail)
+                throw new HandlerException("Failed on " + taskId);
+            synchronized (this) {
+                this._taskIds.add(taskId);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.services.query.client;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.api.SessionException;
+import jpl.mipl.mdms.FileService.komodo.services.query.client.QueryResultPoller;
+import jpl.mipl.mdms.FileService.komodo.services.query.client.QueryResultPoller.ProcessResultsReturnCode;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for QueryResultPoller, driven by a stub query service
+ * that registers files at chosen times.
+ */
+public class QueryResultPollerTest extends TestCase {
+    private static final long MIN_PERIOD = 20;
+    private static final long MAX_PERIOD = 320;
+
+    private StubService _service = null;
+    private QueryResultPoller _poller = null;
+    private Thread _thread = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public QueryResultPollerTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        if (this._poller != null)
+            this._poller.stop();
+        if (this._thread != null)
+            this._thread.join(5000);
+    }
+
+    /**
+     * Test that an idle query backs off to the maximum period, then snaps
+     * back to the minimum when results appear.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBackoff() throws Exception {
+        this._start();
+        Thread.sleep(MAX_PERIOD * 3);
+        assertEquals(MAX_PERIOD, this._poller.getPeriod());
+        //20+40+...+320 then every 320 ms
+        long polls = this._poller.getPollCount();
+        assertTrue("Too many idle polls: " + polls, polls <= 8);
+
+        this._service.register(3);
+        this._poller.wakeup();
+        this._awaitNotifications(3);
+        assertTrue(this._poller.getPeriod() <= MIN_PERIOD * 2);
+        assertEquals(3, this._service.getDelivered());
+
+        this._service.finish();
+        this._poller.wakeup();
+        this._thread.join(5000);
+        assertFalse(this._thread.isAlive());
+    }
+
+    /**
+     * Test that notification latency stays near the minimum period while
+     * files keep arriving, and that the latency is measured.
+     *
+     * @throws Exception when general failure
+     */
+    public void testLatency() throws Exception {
+        this._start();
+        for (int i = 0; i < 10; ++i) {
+            this._service.register(1);
+            Thread.sleep(MIN_PERIOD);
+        }
+        this._awaitNotifications(10);
+        assertTrue("Latency too high: " + this._poller,
+                   this._poller.getMeanLatency() < MAX_PERIOD);
+        assertTrue(this._poller.getMaxLatency() >=
+                   this._poller.getMeanLatency());
+    }
+
+    /**
+     * Test that batches marked as having more results are fetched without
+     * waiting.
+     *
+     * @throws Exception when general failure
+     */
+    public void testMoreResults() throws Exception {
+        this._service = new StubService();
+        this._service.setBatchSize(2);
+        this._service.register(7);
+        this._service.finish();
+        this._poller = this._create();
+
+        long start = System.currentTimeMillis();
+        this._poller.poll();
+        assertTrue(System.currentTimeMillis() - start < MIN_PERIOD);
+        assertEquals(7, this._service.getDelivered());
+        assertEquals(4, this._poller.getPollCount());
+    }
+
+    //---------------------------------------------------------------------
+
+    private void _start() {
+        this._service = new StubService();
+        this._poller = this._create();
+        this._thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    _poller.poll();
+                } catch (SessionException sEx) {
+                    sEx.printStackTrace();
+                }
+            }
+        }, "QueryResultPoller");
+        this._thread.setDaemon(true);
+        this._thread.start();
+    }
+
+    private QueryResultPoller _create() {
+        final QueryResultPoller[] poller = new QueryResultPoller[1];
+        poller[0] = new QueryResultPoller(this._service,
+                        new QueryResultPoller.ResultProcessor() {
+            public ProcessResultsReturnCode processResults(
+                                                  List<String> results) {
+                ProcessResultsReturnCode code =
+                              ProcessResultsReturnCode.NO_MORE_RESULTS;
+                for (String line : results) {
+                    if (line.startsWith("i "))
+                        poller[0].recordNotification(new java.util.Date(
+                             Long.parseLong(line.substring(2))));
+                    else if (line.equals("done"))
+                        code = ProcessResultsReturnCode.DONE;
+                    else if (line.equals("more"))
+                        code = ProcessResultsReturnCode.GET_MORE_RESULTS;
+                }
+                return code;
+            }
+        }, MIN_PERIOD, MAX_PERIOD);
+        return poller[0];
+    }
+
+    private void _awaitNotifications(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (this._poller.getNotificationCount() < count) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Stub query service returning registered files as "i <time>" lines.
+     */
+    private static class StubService
+                               implements QueryResultPoller.ResultSource {
+        private final LinkedList<Long> _pending = new LinkedList<Long>();
+        private int _batchSize = Integer.MAX_VALUE;
+        private int _delivered = 0;
+        private boolean _finished = false;
+
+        public synchronized void setBatchSize(int batchSize) {
+            this._batchSize = batchSize;
+        }
+
+        public synchronized void register(int count) {
+            for (int i = 0; i < count; ++i)
+                this._pending.add(System.currentTimeMillis());
+            notifyAll();
+        }
+
+        public synchronized void finish() {
+            this._finished = true;
+            notifyAll();
+        }
+
+        public synchronized int getDelivered() {
+            return this._delivered;
+        }
+
+        public synchronized List<String> getResults() {
+            List<String> results = new ArrayList<String>();
+            while (!this._pending.isEmpty() &&
+                   results.size() < this._batchSize) {
+                results.add("i " + this._pending.removeFirst());
+                ++this._delivered;
+            }
+            if (!this._pending.isEmpty())
+                results.add("more");
+            else if (this._finished)
+                results.add("done");
+            return results;
+        }
+    }
+}
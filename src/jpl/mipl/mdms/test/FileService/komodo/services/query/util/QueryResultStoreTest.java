@@ -0,0 +1,177 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.services.query.util;
+
+import java.io.File;
+import java.util.Date;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.komodo.api.Result;
+import jpl.mipl.mdms.FileService.komodo.services.query.util.QueryResultStore;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for QueryResultStore.
+ */
+public class QueryResultStoreTest extends TestCase {
+    private static final int MAX_RESULTS = 100;
+
+    private File _dir = null;
+    private QueryResultStore _store = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public QueryResultStoreTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._dir = File.createTempFile("storetest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        this._store = new QueryResultStore(MAX_RESULTS, this._dir);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        this._store.clear();
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test that results with the same filetype, name and modification
+     * time are ignored, whether pending or recently removed.
+     *
+     * @throws Exception when general failure
+     */
+    public void testDedupe() throws Exception {
+        assertTrue(this._store.addResult(this._result("typeA", "a", 1000)));
+        assertFalse(this._store.addResult(this._result("typeA", "a", 1000)));
+        assertTrue(this._store.addResult(this._result("typeA", "a", 2000)));
+        assertTrue(this._store.addResult(this._result("typeB", "a", 1000)));
+        assertEquals(3, this._store.size());
+
+        this._store.removeResult(this._store.getResult("typeA", "a"));
+        assertFalse(this._store.addResult(this._result("typeA", "a", 1000)));
+        assertEquals(2, this._store.size());
+        assertEquals(2, this._store.getDuplicateCount());
+    }
+
+    /**
+     * Test that results beyond the memory ceiling are written to disk
+     * and read back in time order as memory is drained.
+     *
+     * @throws Exception when general failure
+     */
+    public void testSpill() throws Exception {
+        int count = MAX_RESULTS * 5;
+        for (int i = count - 1; i >= count - 10; --i)
+            this._store.addResult(this._result("typeA", "f" + i, i));
+        for (int i = 0; i < count - 10; ++i) {
+            this._store.addResult(this._result("typeA", "f" + i, i));
+            this._store.addResult(this._result("typeA", "f" + i, i));
+        }
+
+        assertEquals(count, this._store.size());
+        assertEquals(MAX_RESULTS, this._store.getMemoryCount());
+        assertEquals(count - MAX_RESULTS, this._store.getSpillCount());
+        assertEquals(1, this._dir.listFiles().length);
+
+        //memory is ordered; spilled results follow as memory drains
+        long last = -1;
+        int drained = 0;
+        while (!this._store.isEmpty()) {
+            List<Result> results = this._store.getResults("typeA");
+            assertTrue(results.size() <= MAX_RESULTS);
+            for (Result r : results) {
+                long time = r.getFileModificationTime().getTime();
+                if (drained > MAX_RESULTS)
+                    assertTrue(time > last);
+                last = time;
+                assertEquals("typeA", r.getType());
+                assertEquals("group", r.getServerGroup());
+                assertEquals(time, r.getSize());
+                this._store.removeResult(r);
+                ++drained;
+            }
+        }
+        assertEquals(count, drained);
+        assertEquals(0, this._store.getMemoryCount());
+        assertEquals(0, this._dir.listFiles().length);
+    }
+
+    /**
+     * Test that a filetype arriving once memory is full still makes
+     * progress, and that all results are returned in time order.
+     *
+     * @throws Exception when general failure
+     */
+    public void testSpillAcrossFiletypes() throws Exception {
+        for (int i = 0; i < MAX_RESULTS; ++i)
+            this._store.addResult(this._result("typeA", "a" + i, i));
+        for (int i = 0; i < 20; ++i)
+            this._store.addResult(this._result("typeB", "b" + i, i));
+        assertEquals(MAX_RESULTS, this._store.getMemoryCount());
+        assertEquals(2, this._store.getKeys().size());
+
+        List<Result> results = this._store.getResults();
+        assertEquals(MAX_RESULTS + 1, results.size());
+        for (int i = 1; i < results.size(); ++i)
+            assertTrue(results.get(i - 1).getFileModificationTime().compareTo(
+                       results.get(i).getFileModificationTime()) <= 0);
+    }
+
+    /**
+     * Test that waiting consumers are released when a result is added.
+     *
+     * @throws Exception when general failure
+     */
+    public void testAwaitResults() throws Exception {
+        assertFalse(this._store.awaitResults(50));
+
+        Thread producer = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException iEx) {
+                }
+                _store.addResult(_result("typeA", "a", 1000));
+            }
+        };
+        producer.start();
+        long start = System.currentTimeMillis();
+        assertTrue(this._store.awaitResults(5000));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        producer.join();
+    }
+
+    //---------------------------------------------------------------------
+
+    private Result _result(String type, String name, long time) {
+        Result result = new Result(name, time);
+        result.setFileModificationTime(new Date(time));
+        result.setType(type);
+        result.setServerGroup("group");
+        return result;
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.komodo.ui.savannah.subscription;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import jpl.mipl.mdms.FileService.komodo.ui.savannah.subscription.DefaultMetaParameters;
+import jpl.mipl.mdms.FileService.komodo.ui.savannah.subscription.DefaultMetaSubscription;
+import jpl.mipl.mdms.FileService.komodo.ui.savannah.subscription.SubscriptionConstants;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case measuring the CPU consumed by idle metasubscriptions,
+ * both between queries and while paused, and checking that pause,
+ * resume and terminate take effect promptly.
+ */
+public class MetaSubscriptionIdleTest extends TestCase {
+    private static final int SUBSCRIPTIONS = 40;
+    private static final long QUERY_INTERVAL = 60000L;
+    private static final long IDLE_PERIOD = 1000L;
+
+    /** CPU allowed for all subscriptions over the idle period */
+    private static final long MAX_IDLE_CPU_NANOS = 100000000L;
+
+    private PollingSubscription[] _subscriptions = null;
+    private Thread[] _threads = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public MetaSubscriptionIdleTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._subscriptions = new PollingSubscription[SUBSCRIPTIONS];
+        this._threads = new Thread[SUBSCRIPTIONS];
+        for (int i = 0; i < SUBSCRIPTIONS; ++i) {
+            this._subscriptions[i] = new PollingSubscription();
+            this._threads[i] = new Thread(this._subscriptions[i],
+                                          "IdleSubscription_" + i);
+            this._threads[i].setDaemon(true);
+        }
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        for (int i = 0; i < SUBSCRIPTIONS; ++i)
+            this._subscriptions[i].terminate();
+    }
+
+    /**
+     * Test that subscriptions waiting between queries consume no
+     * measurable CPU and exit promptly once terminated.
+     *
+     * @throws Exception when general failure
+     */
+    public void testIdleBetweenQueries() throws Exception {
+        this._start();
+        this._awaitPolls(1);
+
+        long cpu = this._measureIdleCpu();
+        System.out.println(SUBSCRIPTIONS + " subscriptions idle between " +
+                           "queries used " + (cpu / 1000000L) + " ms CPU in " +
+                           IDLE_PERIOD + " ms");
+        assertTrue("Idle CPU too high: " + cpu, cpu < MAX_IDLE_CPU_NANOS);
+
+        this._terminateAndJoin();
+    }
+
+    /**
+     * Test that paused subscriptions consume no measurable CPU, poll
+     * again once resumed, and exit promptly if terminated while paused.
+     *
+     * @throws Exception when general failure
+     */
+    public void testIdleWhilePaused() throws Exception {
+        for (int i = 0; i < SUBSCRIPTIONS; ++i)
+            this._subscriptions[i].setInterrupted(true);
+        this._start();
+
+        long cpu = this._measureIdleCpu();
+        System.out.println(SUBSCRIPTIONS + " paused subscriptions used " +
+                           (cpu / 1000000L) + " ms CPU in " + IDLE_PERIOD +
+                           " ms");
+        assertTrue("Paused CPU too high: " + cpu, cpu < MAX_IDLE_CPU_NANOS);
+        for (int i = 0; i < SUBSCRIPTIONS; ++i)
+            assertEquals(0, this._subscriptions[i].getPolls());
+
+        for (int i = 0; i < SUBSCRIPTIONS / 2; ++i)
+            this._subscriptions[i].setInterrupted(false);
+        long deadline = System.currentTimeMillis() + 5000;
+        for (int i = 0; i < SUBSCRIPTIONS / 2; ++i)
+            while (this._subscriptions[i].getPolls() < 1)
+                this._pause(deadline);
+        for (int i = SUBSCRIPTIONS / 2; i < SUBSCRIPTIONS; ++i)
+            assertEquals(0, this._subscriptions[i].getPolls());
+
+        this._terminateAndJoin();
+    }
+
+    //---------------------------------------------------------------------
+
+    private void _start() {
+        for (int i = 0; i < SUBSCRIPTIONS; ++i)
+            this._threads[i].start();
+    }
+
+    private void _awaitPolls(int polls) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        for (int i = 0; i < SUBSCRIPTIONS; ++i)
+            while (this._subscriptions[i].getPolls() < polls)
+                this._pause(deadline);
+    }
+
+    private void _pause(long deadline) throws Exception {
+        assertTrue("Timed out", System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+    }
+
+    private long _measureIdleCpu() throws Exception {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        //let threads settle into their wait
+        Thread.sleep(200);
+        long before = this._cpuTime(bean);
+        Thread.sleep(IDLE_PERIOD);
+        return this._cpuTime(bean) - before;
+    }
+
+    private long _cpuTime(ThreadMXBean bean) {
+        long total = 0;
+        for (int i = 0; i < SUBSCRIPTIONS; ++i) {
+            long time = bean.getThreadCpuTime(this._threads[i].getId());
+            if (time > 0)
+                total += time;
+        }
+        return total;
+    }
+
+    private void _terminateAndJoin() throws Exception {
+        for (int i = 0; i < SUBSCRIPTIONS; ++i)
+            this._subscriptions[i].terminate();
+        long deadline = System.currentTimeMillis() + 5000;
+        for (int i = 0; i < SUBSCRIPTIONS; ++i) {
+            this._threads[i].join(Math.max(1,
+                                  deadline - System.currentTimeMillis()));
+            assertFalse(this._threads[i].isAlive());
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Subscription whose query loop only counts its polls, waiting
+     * between them as the FEI subscription implementations do.
+     */
+    private static class PollingSubscription extends DefaultMetaSubscription {
+        private volatile int _polls = 0;
+
+        public PollingSubscription() {
+            super(new DefaultMetaParameters());
+        }
+
+        public int getPolls() {
+            return this._polls;
+        }
+
+        public void run() {
+            setState(SubscriptionConstants.STATE_RUNNING);
+            while (canProceed()) {
+                ++this._polls;
+                if (!awaitWakeup(System.currentTimeMillis() + QUERY_INTERVAL))
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.net;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.KeyStore;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import jpl.mipl.mdms.FileService.net.SSLEngineChannel;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for SSLEngineChannel, against an SSL server socket
+ * that echoes what it reads.  The key store is generated with the JDK
+ * keytool; the tests pass trivially if it is not available.
+ */
+public class SSLEngineChannelTest extends TestCase {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    private File _dir = null;
+    private SSLContext _context = null;
+    private SSLServerSocket _serverSocket = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public SSLEngineChannelTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._dir = File.createTempFile("ssltest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        File keyStoreFile = new File(this._dir, "keystore.jks");
+        File keytool = new File(System.getProperty("java.home"),
+                                "bin" + File.separator + "keytool");
+        if (!keytool.isFile())
+            return;
+
+        Process process = Runtime.getRuntime().exec(new String[] {
+                keytool.getPath(), "-genkeypair", "-alias", "test",
+                "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+                "-dname", "CN=localhost", "-storetype", "JKS",
+                "-keystore", keyStoreFile.getPath(),
+                "-storepass", new String(PASSWORD),
+                "-keypass", new String(PASSWORD)});
+        process.getOutputStream().close();
+        if (process.waitFor() != 0 || !keyStoreFile.isFile())
+            return;
+
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = new FileInputStream(keyStoreFile);
+        try {
+            keyStore.load(in, PASSWORD);
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(
+                                  KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(
+                                  TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(keyStore);
+        this._context = SSLContext.getInstance("TLS");
+        this._context.init(kmf.getKeyManagers(), tmf.getTrustManagers(),
+                           null);
+
+        this._serverSocket = (SSLServerSocket) this._context
+                .getServerSocketFactory().createServerSocket(0, 5,
+                                     InetAddress.getByName("localhost"));
+        Thread echo = new Thread(new Runnable() {
+            public void run() {
+                _echo();
+            }
+        }, "SSLEngineChannelTest_Echo");
+        echo.setDaemon(true);
+        echo.start();
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        if (this._serverSocket != null)
+            this._serverSocket.close();
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+    }
+
+    /**
+     * Test a blocking handshake and exchange.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBlocking() throws Exception {
+        if (this._context == null)
+            return;
+        SSLEngineChannel channel = this._connect();
+        byte[] data = this._data(100000);
+        assertEquals(data.length, channel.write(ByteBuffer.wrap(data)));
+
+        ByteBuffer echoed = ByteBuffer.allocate(data.length);
+        while (echoed.hasRemaining())
+            assertTrue(channel.read(echoed) > 0);
+        assertTrue(java.util.Arrays.equals(data, echoed.array()));
+        channel.close();
+        assertFalse(channel.isOpen());
+    }
+
+    /**
+     * Test an exchange in non-blocking mode, driven by a selector.
+     *
+     * @throws Exception when general failure
+     */
+    public void testNonBlocking() throws Exception {
+        if (this._context == null)
+            return;
+        SSLEngineChannel channel = this._connect();
+        channel.getChannel().configureBlocking(false);
+        Selector selector = Selector.open();
+        SelectionKey key = channel.getChannel().register(selector,
+                                                         SelectionKey.OP_READ);
+
+        byte[] data = this._data(1000000);
+        ByteBuffer out = ByteBuffer.wrap(data);
+        ByteBuffer echoed = ByteBuffer.allocate(data.length);
+        long deadline = System.currentTimeMillis() + 30000;
+        while (echoed.hasRemaining()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            if (out.hasRemaining() || channel.hasPendingOutput()) {
+                channel.write(out);
+                channel.flush();
+            }
+            int n;
+            while ((n = channel.read(echoed)) > 0)
+                ;
+            assertTrue(n == 0 || !echoed.hasRemaining());
+            key.interestOps(channel.hasPendingOutput() || out.hasRemaining()
+                            ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                            : SelectionKey.OP_READ);
+            selector.select(1000);
+            selector.selectedKeys().clear();
+        }
+        assertTrue(java.util.Arrays.equals(data, echoed.array()));
+        selector.close();
+        channel.close();
+    }
+
+    //---------------------------------------------------------------------
+
+    private SSLEngineChannel _connect() throws Exception {
+        SocketChannel socket = SocketChannel.open(new InetSocketAddress(
+                  InetAddress.getByName("localhost"),
+                  this._serverSocket.getLocalPort()));
+        SSLEngine engine = this._context.createSSLEngine("localhost",
+                                       this._serverSocket.getLocalPort());
+        engine.setUseClientMode(true);
+        SSLEngineChannel channel = new SSLEngineChannel(socket, engine);
+        channel.handshake();
+        return channel;
+    }
+
+    private byte[] _data(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; ++i)
+            data[i] = (byte) (i % 251);
+        return data;
+    }
+
+    private void _echo() {
+        try {
+            while (true) {
+                SSLSocket socket = (SSLSocket) this._serverSocket.accept();
+                InputStream in = socket.getInputStream();
+                OutputStream out = socket.getOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                try {
+                    while ((n = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, n);
+                        out.flush();
+                    }
+                } catch (java.io.IOException ioEx) {
+                    //client went away
+                }
+                socket.close();
+            }
+        } catch (java.io.IOException ioEx) {
+            //server socket closed
+        }
+    }
+}
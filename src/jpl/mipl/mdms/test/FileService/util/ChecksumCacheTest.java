@@ -0,0 +1,159 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import jpl.mipl.mdms.FileService.util.ChecksumCache;
+import jpl.mipl.mdms.FileService.util.FileUtil;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for ChecksumCache.
+ */
+public class ChecksumCacheTest extends TestCase {
+    private File _dir = null;
+    private File _file = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public ChecksumCacheTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._dir = File.createTempFile("cksumtest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        this._file = new File(this._dir, "data file.dat");
+        ChecksumCache.clear();
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        File[] files = this._dir.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            files[i].delete();
+        this._dir.delete();
+        ChecksumCache.clear();
+    }
+
+    /**
+     * Test that an unchanged file is not rehashed, by altering its content
+     * while preserving size and modification time.
+     *
+     * @throws Exception when general failure
+     */
+    public void testCacheHit() throws Exception {
+        long mtime = this._write((byte) 1, 0);
+        String checksum = ChecksumCache.getStringChecksum(
+                                             this._file.getPath(), true);
+        assertEquals(FileUtil.getStringChecksum(this._file.getPath()),
+                     checksum);
+
+        this._write((byte) 2, mtime);
+        assertEquals(checksum, ChecksumCache.getStringChecksum(
+                                             this._file.getPath(), true));
+    }
+
+    /**
+     * Test that a modified file is rehashed.
+     *
+     * @throws Exception when general failure
+     */
+    public void testModified() throws Exception {
+        long mtime = this._write((byte) 1, 0);
+        String checksum = ChecksumCache.getStringChecksum(
+                                             this._file.getPath(), true);
+        this._write((byte) 2, mtime + 5000);
+        String modified = ChecksumCache.getStringChecksum(
+                                             this._file.getPath(), true);
+        assertFalse(checksum.equals(modified));
+        assertEquals(FileUtil.getStringChecksum(this._file.getPath()),
+                     modified);
+    }
+
+    /**
+     * Test that entries are reloaded from the index file.
+     *
+     * @throws Exception when general failure
+     */
+    public void testPersisted() throws Exception {
+        long mtime = this._write((byte) 1, 0);
+        String checksum = ChecksumCache.getStringChecksum(
+                                             this._file.getPath(), true);
+        assertTrue(new File(this._dir,
+                            ChecksumCache.INDEX_FILENAME).isFile());
+
+        ChecksumCache.clear();
+        this._write((byte) 2, mtime);
+        assertEquals(checksum, ChecksumCache.getStringChecksum(
+                                             this._file.getPath(), true));
+    }
+
+    /**
+     * Test that recently modified files are not cached.
+     *
+     * @throws Exception when general failure
+     */
+    public void testRecentNotCached() throws Exception {
+        this._write((byte) 1, -1);
+        ChecksumCache.getStringChecksum(this._file.getPath(), true);
+        assertFalse(new File(this._dir,
+                             ChecksumCache.INDEX_FILENAME).exists());
+    }
+
+    /**
+     * Test that the cache of a directory other than an output directory
+     * is kept in memory only.
+     *
+     * @throws Exception when general failure
+     */
+    public void testNotPersisted() throws Exception {
+        long mtime = this._write((byte) 1, 0);
+        String checksum = ChecksumCache.getStringChecksum(
+                                             this._file.getPath(), false);
+        assertFalse(new File(this._dir,
+                             ChecksumCache.INDEX_FILENAME).exists());
+
+        this._write((byte) 2, mtime);
+        assertEquals(checksum, ChecksumCache.getStringChecksum(
+                                             this._file.getPath(), false));
+        assertEquals(1, this._dir.listFiles().length);
+    }
+
+    //---------------------------------------------------------------------
+
+    private long _write(byte value, long mtime) throws IOException {
+        byte[] data = new byte[200000];
+        for (int i = 0; i < data.length; ++i)
+            data[i] = (byte) (value + i);
+        FileOutputStream out = new FileOutputStream(this._file);
+        out.write(data);
+        out.close();
+        if (mtime == 0)
+            mtime = (System.currentTimeMillis() / 1000 - 60) * 1000;
+        if (mtime > 0)
+            this._file.setLastModified(mtime);
+        return this._file.lastModified();
+    }
+}
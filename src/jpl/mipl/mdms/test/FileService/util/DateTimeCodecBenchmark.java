@@ -0,0 +1,131 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledge. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+package jpl.mipl.mdms.test.FileService.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import jpl.mipl.mdms.FileService.util.DateTimeUtil;
+
+/**
+ * Compares the time and allocation per call of the DateTimeUtil CCSDSA
+ * conversions against the SimpleDateFormat instance per call that they
+ * previously used.  Each case is run once to warm up, then measured.
+ * <p>
+ * Usage: DateTimeCodecBenchmark [iterations]
+ */
+public class DateTimeCodecBenchmark
+{
+    private static final String[] CASES = {
+        "parse (SimpleDateFormat)", "parse (DateTimeUtil)",
+        "parse zone (SimpleDateFormat)", "parse zone (DateTimeUtil)",
+        "format (SimpleDateFormat)", "format (DateTimeUtil)"
+    };
+
+    private static long _sink = 0;
+
+    //---------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception
+    {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) :
+                                             1000000;
+        String[] times = new String[1024];
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < times.length; ++i)
+            times[i] = DateTimeUtil.getDateCCSDSAString(
+                                  new Date(start - i * 3600123L));
+
+        System.out.println("iterations=" + iterations);
+        for (int c = 0; c < CASES.length; ++c)
+        {
+            _run(c, times, iterations / 10);
+            long bytes = _allocated();
+            long begin = System.nanoTime();
+            _run(c, times, iterations);
+            long elapsed = System.nanoTime() - begin;
+            bytes = _allocated() - bytes;
+
+            System.out.println(CASES[c] + ": " + (elapsed / iterations) +
+                         " ns/op" + (bytes < 0 ? "" : ", " +
+                         (bytes / iterations) + " bytes/op"));
+        }
+        if (_sink == 42)
+            System.out.println();
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _run(int c, String[] times, int iterations)
+                                                            throws Exception
+    {
+        long sink = 0;
+        for (int i = 0; i < iterations; ++i)
+        {
+            String time = times[i & (times.length - 1)];
+            switch (c)
+            {
+                case 0:
+                    sink += _format(false).parse(time).getTime();
+                    break;
+                case 1:
+                    sink += DateTimeUtil.getCCSDSADate(time).getTime();
+                    break;
+                case 2:
+                    sink += _format(true).parse(
+                        DateTimeUtil.completeTimeStringWithWithRFC822TimeZone(
+                                    time, true, true)).getTime();
+                    break;
+                case 3:
+                    sink += DateTimeUtil.getCCSDSAWithLocalTimeZoneDate(
+                                                        time).getTime();
+                    break;
+                case 4:
+                    sink += _format(false).format(new Date(i)).length();
+                    break;
+                default:
+                    sink += DateTimeUtil.getDateCCSDSAString(
+                                                  new Date(i)).length();
+                    break;
+            }
+        }
+        _sink += sink;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns the format DateTimeUtil created on each call.
+     */
+
+    private static SimpleDateFormat _format(boolean zone)
+    {
+        SimpleDateFormat format = new SimpleDateFormat(
+                 "yyyy'-'MM'-'dd'T'HH:mm:ss.SSS" + (zone ? "Z" : ""));
+        format.setLenient(false);
+        return format;
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns bytes allocated by this thread, or -1 if not supported.
+     */
+
+    private static long _allocated()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean)
+                      .getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+
+    //---------------------------------------------------------------------
+}
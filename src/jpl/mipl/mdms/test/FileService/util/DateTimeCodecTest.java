@@ -0,0 +1,271 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import jpl.mipl.mdms.FileService.util.DateTimeCodec;
+import jpl.mipl.mdms.FileService.util.DateTimeUtil;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for DateTimeCodec, comparing it against the
+ * SimpleDateFormat patterns it replaces.
+ */
+public class DateTimeCodecTest extends TestCase {
+    private static final String CCSDSA = "yyyy'-'MM'-'dd'T'HH:mm:ss.SSS";
+    private static final String CCSDSA_ZONE = CCSDSA + "Z";
+    private static final String DB = "yyyy'-'MM'-'dd HH:mm:ss.SSS";
+    private static final String UTC = "yyyy'-'DDD'T'HH:mm:ss.SSS";
+
+    private static final String[] ZONES = {
+        "GMT", "America/Los_Angeles", "Asia/Kolkata", "Australia/Lord_Howe"
+    };
+
+    /** 1600-01-01 to 9999-12-31 GMT */
+    private static final long MIN_TIME = -11676096000000L;
+    private static final long MAX_TIME = 253402214400000L;
+
+    private Random _random = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public DateTimeCodecTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._random = new Random(18);
+    }
+
+    /**
+     * Test that formatting matches SimpleDateFormat in each time zone.
+     *
+     * @throws Exception when general failure
+     */
+    public void testFormat() throws Exception {
+        for (int z = 0; z < ZONES.length; ++z) {
+            TimeZone tz = TimeZone.getTimeZone(ZONES[z]);
+            for (int i = 0; i < 20000; ++i) {
+                long time = this._time(i);
+                assertEquals(this._format(CCSDSA, tz, time),
+                             DateTimeCodec.formatCCSDSA(time, tz));
+                assertEquals(this._format(CCSDSA_ZONE, tz, time),
+                             DateTimeCodec.formatCCSDSAWithZone(time, tz));
+                assertEquals(this._format(DB, tz, time),
+                             DateTimeCodec.formatDB(time, tz));
+                assertEquals(this._format(UTC, tz, time),
+                             DateTimeCodec.formatUTC(time, tz));
+            }
+        }
+        assertNull(DateTimeCodec.formatCCSDSA(MIN_TIME * 2, 
+                                          TimeZone.getTimeZone("GMT")));
+    }
+
+    /**
+     * Test that parsing matches a non-lenient SimpleDateFormat in each
+     * time zone, including times near daylight saving transitions and
+     * invalid dates, which must be left to the fallback.
+     *
+     * @throws Exception when general failure
+     */
+    public void testParse() throws Exception {
+        for (int z = 0; z < ZONES.length; ++z) {
+            TimeZone tz = TimeZone.getTimeZone(ZONES[z]);
+            for (int i = 0; i < 20000; ++i) {
+                long time = this._time(i);
+                String ccsdsa = this._format(CCSDSA, tz, time);
+                String db = this._format(DB, tz, time);
+                String utc = this._format(UTC, tz, time);
+                assertEquals(this._parse(CCSDSA, tz, ccsdsa),
+                             DateTimeCodec.parseCCSDSA(ccsdsa, false, tz));
+                assertEquals(this._parse(DB, tz, db),
+                             DateTimeCodec.parseDB(db, false, tz));
+                assertEquals(this._parse(UTC, tz, utc),
+                             DateTimeCodec.parseUTC(utc, false, tz));
+
+                //wall times that may not exist or fall in an overlap
+                String wall = ccsdsa.substring(0, 11) + 
+                              this._pad(this._random.nextInt(25), 2) + 
+                              ccsdsa.substring(13);
+                this._assertParse(CCSDSA, tz, wall,
+                         DateTimeCodec.parseCCSDSA(wall, false, tz));
+            }
+        }
+
+        TimeZone gmt = TimeZone.getTimeZone("GMT");
+        String[] invalid = {"2008-02-30T00:00:00.000", "2007-366T00:00:00.000",
+                            "2008-13-01T00:00:00.000", "2008-01-01T24:00:00.000",
+                            "2008-01-01T00:60:00.000", "2008-01-01T00:00:60.000",
+                            "2008-01-01X00:00:00.000", "2008-01-01T00:00:00.00",
+                            "1200-01-01T00:00:00.000", "2008-1-01T00:00:00.000"};
+        for (int i = 0; i < invalid.length; ++i)
+            assertEquals(invalid[i], DateTimeCodec.UNPARSED,
+                         DateTimeCodec.parseCCSDSA(invalid[i], false, gmt));
+    }
+
+    /**
+     * Test that truncated times are completed as 
+     * DateTimeUtil.completeTimeString() does.
+     *
+     * @throws Exception when general failure
+     */
+    public void testParseTruncated() throws Exception {
+        TimeZone tz = TimeZone.getTimeZone("America/Los_Angeles");
+        String[] ccsdsa = {"2008-07-04", "2008-07-04T13", "2008-07-04T13:05",
+                           "2008-07-04T13:05:09"};
+        for (int i = 0; i < ccsdsa.length; ++i) {
+            String full = DateTimeUtil.completeTimeString(ccsdsa[i], true);
+            assertEquals(this._parse(CCSDSA, tz, full),
+                         DateTimeCodec.parseCCSDSA(ccsdsa[i], true, tz));
+            assertEquals(DateTimeCodec.UNPARSED,
+                         DateTimeCodec.parseCCSDSA(ccsdsa[i], false, tz));
+            String db = ccsdsa[i].replace('T', ' ');
+            full = DateTimeUtil.completeTimeString(db, false);
+            assertEquals(this._parse(DB, tz, full),
+                         DateTimeCodec.parseDB(db, true, tz));
+        }
+        assertEquals(this._parse(UTC, tz, "2008-186T13:05:00.000"),
+                     DateTimeCodec.parseUTC("2008-186T13:05", true, tz));
+    }
+
+    /**
+     * Test parsing with an RFC822 zone, or the current offset if absent.
+     *
+     * @throws Exception when general failure
+     */
+    public void testParseWithZone() throws Exception {
+        TimeZone tz = TimeZone.getTimeZone("America/Los_Angeles");
+        String[] zoned = {"2008-07-04T13:05:09.123-0700",
+                          "2008-01-04T13:05:09.123+0530",
+                          "2008-01-04T13:05:09.123+0000"};
+        for (int i = 0; i < zoned.length; ++i)
+            assertEquals(this._parse(CCSDSA_ZONE, tz, zoned[i]),
+                         DateTimeCodec.parseCCSDSAWithZone(zoned[i], tz));
+
+        String local = "2008-01-04T13:05";
+        String full = DateTimeUtil.completeTimeStringWithWithRFC822TimeZone(
+                                                        local, true, false);
+        assertEquals(this._parse(CCSDSA_ZONE, tz, full),
+                     DateTimeCodec.parseCCSDSAWithZone(local, 
+                                           TimeZone.getTimeZone("GMT")));
+        assertEquals(DateTimeCodec.UNPARSED,
+                     DateTimeCodec.parseCCSDSAWithZone(
+                                   "2008-01-04T13:05:09.123+2500", tz));
+    }
+
+    /**
+     * Test that DateTimeUtil still reports invalid times and accepts 
+     * forms handled only by SimpleDateFormat.
+     *
+     * @throws Exception when general failure
+     */
+    public void testDateTimeUtilFallback() throws Exception {
+        try {
+            DateTimeUtil.getCCSDSADate("2008-02-30T00:00:00.000");
+            fail("Expected ParseException");
+        } catch (ParseException pEx) {
+            assertTrue(pEx.getMessage().startsWith("Invalid date-time"));
+        }
+
+        Date date = DateTimeUtil.getCCSDSADate("2001-11-23T12:12:1.000");
+        assertEquals("2001-11-23T12:12:01.000", 
+                     DateTimeUtil.getDateCCSDSAString(date));
+        assertEquals(DateTimeUtil.getCCSDSADate("2001-11-23T12:12:01"), date);
+        assertTrue(DateTimeUtil.isValidCCSDSA("2001-11-23T12:12:01.000"));
+        assertFalse(DateTimeUtil.isValidCCSDSA("2001-11-23"));
+        assertEquals("2001-11-23T12:12:01.000", 
+                     DateTimeUtil.convertFromDBFormat("2001-11-23 12:12:01"));
+    }
+
+    /**
+     * Test that DateTimeUtil follows changes to the default time zone.
+     *
+     * @throws Exception when general failure
+     */
+    public void testDefaultZoneChange() throws Exception {
+        TimeZone saved = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+            Date date = DateTimeUtil.getCCSDSADate("2001-11-23T12:12:01.000");
+            assertEquals(this._parse(CCSDSA, TimeZone.getTimeZone("GMT"),
+                                     "2001-11-23T12:12:01.000"),
+                         date.getTime());
+
+            TimeZone tz = TimeZone.getTimeZone("Asia/Kolkata");
+            TimeZone.setDefault(tz);
+            assertEquals(this._format(CCSDSA, tz, date.getTime()),
+                         DateTimeUtil.getDateCCSDSAString(date));
+            assertEquals(date.getTime() - tz.getOffset(date.getTime()),
+                         DateTimeUtil.getCCSDSADate(
+                                 "2001-11-23T12:12:01.000").getTime());
+        } finally {
+            TimeZone.setDefault(saved);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    /**
+     * Returns a random time, every tenth near a daylight saving
+     * transition of recent years.
+     */
+    private long _time(int i) {
+        if (i % 10 == 0) {
+            long year = 1970 + this._random.nextInt(60);
+            long base = (year - 1970) * 31556952000L;
+            return base + (long) (this._random.nextDouble() * 31556952000L);
+        }
+        return MIN_TIME + (long) (this._random.nextDouble() * 
+                                  (MAX_TIME - MIN_TIME));
+    }
+
+    private String _format(String pattern, TimeZone tz, long time) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(tz);
+        return format.format(new Date(time));
+    }
+
+    private long _parse(String pattern, TimeZone tz, String s) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(tz);
+        format.setLenient(false);
+        try {
+            return format.parse(s).getTime();
+        } catch (ParseException pEx) {
+            return DateTimeCodec.UNPARSED;
+        }
+    }
+
+    private void _assertParse(String pattern, TimeZone tz, String s,
+                              long parsed) {
+        long expected = this._parse(pattern, tz, s);
+        if (parsed != DateTimeCodec.UNPARSED || 
+            expected == DateTimeCodec.UNPARSED)
+            assertEquals(tz.getID() + " " + s, expected, parsed);
+    }
+
+    private String _pad(int value, int count) {
+        String s = Integer.toString(value);
+        while (s.length() < count)
+            s = "0" + s;
+        return s;
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledge. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+package jpl.mipl.mdms.test.FileService.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import jpl.mipl.mdms.FileService.util.Errno;
+import jpl.mipl.mdms.FileService.util.FileSystem;
+import jpl.mipl.mdms.FileService.util.NioFileSystem;
+import jpl.mipl.mdms.FileService.util.UnixFileSystem;
+
+/**
+ * Measures the rate at which files are promoted from a SAFEREAD shadow
+ * directory, linked and locked by the shell based UnixFileSystem and the
+ * in-process NioFileSystem.  Each file is moved into the output
+ * directory, given a symbolic link in a link directory, and locked and
+ * unlocked, which are the per-file operations of a get with SAFEREAD and
+ * of replication.
+ * <p>
+ * Usage: FileSystemBenchmark [files] [shadow dir] [output dir]
+ * <p>
+ * A shadow directory on another file system exercises the copying move.
+ */
+public class FileSystemBenchmark
+{
+    private static final String[] OPS = {"move", "link", "lock"};
+
+    //---------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception
+    {
+        int files = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        File base = File.createTempFile("fsbench", "");
+        base.delete();
+        File shadowDir = (args.length > 1) ? new File(args[1]) :
+                                             new File(base, "shadow");
+        File outputDir = (args.length > 2) ? new File(args[2]) :
+                                             new File(base, "output");
+
+        FileSystem[] systems = {new UnixFileSystem(), new NioFileSystem()};
+        System.out.println("files=" + files + ", shadow=" + shadowDir +
+                           ", output=" + outputDir);
+        try {
+            for (int s = 0; s < systems.length; ++s)
+            {
+                String name = systems[s].getClass().getName();
+                name = name.substring(name.lastIndexOf('.') + 1);
+                for (int op = 0; op < OPS.length; ++op)
+                {
+                    _prepare(shadowDir, outputDir, files);
+                    long begin = System.nanoTime();
+                    _run(systems[s], op, shadowDir, outputDir, files);
+                    long elapsed = System.nanoTime() - begin;
+                    System.out.println(name + " " + OPS[op] + ": " +
+                              (files * 1000000000L / Math.max(1, elapsed)) +
+                              " files/s, " + (elapsed / files / 1000) +
+                              " us/file");
+                }
+            }
+        } finally {
+            _delete(shadowDir);
+            _delete(outputDir);
+            _delete(base);
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _run(FileSystem fs, int op, File shadowDir,
+                             File outputDir, int files)
+    {
+        File linkDir = new File(outputDir, "links");
+        for (int i = 0; i < files; ++i)
+        {
+            String name = "file" + i;
+            String shadow = new File(shadowDir, name).getPath();
+            String output = new File(outputDir, name).getPath();
+            Errno errno;
+            switch (op)
+            {
+                case 0:
+                    errno = fs.moveFile(shadow, output);
+                    break;
+                case 1:
+                    errno = fs.createSoftLink(shadow,
+                                       new File(linkDir, name).getPath());
+                    break;
+                default:
+                    errno = fs.lockGroupOther(shadow);
+                    if (errno.getId() == 0)
+                        errno = fs.unlockUserGroup(shadow);
+                    break;
+            }
+            if (errno.getId() != 0)
+                throw new IllegalStateException(errno.getMessage());
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _prepare(File shadowDir, File outputDir, int files)
+                                                         throws IOException
+    {
+        _delete(shadowDir);
+        _delete(outputDir);
+        shadowDir.mkdirs();
+        new File(outputDir, "links").mkdirs();
+        byte[] data = new byte[1024];
+        for (int i = 0; i < files; ++i)
+        {
+            FileOutputStream out = new FileOutputStream(
+                                     new File(shadowDir, "file" + i));
+            out.write(data);
+            out.close();
+        }
+    }
+
+    //---------------------------------------------------------------------
+
+    private static void _delete(File file)
+    {
+        File[] files = file.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            _delete(files[i]);
+        file.delete();
+    }
+
+    //---------------------------------------------------------------------
+}
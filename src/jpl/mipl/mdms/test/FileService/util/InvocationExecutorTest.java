@@ -0,0 +1,270 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledged. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+
+package jpl.mipl.mdms.test.FileService.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jpl.mipl.mdms.FileService.util.InvocationExecutor;
+import jpl.mipl.mdms.utils.logging.Logger;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for InvocationExecutor.  Uses the Unix sleep, true
+ * and false commands; the tests pass trivially where these are not
+ * available.
+ */
+public class InvocationExecutorTest extends TestCase {
+    private static final String SLEEP = "sleep 0.2";
+    private static final long SLEEP_MS = 200;
+
+    private final Logger _logger = Logger.getLogger(
+                                   InvocationExecutorTest.class.getName());
+    private final List _intervals = new ArrayList();
+    private final List _keys = new ArrayList();
+    private InvocationExecutor _executor = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public InvocationExecutorTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        if (this._executor != null) {
+            this._executor.awaitCompletion(10000);
+            this._executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that no more commands than the concurrency limit run at once.
+     *
+     * @throws Exception when general failure
+     */
+    public void testConcurrencyLimit() throws Exception {
+        if (!this._available())
+            return;
+        this._create(2, 10, false);
+        for (int i = 0; i < 6; ++i)
+            assertTrue(this._executor.submit("type" + i, SLEEP));
+        assertTrue(this._executor.awaitCompletion(10000));
+
+        assertEquals(6, this._executor.getCompletedCount());
+        assertEquals(0, this._executor.getFailedCount());
+        assertEquals(2, this._maxOverlap(null));
+        assertTrue(this._executor.getMeanLatency() >= SLEEP_MS);
+        assertTrue(this._executor.getMaxQueueTime() >= SLEEP_MS);
+    }
+
+    /**
+     * Test that submit blocks once the queue is full.
+     *
+     * @throws Exception when general failure
+     */
+    public void testBackpressure() throws Exception {
+        if (!this._available())
+            return;
+        this._create(1, 1, false);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 4; ++i)
+            assertTrue(this._executor.submit(null, SLEEP));
+        long elapsed = System.currentTimeMillis() - start;
+
+        //last two submissions each waited for a command to complete
+        assertTrue("Submit did not block: " + elapsed,
+                   elapsed >= 2 * SLEEP_MS - 50);
+        assertTrue(this._executor.awaitCompletion(10000));
+        assertEquals(4, this._executor.getCompletedCount());
+    }
+
+    /**
+     * Test that ordered commands of one key run one at a time, while
+     * commands of other keys still run alongside them.
+     *
+     * @throws Exception when general failure
+     */
+    public void testOrdering() throws Exception {
+        if (!this._available())
+            return;
+        this._create(4, 20, true);
+        for (int i = 0; i < 4; ++i) {
+            assertTrue(this._executor.submit("typeA", SLEEP));
+            assertTrue(this._executor.submit("typeB", SLEEP));
+        }
+        assertTrue(this._executor.awaitCompletion(10000));
+
+        assertEquals(8, this._executor.getCompletedCount());
+        assertEquals(1, this._maxOverlap("typeA"));
+        assertEquals(1, this._maxOverlap("typeB"));
+        assertEquals(2, this._maxOverlap(null));
+    }
+
+    /**
+     * Test that with halt on error, a failure skips queued commands and
+     * refuses further ones.
+     *
+     * @throws Exception when general failure
+     */
+    public void testHaltOnError() throws Exception {
+        if (!this._available())
+            return;
+        this._create(1, 10, false);
+        this._executor.setHaltOnError(true);
+        assertTrue(this._executor.submit(null, "false"));
+        int accepted = 1;
+        for (int i = 0; i < 3; ++i)
+            if (this._executor.submit(null, SLEEP))
+                ++accepted;
+        assertTrue(this._executor.awaitCompletion(10000));
+
+        assertTrue(this._executor.isHalted());
+        assertFalse(this._executor.submit(null, "true"));
+        assertEquals(1, this._executor.getCompletedCount());
+        assertEquals(1, this._executor.getFailedCount());
+        assertEquals(accepted - 1, this._executor.getSkippedCount());
+    }
+
+    /**
+     * Test that without halt on error, failures are counted and later
+     * commands still run.
+     *
+     * @throws Exception when general failure
+     */
+    public void testContinueOnError() throws Exception {
+        if (!this._available())
+            return;
+        this._create(1, 10, false);
+        assertTrue(this._executor.submit(null, "false"));
+        assertTrue(this._executor.submit(null, "true"));
+        assertTrue(this._executor.awaitCompletion(10000));
+
+        assertFalse(this._executor.isHalted());
+        assertEquals(2, this._executor.getCompletedCount());
+        assertEquals(1, this._executor.getFailedCount());
+        assertEquals(0, this._executor.getSkippedCount());
+    }
+
+    /**
+     * Test that finish cancels commands still running after the timeout,
+     * and skips those queued.
+     *
+     * @throws Exception when general failure
+     */
+    public void testFinishTimeout() throws Exception {
+        if (!this._available())
+            return;
+        this._create(1, 10, false);
+        assertTrue(this._executor.submit(null, "sleep 30"));
+        assertTrue(this._executor.submit(null, "sleep 30"));
+
+        long start = System.currentTimeMillis();
+        assertFalse(this._executor.finish(SLEEP_MS));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Took " + elapsed + " ms", elapsed < 10000);
+        assertEquals(1, this._executor.getFailedCount());
+        assertEquals(1, this._executor.getSkippedCount());
+        assertFalse(this._executor.submit(null, "true"));
+    }
+
+    /**
+     * Test that with halt on error, finish cancels running commands as
+     * soon as one fails.
+     *
+     * @throws Exception when general failure
+     */
+    public void testFinishOnHalt() throws Exception {
+        if (!this._available())
+            return;
+        this._create(2, 10, false);
+        this._executor.setHaltOnError(true);
+        assertTrue(this._executor.submit(null, "sleep 30"));
+        assertTrue(this._executor.submit(null, "false"));
+
+        long start = System.currentTimeMillis();
+        assertFalse(this._executor.finish(60000));
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Took " + elapsed + " ms", elapsed < 10000);
+        assertTrue(this._executor.isHalted());
+        assertEquals(2, this._executor.getFailedCount());
+    }
+
+    /**
+     * Test that finish returns once all commands have completed.
+     *
+     * @throws Exception when general failure
+     */
+    public void testFinish() throws Exception {
+        if (!this._available())
+            return;
+        this._create(2, 10, false);
+        for (int i = 0; i < 3; ++i)
+            assertTrue(this._executor.submit(null, SLEEP));
+        assertTrue(this._executor.finish(10000));
+        assertEquals(3, this._executor.getCompletedCount());
+        assertEquals(0, this._executor.getFailedCount());
+    }
+
+    //---------------------------------------------------------------------
+
+    private boolean _available() {
+        return new File("/bin/sleep").exists() ||
+               new File("/usr/bin/sleep").exists();
+    }
+
+    private void _create(int concurrency, int capacity, boolean ordered) {
+        this._executor = new InvocationExecutor(concurrency, capacity,
+                                                ordered, this._logger);
+        this._executor.setListener(
+                           new InvocationExecutor.InvocationListener() {
+            public void invocationCompleted(
+                                 InvocationExecutor.Invocation invocation) {
+                if (invocation.isSkipped())
+                    return;
+                long end = System.currentTimeMillis();
+                synchronized (_intervals) {
+                    _intervals.add(new long[] {
+                                   end - invocation.getLatency(), end});
+                    _keys.add(invocation.getKey());
+                }
+            }
+        });
+    }
+
+    private int _maxOverlap(String key) {
+        int max = 0;
+        synchronized (this._intervals) {
+            for (int i = 0; i < this._intervals.size(); ++i) {
+                if (key != null && !key.equals(this._keys.get(i)))
+                    continue;
+                //count intervals running midway through interval i
+                long[] interval = (long[]) this._intervals.get(i);
+                long t = (interval[0] + interval[1]) / 2;
+                int running = 0;
+                for (int j = 0; j < this._intervals.size(); ++j) {
+                    if (key != null && !key.equals(this._keys.get(j)))
+                        continue;
+                    long[] other = (long[]) this._intervals.get(j);
+                    if (other[0] <= t && t < other[1])
+                        ++running;
+                }
+                max = Math.max(max, running);
+            }
+        }
+        return max;
+    }
+}
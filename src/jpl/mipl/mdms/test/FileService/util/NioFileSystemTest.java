@@ -0,0 +1,164 @@
+/**
+ *  @copyright Copyright 2003, California Institute of Technology.
+ *  ALL RIGHTS RESERVED.
+ *  U.S. Government Sponsorship acknowledge. 29-6-2000.
+ *  MIPL Data Management System (MDMS).
+ */
+package jpl.mipl.mdms.test.FileService.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import jpl.mipl.mdms.FileService.util.Errno;
+import jpl.mipl.mdms.FileService.util.FileSystem;
+import jpl.mipl.mdms.FileService.util.NioFileSystem;
+import jpl.mipl.mdms.FileService.util.UnixFileSystem;
+import junit.framework.TestCase;
+
+/**
+ * JUnit test case for the in-process file system, checking its results
+ * against those of the shell commands of UnixFileSystem.
+ */
+public class NioFileSystemTest extends TestCase {
+    private File _dir = null;
+    private FileSystem _fs = null;
+
+    /**
+     * Constructor
+     *
+     * @param name the test suite name
+     */
+    public NioFileSystemTest(String name) {
+        super(name);
+    }
+
+    /**
+     * Override the TestCase setUp method to initialize test environment.
+     *
+     * @throws Exception when general failure
+     */
+    public void setUp() throws Exception {
+        this._dir = File.createTempFile("niofstest", "");
+        this._dir.delete();
+        this._dir.mkdirs();
+        this._fs = new NioFileSystem();
+    }
+
+    /**
+     * Override parent tearDown method to cleanup after testing.
+     *
+     * @throws Exception when general failure
+     */
+    public void tearDown() throws Exception {
+        new UnixFileSystem().unlockUser(this._dir.getAbsolutePath());
+        _delete(this._dir);
+    }
+
+    /**
+     * Test moving a file over an existing file, and moving a missing file.
+     *
+     * @throws Exception when general failure
+     */
+    public void testMoveFile() throws Exception {
+        File src = _write(new File(this._dir, "shadow"), "new");
+        File dst = _write(new File(this._dir, "final"), "old");
+
+        Errno errno = this._fs.moveFile(src.getPath(), dst.getPath());
+        assertEquals(errno.getMessage(), 0, errno.getId());
+        assertFalse(src.exists());
+        assertEquals("new", new String(Files.readAllBytes(dst.toPath())));
+
+        errno = this._fs.moveFile(src.getPath(), dst.getPath());
+        assertEquals(-1, errno.getId());
+        assertTrue(dst.exists());
+    }
+
+    /**
+     * Test creating symbolic links, including into a directory.
+     *
+     * @throws Exception when general failure
+     */
+    public void testSoftLink() throws Exception {
+        File target = _write(new File(this._dir, "target"), "data");
+        File link = new File(this._dir, "link");
+        File subdir = new File(this._dir, "sub");
+        subdir.mkdir();
+
+        Errno errno = this._fs.createSoftLink(target.getPath(), link.getPath());
+        assertEquals(errno.getMessage(), 0, errno.getId());
+        assertTrue(Files.isSymbolicLink(link.toPath()));
+        assertEquals(target.toPath(), Files.readSymbolicLink(link.toPath()));
+
+        errno = this._fs.createSoftLink(target.getPath(), link.getPath());
+        assertEquals(-1, errno.getId());
+
+        errno = this._fs.createSoftLink(target.getPath(), subdir.getPath());
+        assertEquals(errno.getMessage(), 0, errno.getId());
+        assertTrue(Files.isSymbolicLink(new File(subdir, "target").toPath()));
+
+        errno = this._fs.removeSoftLink(link.getPath());
+        assertEquals(0, errno.getId());
+        assertFalse(link.exists());
+        assertTrue(target.exists());
+    }
+
+    /**
+     * Test that recursive locks match those of chmod -R.
+     *
+     * @throws Exception when general failure
+     */
+    public void testLocks() throws Exception {
+        FileSystem unix = new UnixFileSystem();
+        File nioRoot = _tree(new File(this._dir, "nio"));
+        File unixRoot = _tree(new File(this._dir, "unix"));
+
+        _check(this._fs.lockGroupOther(nioRoot.getPath()),
+               unix.lockGroupOther(unixRoot.getPath()), nioRoot, unixRoot);
+        _check(this._fs.unlockUserGroup(nioRoot.getPath()),
+               unix.unlockUserGroup(unixRoot.getPath()), nioRoot, unixRoot);
+        _check(this._fs.lockUserGroupOther(nioRoot.getPath()),
+               unix.lockUserGroupOther(unixRoot.getPath()), nioRoot, unixRoot);
+        _check(this._fs.unlockUser(nioRoot.getPath()),
+               unix.unlockUser(unixRoot.getPath()), nioRoot, unixRoot);
+    }
+
+    private void _check(Errno nio, Errno unix, File nioRoot, File unixRoot)
+                                                         throws IOException {
+        assertEquals(nio.getMessage(), 0, nio.getId());
+        assertEquals(unix.getMessage(), 0, unix.getId());
+        String[] paths = {"", "/a", "/sub", "/sub/b"};
+        for (int i = 0; i < paths.length; ++i)
+            assertEquals(paths[i], _permissions(unixRoot, paths[i]),
+                         _permissions(nioRoot, paths[i]));
+    }
+
+    private static String _permissions(File root, String path)
+                                                       throws IOException {
+        return PosixFilePermissions.toString(Files.getPosixFilePermissions(
+                                new File(root.getPath() + path).toPath()));
+    }
+
+    private static File _tree(File root) throws IOException {
+        new File(root, "sub").mkdirs();
+        _write(new File(root, "a"), "a");
+        _write(new File(root, "sub/b"), "b");
+        return root;
+    }
+
+    private static File _write(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+        return file;
+    }
+
+    private static void _delete(File file) {
+        File[] files = file.listFiles();
+        for (int i = 0; files != null && i < files.length; ++i)
+            _delete(files[i]);
+        file.delete();
+    }
+}
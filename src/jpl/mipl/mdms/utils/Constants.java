@@ -64,4 +64,16 @@ public interface Constants
     
     /** Sets upper limit of asynchronous system process invocations */
     public static final String PROPERTY_ASYNC_INVOKE_LIMIT  = "mdms.invoke.async.limit";
+    
+    /** Sets number of asynchronous invocations that may wait for a slot */
+    public static final String PROPERTY_ASYNC_INVOKE_QUEUE  = "mdms.invoke.async.queue";
+    
+    /** Enables in-order asynchronous invocation for each file type */
+    public static final String PROPERTY_ASYNC_INVOKE_ORDERED = "mdms.invoke.async.ordered";
+    
+    /** Sets milliseconds to wait for asynchronous invocations on exit */
+    public static final String PROPERTY_ASYNC_INVOKE_TIMEOUT = "mdms.invoke.async.timeout";
+    
+    /** Disables in-process file system operations when set to false */
+    public static final String PROPERTY_NIO_FILESYSTEM   = "mdms.filesystem.nio";
 }